@@ -0,0 +1,170 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Generates Kubernetes objects shaped like those kAppNav reads from a cluster, for the benchmarks.
+ */
+public final class Fixtures {
+
+    private static final String[] TIERS = { "web", "db", "cache", "batch" };
+    private static final String[] ENVIRONMENTS = { "dev", "test", "prod" };
+
+    private Fixtures() {}
+
+    /**
+     * An Application selecting the components labelled app=app-{app} with a matchLabels
+     * entry and three matchExpressions.
+     */
+    public static JsonObject application(String name, String namespace, int app) {
+        final JsonObject matchLabels = new JsonObject();
+        matchLabels.addProperty("app", "app-" + app);
+        final JsonArray matchExpressions = new JsonArray();
+        matchExpressions.add(expression("tier", "In", "web", "batch"));
+        matchExpressions.add(expression("environment", "NotIn", "dev"));
+        matchExpressions.add(expression("canary", "DoesNotExist"));
+        final JsonObject selector = new JsonObject();
+        selector.add("matchLabels", matchLabels);
+        selector.add("matchExpressions", matchExpressions);
+
+        final JsonArray componentKinds = new JsonArray();
+        for (String kind : new String[] { "Deployment", "Service", "Route", "ConfigMap" }) {
+            final JsonObject componentKind = new JsonObject();
+            componentKind.addProperty("group", "Route".equals(kind) ? "route.openshift.io" : "");
+            componentKind.addProperty("kind", kind);
+            componentKinds.add(componentKind);
+        }
+        final JsonObject spec = new JsonObject();
+        spec.add("selector", selector);
+        spec.add("componentKinds", componentKinds);
+
+        final JsonObject application = new JsonObject();
+        application.addProperty("apiVersion", "app.k8s.io/v1beta1");
+        application.addProperty("kind", "Application");
+        application.add("metadata", metadata(name, namespace, labels(app, 0)));
+        application.add("spec", spec);
+        return application;
+    }
+
+    /**
+     * A Deployment labelled app=app-{i % 100} with tier, environment and version labels,
+     * kAppNav annotations and a two container pod template.
+     */
+    public static JsonObject deployment(String name, String namespace, int i) {
+        final JsonObject metadata = metadata(name, namespace, labels(i % 100, i));
+        final JsonObject annotations = new JsonObject();
+        annotations.addProperty("kappnav.subkind", "Liberty");
+        annotations.addProperty("kappnav.app.auto-create", "true");
+        annotations.addProperty("deployment.kubernetes.io/revision", Integer.toString(1 + i % 7));
+        annotations.addProperty("kappnav.io/url", "https://" + name + ".apps.example.com");
+        metadata.add("annotations", annotations);
+        metadata.addProperty("uid", "3f2a1c6e-0000-4000-8000-" + String.format("%012d", i));
+        metadata.addProperty("resourceVersion", Integer.toString(100000 + i));
+
+        final JsonArray containers = new JsonArray();
+        containers.add(container("web", "registry.example.com/" + name + ":1." + (i % 10), 9080));
+        containers.add(container("proxy", "registry.example.com/proxy:2.3", 15001));
+        final JsonObject podSpec = new JsonObject();
+        podSpec.add("containers", containers);
+        podSpec.addProperty("serviceAccountName", "default");
+        final JsonObject template = new JsonObject();
+        template.add("metadata", metadata(null, null, labels(i % 100, i)));
+        template.add("spec", podSpec);
+        final JsonObject spec = new JsonObject();
+        spec.addProperty("replicas", 1 + i % 3);
+        spec.add("template", template);
+
+        final JsonArray conditions = new JsonArray();
+        conditions.add(condition("Available", "True"));
+        conditions.add(condition("Progressing", "True"));
+        final JsonObject status = new JsonObject();
+        status.addProperty("replicas", 1 + i % 3);
+        status.addProperty("readyReplicas", 1 + i % 3);
+        status.add("conditions", conditions);
+
+        final JsonObject deployment = new JsonObject();
+        deployment.addProperty("apiVersion", "apps/v1");
+        deployment.addProperty("kind", "Deployment");
+        deployment.add("metadata", metadata);
+        deployment.add("spec", spec);
+        deployment.add("status", status);
+        return deployment;
+    }
+
+    private static JsonObject labels(int app, int i) {
+        final JsonObject labels = new JsonObject();
+        labels.addProperty("app", "app-" + app);
+        labels.addProperty("tier", TIERS[i % TIERS.length]);
+        labels.addProperty("environment", ENVIRONMENTS[i % ENVIRONMENTS.length]);
+        labels.addProperty("version", "v" + (i % 5));
+        labels.addProperty("app.kubernetes.io/part-of", "app-" + app);
+        if (i % 10 == 0) {
+            labels.addProperty("canary", "true");
+        }
+        return labels;
+    }
+
+    private static JsonObject metadata(String name, String namespace, JsonObject labels) {
+        final JsonObject metadata = new JsonObject();
+        if (name != null) {
+            metadata.addProperty("name", name);
+        }
+        if (namespace != null) {
+            metadata.addProperty("namespace", namespace);
+        }
+        metadata.add("labels", labels);
+        return metadata;
+    }
+
+    private static JsonObject expression(String key, String operator, String... values) {
+        final JsonObject expression = new JsonObject();
+        expression.addProperty("key", key);
+        expression.addProperty("operator", operator);
+        if (values.length > 0) {
+            final JsonArray array = new JsonArray();
+            for (String value : values) {
+                array.add(value);
+            }
+            expression.add("values", array);
+        }
+        return expression;
+    }
+
+    private static JsonObject container(String name, String image, int port) {
+        final JsonObject containerPort = new JsonObject();
+        containerPort.addProperty("containerPort", port);
+        containerPort.addProperty("protocol", "TCP");
+        final JsonArray ports = new JsonArray();
+        ports.add(containerPort);
+        final JsonObject container = new JsonObject();
+        container.addProperty("name", name);
+        container.addProperty("image", image);
+        container.add("ports", ports);
+        return container;
+    }
+
+    private static JsonObject condition(String type, String status) {
+        final JsonObject condition = new JsonObject();
+        condition.addProperty("type", type);
+        condition.addProperty("status", status);
+        condition.addProperty("lastTransitionTime", "2021-03-01T12:00:00Z");
+        return condition;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Building an application's Selector from its spec and matching it against components, one
+ * at a time with matches() or all at once with select() on a LabelIndex of the components.
+ * Each operation is one application or one component.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LabelSelectorBenchmark {
+
+    private static final int COUNT = 1000;
+
+    private JsonObject[] applications;
+    private JsonObject[] components;
+    private Selector selector;
+    private CompiledSelector compiled;
+    private LabelIndex<String> index;
+    private Set<String> names;
+
+    @Setup
+    public void setUp() {
+        applications = new JsonObject[COUNT];
+        components = new JsonObject[COUNT];
+        index = new LabelIndex<>();
+        names = new LinkedHashSet<>();
+        for (int i = 0; i < COUNT; ++i) {
+            applications[i] = Fixtures.application("app-" + i, "ns-" + (i % 20), i % 100);
+            final String name = "app-" + (i % 100) + "-web-" + i;
+            components[i] = Fixtures.deployment(name, "ns-" + (i % 20), i);
+            index.add(name, LabelIndex.getLabels(components[i]));
+            names.add(name);
+        }
+        selector = Selector.getSelector(applications[7]);
+        compiled = selector.compile();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void getSelector(Blackhole bh) {
+        for (JsonObject application : applications) {
+            bh.consume(Selector.getSelector(application));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void matches(Blackhole bh) {
+        for (JsonObject component : components) {
+            bh.consume(selector.matches(component));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void compiledMatches(Blackhole bh) {
+        for (JsonObject component : components) {
+            bh.consume(compiled.matches(component));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public Set<String> compiledSelect() {
+        return compiled.select(index, names);
+    }
+}
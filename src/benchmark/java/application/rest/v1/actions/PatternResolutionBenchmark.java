@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.actions;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.JsonObject;
+
+import application.rest.v1.Fixtures;
+
+/**
+ * Tokenizing action patterns and resolving them against a component with ResolutionContext.
+ * The patterns only use the resource resolver so that nothing is read from a cluster.
+ * Each operation is one pattern.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatternResolutionBenchmark {
+
+    // Shaped like the url-actions and cmd-actions in the default action config maps.
+    private static final String[] PATTERNS = {
+        "${resource.$.metadata.annotations['kappnav.io/url']}/health",
+        "https://console.example.com/k8s/ns/${resource.$.metadata.namespace}/deployments/${resource.$.metadata.name}",
+        "${resource.$.metadata.namespace}/${resource.$.metadata.name}?replicas=${resource.$.spec.replicas}&image=${resource.$.spec.template.spec.containers[0].image}",
+        "kubectl logs -n ${resource.$.metadata.namespace} deployment/${resource.$.metadata.name} -c ${resource.$.spec.template.spec.containers[0].name}",
+        "${resource.$.status.conditions[?(@.type=='Available')].status}",
+        "plain text without variables",
+    };
+
+    private JsonObject resource;
+
+    @Setup
+    public void setUp() {
+        resource = Fixtures.deployment("trader-web", "stock-trader", 42);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(6)
+    public void tokenize(Blackhole bh) {
+        for (String pattern : PATTERNS) {
+            for (PatternTokenizer.Token token : new PatternTokenizer(pattern)) {
+                bh.consume(token);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(6)
+    public void resolve(Blackhole bh) {
+        // A context is created per action request, so its per-request caches start empty.
+        final ResolutionContext context = new ResolutionContext(null, null, resource, "Deployment");
+        for (String pattern : PATTERNS) {
+            bh.consume(context.resolve(pattern));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.actions;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import application.rest.v1.CompiledSelector;
+import application.rest.v1.LabelIndex;
+import application.rest.v1.Selector;
+
+/**
+ * The pod lookup of apppodlist/podlist before and after it was reworked: a cluster-wide list
+ * filtered by namespace in Java with duplicates checked against the JSON array's string form,
+ * and a namespaced lookup on the label index (as done by the ResourceCache) with duplicates
+ * removed by PodlistResult's set. Each operation is the pods of one deployment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PodlistBenchmark {
+
+    private static final int COUNT = 10000;
+    private static final int NAMESPACES = 20;
+    private static final int DEPLOYMENTS_PER_NAMESPACE = 25;
+
+    // The pods of every deployment in one namespace, as apppodlist does for an application.
+    private static final String NAMESPACE = "ns-3";
+
+    private Map<String,JsonObject> pods;
+    private Map<String,Set<String>> namespaceIndex;
+    private LabelIndex<String> labelIndex;
+    private Selector[] selectors;
+
+    @Setup
+    public void setUp() {
+        pods = new LinkedHashMap<>();
+        namespaceIndex = new HashMap<>();
+        labelIndex = new LabelIndex<>();
+        for (int i = 0; i < COUNT; ++i) {
+            final String namespace = "ns-" + (i % NAMESPACES);
+            final String app = "trader-" + ((i / NAMESPACES) % DEPLOYMENTS_PER_NAMESPACE);
+            final JsonObject pod = pod(app + "-" + i, namespace, app, i);
+            final String key = namespace + "/" + app + "-" + i;
+            pods.put(key, pod);
+            namespaceIndex.computeIfAbsent(namespace, k -> new HashSet<>()).add(key);
+            labelIndex.add(key, LabelIndex.getLabels(pod));
+        }
+        selectors = new Selector[DEPLOYMENTS_PER_NAMESPACE];
+        for (int i = 0; i < selectors.length; ++i) {
+            selectors[i] = new Selector().addMatchLabel("app", "trader-" + i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DEPLOYMENTS_PER_NAMESPACE)
+    public JsonArray clusterWideContains() {
+        final JsonArray result = new JsonArray();
+        for (Selector selector : selectors) {
+            for (JsonObject pod : pods.values()) {
+                if (selector.matches(pod)) {
+                    final JsonObject metadata = pod.getAsJsonObject("metadata");
+                    if (NAMESPACE.equals(metadata.get("namespace").getAsString())) {
+                        final String name = metadata.get("name").getAsString();
+                        if (!result.toString().contains(name)) {
+                            result.add(name);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DEPLOYMENTS_PER_NAMESPACE)
+    public PodlistFunction.PodlistResult namespacedIndex() {
+        final PodlistFunction.PodlistResult result = new PodlistFunction.PodlistResult();
+        for (Selector selector : selectors) {
+            final CompiledSelector compiled = selector.compile();
+            for (String key : compiled.select(labelIndex, namespaceIndex.get(NAMESPACE))) {
+                result.add(pods.get(key).getAsJsonObject("metadata").get("name").getAsString());
+            }
+        }
+        return result;
+    }
+
+    private static JsonObject pod(String name, String namespace, String app, int i) {
+        final JsonObject labels = new JsonObject();
+        labels.addProperty("app", app);
+        labels.addProperty("pod-template-hash", Integer.toHexString(i % 7));
+        final JsonObject metadata = new JsonObject();
+        metadata.addProperty("name", name);
+        metadata.addProperty("namespace", namespace);
+        metadata.add("labels", labels);
+        final JsonObject pod = new JsonObject();
+        pod.addProperty("apiVersion", "v1");
+        pod.addProperty("kind", "Pod");
+        pod.add("metadata", metadata);
+        return pod;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.configmaps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import application.rest.v1.Fixtures;
+import application.rest.v1.configmaps.ConfigMapProcessor.ConfigMapType;
+import io.kubernetes.client.openapi.ApiClient;
+
+/**
+ * The steps that build the action and section maps of a component once the config maps
+ * have been read: matching the component against the KindActionMapping rules, merging
+ * the action config maps found in the hierarchy and filtering the sections by the
+ * component's labels and annotations. The KAM list holds the default KindActionMapping
+ * and {@code kams} custom ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigMapBenchmark {
+
+    private static final String[] KINDS = { "Deployment", "StatefulSet", "Service", "Route", "Ingress", "ConfigMap",
+            "Secret", "Pod", "Job", "PersistentVolumeClaim", "Application", "Liberty", "WAS-Traditional-App" };
+
+    @Param({ "1", "20" })
+    public int kams;
+
+    private List<JsonObject> kamList;
+    private KindActionMappingProcessor processor;
+    private JsonObject[] actionMaps;
+    private JsonObject component;
+    private SectionConfigMapProcessor sectionProcessor;
+
+    @Setup
+    public void setUp() {
+        final JsonArray items = new JsonArray();
+        items.add(kam("default", "kappnav", 1, defaultMappings()));
+        for (int i = 0; i < kams; ++i) {
+            final JsonArray mappings = new JsonArray();
+            mappings.add(mapping("apps/v1", "Deployment", null, null, "team" + i + ".actions.deployment"));
+            mappings.add(mapping("apps/v1", "Deployment", "Liberty", "*", "team" + i + ".actions.${kind}-${subkind}.${name}"));
+            mappings.add(mapping("v1", "Service", null, null, "team" + i + ".actions.service"));
+            items.add(kam("team" + i, "team" + i, 2 + i % 8, mappings));
+        }
+        final JsonObject list = new JsonObject();
+        list.add("items", items);
+        kamList = new ArrayList<>();
+        kamList.add(list);
+        processor = new KindActionMappingProcessor("stock-trader", null, "apps/v1", "trader-web", "Liberty", "Deployment");
+
+        // The instance, subkind and kind specific maps of the hierarchy, most specific first.
+        actionMaps = new JsonObject[] {
+            actionMap("kappnav.actions.deployment-liberty.trader-web", 2, 0),
+            actionMap("kappnav.actions.deployment-liberty", 8, 1),
+            actionMap("kappnav.actions.deployment", 12, 4),
+        };
+
+        component = Fixtures.deployment("trader-web", "stock-trader", 42);
+        final JsonObject sectionMap = sectionMap();
+        sectionProcessor = new SectionConfigMapProcessor("Deployment") {
+            @Override
+            public JsonObject getConfigMap(ApiClient client, JsonObject component) {
+                return sectionMap;
+            }
+        };
+    }
+
+    @Benchmark
+    public Object getConfigMapsFromKAMs() {
+        return processor.getConfigMapsFromKAMs(kamList, ConfigMapType.ACTION, "kappnav.actions.deployment-liberty.trader-web");
+    }
+
+    @Benchmark
+    public Object merge() {
+        final ActionConfigMapBuilder builder = new ActionConfigMapBuilder();
+        for (JsonObject map : actionMaps) {
+            // merge() replaces the string values in the data section with the parsed JSON, as
+            // it does with maps read from the ConfigMapCache which are copies.
+            builder.merge(map.deepCopy());
+        }
+        return builder.getConfigMap();
+    }
+
+    @Benchmark
+    public Object processSectionMap() {
+        return sectionProcessor.processSectionMap(null, component);
+    }
+
+    private static JsonArray defaultMappings() {
+        final JsonArray mappings = new JsonArray();
+        for (String kind : KINDS) {
+            final String apiVersion = "Deployment".equals(kind) || "StatefulSet".equals(kind) ? "apps/v1"
+                    : "Route".equals(kind) ? "route.openshift.io/v1" : "*/*";
+            mappings.add(mapping(apiVersion, kind, "*", "*", "kappnav.actions.${kind}-${subkind}.${name}"));
+            mappings.add(mapping(apiVersion, kind, "*", null, "kappnav.actions.${kind}-${subkind}"));
+            mappings.add(mapping(apiVersion, kind, null, "*", "kappnav.actions.${kind}.${name}"));
+            mappings.add(mapping(apiVersion, kind, null, null, "kappnav.actions.${kind}"));
+        }
+        return mappings;
+    }
+
+    private static JsonObject kam(String name, String namespace, int precedence, JsonArray mappings) {
+        final JsonObject metadata = new JsonObject();
+        metadata.addProperty("name", name);
+        metadata.addProperty("namespace", namespace);
+        final JsonObject spec = new JsonObject();
+        spec.addProperty("precedence", precedence);
+        spec.add("mappings", mappings);
+        final JsonObject kam = new JsonObject();
+        kam.addProperty("apiVersion", "actions.kappnav.io/v1");
+        kam.addProperty("kind", "KindActionMapping");
+        kam.add("metadata", metadata);
+        kam.add("spec", spec);
+        return kam;
+    }
+
+    private static JsonObject mapping(String apiVersion, String kind, String subkind, String name, String mapname) {
+        final JsonObject mapping = new JsonObject();
+        mapping.addProperty("apiVersion", apiVersion);
+        mapping.addProperty("kind", kind);
+        if (subkind != null) {
+            mapping.addProperty("subkind", subkind);
+        }
+        if (name != null) {
+            mapping.addProperty("name", name);
+        }
+        mapping.addProperty("mapname", mapname);
+        return mapping;
+    }
+
+    // A config map as read from the cluster: each data field is a JSON document in a string.
+    // Maps further down the hierarchy redefine the first {@code overlap} actions of the maps above them.
+    private static JsonObject actionMap(String name, int actions, int overlap) {
+        final JsonArray urlActions = new JsonArray();
+        final JsonArray cmdActions = new JsonArray();
+        for (int i = 0; i < actions; ++i) {
+            final String actionName = (i < overlap ? "shared-" : name + "-") + i;
+            final JsonObject urlAction = new JsonObject();
+            urlAction.addProperty("name", actionName);
+            urlAction.addProperty("text", "Open " + actionName);
+            urlAction.addProperty("description", "Open the " + actionName + " page for the component.");
+            urlAction.addProperty("url-pattern", "${resource.$.metadata.annotations['kappnav.io/url']}/" + actionName);
+            urlAction.addProperty("open-window", "tab");
+            urlAction.addProperty("menu-item", "true");
+            urlActions.add(urlAction);
+            final JsonObject cmdAction = new JsonObject();
+            cmdAction.addProperty("name", actionName + "-restart");
+            cmdAction.addProperty("text", "Restart " + actionName);
+            cmdAction.addProperty("image", "kappnav/actions:latest");
+            cmdAction.addProperty("cmd-pattern", "kubectl rollout restart deployment/${resource.$.metadata.name} -n ${resource.$.metadata.namespace}");
+            cmdActions.add(cmdAction);
+        }
+        final JsonObject snippets = new JsonObject();
+        snippets.addProperty(name + "-snippet", "function " + name.replace('.', '_').replace('-', '_') + "(a) { return a.trim(); }");
+        final JsonObject data = new JsonObject();
+        data.addProperty("url-actions", urlActions.toString());
+        data.addProperty("cmd-actions", cmdActions.toString());
+        data.addProperty("snippets", snippets.toString());
+        final JsonObject metadata = new JsonObject();
+        metadata.addProperty("name", name);
+        metadata.addProperty("namespace", "kappnav");
+        final JsonObject map = new JsonObject();
+        map.add("metadata", metadata);
+        map.add("data", data);
+        return map;
+    }
+
+    // The sections and section-datasources of a section config map, as returned by getConfigMap().
+    private static JsonObject sectionMap() {
+        final JsonArray sections = new JsonArray();
+        final JsonArray datasources = new JsonArray();
+        final String[] names = { "labels", "annotations", "kappnav", "versions" };
+        for (String name : names) {
+            final JsonObject section = new JsonObject();
+            section.addProperty("name", name);
+            section.addProperty("title", "Details: " + name);
+            section.addProperty("datasource", name + "-data");
+            if ("versions".equals(name)) {
+                section.addProperty("enablement-label", "version");
+            }
+            sections.add(section);
+
+            final JsonObject datasource = new JsonObject();
+            datasource.addProperty("name", name + "-data");
+            datasource.addProperty("type", "labels-annotations");
+            final JsonArray labels = new JsonArray();
+            labels.add("app");
+            labels.add("tier");
+            labels.add("version");
+            datasource.add("labels", labels);
+            final JsonArray annotations = new JsonArray();
+            annotations.add("kappnav.subkind");
+            annotations.add("deployment.kubernetes.io/revision");
+            datasource.add("annotations", annotations);
+            final JsonArray labelPrefixes = new JsonArray();
+            labelPrefixes.add("app.kubernetes.io/");
+            datasource.add("label-prefixes", labelPrefixes);
+            final JsonArray annotationPrefixes = new JsonArray();
+            annotationPrefixes.add("kappnav.");
+            datasource.add("annotation-prefixes", annotationPrefixes);
+            datasources.add(datasource);
+        }
+        final JsonObject map = new JsonObject();
+        map.add("sections", sections);
+        map.add("section-datasources", datasources);
+        return map;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.json;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.gson.JsonObject;
+
+import application.rest.v1.Fixtures;
+
+/**
+ * Parsing JSONPath expressions (without the compiled path cache) and resolving compiled
+ * paths against a Deployment. Each operation is one expression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JSONPathBenchmark {
+
+    private static final String[] EXPRESSIONS = {
+        "$.metadata.name",
+        "$.metadata.labels['app.kubernetes.io/part-of']",
+        "$.spec.template.spec.containers[0].image",
+        "$.spec.template.spec.containers[-1].ports[0].containerPort",
+        "$.spec.template.spec.containers[*].name",
+        "$.status.conditions[?(@.type=='Available')].status",
+    };
+
+    private final JSONPathParser parser = new JSONPathParser();
+    private JSONPath[] paths;
+    private JsonObject deployment;
+
+    @Setup
+    public void setUp() {
+        deployment = Fixtures.deployment("trader-web", "stock-trader", 42);
+        paths = new JSONPath[EXPRESSIONS.length];
+        for (int i = 0; i < EXPRESSIONS.length; ++i) {
+            paths[i] = JSONPathParser.compile(EXPRESSIONS[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(6)
+    public void parse(Blackhole bh) {
+        for (String expression : EXPRESSIONS) {
+            bh.consume(parser.parse(expression));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(6)
+    public void resolveLeaf(Blackhole bh) {
+        for (JSONPath path : paths) {
+            bh.consume(path.resolveLeaf(deployment));
+        }
+    }
+}
@@ -45,6 +45,7 @@ public class RootEndpoint {
         String componentsURL = (uriInfo.getAbsolutePath() + "/components").replaceAll("(?<!http:)\\/\\/", "/");
         String configmapURL = (uriInfo.getAbsolutePath() + "/configmap").replaceAll("(?<!http:)\\/\\/", "/");
         String kindactionmappingURL = (uriInfo.getAbsolutePath() + "/kindactionmapping").replaceAll("(?<!http:)\\/\\/", "/");
+        String metricsURL = (uriInfo.getAbsolutePath() + "/metrics").replaceAll("(?<!http:)\\/\\/", "/");
         String namespacesURL = (uriInfo.getAbsolutePath() + "/namespaces").replaceAll("(?<!http:)\\/\\/", "/");
         String secretURL = (uriInfo.getAbsolutePath() + "/secret").replaceAll("(?<!http:)\\/\\/", "/");
         String secretsURL = (uriInfo.getAbsolutePath() + "/secrets").replaceAll("(?<!http:)\\/\\/", "/");
@@ -55,6 +56,7 @@ public class RootEndpoint {
                 "\",\"components\":\"" + componentsURL +
                 "\",\"configmap\":\"" + configmapURL +
                 "\",\"kindactionmapping\":\"" + kindactionmappingURL +
+                "\",\"metrics\":\"" + metricsURL +
                 "\",\"namespaces\":\"" + namespacesURL +
                 "\",\"secret\":\"" + secretURL +
                 "\",\"secrets\":\"" + secretsURL +
@@ -65,6 +65,7 @@ import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSyntaxException;
 
 import application.rest.v1.actions.CommandLineTokenizer;
+import application.rest.v1.actions.CommandRejectedException;
 import application.rest.v1.actions.ResolutionContext;
 import application.rest.v1.actions.ResolutionContext.ResolvedValue;
 import application.rest.v1.actions.ValidationException;
@@ -155,6 +156,7 @@ public class ActionsEndpoint extends KAppNavEndpoint {
         @APIResponse(responseCode = "207", description = "Multi-Status (Error from Kubernetes API)"),
         @APIResponse(responseCode = "400", description = "Bad Request (Malformed input)"),
         @APIResponse(responseCode = "422", description = "Unprocessable Entity (User input is invalid)"),
+        @APIResponse(responseCode = "503", description = "Service Unavailable (Too many commands are running)"),
         @APIResponse(responseCode = "500", description = "Internal Server Error")})
     public Response resolve(@Pattern(regexp = NAME_PATTERN_ONE_OR_MORE) @PathParam("resource-name") @Parameter(description = "The name of the resource") final String name,
             @PathParam("resource-kind") @Parameter(description = "The Kubernetes resource kind for the resource") final String kind,
@@ -176,7 +178,13 @@ public class ActionsEndpoint extends KAppNavEndpoint {
             return response;
         } catch (IOException | ApiException | PatternException e) {
             String msg = null;
-            if (e instanceof PatternException) {
+            if (e instanceof CommandRejectedException) {
+                msg = "busy: " + e.getMessage();
+                if (Logger.isWarningEnabled()) {
+                    Logger.log(className, "resolve", Logger.LogType.WARNING,
+                            "Caught CommandRejectedException returning status: " + getResponseCode(e) + " " + msg);
+                }
+            } else if (e instanceof PatternException) {
                 msg = "pattern-error: " + e.getMessage();
                 if (Logger.isErrorEnabled()) {
                     Logger.log(className, "resolve", Logger.LogType.ERROR,
@@ -210,6 +218,7 @@ public class ActionsEndpoint extends KAppNavEndpoint {
             @APIResponse(responseCode = "400", description = "Bad Request (Malformed input)"),
             @APIResponse(responseCode = "404", description = "Not Found (Command not found in Config Map)"),
             @APIResponse(responseCode = "422", description = "Unprocessable Entity (User input is invalid)"),
+            @APIResponse(responseCode = "503", description = "Service Unavailable (Too many commands are running)"),
             @APIResponse(responseCode = "500", description = "Internal Server Error") })
     @RequestBody(description = "User Input Map")
     public Response executeApplicationCommand(final String jsonstr,
@@ -231,6 +240,7 @@ public class ActionsEndpoint extends KAppNavEndpoint {
             @APIResponse(responseCode = "400", description = "Bad Request (Malformed input)"),
             @APIResponse(responseCode = "404", description = "Not Found (Command not found in Config Map)"),
             @APIResponse(responseCode = "422", description = "Unprocessable Entity (User input is invalid)"),
+            @APIResponse(responseCode = "503", description = "Service Unavailable (Too many commands are running)"),
             @APIResponse(responseCode = "500", description = "Internal Server Error") })
     @RequestBody(description = "User Input Map")
     public Response executeComponentCommand(final String jsonstr,
@@ -297,7 +307,9 @@ public class ActionsEndpoint extends KAppNavEndpoint {
             @APIResponse(responseCode = "500", description = "Internal Server Error") })
     public Response getCommands(
             @CookieParam("kappnav-user") @DefaultValue("") @Parameter(description = "The user that submitted the command action") final String user,
-            @QueryParam("time") @DefaultValue("") @Parameter(description = "The job completion time stamp in yyyy-MM-dd'T'HH:mm:sss format") final String time) {
+            @QueryParam("time") @DefaultValue("") @Parameter(description = "The job completion time stamp in yyyy-MM-dd'T'HH:mm:sss format") final String time,
+            @QueryParam(ListPage.LIMIT_PARAMETER_NAME) @DefaultValue("0") @Parameter(description = "The maximum number of jobs to retrieve, before filtering by user and time, or 0 for all of them") final int limit,
+            @QueryParam(ListPage.CONTINUE_PARAMETER_NAME) @DefaultValue("") @Parameter(description = "The continue token returned with the previous page") final String cont) {
 
         final String methodName = "getCommands";
         if (Logger.isEntryEnabled()) {
@@ -322,9 +334,11 @@ public class ActionsEndpoint extends KAppNavEndpoint {
                         "GLOBAL_NAMESPACE=" + GLOBAL_NAMESPACE + " ,labelSelector=" + labelSelector);
             }
 
-            final List<JsonObject> commands = getItemsAsList(client, batch.listNamespacedJob(GLOBAL_NAMESPACE, null, false, null,
-                    null, labelSelector, 60, null, null, 60, false));
+            final ListPage.Page<JsonObject> page = ListPage.of(limit, cont).listFromKube(client,
+                    (l, c) -> batch.listNamespacedJob(GLOBAL_NAMESPACE, null, false, c, null, labelSelector, l, null, null, 60, false));
+            final List<JsonObject> commands = page.items;
             final CommandsResponse response = new CommandsResponse();
+            response.setContinue(page.next);
 
             commands.forEach(v -> {
                 if (v.get(KIND_PROPERTY_NAME) == null) {
@@ -385,6 +399,12 @@ public class ActionsEndpoint extends KAppNavEndpoint {
                 Logger.log(className, methodName, Logger.LogType.EXIT, "responseJSON=" + responseJSON);
             }
             return Response.ok(responseJSON).build();
+        } catch (ValidationException e) {
+            if (Logger.isErrorEnabled()) {
+                Logger.log(className, methodName, Logger.LogType.ERROR,
+                        "Caught ValidationException returning status: " + getResponseCode(e) + " " + e.getMessage());
+            }
+            return Response.status(getResponseCode(e)).entity(getStatusMessageAsJSON(e)).build();
         } catch (IOException | ApiException e) {
             String msg = null;
             if (e instanceof ApiException) {
@@ -549,6 +569,9 @@ public class ActionsEndpoint extends KAppNavEndpoint {
                 Logger.log(className, methodName, Logger.LogType.ERROR, "Caught ApiException " + msg);
             }
             throw new ApiException(404, msg);
+        } catch (final CommandRejectedException e) {
+            // Reported as busy by the caller.
+            throw e;
         } catch (final PatternException e) {
             final String msg = e.getMessage();
             if (Logger.isErrorEnabled()) {
@@ -681,6 +704,8 @@ public class ActionsEndpoint extends KAppNavEndpoint {
                 msg = "validation-error: ";
             if (e instanceof PatternException)
                 msg = "pattern-error: ";
+            if (e instanceof CommandRejectedException)
+                msg = "busy: ";
             msg = msg + e.getMessage();
             if (Logger.isErrorEnabled()) {
                 Logger.log(className, methodName, Logger.LogType.ERROR, "Caught Exception " + msg);
@@ -936,8 +961,10 @@ public class ActionsEndpoint extends KAppNavEndpoint {
 
         // Constructs:
         // {
-        // commands: [ {...}, {...}, ... ]
+        // commands: [ {...}, {...}, ... ],
+        // continue: "..."
         // }
+        // 'continue' is only present if there are more jobs to retrieve.
         public CommandsResponse() {
             o = new JsonObject();
             o.add(COMMANDS_PROPERTY_NAME, commands = new JsonArray());
@@ -951,6 +978,12 @@ public class ActionsEndpoint extends KAppNavEndpoint {
             o.add(ACTION_MAP_PROPERTY_NAME, actions);
         }
 
+        public void setContinue(final String next) {
+            if (next != null) {
+                o.addProperty(ListPage.CONTINUE_PROPERTY_NAME, next);
+            }
+        }
+
         public int size() {
             return commands.size();
         }
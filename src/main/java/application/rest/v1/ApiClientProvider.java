@@ -0,0 +1,253 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.ibm.kappnav.logging.Logger;
+
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.util.Config;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Provides a shared ApiClient for the endpoints and caches. All clients handed out
+ * by this class share a single OkHttp connection pool and dispatcher so that
+ * connections (and TLS sessions) to the Kube API server are reused across requests.
+ * The shared client is rebuilt when the service account token or the kubeconfig
+ * file changes on disk.
+ */
+public final class ApiClientProvider {
+
+    private static final String className = ApiClientProvider.class.getName();
+
+    // Configuration properties. Each can be set as a system property or an environment variable.
+    private static final String POOL_MAX_IDLE_PROPERTY = "kappnav.apiclient.pool.max.idle";
+    private static final String POOL_KEEP_ALIVE_PROPERTY = "kappnav.apiclient.pool.keep.alive.seconds";
+    private static final String MAX_REQUESTS_PROPERTY = "kappnav.apiclient.max.requests";
+    private static final String MAX_REQUESTS_PER_HOST_PROPERTY = "kappnav.apiclient.max.requests.per.host";
+    private static final String RELOAD_CHECK_INTERVAL_PROPERTY = "kappnav.apiclient.reload.check.interval.seconds";
+
+    private static final int DEFAULT_POOL_MAX_IDLE = 16;
+    private static final long DEFAULT_POOL_KEEP_ALIVE_SECONDS = 300L;
+    private static final int DEFAULT_MAX_REQUESTS = 64;
+    private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 32;
+    private static final long DEFAULT_RELOAD_CHECK_INTERVAL_SECONDS = 10L;
+
+    private static final String SERVICE_ACCOUNT_TOKEN_PATH = "/var/run/secrets/kubernetes.io/serviceaccount/token";
+    private static final String KUBECONFIG_ENV = "KUBECONFIG";
+
+    private static final int POOL_MAX_IDLE;
+    private static final long POOL_KEEP_ALIVE_SECONDS;
+    private static final int MAX_REQUESTS;
+    private static final int MAX_REQUESTS_PER_HOST;
+    private static final long RELOAD_CHECK_INTERVAL_MILLIS;
+
+    static {
+        POOL_MAX_IDLE = (int) KAppNavConfig.getLongSetting(POOL_MAX_IDLE_PROPERTY, DEFAULT_POOL_MAX_IDLE);
+        POOL_KEEP_ALIVE_SECONDS = KAppNavConfig.getLongSetting(POOL_KEEP_ALIVE_PROPERTY, DEFAULT_POOL_KEEP_ALIVE_SECONDS);
+        MAX_REQUESTS = (int) KAppNavConfig.getLongSetting(MAX_REQUESTS_PROPERTY, DEFAULT_MAX_REQUESTS);
+        MAX_REQUESTS_PER_HOST = (int) KAppNavConfig.getLongSetting(MAX_REQUESTS_PER_HOST_PROPERTY, DEFAULT_MAX_REQUESTS_PER_HOST);
+        RELOAD_CHECK_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(KAppNavConfig.getLongSetting(RELOAD_CHECK_INTERVAL_PROPERTY, DEFAULT_RELOAD_CHECK_INTERVAL_SECONDS));
+    }
+
+    // Connection pool and dispatcher shared by every client built by this class.
+    private static final ConnectionPool CONNECTION_POOL = new ConnectionPool(POOL_MAX_IDLE, POOL_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    private static final Dispatcher DISPATCHER;
+    static {
+        DISPATCHER = new Dispatcher();
+        DISPATCHER.setMaxRequests(MAX_REQUESTS);
+        DISPATCHER.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        final Metrics.Gauge connections = Metrics.gauge("kappnav_kube_api_connections",
+                "Connections to the Kube API server in the shared pool.", "state");
+        connections.register(() -> CONNECTION_POOL.connectionCount() - CONNECTION_POOL.idleConnectionCount(), "active");
+        connections.register(CONNECTION_POOL::idleConnectionCount, "idle");
+    }
+
+    private static final AtomicReference<SharedClient> SHARED_CLIENT_REF = new AtomicReference<>();
+
+    // The files the client credentials are read from, or null for the defaults.
+    private static volatile File tokenFile = null;
+    private static volatile File kubeConfigFile = null;
+
+    // For junit only
+    static void setCredentialFilesForJunit(File token, File kubeConfig) {
+        tokenFile = token;
+        kubeConfigFile = kubeConfig;
+    }
+
+    static long getReloadCheckIntervalMillis() {
+        return RELOAD_CHECK_INTERVAL_MILLIS;
+    }
+
+    private ApiClientProvider() {}
+
+    /**
+     * Returns the shared ApiClient. The client must not be reconfigured by callers;
+     * use newWatchClient() to obtain a client with different timeouts.
+     */
+    public static ApiClient getApiClient() throws IOException {
+        return getApiClient(System.currentTimeMillis());
+    }
+
+    // The credentials on disk are checked if they haven't been since the reload check interval before now.
+    static ApiClient getApiClient(long now) throws IOException {
+        SharedClient shared = SHARED_CLIENT_REF.get();
+        if (shared != null) {
+            if (now - shared.lastChecked < RELOAD_CHECK_INTERVAL_MILLIS) {
+                return shared.client;
+            }
+            final CredentialStamp stamp = CredentialStamp.current();
+            if (stamp.equals(shared.stamp)) {
+                shared.lastChecked = now;
+                return shared.client;
+            }
+            if (Logger.isInfoEnabled()) {
+                Logger.log(className, "getApiClient", Logger.LogType.INFO, "Credentials changed on disk. Rebuilding the shared ApiClient.");
+            }
+        }
+        synchronized (SHARED_CLIENT_REF) {
+            // Another thread may have rebuilt the client while we were waiting.
+            final SharedClient current = SHARED_CLIENT_REF.get();
+            final CredentialStamp stamp = CredentialStamp.current();
+            if (current != null && current != shared && stamp.equals(current.stamp)) {
+                return current.client;
+            }
+            final ApiClient client = newApiClient(false);
+            SHARED_CLIENT_REF.set(new SharedClient(client, stamp, now));
+            return client;
+        }
+    }
+
+    /**
+     * Returns a new ApiClient suitable for long running watches (no read timeout).
+     * The client shares the connection pool of the shared client.
+     */
+    public static ApiClient newWatchClient() throws IOException {
+        return newApiClient(true);
+    }
+
+    /**
+     * Returns the last modified times of the credentials on disk. A client returned from
+     * newWatchClient() needs to be rebuilt when they change.
+     */
+    static CredentialStamp getCredentialStamp() {
+        return CredentialStamp.current();
+    }
+
+    /**
+     * Discards the shared client. The next call to getApiClient() builds a new one.
+     */
+    public static void invalidate() {
+        SHARED_CLIENT_REF.set(null);
+    }
+
+    public static int getPoolMaxIdle() {
+        return POOL_MAX_IDLE;
+    }
+
+    public static long getPoolKeepAliveSeconds() {
+        return POOL_KEEP_ALIVE_SECONDS;
+    }
+
+    public static int getPoolConnectionCount() {
+        return CONNECTION_POOL.connectionCount();
+    }
+
+    public static int getPoolIdleConnectionCount() {
+        return CONNECTION_POOL.idleConnectionCount();
+    }
+
+    private static ApiClient newApiClient(boolean watch) throws IOException {
+        final ApiClient client = Config.defaultClient();
+        final OkHttpClient.Builder builder = client.getHttpClient().newBuilder()
+                .connectionPool(CONNECTION_POOL)
+                .dispatcher(DISPATCHER)
+                .addInterceptor(KubeApiMetrics.INSTANCE);
+        if (watch) {
+            builder.readTimeout(0, TimeUnit.SECONDS);
+        }
+        client.setHttpClient(builder.build());
+        if (Logger.isDebugEnabled()) {
+            Logger.log(className, "newApiClient", Logger.LogType.DEBUG, "Created ApiClient for " + client.getBasePath() +
+                    ", watch=" + watch + ", poolMaxIdle=" + POOL_MAX_IDLE + ", poolKeepAliveSeconds=" + POOL_KEEP_ALIVE_SECONDS);
+        }
+        return KAppNavEndpoint.configureApiClient(client);
+    }
+
+    static final class SharedClient {
+        private final ApiClient client;
+        private final CredentialStamp stamp;
+        private volatile long lastChecked;
+        SharedClient(ApiClient client, CredentialStamp stamp, long lastChecked) {
+            this.client = client;
+            this.stamp = stamp;
+            this.lastChecked = lastChecked;
+        }
+    }
+
+    // Last modified times of the files the client credentials are read from.
+    static final class CredentialStamp {
+        private final long tokenModified;
+        private final long kubeConfigModified;
+        CredentialStamp(long tokenModified, long kubeConfigModified) {
+            this.tokenModified = tokenModified;
+            this.kubeConfigModified = kubeConfigModified;
+        }
+        static CredentialStamp current() {
+            return AccessController.doPrivileged(new PrivilegedAction<CredentialStamp>() {
+                public CredentialStamp run() {
+                    final File token = tokenFile;
+                    final File kubeConfig = kubeConfigFile;
+                    return new CredentialStamp(lastModified((token != null) ? token : new File(SERVICE_ACCOUNT_TOKEN_PATH)),
+                            lastModified((kubeConfig != null) ? kubeConfig : getKubeConfigFile()));
+                }
+            });
+        }
+        private static File getKubeConfigFile() {
+            final String kubeConfig = System.getenv(KUBECONFIG_ENV);
+            if (kubeConfig != null && !kubeConfig.isEmpty()) {
+                return new File(kubeConfig);
+            }
+            final String home = System.getProperty("user.home");
+            return (home != null) ? new File(new File(home, ".kube"), "config") : null;
+        }
+        private static long lastModified(File f) {
+            return (f != null) ? f.lastModified() : 0L;
+        }
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof CredentialStamp) {
+                final CredentialStamp other = (CredentialStamp) o;
+                return tokenModified == other.tokenModified && kubeConfigModified == other.kubeConfigModified;
+            }
+            return false;
+        }
+        @Override
+        public int hashCode() {
+            return Long.hashCode(tokenModified) * 31 + Long.hashCode(kubeConfigModified);
+        }
+    }
+}
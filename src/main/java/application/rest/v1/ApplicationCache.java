@@ -17,10 +17,17 @@
 package application.rest.v1;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -37,9 +44,12 @@ import io.kubernetes.client.util.Watch;
 import okhttp3.Call;
 
 /**
- * Cache for all Applications in the cluster. Cached lists of applications for all 
- * namespaces or a specific namespace are invalidated when a CRUD operation is
- * performed on an Application. 
+ * Cache for all Applications in the cluster. Lists of applications for all 
+ * namespaces or a specific namespace are served from an immutable snapshot of
+ * the watched map, which is rebuilt incrementally as Applications change.
+ * Secondary indexes, also maintained from the watch events, hold the parsed
+ * form of each application (see ApplicationInfo) and the applications that
+ * select components from each namespace.
  */
 public class ApplicationCache {
     
@@ -54,20 +64,46 @@ public class ApplicationCache {
     private static final Object LOCK;
     
     // AtomicReference containing the current instance of the application cache or null if there is no cache available.
-    // The key is the namespace. The value is a map of applications in that namespace.
+    // The key is the namespace. The value is a map of applications in that namespace. The cache is only published
+    // once the initial list of applications has been loaded into it, so readers never see a partial list.
     private static final AtomicReference<Map<String,Map<String,JsonObject>>> MAP_CACHE_REF = new AtomicReference<>(null);
     
-    // Cached list for listApplicationObject()
-    private static final AtomicReference<CachedList> CACHED_LIST = new AtomicReference<>(null);
+    // The map the watcher applies the application events to, including those of the initial list. It becomes
+    // the value of MAP_CACHE_REF when the initial list has been processed.
+    private static final AtomicReference<Map<String,Map<String,JsonObject>>> WATCHED_MAP_REF = new AtomicReference<>(null);
     
-    // Cached list for listNamespacedApplicationObject()
-    private static final AtomicReference<Map<String,CachedList>> CACHED_NS_LIST_MAP = new AtomicReference<>(null);
+    // Immutable snapshot of the application lists, materialized from MAP_CACHE_REF. Rebuilt lazily
+    // on read; only the namespaces recorded in DIRTY_NAMESPACES are rebuilt from the map.
+    private static final AtomicReference<Snapshot> SNAPSHOT_REF = new AtomicReference<>(null);
+    
+    // Namespaces that have changed since the current snapshot was built.
+    private static final Set<String> DIRTY_NAMESPACES = ConcurrentHashMap.newKeySet();
+    
+    // Parsed form of each cached application. The key is {namespace}/{name}.
+    private static final Map<String,ApplicationInfo> INFO_INDEX = new ConcurrentHashMap<>();
+    
+    // Applications that select components from each namespace. The key is the component namespace,
+    // the value is the set of {namespace}/{name} keys of the applications.
+    private static final Map<String,Set<String>> COMPONENT_NAMESPACE_INDEX = new ConcurrentHashMap<>();
     
     // Mod count.
     private static final AtomicLong MOD_COUNT = new AtomicLong(0);
     
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    
+    // True once the initial list of applications has been loaded into the cache and until the watch ends.
+    private static volatile boolean synced = false;
+    // True while the watch is down and the cache may be missing recent changes.
+    private static volatile boolean stale = false;
+    
     // Name of the watcher thread.
     private static final String WATCHER_THREAD_NAME = "kAppNav Application Watcher";
+
+    // Page size used when listing the applications from the cluster.
+    private static final int LIST_PAGE_SIZE = 60;
     
     // For junit only
     static CustomObjectsApi coau = null;
@@ -75,6 +111,11 @@ public class ApplicationCache {
     	coau = coa;
     }
     
+    // For junit only. Marks the initial list as loaded.
+    static void setSyncedForJunit() {
+        publishMapCache();
+    }
+    
     static CustomObjectsApi getCustomObjectsApi() {
     	if (coau == null) {
         	return new CustomObjectsApi();
@@ -83,20 +124,132 @@ public class ApplicationCache {
         }
     }
     
-    static class CachedList {
-        private volatile List<JsonObject> list;
+    /**
+     * Notified on the watcher thread after the indexes have been updated for an application change.
+     */
+    interface Listener {
+        /**
+         * The previous form is null if the application was added and the current form is null
+         * if it was deleted.
+         */
+        void applicationChanged(ApplicationInfo previous, ApplicationInfo current);
+        /**
+         * Called after the cache has been deleted.
+         */
+        void cacheReset();
+    }
+    
+    static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+    
+    static final class Snapshot {
+        // The map instance the snapshot was built from.
+        private final Map<String,Map<String,JsonObject>> source;
         private final long modCount;
-        CachedList(List<JsonObject> list, long modCount) {
-            this.list = Collections.unmodifiableList(list);
+        // The key is the namespace. The value is the list of applications in that namespace ordered by name.
+        private final Map<String,List<JsonObject>> nsLists;
+        private volatile List<JsonObject> list;
+        Snapshot(Map<String,Map<String,JsonObject>> source, long modCount, Map<String,List<JsonObject>> nsLists) {
+            this.source = source;
             this.modCount = modCount;
+            this.nsLists = Collections.unmodifiableMap(nsLists);
         }
         List<JsonObject> getList() {
-            final List<JsonObject> _list = list;
-            if (modCount == MOD_COUNT.get()) {
-                return _list;
+            List<JsonObject> _list = list;
+            if (_list == null) {
+                // Namespaces are kept in sorted order, matching the order the cluster returns them in.
+                final List<JsonObject> all = new ArrayList<>();
+                nsLists.values().forEach(v -> all.addAll(v));
+                _list = Collections.unmodifiableList(all);
+                list = _list;
             }
-            list = null;
-            return null;
+            return _list;
+        }
+        List<JsonObject> getNamespacedList(String namespace) {
+            final List<JsonObject> _list = nsLists.get(namespace);
+            return (_list != null) ? _list : Collections.emptyList();
+        }
+    }
+    
+    /**
+     * The parsed form of an application: whether it is hidden, the namespaces and component kinds
+     * of its components and its selector. Instances for cached applications are built once when
+     * the application changes and shared by all requests; they must not be modified.
+     */
+    public static final class ApplicationInfo {
+        private final JsonObject application;
+        private final String key;
+        private final boolean hidden;
+        private final List<String> componentNamespaces;
+        private final List<ComponentKind> declaredComponentKinds;
+        private final Set<String> declaredKinds = new HashSet<>();
+        private final Selector selector;
+        private final CompiledSelector compiledSelector;
+        private final String labelSelector;
+        
+        ApplicationInfo(JsonObject application, String namespace, String name) {
+            this.application = application;
+            this.key = ApplicationCache.getKey(namespace, name);
+            this.hidden = KAppNavEndpoint.isApplicationHidden(application);
+            this.componentNamespaces = Collections.unmodifiableList(KAppNavEndpoint.getComponentNamespaces(application, namespace));
+            this.declaredComponentKinds = Collections.unmodifiableList(ComponentKind.getDeclaredComponentKinds(application));
+            declaredComponentKinds.forEach(v -> declaredKinds.add(v.kind));
+            this.selector = Selector.getSelector(application);
+            this.compiledSelector = selector.compile();
+            this.labelSelector = selector.toString();
+        }
+        
+        public JsonObject getApplication() {
+            return application;
+        }
+        
+        // Returns {namespace}/{name}.
+        public String getKey() {
+            return key;
+        }
+        
+        public boolean isHidden() {
+            return hidden;
+        }
+        
+        // The namespaces from the kappnav.component.namespaces annotation followed by the application's own namespace.
+        public List<String> getComponentNamespaces() {
+            return componentNamespaces;
+        }
+        
+        // The component kinds as written in the application.
+        public List<ComponentKind> getDeclaredComponentKinds() {
+            return declaredComponentKinds;
+        }
+        
+        // Returns true if the application declares the kind. Kinds are matched by name since the
+        // group of a declared kind may be substituted when it is resolved against the registry.
+        public boolean declaresKind(String kind) {
+            return declaredKinds.contains(kind);
+        }
+        
+        // The names of the declared component kinds.
+        Set<String> getDeclaredKinds() {
+            return Collections.unmodifiableSet(declaredKinds);
+        }
+        
+        // The component kinds validated against the registry. The registry can change as
+        // CRDs are added or removed so the result is not cached.
+        public List<ComponentKind> getComponentKinds(ComponentInfoRegistry registry) {
+            return ComponentKind.resolveComponentKinds(declaredComponentKinds, registry);
+        }
+        
+        public Selector getSelector() {
+            return selector;
+        }
+        
+        public CompiledSelector getCompiledSelector() {
+            return compiledSelector;
+        }
+        
+        public String getLabelSelector() {
+            return labelSelector;
         }
     }
     
@@ -113,12 +266,14 @@ public class ApplicationCache {
                     throws ApiException {
             	final CustomObjectsApi coa = getCustomObjectsApi();
                 coa.setApiClient(client);
-                Object o = coa.listClusterCustomObject(APP_GROUP, APP_VERSION, APP_PLURAL, null, null, null, null, 60, null, 60, false);
-                return Watcher.processCustomObjectsApiList(client, o, resourceVersion);
+                return Watcher.processCustomObjectsApiList(client, cont -> 
+                    coa.listClusterCustomObject(APP_GROUP, APP_VERSION, APP_PLURAL, null, cont, null, null, LIST_PAGE_SIZE, null, 60, false), resourceVersion);
             }
 
             @Override
             public Call createWatchCall(ApiClient client, String resourceVersion) throws ApiException {
+                // The initial list has been processed.
+                publishMapCache();
             	final CustomObjectsApi coa = getCustomObjectsApi();
                 coa.setApiClient(client);
                 final ApiCallback callBack = null;
@@ -133,82 +288,255 @@ public class ApplicationCache {
 
             @Override
             public void processResponse(ApiClient client, String type, Object object) {
-                Map<String,Map<String,JsonObject>> mapCache = MAP_CACHE_REF.get();
-                if (mapCache == null) {
-                    updateModCount(); // Prevents a stale cached list from being returned when the map is restored.
-                    mapCache = new ConcurrentHashMap<>();
-                    MAP_CACHE_REF.set(mapCache);
-                    updateModCount();
-                }
-                JsonObject o = KAppNavEndpoint.getItemAsObject(client, object);
-                if (o != null) {
-                    String namespace = KAppNavEndpoint.getComponentNamespace(o);
-                    String name = KAppNavEndpoint.getComponentName(o);
-                    Map<String, JsonObject> nsMap = mapCache.get(namespace);
-                    boolean updated = false;
-                    switch (type) {
-                        case "ADDED":
-                        case "MODIFIED":
-                            if (nsMap == null) {
-                                nsMap = new ConcurrentHashMap<>();
-                                mapCache.put(namespace, nsMap);
-                            }
-                            nsMap.put(name, o);
-                            updateModCount();
-                            updated = true;
-                            break;
-                        case "DELETED":
-                            if (nsMap != null) {
-                                nsMap.remove(name);
-                                if (nsMap.isEmpty()) {
-                                    mapCache.remove(namespace);
-                                }
-                                updateModCount();
-                                updated = true;
-                            }
-                            break;
-                    }
-                    if (updated && Logger.isDebugEnabled()) {
-                        Logger.log(getClass().getName(), "processResponse", Logger.LogType.DEBUG, "Application cache updated due to Application change event :: Type: " 
-                                + type + " :: Name: " + name + " :: Namespace: " + namespace);
-                    }
-                }
+                processApplicationEvent(type, KAppNavEndpoint.getItemAsObject(client, object));
+            }
+
+            @Override
+            public void setStale(boolean stale) {
+                ApplicationCache.stale = stale;
             }
 
             @Override
             public void reset(ApiClient client) {
-                // If the watch stops or fails delete the caches.
-                MAP_CACHE_REF.set(null);
-                CACHED_LIST.set(null);
-                CACHED_NS_LIST_MAP.set(null);
-                updateModCount();
+                // The watch can't be resumed, or has stopped. Delete the caches.
+                resetCache();
             }
         });
+        Metrics.registerCache("application", ApplicationCache::getHitCount, ApplicationCache::getMissCount, INFO_INDEX::size);
     }
     
-    public static List<JsonObject> listApplicationObject(ApiClient client) throws ApiException {
-        final Map<String,Map<String,JsonObject>> mapCache = MAP_CACHE_REF.get();
-        if (mapCache != null) {
-            final CachedList cachedList = CACHED_LIST.get();
-            if (cachedList != null) {
-                final List<JsonObject> list = cachedList.getList();
-                if (list != null) {
-                    if (Logger.isDebugEnabled()) {
-                        Logger.log(CLASS_NAME, "listNamespacedApplicationObject", Logger.LogType.DEBUG, 
-                                "Returning cached Application list for all namespaces.");
+    // Applies an Application change event to the map cache.
+    static void processApplicationEvent(String type, JsonObject o) {
+        Map<String,Map<String,JsonObject>> mapCache = WATCHED_MAP_REF.get();
+        if (mapCache == null) {
+            mapCache = new ConcurrentHashMap<>();
+            WATCHED_MAP_REF.set(mapCache);
+        }
+        if (o != null) {
+            String namespace = KAppNavEndpoint.getComponentNamespace(o);
+            String name = KAppNavEndpoint.getComponentName(o);
+            Map<String, JsonObject> nsMap = mapCache.get(namespace);
+            boolean updated = false;
+            ApplicationInfo previous = null;
+            ApplicationInfo current = null;
+            switch (type) {
+                case "ADDED":
+                case "MODIFIED":
+                    if (nsMap == null) {
+                        nsMap = new ConcurrentHashMap<>();
+                        mapCache.put(namespace, nsMap);
                     }
-                    return list;
-                }
+                    nsMap.put(name, o);
+                    current = new ApplicationInfo(o, namespace, name);
+                    previous = indexApplication(current);
+                    DIRTY_NAMESPACES.add(namespace);
+                    updateModCount();
+                    updated = true;
+                    break;
+                case "DELETED":
+                    if (nsMap != null) {
+                        nsMap.remove(name);
+                        if (nsMap.isEmpty()) {
+                            mapCache.remove(namespace);
+                        }
+                        previous = unindexApplication(getKey(namespace, name));
+                        DIRTY_NAMESPACES.add(namespace);
+                        updateModCount();
+                        updated = true;
+                    }
+                    break;
+            }
+            if (updated && Logger.isDebugEnabled()) {
+                Logger.log(CLASS_NAME, "processApplicationEvent", Logger.LogType.DEBUG, "Application cache updated due to Application change event :: Type: " 
+                        + type + " :: Name: " + name + " :: Namespace: " + namespace);
+            }
+            if (previous != null || current != null) {
+                final ApplicationInfo _previous = previous;
+                final ApplicationInfo _current = current;
+                LISTENERS.forEach(v -> v.applicationChanged(_previous, _current));
+            }
+        }
+    }
+    
+    // Serves the cache once the initial list of applications has been loaded into it.
+    private static void publishMapCache() {
+        WATCHED_MAP_REF.compareAndSet(null, new ConcurrentHashMap<>());
+        if (MAP_CACHE_REF.getAndSet(WATCHED_MAP_REF.get()) == null) {
+            updateModCount();
+        }
+        synced = true;
+    }
+    
+    static void resetCache() {
+        synced = false;
+        MAP_CACHE_REF.set(null);
+        WATCHED_MAP_REF.set(null);
+        SNAPSHOT_REF.set(null);
+        DIRTY_NAMESPACES.clear();
+        INFO_INDEX.clear();
+        COMPONENT_NAMESPACE_INDEX.clear();
+        updateModCount();
+        LISTENERS.forEach(Listener::cacheReset);
+    }
+    
+    private static String getKey(String namespace, String name) {
+        return namespace + "/" + name;
+    }
+    
+    // Events are applied by the single watcher thread, so the indexes are only updated from one thread at a time.
+    // Returns the replaced form of the application, or null.
+    private static ApplicationInfo indexApplication(ApplicationInfo info) {
+        final ApplicationInfo previous = INFO_INDEX.put(info.key, info);
+        if (previous != null) {
+            previous.componentNamespaces.forEach(ns -> removeFromNamespaceIndex(ns, info.key));
+        }
+        info.componentNamespaces.forEach(ns -> COMPONENT_NAMESPACE_INDEX.computeIfAbsent(ns, k -> ConcurrentHashMap.newKeySet()).add(info.key));
+        return previous;
+    }
+    
+    // Returns the removed form of the application, or null.
+    private static ApplicationInfo unindexApplication(String key) {
+        final ApplicationInfo previous = INFO_INDEX.remove(key);
+        if (previous != null) {
+            previous.componentNamespaces.forEach(ns -> removeFromNamespaceIndex(ns, key));
+        }
+        return previous;
+    }
+    
+    private static void removeFromNamespaceIndex(String namespace, String key) {
+        COMPONENT_NAMESPACE_INDEX.computeIfPresent(namespace, (k, v) -> {
+            v.remove(key);
+            return v.isEmpty() ? null : v;
+        });
+    }
+    
+    /**
+     * Returns the parsed form of the application. The indexed instance is returned if the
+     * application is the cached object; otherwise, for instance when the application was
+     * retrieved from the cluster, it is parsed on demand.
+     */
+    public static ApplicationInfo getApplicationInfo(JsonObject application) {
+        final String namespace = KAppNavEndpoint.getComponentNamespace(application);
+        final String name = KAppNavEndpoint.getComponentName(application);
+        final ApplicationInfo info = INFO_INDEX.get(getKey(namespace, name));
+        if (info != null && info.application == application) {
+            return info;
+        }
+        return new ApplicationInfo(application, namespace, name);
+    }
+    
+    /**
+     * Returns the parsed form of the cached application with the given {namespace}/{name} key, or null.
+     */
+    static ApplicationInfo getIndexedApplicationInfo(String key) {
+        return INFO_INDEX.get(key);
+    }
+    
+    /**
+     * Returns true if the application is the cached object, so that changes to it are tracked.
+     */
+    public static boolean isIndexed(JsonObject application) {
+        final ApplicationInfo info = INFO_INDEX.get(getKey(KAppNavEndpoint.getComponentNamespace(application), KAppNavEndpoint.getComponentName(application)));
+        return info != null && info.application == application;
+    }
+    
+    /**
+     * Returns true if the cache holds all of the applications in the cluster.
+     */
+    public static boolean isSynced() {
+        return synced && MAP_CACHE_REF.get() != null;
+    }
+    
+    /**
+     * Returns the parsed form of all cached applications, or null if the application cache is not synced.
+     */
+    public static List<ApplicationInfo> getApplicationInfos() {
+        if (!isSynced()) {
+            return null;
+        }
+        return new ArrayList<>(INFO_INDEX.values());
+    }
+    
+    /**
+     * Returns the parsed form of the cached applications that select components from the
+     * namespace, or null if the application cache is not synced.
+     */
+    public static List<ApplicationInfo> getApplicationInfosForComponentNamespace(String namespace) {
+        if (!isSynced()) {
+            return null;
+        }
+        final Set<String> keys = COMPONENT_NAMESPACE_INDEX.get(namespace);
+        if (keys == null) {
+            return Collections.emptyList();
+        }
+        final List<ApplicationInfo> result = new ArrayList<>(keys.size());
+        keys.forEach(k -> {
+            final ApplicationInfo info = INFO_INDEX.get(k);
+            if (info != null) {
+                result.add(info);
             }
-            // No cached value. Retrieve the list directly from the cluster and cache it.
+        });
+        return result;
+    }
+    
+    // Returns a snapshot that is current with the map cache, rebuilding the namespaces that have changed since the last snapshot.
+    private static Snapshot getSnapshot(Map<String,Map<String,JsonObject>> mapCache) {
+        Snapshot snapshot = SNAPSHOT_REF.get();
+        if (snapshot != null && snapshot.source == mapCache && snapshot.modCount == MOD_COUNT.get()) {
+            return snapshot;
+        }
+        synchronized (SNAPSHOT_REF) {
+            snapshot = SNAPSHOT_REF.get();
+            // Read the mod count before draining the dirty set. An event that arrives after this point
+            // will bump the mod count again and cause the next reader to pick up its namespace.
             final long modCount = MOD_COUNT.get();
-            final List<JsonObject> list = listApplicationObject0(client);
-            CACHED_LIST.set(new CachedList(list, modCount));
+            if (snapshot != null && snapshot.source == mapCache && snapshot.modCount == modCount) {
+                return snapshot;
+            }
+            final Map<String,List<JsonObject>> nsLists = new TreeMap<>();
+            final Set<String> namespaces;
+            if (snapshot != null && snapshot.source == mapCache) {
+                nsLists.putAll(snapshot.nsLists);
+                namespaces = new HashSet<>();
+                final Iterator<String> i = DIRTY_NAMESPACES.iterator();
+                while (i.hasNext()) {
+                    namespaces.add(i.next());
+                    i.remove();
+                }
+            }
+            else {
+                // No snapshot for this map. Build all of the namespaces.
+                DIRTY_NAMESPACES.clear();
+                namespaces = mapCache.keySet();
+            }
+            namespaces.forEach(ns -> {
+                final Map<String,JsonObject> nsMap = mapCache.get(ns);
+                if (nsMap != null && !nsMap.isEmpty()) {
+                    nsLists.put(ns, Collections.unmodifiableList(new ArrayList<>(new TreeMap<>(nsMap).values())));
+                }
+                else {
+                    nsLists.remove(ns);
+                }
+            });
+            snapshot = new Snapshot(mapCache, modCount, nsLists);
+            SNAPSHOT_REF.set(snapshot);
             if (Logger.isDebugEnabled()) {
-                Logger.log(CLASS_NAME, "listNamespacedApplicationObject", Logger.LogType.DEBUG, 
-                        "Caching Application list for all namespaces.");
+                Logger.log(CLASS_NAME, "getSnapshot", Logger.LogType.DEBUG, 
+                        "Rebuilt Application snapshot for " + namespaces.size() + " namespace(s) at modCount " + modCount + ".");
+            }
+            return snapshot;
+        }
+    }
+    
+    public static List<JsonObject> listApplicationObject(ApiClient client) throws ApiException {
+        final Map<String,Map<String,JsonObject>> mapCache = MAP_CACHE_REF.get();
+        if (mapCache != null) {
+            HITS.incrementAndGet();
+            if (Logger.isDebugEnabled()) {
+                Logger.log(CLASS_NAME, "listApplicationObject", Logger.LogType.DEBUG, 
+                        "Returning cached Application list for all namespaces.");
             }
-            return Collections.unmodifiableList(list);
+            return getSnapshot(mapCache).getList();
         }
         else {
             // Wake up the working thread if there's no cache.
@@ -221,46 +549,28 @@ public class ApplicationCache {
             }
         }
         // No cache. Retrieve the list directly from the cluster.
+        MISSES.incrementAndGet();
         return listApplicationObject0(client);
     }
     
     private static List<JsonObject> listApplicationObject0(ApiClient client) throws ApiException {
     	final CustomObjectsApi coa = getCustomObjectsApi();
         coa.setApiClient(client);
-        final Object o = coa.listClusterCustomObject(APP_GROUP, APP_VERSION, APP_PLURAL, null, null, null, null, 60, null, 60, false);
-        return KAppNavEndpoint.getItemsAsList(client, o);
+        final List<JsonObject> result = new ArrayList<>();
+        KAppNavEndpoint.writeItemsToList(Watcher.listAllPages(client, cont ->
+            coa.listClusterCustomObject(APP_GROUP, APP_VERSION, APP_PLURAL, null, cont, null, null, LIST_PAGE_SIZE, null, 60, false)), result);
+        return result;
     }
     
     public static List<JsonObject> listNamespacedApplicationObject(ApiClient client, String namespace) throws ApiException {
         final Map<String,Map<String,JsonObject>> mapCache = MAP_CACHE_REF.get();
         if (mapCache != null) {
-            Map<String,CachedList> cachedListMap = CACHED_NS_LIST_MAP.get();
-            if (cachedListMap != null) {
-                CachedList cachedList = cachedListMap.get(namespace);
-                if (cachedList != null) {
-                    final List<JsonObject> list = cachedList.getList();
-                    if (list != null) {
-                        if (Logger.isDebugEnabled()) {
-                            Logger.log(CLASS_NAME, "listNamespacedApplicationObject", Logger.LogType.DEBUG, 
-                                    "Returning cached Application list for namespace " + namespace + ".");
-                        }
-                        return list;
-                    }
-                }
-            }
-            else {
-                cachedListMap = new ConcurrentHashMap<>();
-                CACHED_NS_LIST_MAP.set(cachedListMap);
-            }
-            // No cached value. Retrieve the list directly from the cluster and cache it.
-            final long modCount = MOD_COUNT.get();
-            List<JsonObject> list = listNamespacedApplicationObject0(client, namespace);
-            cachedListMap.put(namespace, new CachedList(list, modCount));
+            HITS.incrementAndGet();
             if (Logger.isDebugEnabled()) {
                 Logger.log(CLASS_NAME, "listNamespacedApplicationObject", Logger.LogType.DEBUG, 
-                        "Caching Application list for namespace " + namespace + ".");
+                        "Returning cached Application list for namespace " + namespace + ".");
             }
-            return Collections.unmodifiableList(list);
+            return getSnapshot(mapCache).getNamespacedList(namespace);
         }
         else {
             // Wake up the working thread if there's no cache.
@@ -273,14 +583,51 @@ public class ApplicationCache {
             }
         }
         // No cache. Retrieve the list directly from the cluster.
+        MISSES.incrementAndGet();
         return listNamespacedApplicationObject0(client, namespace);
     }
     
     private static List<JsonObject> listNamespacedApplicationObject0(ApiClient client, String namespace) throws ApiException {
     	final CustomObjectsApi coa = getCustomObjectsApi();
         coa.setApiClient(client);
-        final Object o = coa.listNamespacedCustomObject(APP_GROUP, APP_VERSION, namespace, APP_PLURAL, null, null, null, null, 60, null, 60, Boolean.FALSE);
-        return KAppNavEndpoint.getItemsAsList(client, o);
+        final List<JsonObject> result = new ArrayList<>();
+        KAppNavEndpoint.writeItemsToList(Watcher.listAllPages(client, cont ->
+            coa.listNamespacedCustomObject(APP_GROUP, APP_VERSION, namespace, APP_PLURAL, null, cont, null, null, LIST_PAGE_SIZE, null, 60, Boolean.FALSE)), result);
+        return result;
+    }
+
+    /**
+     * Returns a page of the applications in the given namespace, or in all namespaces if the
+     * namespace is null, ordered by namespace and name. Pages are cut from the cached list when
+     * it is available and requested from the cluster otherwise.
+     */
+    static ListPage.Page<JsonObject> listApplicationObject(ApiClient client, String namespace, ListPage page) throws ApiException {
+        final boolean cached = MAP_CACHE_REF.get() != null;
+        if (page.getKubeContinue() == null && (cached || page.getLimit() == null || page.hasKeyToken())) {
+            final List<JsonObject> list = new ArrayList<>();
+            // Hidden applications are filtered out before the page is cut.
+            ((namespace == null) ? listApplicationObject(client) : listNamespacedApplicationObject(client, namespace)).forEach(v -> {
+                if (!getApplicationInfo(v).isHidden()) {
+                    list.add(v);
+                }
+            });
+            if (!cached && page.hasKeyToken()) {
+                // Continuing a list that was served from the cache. The cluster's order can differ from the order of the keys.
+                list.sort(Comparator.comparing(ListPage::getObjectKey));
+            }
+            return page.select(list, ListPage::getObjectKey);
+        }
+    	final CustomObjectsApi coa = getCustomObjectsApi();
+        coa.setApiClient(client);
+        final Object o = (namespace == null)
+                ? coa.listClusterCustomObject(APP_GROUP, APP_VERSION, APP_PLURAL, null, page.getKubeContinue(), null, null, page.getLimit(), null, 60, false)
+                : coa.listNamespacedCustomObject(APP_GROUP, APP_VERSION, namespace, APP_PLURAL, null, page.getKubeContinue(), null, null, page.getLimit(), null, 60, Boolean.FALSE);
+        final JsonObject list = KAppNavEndpoint.getItemAsObject(client, o);
+        final List<JsonObject> items = new ArrayList<>();
+        KAppNavEndpoint.writeItemsToList(list, items);
+        // A page from the Kube API can be shorter than the limit once the hidden applications are removed.
+        items.removeIf(v -> getApplicationInfo(v).isHidden());
+        return ListPage.fromKubeList(items, list);
     }
     
     public static JsonObject getNamespacedApplicationObject(ApiClient client, String namespace, String name) throws ApiException {
@@ -290,6 +637,7 @@ public class ApplicationCache {
             if (nsMap != null) {
                 JsonObject o = nsMap.get(name);
                 if (o != null) {
+                    HITS.incrementAndGet();
                     if (Logger.isDebugEnabled()) {
                         Logger.log(CLASS_NAME, "getNamespacedApplicationObject", Logger.LogType.DEBUG, 
                                 "Returning Application, Name: " + name + ", Namespace: "  + namespace + " from the cache.");
@@ -313,6 +661,7 @@ public class ApplicationCache {
             Logger.log(CLASS_NAME, "getNamespacedApplicationObject", Logger.LogType.DEBUG, 
                     "Application, Name: " + name + ", Namespace: "  + namespace + " is not available in the cache. Attempting to retrieve it from the cluster.");
         }
+        MISSES.incrementAndGet();
         return getNamespacedApplicationObject0(client, namespace, name);
     }
     
@@ -326,4 +675,23 @@ public class ApplicationCache {
     public static long updateModCount() {
         return MOD_COUNT.incrementAndGet();
     }
+    
+    public static long getModCount() {
+        return MOD_COUNT.get();
+    }
+
+    static long getHitCount() {
+        return HITS.get();
+    }
+
+    static long getMissCount() {
+        return MISSES.get();
+    }
+
+    /**
+     * Returns true if the cache is being served while its watch is down, so it may be missing recent changes.
+     */
+    public static boolean isStale() {
+        return stale;
+    }
  }
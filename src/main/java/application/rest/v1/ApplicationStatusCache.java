@@ -0,0 +1,519 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import application.rest.v1.ComponentInfoRegistry.ComponentInfo;
+import application.rest.v1.StatusBatch.StatusItem;
+import application.rest.v1.configmaps.ConfigMapCache;
+import application.rest.v1.configmaps.KindActionMappingCache;
+
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+
+import com.ibm.kappnav.logging.Logger;
+
+/**
+ * Cache of aggregated application statuses. The status of an application is the status
+ * of its components that comes first in the app-status-precedence list. The component
+ * statuses of each application are kept and, as the ResourceCache reports changes to
+ * objects of the application's component kinds, only the components that were added,
+ * modified or deleted are evaluated again. An application's entry is recomputed in full
+ * when the application changes, when the KindActionMappings or status mapping ConfigMaps
+ * change, when the watch for one of its component kinds is re-established, and at least
+ * once per time-to-live since a status can depend on resources other than the component.
+ * A component change is delivered to the applications that include it according to the
+ * ComponentOwnerIndex and to the applications whose statuses already include it. An entry
+ * is dropped, along with its links to its components, when the application is deleted or
+ * modified, when the entry is replaced and when it is evicted.
+ */
+final class ApplicationStatusCache {
+
+    private static final String CLASS_NAME = ApplicationStatusCache.class.getName();
+
+    // Configuration properties. Each can be set as a system property or an environment variable.
+    private static final String TTL_PROPERTY = "kappnav.app.status.cache.ttl.seconds";
+    private static final String MAX_SIZE_PROPERTY = "kappnav.app.status.cache.max.size";
+
+    private static final long DEFAULT_TTL_SECONDS = 300L;
+    private static final long DEFAULT_MAX_SIZE = 10000L;
+
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis(KAppNavConfig.getLongSetting(TTL_PROPERTY, DEFAULT_TTL_SECONDS));
+    private static final long MAX_SIZE = KAppNavConfig.getLongSetting(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE);
+
+    private static final String VALUE_PROPERTY_NAME = "value";
+    private static final String FLYOVER_PROPERTY_NAME = "flyover";
+
+    // The key is {namespace}/{name} of the application.
+    private static final Map<String,Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    // Entries whose status includes a component. The key is {group}/{kind}/{namespace}/{name} of the
+    // component. Links are removed when the component leaves the entry and when the entry is dropped.
+    private static final Map<String,Set<Entry>> COMPONENT_ENTRIES = new ConcurrentHashMap<>();
+
+    // Entries for applications that are not tracked by the ApplicationCache, for instance because they
+    // were retrieved from the cluster while the cache was loading. They see every component change.
+    private static final Set<String> UNINDEXED_ENTRIES = ConcurrentHashMap.newKeySet();
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    // Lists the components of an application and computes their statuses.
+    interface StatusSource {
+        List<StatusItem> getApplicationStatusItems(ApiClient client, ComponentInfoRegistry registry, JsonObject app,
+                String appName, String appNamespace) throws ApiException;
+        void computeStatuses(ApiClient client, ComponentInfoRegistry registry, KAppNavConfig config, List<StatusItem> items);
+    }
+
+    private static final StatusSource STATUS_BATCH = new StatusSource() {
+        @Override
+        public List<StatusItem> getApplicationStatusItems(ApiClient client, ComponentInfoRegistry registry, JsonObject app,
+                String appName, String appNamespace) throws ApiException {
+            return StatusBatch.getApplicationStatusItems(client, registry, app, appName, appNamespace);
+        }
+
+        @Override
+        public void computeStatuses(ApiClient client, ComponentInfoRegistry registry, KAppNavConfig config, List<StatusItem> items) {
+            StatusBatch.computeStatuses(client, registry, config, items);
+        }
+    };
+
+    private static volatile StatusSource statusSource = STATUS_BATCH;
+
+    // For junit only
+    static void setStatusSourceForJunit(StatusSource source) {
+        statusSource = (source != null) ? source : STATUS_BATCH;
+    }
+
+    static {
+        ComponentOwnerIndex.addListener(new ComponentOwnerIndex.Listener() {
+            @Override
+            public void ownersChanged(ComponentInfo info, String type, JsonObject o, Set<String> applications) {
+                if (applications == null) {
+                    ENTRIES.values().forEach(v -> v.objectChanged(info, type, o));
+                    return;
+                }
+                final Set<Entry> entries = new HashSet<>();
+                final Set<Entry> linked = COMPONENT_ENTRIES.get(ComponentOwnerIndex.getComponentKey(info.group, info.kind,
+                        KAppNavEndpoint.getComponentNamespace(o), KAppNavEndpoint.getComponentName(o)));
+                if (linked != null) {
+                    entries.addAll(linked);
+                }
+                final Set<String> keys = new HashSet<>(applications);
+                keys.addAll(UNINDEXED_ENTRIES);
+                keys.forEach(k -> {
+                    final Entry entry = ENTRIES.get(k);
+                    if (entry != null) {
+                        entries.add(entry);
+                    }
+                });
+                entries.forEach(v -> v.objectChanged(info, type, o));
+            }
+        });
+        ApplicationCache.addListener(new ApplicationCache.Listener() {
+            @Override
+            public void applicationChanged(ApplicationCache.ApplicationInfo previous, ApplicationCache.ApplicationInfo current) {
+                final String key = (current != null) ? current.getKey() : previous.getKey();
+                final Entry entry = ENTRIES.get(key);
+                if (entry != null && (current == null
+                        || !entry.resourceVersion.equals(KAppNavEndpoint.getResourceVersion(current.getApplication())))) {
+                    removeEntry(key, entry);
+                }
+            }
+
+            @Override
+            public void cacheReset() {
+                // Deletions may have been missed.
+                clear();
+            }
+        });
+        ResourceCache.addListener(new ResourceCache.Listener() {
+            @Override
+            public void objectChanged(ComponentInfo info, String type, JsonObject o) {
+                // Delivered through the ComponentOwnerIndex.
+            }
+
+            @Override
+            public void cacheReset(ComponentInfo info) {
+                ENTRIES.values().forEach(v -> v.cacheReset(info));
+            }
+        });
+        Metrics.registerCache("applicationstatus", ApplicationStatusCache::getHitCount,
+                ApplicationStatusCache::getMissCount, ApplicationStatusCache::getSize);
+    }
+
+    private ApplicationStatusCache() {}
+
+    /**
+     * Returns the aggregated status object ({"value": ..., "flyover": ...}) of the application.
+     */
+    static JsonObject getApplicationStatus(ApiClient client, ComponentInfoRegistry registry, KAppNavConfig config,
+            JsonObject app) throws ApiException {
+        final String name = KAppNavEndpoint.getComponentName(app);
+        final String namespace = KAppNavEndpoint.getComponentNamespace(app);
+        final String key = namespace + "/" + name;
+        final String resourceVersion = KAppNavEndpoint.getResourceVersion(app);
+        final long kamModCount = KindActionMappingCache.getModCount();
+        final long configMapGeneration = ConfigMapCache.getGeneration();
+        Entry entry = ENTRIES.get(key);
+        if (entry != null && entry.isCurrent(resourceVersion, kamModCount, configMapGeneration)) {
+            HITS.incrementAndGet();
+            entry.update(client, registry, config);
+        }
+        else {
+            MISSES.incrementAndGet();
+            entry = new Entry(client, registry, app, name, namespace, resourceVersion, kamModCount, configMapGeneration);
+            if (entry.isCacheable()) {
+                if (ENTRIES.size() >= MAX_SIZE) {
+                    clear();
+                }
+                if (ApplicationCache.isIndexed(app)) {
+                    UNINDEXED_ENTRIES.remove(key);
+                }
+                else {
+                    UNINDEXED_ENTRIES.add(key);
+                }
+                // Register the entry before listing the components so that changes made
+                // while the statuses are being computed are applied afterwards.
+                final Entry previous = ENTRIES.put(key, entry);
+                if (previous != null) {
+                    previous.drop();
+                }
+            }
+            else {
+                // Computed on each request, so it is never linked to its components.
+                entry.drop();
+                final Entry previous = ENTRIES.get(key);
+                if (previous != null) {
+                    removeEntry(key, previous);
+                }
+            }
+            if (!entry.compute(client, registry, config)) {
+                removeEntry(key, entry);
+            }
+        }
+        return aggregateStatus(entry.statuses.values(), config.getAppStatusPrecedence(), config.getStatusUnknown());
+    }
+
+    /**
+     * Drops the entries of applications in the namespace that are not in the given set of names.
+     */
+    static void retainApplications(String namespace, Set<String> names) {
+        ENTRIES.forEach((k, v) -> {
+            if (namespace.equals(v.appNamespace) && !names.contains(v.appName)) {
+                removeEntry(k, v);
+            }
+        });
+    }
+
+    /**
+     * Returns the status that comes first in the precedence list, or the unknown status if
+     * there are no component statuses or none of them is in the list. The flyover counts the
+     * components in each status.
+     */
+    static JsonObject aggregateStatus(Collection<String> componentStatuses, List<String> precedence, String statusUnknown) {
+        final Map<String,Integer> counts = new LinkedHashMap<>();
+        precedence.forEach(v -> counts.put(v, 0));
+        for (String status : componentStatuses) {
+            counts.merge(precedence.contains(status) ? status : statusUnknown, 1, Integer::sum);
+        }
+        String value = null;
+        final StringBuilder flyover = new StringBuilder();
+        for (Map.Entry<String,Integer> e : counts.entrySet()) {
+            if (e.getValue() > 0) {
+                if (value == null && precedence.contains(e.getKey())) {
+                    value = e.getKey();
+                }
+                if (flyover.length() > 0) {
+                    flyover.append(", ");
+                }
+                flyover.append(e.getKey()).append(": ").append(e.getValue());
+            }
+        }
+        final JsonObject status = new JsonObject();
+        status.addProperty(VALUE_PROPERTY_NAME, (value != null) ? value : statusUnknown);
+        status.addProperty(FLYOVER_PROPERTY_NAME, (flyover.length() > 0) ? flyover.toString() : statusUnknown);
+        return status;
+    }
+
+    static long getHitCount() {
+        return HITS.get();
+    }
+
+    static long getMissCount() {
+        return MISSES.get();
+    }
+
+    static int getSize() {
+        return ENTRIES.size();
+    }
+
+    // Returns the number of components that are linked to an entry.
+    static int getLinkCount() {
+        return COMPONENT_ENTRIES.size();
+    }
+
+    private static void removeEntry(String key, Entry entry) {
+        if (ENTRIES.remove(key, entry)) {
+            entry.drop();
+            if (!ENTRIES.containsKey(key)) {
+                UNINDEXED_ENTRIES.remove(key);
+            }
+        }
+    }
+
+    private static void clear() {
+        ENTRIES.forEach(ApplicationStatusCache::removeEntry);
+        UNINDEXED_ENTRIES.removeIf(k -> !ENTRIES.containsKey(k));
+    }
+
+    private static String getStatusValue(StatusItem item, KAppNavConfig config) {
+        if (item.status != null) {
+            final JsonElement value = item.status.get(VALUE_PROPERTY_NAME);
+            if (value != null && value.isJsonPrimitive()) {
+                return value.getAsString();
+            }
+        }
+        return config.getStatusUnknown();
+    }
+
+    // A component that changed since the statuses were last computed. The object is null if the
+    // component was deleted or no longer matches the application's selector.
+    private static final class Change {
+        private final String kind;
+        private final JsonObject object;
+        Change(String kind, JsonObject object) {
+            this.kind = kind;
+            this.object = object;
+        }
+    }
+
+    private static final class Entry {
+        private final JsonObject app;
+        private final String appName;
+        private final String appNamespace;
+        private final String resourceVersion;
+        private final long kamModCount;
+        private final long configMapGeneration;
+        private final long expiry;
+        // The component kinds of the application. Kinds are matched by name, as in StatusBatch.
+        private final Set<String> kinds = new HashSet<>();
+        private final Set<String> namespaces;
+        private final Selector selector;
+        private final CompiledSelector compiled;
+
+        // Status value of each component. The key is {group}/{kind}/{namespace}/{name}.
+        private final Map<String,String> statuses = new ConcurrentHashMap<>();
+        // Components that changed since their status was computed. The key is {group}/{kind}/{namespace}/{name}.
+        private final Map<String,Change> pending = new ConcurrentHashMap<>();
+        private volatile boolean valid = true;
+        // The keys of the components linked to this entry in COMPONENT_ENTRIES. Guarded by the set itself,
+        // so that a component is not unlinked while a change to it is being recorded.
+        private final Set<String> links = new HashSet<>();
+        private boolean dropped;
+        // True if every component kind is kept in the ResourceCache, which reports the changes to the components.
+        private final boolean componentsCached;
+
+        Entry(ApiClient client, ComponentInfoRegistry registry, JsonObject app, String appName, String appNamespace, String resourceVersion,
+                long kamModCount, long configMapGeneration) {
+            this.app = app;
+            this.appName = appName;
+            this.appNamespace = appNamespace;
+            this.resourceVersion = resourceVersion;
+            this.kamModCount = kamModCount;
+            this.configMapGeneration = configMapGeneration;
+            this.expiry = System.currentTimeMillis() + TTL_MILLIS;
+            final ApplicationCache.ApplicationInfo info = ApplicationCache.getApplicationInfo(app);
+            boolean cached = true;
+            for (ComponentKind v : info.getComponentKinds(registry)) {
+                kinds.add(v.kind);
+                for (String apiVersion : registry.getComponentGroupApiVersions(v)) {
+                    if (apiVersion != null && !registry.isCached(client, v.kind, apiVersion)) {
+                        cached = false;
+                    }
+                }
+            }
+            this.componentsCached = cached;
+            this.namespaces = new HashSet<>(info.getComponentNamespaces());
+            this.selector = info.getSelector();
+            this.compiled = info.getCompiledSelector();
+        }
+
+        // Changes are only tracked while the status mapping caches are tracking changes and if
+        // every component kind is kept in the ResourceCache. Otherwise the status is computed
+        // on each request.
+        boolean isCacheable() {
+            return componentsCached && resourceVersion != null && kamModCount >= 0 && configMapGeneration >= 0;
+        }
+
+        boolean isCurrent(String resourceVersion, long kamModCount, long configMapGeneration) {
+            return valid && this.resourceVersion.equals(resourceVersion) && this.kamModCount == kamModCount
+                    && this.configMapGeneration == configMapGeneration && System.currentTimeMillis() < expiry;
+        }
+
+        // Lists the components and computes all of their statuses. Returns false if some of
+        // them could not be computed within the deadline.
+        boolean compute(ApiClient client, ComponentInfoRegistry registry, KAppNavConfig config) throws ApiException {
+            final StatusSource source = statusSource;
+            final List<StatusItem> items = source.getApplicationStatusItems(client, registry, app, appName, appNamespace);
+            source.computeStatuses(client, registry, config, items);
+            boolean complete = true;
+            for (StatusItem item : items) {
+                if (item.status == null && item.error == null) {
+                    complete = false;
+                }
+                final String key = ComponentOwnerIndex.getComponentKey(ComponentOwnerIndex.getGroup(item.apiVersion),
+                        item.kind, item.namespace, item.name);
+                statuses.put(key, getStatusValue(item, config));
+                link(key);
+            }
+            if (Logger.isDebugEnabled()) {
+                Logger.log(CLASS_NAME, "compute", Logger.LogType.DEBUG, "Computed the status of " + items.size()
+                        + " component(s) of application " + appNamespace + "/" + appName + ", complete=" + complete);
+            }
+            update(client, registry, config);
+            return complete;
+        }
+
+        // Computes the statuses of the components that changed since the last update. Updates
+        // of an entry are serialized so that an older status never replaces a newer one.
+        synchronized void update(ApiClient client, ComponentInfoRegistry registry, KAppNavConfig config) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            final List<StatusItem> items = new ArrayList<>();
+            final List<String> keys = new ArrayList<>();
+            final List<Change> changes = new ArrayList<>();
+            for (String key : pending.keySet()) {
+                final Change change = pending.remove(key);
+                if (change == null) {
+                    continue;
+                }
+                if (change.object == null) {
+                    statuses.remove(key);
+                    unlinkIfUnused(key);
+                    continue;
+                }
+                // Cached objects are shared; the status computation may add properties to its copy.
+                final JsonObject o = change.object.deepCopy();
+                final String apiVersion = KAppNavEndpoint.getComponentApiVersion(o, change.kind);
+                items.add(new StatusItem(change.kind, (apiVersion != null) ? apiVersion : "",
+                        KAppNavEndpoint.getComponentNamespace(o), KAppNavEndpoint.getComponentName(o), o));
+                keys.add(key);
+                changes.add(change);
+            }
+            if (items.isEmpty()) {
+                return;
+            }
+            statusSource.computeStatuses(client, registry, config, items);
+            for (int i = 0; i < items.size(); ++i) {
+                final StatusItem item = items.get(i);
+                if (item.status == null && item.error == null) {
+                    // Not computed within the deadline. Try again on the next request unless the component changed again.
+                    pending.putIfAbsent(keys.get(i), changes.get(i));
+                }
+                else {
+                    statuses.put(keys.get(i), getStatusValue(item, config));
+                }
+            }
+            if (Logger.isDebugEnabled()) {
+                Logger.log(CLASS_NAME, "update", Logger.LogType.DEBUG, "Updated the status of " + items.size()
+                        + " component(s) of application " + appNamespace + "/" + appName);
+            }
+        }
+
+        void objectChanged(ComponentInfo info, String type, JsonObject o) {
+            if (!valid || !kinds.contains(info.kind)) {
+                return;
+            }
+            final String namespace = KAppNavEndpoint.getComponentNamespace(o);
+            if (info.namespaced && !namespaces.contains(namespace)) {
+                return;
+            }
+            final String name = KAppNavEndpoint.getComponentName(o);
+            if ("Application".equals(info.kind) && appName.equals(name) && appNamespace.equals(namespace)) {
+                return;
+            }
+            final String key = ComponentOwnerIndex.getComponentKey(info.group, info.kind, namespace, name);
+            if (!"DELETED".equals(type) && !selector.isEmpty() && compiled.matches(o)) {
+                pending.put(key, new Change(info.kind, o));
+                link(key);
+            }
+            else if (statuses.containsKey(key) || pending.containsKey(key)) {
+                pending.put(key, new Change(info.kind, null));
+            }
+        }
+
+        void cacheReset(ComponentInfo info) {
+            if (kinds.contains(info.kind)) {
+                valid = false;
+            }
+        }
+
+        void link(String key) {
+            synchronized (links) {
+                if (!dropped && links.add(key)) {
+                    COMPONENT_ENTRIES.compute(key, (k, v) -> {
+                        final Set<Entry> entries = (v != null) ? v : ConcurrentHashMap.newKeySet();
+                        entries.add(this);
+                        return entries;
+                    });
+                }
+            }
+        }
+
+        // Unlinks the component unless a status or a change is still recorded for it. A change is recorded
+        // before the component is linked, so a change recorded concurrently links the component again.
+        void unlinkIfUnused(String key) {
+            synchronized (links) {
+                if (!statuses.containsKey(key) && !pending.containsKey(key) && links.remove(key)) {
+                    unlink(key);
+                }
+            }
+        }
+
+        // Removes the links of an entry that is no longer in the cache and stops it from tracking changes.
+        void drop() {
+            valid = false;
+            synchronized (links) {
+                dropped = true;
+                links.forEach(this::unlink);
+                links.clear();
+            }
+        }
+
+        private void unlink(String key) {
+            COMPONENT_ENTRIES.computeIfPresent(key, (k, v) -> {
+                v.remove(this);
+                return v.isEmpty() ? null : v;
+            });
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package application.rest.v1;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
 
@@ -30,6 +31,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
@@ -37,9 +39,9 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
+import application.rest.v1.actions.ValidationException;
 import application.rest.v1.configmaps.ConfigMapProcessor;
 import application.rest.v1.configmaps.SectionConfigMapProcessor;
 import io.kubernetes.client.openapi.ApiClient;
@@ -55,8 +57,6 @@ public class ApplicationsEndpoint extends KAppNavEndpoint {
 
     private static final String APPLICATIONS_PROPERTY_NAME = "applications";
     private static final String APPLICATION_PROPERTY_NAME = "application";
-    private static final String ACTION_MAP_PROPERTY_NAME = "action-map";
-    private static final String SECTION_MAP_PROPERTY_NAME = "section-map";
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
@@ -68,19 +68,16 @@ public class ApplicationsEndpoint extends KAppNavEndpoint {
         @APIResponse(responseCode = "207", description = "Multi-Status (Error from Kubernetes API)"),
         @APIResponse(responseCode = "400", description = "Bad Request (Malformed input)"),
         @APIResponse(responseCode = "500", description = "Internal Server Error")})
-    public Response getApplications(@Pattern(regexp = NAME_PATTERN_ZERO_OR_MORE) @DefaultValue("") @QueryParam("namespace") @Parameter(description = "The namespace of the application") String namespace) {
+    public Response getApplications(@Pattern(regexp = NAME_PATTERN_ZERO_OR_MORE) @DefaultValue("") @QueryParam("namespace") @Parameter(description = "The namespace of the application") String namespace,
+            @DefaultValue("0") @QueryParam(ListPage.LIMIT_PARAMETER_NAME) @Parameter(description = "The maximum number of applications to return, or 0 for all of them") int limit,
+            @DefaultValue("") @QueryParam(ListPage.CONTINUE_PARAMETER_NAME) @Parameter(description = "The continue token returned with the previous page") String cont) {
         try {
             final ApiClient client = getApiClient();
-            final List<JsonObject> o;
-            if (namespace.isEmpty()) {
-                o = ApplicationCache.listApplicationObject(client);
-            }
-            else {
-                o = ApplicationCache.listNamespacedApplicationObject(client, namespace);
-            }
-            return processApplications(client, o);
+            final ListPage.Page<JsonObject> page = ApplicationCache.listApplicationObject(client,
+                    namespace.isEmpty() ? null : namespace, ListPage.of(limit, cont));
+            return processApplications(client, page.items, page.next);
         }
-        catch (IOException | ApiException e) {
+        catch (IOException | ApiException | ValidationException e) {
             if (Logger.isErrorEnabled()) {
                 Logger.log(className, "getApplications", Logger.LogType.ERROR, "Caught PatternException returning status: " + getResponseCode(e) + " " + e.toString());
             }
@@ -88,6 +85,10 @@ public class ApplicationsEndpoint extends KAppNavEndpoint {
         }
     }
 
+    public Response getApplications(String namespace) {
+        return getApplications(namespace, 0, "");
+    }
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/{application-name}")
@@ -104,7 +105,7 @@ public class ApplicationsEndpoint extends KAppNavEndpoint {
         try {
             final ApiClient client = getApiClient();
             final JsonObject o = ApplicationCache.getNamespacedApplicationObject(client, namespace, name);  
-            return processApplications(client, Collections.singletonList(o));
+            return processApplications(client, Collections.singletonList(o), null);
         }
         catch (IOException | ApiException e) {
             if (Logger.isErrorEnabled()) {
@@ -114,23 +115,19 @@ public class ApplicationsEndpoint extends KAppNavEndpoint {
         }
     }
 
-    private Response processApplications(ApiClient client, List<JsonObject> appObjects) throws ApiException {
-        final AppResponse response = new AppResponse();
-        final ConfigMapProcessor processor = new ConfigMapProcessor(APPLICATION_PROPERTY_NAME);
-        final SectionConfigMapProcessor sectionProcessor = new SectionConfigMapProcessor(APPLICATION_PROPERTY_NAME);
-        appObjects.forEach(v -> {
-            if (! isApplicationHidden(v))
-               response.add(v, processor.getConfigMap(client, v, ConfigMapProcessor.ConfigMapType.ACTION), sectionProcessor.processSectionMap(client, v));   
-        });
-        return Response.ok(response.getJSON()).build();
+    private Response processApplications(ApiClient client, List<JsonObject> appObjects, String next) {
+        // The action and section maps are resolved as the response is written.
+        return ok(new AppResponse(client, appObjects, next));
     }
 
-    static final class AppResponse {
-        private final JsonObject o;
-        private final JsonArray applications;
-        // Constructs:
+    static final class AppResponse implements StreamingOutput {
+        private final ApiClient client;
+        private final List<JsonObject> appObjects;
+        private final String next;
+        // Writes:
         // {
-        //   applications: [ { application: {...}, action-map: {...}, section-map: {...}, ... ]
+        //   applications: [ { application: {...}, action-map: {...}, section-map: {...}, ... ],
+        //   continue: "..."
         // }
         //
         // 'applications' is an array of objects.
@@ -138,22 +135,36 @@ public class ApplicationsEndpoint extends KAppNavEndpoint {
         // An application is an instance of the application CRD.
         // An action-map is a config map containing the action definitions belonging to the associated application. 
         // An section-map is a config map containing the section and section datasource definitions belonging to the associated application.
-        public AppResponse() {
-            o = new JsonObject();
-            o.add(APPLICATIONS_PROPERTY_NAME, applications = new JsonArray());
+        // 'continue' is only present if there are more applications to retrieve.
+        // Each tuple is written as soon as its maps have been resolved. If resolving them fails,
+        // the response ends with an 'error' member in place of 'continue'.
+        public AppResponse(ApiClient client, List<JsonObject> appObjects, String next) {
+            this.client = client;
+            this.appObjects = appObjects;
+            this.next = next;
         }
-        public void add(final JsonObject application, final JsonObject actionMap, final JsonObject sectionMap) {
-            final JsonObject tuple = new JsonObject();
-            tuple.add(APPLICATION_PROPERTY_NAME, application != null ? application : new JsonObject());
-            tuple.add(ACTION_MAP_PROPERTY_NAME, actionMap != null ? actionMap : new JsonObject());
-            tuple.add(SECTION_MAP_PROPERTY_NAME, sectionMap != null ? sectionMap : new JsonObject());
-            applications.add(tuple);
-        }
-        public String getJSON() {
-            return o.toString();
+        @Override
+        public void write(OutputStream os) throws IOException {
+            final ConfigMapProcessor processor = new ConfigMapProcessor(APPLICATION_PROPERTY_NAME);
+            final SectionConfigMapProcessor sectionProcessor = new SectionConfigMapProcessor(APPLICATION_PROPERTY_NAME);
+            final JsonTupleWriter writer = new JsonTupleWriter(os, APPLICATIONS_PROPERTY_NAME);
+            try {
+                for (JsonObject v : appObjects) {
+                    if (! ApplicationCache.getApplicationInfo(v).isHidden())
+                        writer.write(APPLICATION_PROPERTY_NAME, v, processor.getConfigMap(client, v, ConfigMapProcessor.ConfigMapType.ACTION), sectionProcessor.processSectionMap(client, v));
+                }
+            }
+            catch (RuntimeException e) {
+                // The status has already been sent. End the response with an error member.
+                if (Logger.isErrorEnabled()) {
+                    Logger.log(className, "write", Logger.LogType.ERROR, "Caught RuntimeException resolving the application maps. The response is incomplete: " + e.toString());
+                }
+                writer.setFailure(e);
+            }
+            writer.setContinue(next);
+            writer.close();
         }
     }
-
    
 
 }
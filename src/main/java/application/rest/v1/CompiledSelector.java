@@ -0,0 +1,256 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import application.rest.v1.MatchExpression.Operator;
+
+/**
+ * Compiled form of a Selector. The requirements are flattened into arrays and
+ * the values of In/NotIn expressions into hash sets so that evaluating the
+ * selector against an object does no allocation. A compiled selector can also
+ * be evaluated against a LabelIndex to find the matching objects by set
+ * intersection. Obtain instances with Selector.compile().
+ */
+public final class CompiledSelector {
+
+    private static final String METADATA_PROPERTY_NAME = "metadata";
+    private static final String LABELS_PROPERTY_NAME = "labels";
+
+    private final String[] labelKeys;
+    private final String[] labelValues;
+    private final String[] expressionKeys;
+    private final Operator[] expressionOperators;
+    private final List<Set<String>> expressionValues;
+
+    CompiledSelector(Map<String,String> matchLabels, List<MatchExpression> matchExpressions) {
+        final int labelCount = matchLabels.size();
+        labelKeys = new String[labelCount];
+        labelValues = new String[labelCount];
+        int i = 0;
+        for (Map.Entry<String,String> e : matchLabels.entrySet()) {
+            labelKeys[i] = e.getKey();
+            labelValues[i] = e.getValue();
+            ++i;
+        }
+        final int expressionCount = matchExpressions.size();
+        expressionKeys = new String[expressionCount];
+        expressionOperators = new Operator[expressionCount];
+        expressionValues = new ArrayList<>(expressionCount);
+        i = 0;
+        for (MatchExpression me : matchExpressions) {
+            expressionKeys[i] = me.getKey();
+            expressionOperators[i] = me.getOperator();
+            expressionValues.add(new HashSet<>(me.getValues()));
+            ++i;
+        }
+    }
+
+    public boolean isEmpty() {
+        return labelKeys.length == 0 && expressionKeys.length == 0;
+    }
+
+    // Same semantics as Selector.matches(): an empty selector matches nothing.
+    public boolean matches(JsonElement element) {
+        if (element != null && element.isJsonObject()) {
+            final JsonElement metadata = element.getAsJsonObject().get(METADATA_PROPERTY_NAME);
+            if (metadata != null && metadata.isJsonObject()) {
+                final JsonElement labels = metadata.getAsJsonObject().get(LABELS_PROPERTY_NAME);
+                if (labels != null && labels.isJsonObject()) {
+                    return matchesLabels(labels.getAsJsonObject());
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean matchesLabels(JsonObject labels) {
+        if (isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < labelKeys.length; ++i) {
+            final JsonElement e = labels.get(labelKeys[i]);
+            if (e == null || !e.isJsonPrimitive() || !labelValues[i].equals(e.getAsString())) {
+                return false;
+            }
+        }
+        for (int i = 0; i < expressionKeys.length; ++i) {
+            final JsonElement e = labels.get(expressionKeys[i]);
+            final String value = (e != null && e.isJsonPrimitive()) ? e.getAsString() : null;
+            if (!matchesExpression(i, e != null, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean matchesLabels(Map<String,String> labels) {
+        if (isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < labelKeys.length; ++i) {
+            if (!labelValues[i].equals(labels.get(labelKeys[i]))) {
+                return false;
+            }
+        }
+        for (int i = 0; i < expressionKeys.length; ++i) {
+            final String value = labels.get(expressionKeys[i]);
+            if (!matchesExpression(i, value != null, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesExpression(int i, boolean exists, String value) {
+        switch (expressionOperators[i]) {
+        case IN:
+            return value != null && expressionValues.get(i).contains(value);
+        case NOT_IN:
+            return value == null || !expressionValues.get(i).contains(value);
+        case EXISTS:
+            return exists;
+        case DOES_NOT_EXIST:
+            return !exists;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the objects from the universe that match this selector, computed from
+     * the index by set intersection. Equality, In and Exists requirements narrow the
+     * result; NotIn and DoesNotExist requirements are subtracted from it. The universe
+     * must contain every object that could be in the result, including objects that
+     * have no labels. Returns a new set that the caller may modify. An empty selector
+     * matches nothing.
+     */
+    public <K> Set<K> select(LabelIndex<K> index, Set<K> universe) {
+        if (isEmpty()) {
+            return new HashSet<>();
+        }
+        // Each include is a disjunction of index sets (one per value of an In or Exists
+        // requirement). The sets are read from the index as is rather than copied into unions.
+        final List<List<Set<K>>> includes = new ArrayList<>();
+        final List<Set<K>> excludes = new ArrayList<>();
+        for (int i = 0; i < labelKeys.length; ++i) {
+            final Set<K> objects = index.get(labelKeys[i], labelValues[i]);
+            if (objects.isEmpty()) {
+                return new HashSet<>();
+            }
+            includes.add(Collections.singletonList(objects));
+        }
+        for (int i = 0; i < expressionKeys.length; ++i) {
+            switch (expressionOperators[i]) {
+            case IN: {
+                final List<Set<K>> include = new ArrayList<>();
+                for (String value : expressionValues.get(i)) {
+                    final Set<K> objects = index.get(expressionKeys[i], value);
+                    if (!objects.isEmpty()) {
+                        include.add(objects);
+                    }
+                }
+                if (include.isEmpty()) {
+                    return new HashSet<>();
+                }
+                includes.add(include);
+                break;
+            }
+            case NOT_IN:
+                for (String value : expressionValues.get(i)) {
+                    final Set<K> objects = index.get(expressionKeys[i], value);
+                    if (!objects.isEmpty()) {
+                        excludes.add(objects);
+                    }
+                }
+                break;
+            case EXISTS: {
+                final Map<String,Set<K>> values = index.get(expressionKeys[i]);
+                if (values.isEmpty()) {
+                    return new HashSet<>();
+                }
+                includes.add(new ArrayList<>(values.values()));
+                break;
+            }
+            case DOES_NOT_EXIST:
+                excludes.addAll(index.get(expressionKeys[i]).values());
+                break;
+            }
+        }
+        // Start from the smallest include and check its members against the others.
+        List<Set<K>> smallest = null;
+        int smallestSize = universe.size();
+        for (List<Set<K>> include : includes) {
+            final int size = size(include);
+            if (size < smallestSize) {
+                smallest = include;
+                smallestSize = size;
+            }
+        }
+        final Set<K> result = new HashSet<>();
+        if (smallest != null) {
+            smallest.forEach(result::addAll);
+            result.removeIf(k -> !universe.contains(k));
+        }
+        else {
+            result.addAll(universe);
+        }
+        for (List<Set<K>> include : includes) {
+            if (include != smallest) {
+                result.removeIf(k -> !contains(include, k));
+            }
+        }
+        for (Set<K> exclude : excludes) {
+            if (result.isEmpty()) {
+                break;
+            }
+            // Iterate over the smaller of the two.
+            if (result.size() <= exclude.size()) {
+                result.removeIf(exclude::contains);
+            }
+            else {
+                exclude.forEach(result::remove);
+            }
+        }
+        return result;
+    }
+
+    private static <K> int size(List<Set<K>> sets) {
+        int size = 0;
+        for (Set<K> s : sets) {
+            size += s.size();
+        }
+        return size;
+    }
+
+    private static <K> boolean contains(List<Set<K>> sets, K k) {
+        for (Set<K> s : sets) {
+            if (s.contains(k)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
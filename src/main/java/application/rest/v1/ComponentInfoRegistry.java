@@ -17,21 +17,34 @@
 package application.rest.v1;
 
 import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
 import javax.enterprise.context.ApplicationScoped;
 
+import com.google.common.reflect.TypeToken;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import io.kubernetes.client.openapi.ApiCallback;
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.ApisApi;
@@ -39,6 +52,9 @@ import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.apis.CustomObjectsApi;
 import io.kubernetes.client.openapi.models.V1APIGroup;
 import io.kubernetes.client.openapi.models.V1APIGroupList;
+import io.kubernetes.client.util.Watch;
+
+import okhttp3.Call;
 
 import com.ibm.kappnav.logging.Logger;
 
@@ -58,7 +74,7 @@ public class ComponentInfoRegistry {
         apis = apisinput;   
     }
     
-    private ApisApi getApisApisForInternal() {
+    private static ApisApi getApisApisForInternal() {
         if (apis == null) {
             return new ApisApi();
         } else {
@@ -93,6 +109,9 @@ public class ComponentInfoRegistry {
     }
 
     private static final String NOT_FOUND = "Not Found";
+
+    // Page size used when the objects of a kind are listed from the Kube API.
+    private static final int LIST_PAGE_SIZE = 500;
     
     private static final Map<String,ComponentInfo> BUILT_IN_COMPONENT_KIND_MAP;
     static {
@@ -177,18 +196,59 @@ public class ComponentInfoRegistry {
         KAppNavExtension.init();
     }
 
+    // Configuration properties. Each can be set as a system property or an environment variable.
+    private static final String NOT_FOUND_TTL_PROPERTY = "kappnav.registry.not.found.ttl.seconds";
+    private static final String NOT_FOUND_MAX_SIZE_PROPERTY = "kappnav.registry.not.found.max.size";
+    private static final String CRD_WATCH_PROPERTY = "kappnav.registry.crd.watch.enabled";
+
+    private static final long DEFAULT_NOT_FOUND_TTL_SECONDS = 60L;
+    private static final long DEFAULT_NOT_FOUND_MAX_SIZE = 1000L;
+
+    private static final long NOT_FOUND_TTL_MILLIS = TimeUnit.SECONDS.toMillis(
+            KAppNavConfig.getLongSetting(NOT_FOUND_TTL_PROPERTY, DEFAULT_NOT_FOUND_TTL_SECONDS));
+    private static final long NOT_FOUND_MAX_SIZE = KAppNavConfig.getLongSetting(NOT_FOUND_MAX_SIZE_PROPERTY, DEFAULT_NOT_FOUND_MAX_SIZE);
+    private static final boolean CRD_WATCH_ENABLED = KAppNavConfig.getBooleanSetting(CRD_WATCH_PROPERTY, false);
+
+    private static final String CRD_GROUP = "apiextensions.k8s.io";
+    private static final String CRD_VERSION = "v1";
+    private static final String CRD_PLURAL = "customresourcedefinitions";
+
+    // Registries that receive CustomResourceDefinition events from the CRD watch.
+    private static final Set<ComponentInfoRegistry> CRD_LISTENERS = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<ComponentInfoRegistry,Boolean>()));
+    private static final AtomicBoolean CRD_WATCH_STARTED = new AtomicBoolean();
+
+    // The discovery in progress, if any. Registries created while it runs share its result.
+    private static final AtomicReference<FutureTask<Discovery>> DISCOVERY = new AtomicReference<>();
+    // The result of the last discovery. Group versions that a later discovery could not list
+    // keep the kinds found for them here.
+    private static volatile Discovery lastDiscovery;
+
     private final AtomicReference<Map<String,ComponentInfo>> componentKindMap;
 
     final AtomicReference<Map<String,Set<String>>> groupKindToApiVersionMap;
 
+    // Negative cache for kinds that weren't found after refreshing their group. The key is
+    // {apiVersion}/{kind}. The value is the time (in milliseconds) at which the entry expires.
+    // The keys come from requests so the size is bounded; expired entries are purged when it's full.
+    private final Map<String,Long> notFoundMap = new ConcurrentHashMap<>();
+
+    // The group version refreshes in progress, keyed by apiVersion. Lookups that miss in the
+    // same group version wait for a single refresh.
+    private final Map<String,FutureTask<Boolean>> refreshMap = new ConcurrentHashMap<>();
+
     public ComponentInfoRegistry() throws ApiException, IOException {
         this(KAppNavEndpoint.getApiClient());
     }
 
     public ComponentInfoRegistry(ApiClient client) throws ApiException {
-        groupKindToApiVersionMap = new AtomicReference<>();
-        final Map<String,ComponentInfo> map = processGroupList(client);
-        componentKindMap = new AtomicReference<>(map);
+        final Discovery discovery = discover(client);
+        groupKindToApiVersionMap = new AtomicReference<>(discovery.groupKindMap);
+        componentKindMap = new AtomicReference<>(discovery.map);
+        if (CRD_WATCH_ENABLED) {
+            CRD_LISTENERS.add(this);
+            startCRDWatcher();
+        }
     }
     
     public boolean isNamespaced(ApiClient client, String componentKind, String apiVersion) throws ApiException {
@@ -203,7 +263,14 @@ public class ComponentInfoRegistry {
             String pretty, String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
         ComponentInfo info = getComponentInfo(client, componentKind, apiVersion);
         if (info != null) {
-            return info.resolver.listClusterObject(client, info, pretty, labelSelector, resourceVersion, watch);
+            if (isCacheableQuery(pretty, resourceVersion, watch)) {
+                final Object result = ResourceCache.list(info, null, labelSelector);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return Watcher.listAllPages(client, cont ->
+                info.resolver.listClusterObject(client, info, pretty, labelSelector, resourceVersion, watch, cont));
         }
         throw new ApiException(207, "resource kind " + componentKind + " is " + NOT_FOUND);
     }
@@ -212,7 +279,35 @@ public class ComponentInfoRegistry {
             String pretty, String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
         ComponentInfo info = getComponentInfo(client, componentKind, apiVersion);
         if (info != null) {
-            return info.resolver.listNamespacedObject(client, info, namespace, pretty, labelSelector, resourceVersion, watch);
+            if (isCacheableQuery(pretty, resourceVersion, watch)) {
+                final Object result = ResourceCache.list(info, namespace, labelSelector);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return Watcher.listAllPages(client, cont ->
+                info.resolver.listNamespacedObject(client, info, namespace, pretty, labelSelector, resourceVersion, watch, cont));
+        }
+        throw new ApiException(207, "resource kind " + componentKind + " is " + NOT_FOUND);
+    }
+
+    /**
+     * Returns the names of the objects in the namespace that match the label selector. The names
+     * are read from the ResourceCache when it can answer the query, without copying the objects.
+     */
+    public List<String> listNamespacedObjectNames(ApiClient client, String componentKind, String apiVersion, String namespace,
+            String labelSelector) throws ApiException {
+        ComponentInfo info = getComponentInfo(client, componentKind, apiVersion);
+        if (info != null) {
+            final List<String> cached = ResourceCache.listNames(info, namespace, labelSelector);
+            if (cached != null) {
+                return cached;
+            }
+            final List<String> result = new ArrayList<>();
+            KAppNavEndpoint.getItemsAsList(client, Watcher.listAllPages(client, cont ->
+                info.resolver.listNamespacedObject(client, info, namespace, null, labelSelector, null, null, cont)))
+                .forEach(v -> result.add(KAppNavEndpoint.getComponentName(v)));
+            return result;
         }
         throw new ApiException(207, "resource kind " + componentKind + " is " + NOT_FOUND);
     }
@@ -220,6 +315,10 @@ public class ComponentInfoRegistry {
     public Object getNamespacedObject(ApiClient client, String componentKind, String apiVersion, String namespace, String name) throws ApiException {
         ComponentInfo info = getComponentInfo(client, componentKind, apiVersion);
         if (info != null) {
+            final Object cached = ResourceCache.get(info, namespace, name);
+            if (cached != null) {
+                return cached;
+            }
             try {
                 Object result = info.resolver.getNamespacedObject(client, info, namespace, name);
                 return result;
@@ -230,6 +329,92 @@ public class ComponentInfoRegistry {
         throw new ApiException(207, "resource kind " + componentKind + " is " + NOT_FOUND);
     }
     
+    /**
+     * Resolves a resource type as it is given to "kubectl get": a kind, its lower case form
+     * or its plural, optionally qualified with the group (e.g. routes.route.openshift.io).
+     * Returns null if the type is not known, or if it matches more than one kind and none
+     * of them is the core kind's default apiVersion.
+     */
+    public ResourceType getResourceType(String resource) {
+        if (resource == null || resource.isEmpty()) {
+            return null;
+        }
+        final String lower = resource.toLowerCase(Locale.ROOT);
+        final int index = lower.indexOf('.');
+        final String name = (index >= 0) ? lower.substring(0, index) : lower;
+        final String group = (index >= 0) ? lower.substring(index + 1) : null;
+        final List<ResourceType> matches = new ArrayList<>();
+        componentKindMap.get().forEach((k, v) -> {
+            final String infoGroup = (v.group != null) ? v.group : "";
+            if ((v.kind.toLowerCase(Locale.ROOT).equals(name) || name.equals(v.plural))
+                    && (group == null || group.equals(infoGroup))) {
+                matches.add(new ResourceType(v.kind, infoGroup + "/" + v.version, v.namespaced));
+            }
+        });
+        if (matches.size() == 1) {
+            return matches.get(0);
+        }
+        for (ResourceType match : matches) {
+            if (match.apiVersion.equals(CORE_KIND_TO_API_VERSION_MAP.get(match.kind))) {
+                return match;
+            }
+        }
+        if (Logger.isDebugEnabled()) {
+            Logger.log(className, "getResourceType", Logger.LogType.DEBUG, "Resource " + resource + " matched " + matches.size() + " kind(s).");
+        }
+        return null;
+    }
+
+    /**
+     * The kind, apiVersion and scope of a resource type.
+     */
+    public static final class ResourceType {
+        public final String kind;
+        public final String apiVersion;
+        public final boolean namespaced;
+        ResourceType(String kind, String apiVersion, boolean namespaced) {
+            this.kind = kind;
+            this.apiVersion = apiVersion;
+            this.namespaced = namespaced;
+        }
+        public String toString() {
+            return "Kind: " + kind + ", ApiVersion: " + apiVersion + ", Namespaced: " + namespaced;
+        }
+    }
+
+    private void addNotFound(String key) {
+        final long now = System.currentTimeMillis();
+        if (notFoundMap.size() >= NOT_FOUND_MAX_SIZE) {
+            notFoundMap.values().removeIf(v -> v <= now);
+            if (notFoundMap.size() >= NOT_FOUND_MAX_SIZE) {
+                if (Logger.isDebugEnabled()) {
+                    Logger.log(className, "addNotFound", Logger.LogType.DEBUG, "Clearing the " + notFoundMap.size() + " kinds recently not found.");
+                }
+                notFoundMap.clear();
+            }
+        }
+        notFoundMap.put(key, now + NOT_FOUND_TTL_MILLIS);
+    }
+
+    // For junit only
+    int getNotFoundCountForJunit() {
+        return notFoundMap.size();
+    }
+
+    /**
+     * Returns true if the objects of the given kind are kept in the ResourceCache, so that
+     * changes to them are seen as they happen.
+     */
+    boolean isCached(ApiClient client, String componentKind, String apiVersion) {
+        final ComponentInfo info = getComponentInfo(client, componentKind, apiVersion);
+        return info != null && ResourceCache.isCacheable(info);
+    }
+
+    // Only plain list requests can be answered by the ResourceCache.
+    private static boolean isCacheableQuery(String pretty, String resourceVersion, Boolean watch) {
+        return pretty == null && resourceVersion == null && !Boolean.TRUE.equals(watch);
+    }
+    
     private ComponentInfo getComponentInfo(ApiClient client, String componentKind, String apiVersion) {
         if (Logger.isEntryEnabled()) {
             Logger.log(className, "getComponentInfo", Logger.LogType.ENTRY, "For componentKind=" + componentKind + ", apiVersion=" +apiVersion);
@@ -256,44 +441,122 @@ public class ComponentInfoRegistry {
             }
             return info;
         }
-        // Cache miss. A new CRD may have been loaded recently so
-        // try to refresh the cache in hopes that a mapping for the
-        // new kind will be found. Should revisit to see if there's a
-        // better of way doing this that would be less costly in
-        // performance.
-        try {
-            if (Logger.isDebugEnabled()) {
-                Logger.log(className, "getComponentInfo", Logger.LogType.DEBUG,"Cache miss for key: " + key + ", recreating cache from api resources");
+        // Cache miss. A new CRD may have been loaded recently so refresh the
+        // resources of the kind's group version, unless the kind was looked up
+        // and not found recently.
+        final Long expiry = notFoundMap.get(key);
+        if (expiry != null) {
+            if (System.currentTimeMillis() < expiry) {
+                if (Logger.isExitEnabled()) {
+                    Logger.log(className, "getComponentInfo", Logger.LogType.EXIT,"Key: " + key + " recently not found, returning null");
+                }
+                return null;
             }
-            map = processGroupList(client);
-            componentKindMap.set(map);
+            notFoundMap.remove(key, expiry);
+        }
+        if (Logger.isDebugEnabled()) {
+            Logger.log(className, "getComponentInfo", Logger.LogType.DEBUG,"Cache miss for key: " + key + ", refreshing group version " + apiVersion);
+        }
+        final int index = apiVersion.indexOf('/');
+        if (index > 0 && index < apiVersion.length() - 1) {
+            // The core group (/v1) only contains the built-in kinds so there's nothing to refresh.
+            refreshGroupVersion(client, map, groupKindToApiVersionMap.get(), apiVersion, apiVersion.substring(0, index), apiVersion.substring(index + 1));
             info = map.get(key);
-            if (Logger.isExitEnabled()) {
-                Logger.log(className, "getComponentInfo", Logger.LogType.EXIT,"Using key: " + key + " returning ComponentInfo 2: " + info);
+        }
+        if (info == null) {
+            addNotFound(key);
+        }
+        if (Logger.isExitEnabled()) {
+            Logger.log(className, "getComponentInfo", Logger.LogType.EXIT,"Using key: " + key + " returning ComponentInfo 2: " + info);
+        }
+        return info;
+    }
+    
+    // Lists the resources of a group version after a miss. Concurrent misses in the same group
+    // version share one request.
+    private void refreshGroupVersion(ApiClient client, Map<String,ComponentInfo> map, Map<String,Set<String>> groupKindMap,
+            String apiVersion, String group, String version) {
+        final FutureTask<Boolean> task = new FutureTask<>(() -> processGroupVersion(client, map, groupKindMap, group, version));
+        final FutureTask<Boolean> inFlight = refreshMap.putIfAbsent(apiVersion, task);
+        if (inFlight == null) {
+            try {
+                task.run();
+            }
+            finally {
+                refreshMap.remove(apiVersion, task);
             }
-            return info;
         }
-        catch (ApiException e) {
+        try {
+            ((inFlight != null) ? inFlight : task).get();
+        }
+        catch (ExecutionException e) {
             if (Logger.isDebugEnabled()) {
-                Logger.log(className, "getComponentInfo", Logger.LogType.DEBUG, "Caught ApiException " + e.toString());
+                Logger.log(className, "refreshGroupVersion", Logger.LogType.DEBUG, "Caught Exception refreshing " + apiVersion + ": " + e.getCause());
             }
         }
-        if (Logger.isExitEnabled()) {
-            Logger.log(className, "getComponentInfo", Logger.LogType.EXIT,"No resource info found using key: " + key);
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return null;
     }
-    
-    private Map<String,ComponentInfo> processGroupList(ApiClient client) throws ApiException {
+
+    // Discovers the kinds served by the cluster. Registries created while a discovery is
+    // running wait for it and share its result instead of starting their own.
+    private static Discovery discover(ApiClient client) throws ApiException {
+        final FutureTask<Discovery> task = new FutureTask<>(() -> {
+            final Discovery discovery = processGroupList(client, lastDiscovery);
+            lastDiscovery = discovery;
+            return discovery;
+        });
+        FutureTask<Discovery> inFlight = DISCOVERY.get();
+        while (inFlight == null) {
+            if (DISCOVERY.compareAndSet(null, task)) {
+                try {
+                    task.run();
+                }
+                finally {
+                    DISCOVERY.compareAndSet(task, null);
+                }
+                inFlight = task;
+            }
+            else {
+                inFlight = DISCOVERY.get();
+            }
+        }
+        try {
+            return inFlight.get();
+        }
+        catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ApiException) {
+                throw (ApiException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ApiException(cause);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(e);
+        }
+    }
+
+    private static Discovery processGroupList(ApiClient client, Discovery previous) throws ApiException {
         ApisApi api = getApisApisForInternal();
         api.setApiClient(client);
 
-        final Map<String,Set<String>> groupKindMap = new HashMap<String,Set<String>>();
+        // The maps are updated in place when a group version is refreshed.
+        final Map<String,Set<String>> groupKindMap = new ConcurrentHashMap<String,Set<String>>();
         for (Map.Entry<String,String> entry : BUILT_IN_KIND_TO_API_VERSION_MAP.entrySet()) {
-            groupKindMap.put(entry.getKey(), new HashSet<String>(Arrays.asList(entry.getKey())));
+            final Set<String> apiVersions = ConcurrentHashMap.newKeySet();
+            apiVersions.add(entry.getKey());
+            groupKindMap.put(entry.getKey(), apiVersions);
         } 
 
-        final Map<String,ComponentInfo> map = new HashMap<>();
+        final Map<String,ComponentInfo> map = new ConcurrentHashMap<>();
         map.putAll(BUILT_IN_COMPONENT_KIND_MAP);
 
         // {
@@ -308,6 +571,9 @@ public class ComponentInfoRegistry {
         // }
         V1APIGroupList list = api.getAPIVersions();
         List<V1APIGroup> groups = list.getGroups();
+        // List the resources of each group version concurrently.
+        final List<Callable<Boolean>> tasks = new ArrayList<>();
+        final List<String> taskApiVersions = new ArrayList<>();
         groups.forEach(v -> {
             // kube 1.16 / OCP 4.3 added apiextensions.k8s.io/v1
             // so can no longer use only the preferred version.
@@ -316,21 +582,55 @@ public class ComponentInfoRegistry {
                     if (Logger.isDebugEnabled()) {
                         Logger.log(className, "processGroupList", Logger.LogType.DEBUG,"Processing apiextensions.k8s.io GroupVersion: " + v.getVersions().get(i).getGroupVersion());
                     }
-                    processGroupVersion(client, map, groupKindMap, v.getName(), v.getVersions().get(i).getVersion());
+                    final String version = v.getVersions().get(i).getVersion();
+                    tasks.add(() -> processGroupVersion(client, map, groupKindMap, v.getName(), version));
+                    taskApiVersions.add(v.getName() + "/" + version);
                 }
             } else {
-                processGroupVersion(client, map, groupKindMap, v.getName(), v.getPreferredVersion().getVersion());
+                final String version = v.getPreferredVersion().getVersion();
+                tasks.add(() -> processGroupVersion(client, map, groupKindMap, v.getName(), version));
+                taskApiVersions.add(v.getName() + "/" + version);
             }
         });
+        final List<Boolean> results = FanOutExecutor.invokeAll(tasks, FanOutExecutor.getDeadlineMillis());
+        final List<String> dropped = new ArrayList<>();
+        for (int i = 0; i < results.size(); ++i) {
+            if (!Boolean.TRUE.equals(results.get(i))) {
+                final String apiVersion = taskApiVersions.get(i);
+                dropped.add(apiVersion);
+                if (previous != null) {
+                    copyGroupVersion(previous, map, groupKindMap, apiVersion);
+                }
+            }
+        }
+        if (!dropped.isEmpty() && Logger.isWarningEnabled()) {
+            Logger.log(className, "processGroupList", Logger.LogType.WARNING, "The resources of " + dropped.size()
+                    + " group version(s) could not be listed within the deadline: " + dropped
+                    + ((previous != null) ? ". Their kinds from the previous discovery are kept."
+                            : ". Their kinds are looked up when they are first used."));
+        }
         if (Logger.isDebugEnabled()) {
             Logger.log(className, "processGroupList", Logger.LogType.DEBUG,"Setting groupKind map: " + groupKindMap);
         }
-        groupKindToApiVersionMap.set(groupKindMap);
-        return map;
+        return new Discovery(map, groupKindMap);
+    }
+
+    // Copies the kinds of a group version found by a previous discovery.
+    private static void copyGroupVersion(Discovery previous, Map<String,ComponentInfo> map,
+            Map<String,Set<String>> groupKindMap, String apiVersion) {
+        final String prefix = apiVersion + "/";
+        previous.map.forEach((k, v) -> {
+            if (k.startsWith(prefix) && map.putIfAbsent(k, v) == null) {
+                groupKindMap.computeIfAbsent((v.group != null ? v.group : "") + "/" + v.kind, x -> ConcurrentHashMap.newKeySet())
+                    .add(apiVersion);
+            }
+        });
     }
 
-    private void processGroupVersion(ApiClient client, Map<String,ComponentInfo> map, Map<String,Set<String>> groupKindMap, String group, String version) {
+    // Returns true if the resources of the group version were listed.
+    private static boolean processGroupVersion(ApiClient client, Map<String,ComponentInfo> map, Map<String,Set<String>> groupKindMap, String group, String version) {
         Logger.log(className, "processGroupVersion", Logger.LogType.ENTRY, "For group=" + group + ", version="+version);
+        boolean listed = false;
         try {
             CustomObjectsApi coa = getCustomObjectsApiForInternal();
             coa.setApiClient(client);
@@ -349,16 +649,19 @@ public class ComponentInfoRegistry {
             //   ]
             // }
             final Object o = coa.listClusterCustomObject(group, version, ".", null, null, null, null, 60, null, 60, false);
+            listed = true;
             final JsonElement element = client.getJSON().getGson().toJsonTree(o);
             if (element != null && element.isJsonObject()) {
                 JsonObject root = element.getAsJsonObject();
                 JsonElement resources = root.get("resources");
                 if (resources != null && resources.isJsonArray()) {
                     JsonArray resourcesArray = resources.getAsJsonArray();
+                    final Set<String> kinds = new HashSet<>();
                     resourcesArray.forEach(v -> {
                         if (v != null && v.isJsonObject()) {
                             JsonObject resource = v.getAsJsonObject();
                             String kind = resource.get("kind").getAsString();
+                            kinds.add(kind);
                             String key = (group != null ? group : "") + "/" + version + "/" + kind;
                             String groupKindKey = (group != null ? group : "") + "/" + kind;
                             if (Logger.isDebugEnabled()) {
@@ -381,8 +684,7 @@ public class ComponentInfoRegistry {
                                         if (Logger.isDebugEnabled()) {
                                             Logger.log(className, "processGroupVersion", Logger.LogType.DEBUG, "No apiVersion Set found in groupKindMap: key: " + groupKindKey + ", creating new Set");
                                         }
-                                        apiVersions = new HashSet<String>();
-                                        groupKindMap.put(groupKindKey, apiVersions);
+                                        apiVersions = groupKindMap.computeIfAbsent(groupKindKey, k -> ConcurrentHashMap.newKeySet());
                                     }
                                     if (Logger.isDebugEnabled()) {
                                         Logger.log(className, "processGroupVersion", Logger.LogType.DEBUG, "Adding apiVersion: " + value + " to groupKind: " + groupKindKey);
@@ -392,6 +694,8 @@ public class ComponentInfoRegistry {
                             }
                         }
                     });
+                    // Remove the kinds that are no longer served by this group version.
+                    removeKinds(map, groupKindMap, group, version, k -> !kinds.contains(k));
                 }
             }
         }
@@ -401,8 +705,175 @@ public class ComponentInfoRegistry {
             }     
         }
         if (Logger.isExitEnabled()) {
-            Logger.log(className, "processGroupVersion", Logger.LogType.EXIT, "");
+            Logger.log(className, "processGroupVersion", Logger.LogType.EXIT, "listed=" + listed);
         }
+        return listed;
+    }
+
+    // Removes the kinds of the given group version that match the filter.
+    private static void removeKinds(Map<String,ComponentInfo> map, Map<String,Set<String>> groupKindMap,
+            String group, String version, Predicate<String> filter) {
+        final String prefix = group + "/" + version + "/";
+        final String apiVersion = group + "/" + version;
+        map.entrySet().removeIf(e -> {
+            if (e.getKey().startsWith(prefix) && filter.test(e.getValue().kind)) {
+                if (Logger.isDebugEnabled()) {
+                    Logger.log(className, "removeKinds", Logger.LogType.DEBUG, "Removing ComponentInfo key: " + e.getKey());
+                }
+                groupKindMap.computeIfPresent(group + "/" + e.getValue().kind, (k, apiVersions) -> {
+                    apiVersions.remove(apiVersion);
+                    return apiVersions.isEmpty() ? null : apiVersions;
+                });
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static void startCRDWatcher() {
+        if (!CRD_WATCH_STARTED.compareAndSet(false, true)) {
+            return;
+        }
+        Watcher.start(new Watcher.Handler<Object>() {
+
+            @Override
+            public String getWatcherThreadName() {
+                return "kAppNav CRD Watcher";
+            }
+
+            @Override
+            public List<Object> listResources(ApiClient client, AtomicReference<String> resourceVersion) throws ApiException {
+                CustomObjectsApi coa = new CustomObjectsApi();
+                coa.setApiClient(client);
+                return Watcher.processCustomObjectsApiList(client, cont ->
+                    coa.listClusterCustomObject(CRD_GROUP, CRD_VERSION, CRD_PLURAL, null, cont, null, null, LIST_PAGE_SIZE, null, 60, Boolean.FALSE),
+                    resourceVersion);
+            }
+
+            @Override
+            public Call createWatchCall(ApiClient client, String resourceVersion) throws ApiException {
+                CustomObjectsApi coa = new CustomObjectsApi();
+                coa.setApiClient(client);
+                final ApiCallback callBack = null;
+                return coa.listClusterCustomObjectCall(CRD_GROUP, CRD_VERSION, CRD_PLURAL, null, null, null, null, null, resourceVersion, 60, Boolean.TRUE, callBack);
+            }
+
+            @SuppressWarnings("serial")
+            @Override
+            public Type getWatchType() {
+                return new TypeToken<Watch.Response<Object>>() {}.getType();
+            }
+
+            @Override
+            public void processResponse(ApiClient client, String type, Object object) {
+                final JsonObject o = KAppNavEndpoint.getItemAsObject(client, object);
+                if (o != null) {
+                    final List<ComponentInfoRegistry> registries;
+                    synchronized (CRD_LISTENERS) {
+                        registries = new ArrayList<>(CRD_LISTENERS);
+                    }
+                    registries.forEach(r -> r.processCRDEvent(type, o));
+                }
+            }
+
+            @Override
+            public void reset(ApiClient client) {
+                // Keep the current mappings. They are still valid for the CRDs that haven't changed.
+            }
+        });
+    }
+
+    /**
+     * Updates the mappings for the kind defined by a CustomResourceDefinition.
+     */
+    void processCRDEvent(String type, JsonObject crd) {
+        final JsonObject spec = getObject(crd, "spec");
+        final JsonObject names = getObject(spec, "names");
+        final String group = getString(spec, "group");
+        final String kind = getString(names, "kind");
+        final String plural = getString(names, "plural");
+        if (group == null || kind == null || plural == null) {
+            if ("DELETED".equals(type)) {
+                processDeletedCRD(getString(getObject(crd, "metadata"), "name"));
+            }
+            return;
+        }
+        final boolean namespaced = "Namespaced".equals(getString(spec, "scope"));
+        // The versions currently served. v1beta1 CRDs may only specify spec.version.
+        final Set<String> versions = new HashSet<>();
+        if (!"DELETED".equals(type)) {
+            final JsonElement versionsArray = spec.get("versions");
+            if (versionsArray != null && versionsArray.isJsonArray()) {
+                versionsArray.getAsJsonArray().forEach(v -> {
+                    if (v.isJsonObject()) {
+                        final JsonObject version = v.getAsJsonObject();
+                        final JsonElement served = version.get("served");
+                        final String name = getString(version, "name");
+                        if (name != null && (served == null || !served.isJsonPrimitive() || served.getAsBoolean())) {
+                            versions.add(name);
+                        }
+                    }
+                });
+            }
+            final String version = getString(spec, "version");
+            if (version != null) {
+                versions.add(version);
+            }
+        }
+        if (Logger.isDebugEnabled()) {
+            Logger.log(className, "processCRDEvent", Logger.LogType.DEBUG, type + " CRD for group: " + group + " kind: " + kind + " versions: " + versions);
+        }
+        final Map<String,ComponentInfo> map = componentKindMap.get();
+        final Map<String,Set<String>> groupKindMap = groupKindToApiVersionMap.get();
+        final Set<String> apiVersions = groupKindMap.get(group + "/" + kind);
+        if (apiVersions != null) {
+            for (String apiVersion : new ArrayList<>(apiVersions)) {
+                final String version = apiVersion.substring(apiVersion.indexOf('/') + 1);
+                if (!versions.contains(version)) {
+                    removeKinds(map, groupKindMap, group, version, k -> k.equals(kind));
+                }
+            }
+        }
+        for (String version : versions) {
+            map.put(group + "/" + version + "/" + kind, new ComponentInfo(kind, group, version, plural, namespaced));
+            groupKindMap.computeIfAbsent(group + "/" + kind, k -> ConcurrentHashMap.newKeySet()).add(group + "/" + version);
+        }
+        // A kind that wasn't found before may exist now.
+        notFoundMap.clear();
+    }
+
+    // Removes the kinds defined by a CRD that was deleted while the watch was down, which only
+    // has its metadata. The name of a CRD is {plural}.{group}.
+    private void processDeletedCRD(String name) {
+        final int i = (name != null) ? name.indexOf('.') : -1;
+        if (i <= 0) {
+            return;
+        }
+        final String plural = name.substring(0, i);
+        final String group = name.substring(i + 1);
+        if (Logger.isDebugEnabled()) {
+            Logger.log(className, "processDeletedCRD", Logger.LogType.DEBUG, "DELETED CRD for group: " + group + " plural: " + plural);
+        }
+        final Map<String,ComponentInfo> map = componentKindMap.get();
+        final Map<String,Set<String>> groupKindMap = groupKindToApiVersionMap.get();
+        final List<ComponentInfo> infos = new ArrayList<>();
+        map.values().forEach(v -> {
+            if (group.equals(v.group) && plural.equals(v.plural)) {
+                infos.add(v);
+            }
+        });
+        infos.forEach(v -> removeKinds(map, groupKindMap, group, v.version, k -> k.equals(v.kind)));
+        notFoundMap.clear();
+    }
+
+    private static JsonObject getObject(JsonObject o, String name) {
+        final JsonElement e = (o != null) ? o.get(name) : null;
+        return (e != null && e.isJsonObject()) ? e.getAsJsonObject() : null;
+    }
+
+    private static String getString(JsonObject o, String name) {
+        final JsonElement e = (o != null) ? o.get(name) : null;
+        return (e != null && e.isJsonPrimitive()) ? e.getAsString() : null;
     }
 
     /**
@@ -439,6 +910,16 @@ public class ComponentInfoRegistry {
         return "Component Kind Map: " + componentKindMap.toString();
     }
 
+    // The kind maps built by a discovery.
+    private static final class Discovery {
+        final Map<String,ComponentInfo> map;
+        final Map<String,Set<String>> groupKindMap;
+        Discovery(Map<String,ComponentInfo> map, Map<String,Set<String>> groupKindMap) {
+            this.map = map;
+            this.groupKindMap = groupKindMap;
+        }
+    }
+
     static final class ComponentInfo {
         final String kind;
         final String group;
@@ -467,9 +948,9 @@ public class ComponentInfoRegistry {
     
     interface ComponentResolver {
         public Object listClusterObject(ApiClient client, ComponentInfo info, 
-                String pretty, String labelSelector, String resourceVersion, Boolean watch) throws ApiException;
+                String pretty, String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException;
         public Object listNamespacedObject(ApiClient client, ComponentInfo info, String namespace,
-                String pretty, String labelSelector, String resourceVersion, Boolean watch) throws ApiException;
+                String pretty, String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException;
         public Object getNamespacedObject(ApiClient client, ComponentInfo info, String namespace, String name) throws ApiException;
     }
     
@@ -477,20 +958,20 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(ApiClient client, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             CustomObjectsApi coa = getCustomObjectsApiForInternal();
             coa.setApiClient(client);
             return coa.listClusterCustomObject(info.group, info.version, info.plural,
-                    pretty, null, null, labelSelector, 60, resourceVersion, 60, watch);                  
+                    pretty, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, 60, watch);                  
         }
 
         @Override
         public Object listNamespacedObject(ApiClient client, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             CustomObjectsApi coa = getCustomObjectsApiForInternal();
             coa.setApiClient(client);
             return coa.listNamespacedCustomObject(info.group, info.version,
-                    namespace, info.plural, pretty, null, null, labelSelector, 60, resourceVersion, 60, watch);
+                    namespace, info.plural, pretty, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, 60, watch);
         }
 
         @Override
@@ -519,18 +1000,18 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(ApiClient client, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             CoreV1Api api = getCoreV1ApiForInternal();
             api.setApiClient(client);
-            return listClusterObject(api, info, pretty, labelSelector, resourceVersion, watch);
+            return listClusterObject(api, info, pretty, labelSelector, resourceVersion, watch, cont);
         }
 
         @Override
         public Object listNamespacedObject(ApiClient client, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             CoreV1Api api = getCoreV1ApiForInternal();
             api.setApiClient(client);
-            return listNamespacedObject(api, info, namespace, pretty, labelSelector, resourceVersion, watch);
+            return listNamespacedObject(api, info, namespace, pretty, labelSelector, resourceVersion, watch, cont);
         }
 
         @Override
@@ -542,10 +1023,10 @@ public class ComponentInfoRegistry {
         }
         
         public abstract Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException;
+                String resourceVersion, Boolean watch, String cont) throws ApiException;
         
         public abstract Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException;
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException;
         
         public abstract Object getNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String name)
                 throws ApiException;
@@ -556,22 +1037,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(ConfigMapResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo=" + info 
                     + ", pretty=" + pretty + ", labelSelector="+ labelSelector + ", resourceVersion=" + resourceVersion + ", watch="+watch);
             }
-            return api.listConfigMapForAllNamespaces(false, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listConfigMapForAllNamespaces(false, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(ConfigMapResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo=" + info + ", namespace="+namespace
                     + ", pretty=" + pretty + ", labelSelector="+ labelSelector + ", resourceVersion=" + resourceVersion + ", watch="+watch);
             }
-            return api.listNamespacedConfigMap(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedConfigMap(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -589,22 +1070,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(EndpointsResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo=" + info + ", pretty="+pretty 
                     + ", labelSelector=" + labelSelector + ", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listEndpointsForAllNamespaces(false, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listEndpointsForAllNamespaces(false, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(EndpointsResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo=" + info + ", namespace=" + namespace + ", pretty="+pretty 
                     + ", labelSelector=" + labelSelector + ", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespacedEndpoints(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedEndpoints(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -622,22 +1103,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(EventResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info +", pretty="+pretty + ", labelSelector=" 
                     + labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listEventForAllNamespaces(false, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listEventForAllNamespaces(false, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(EventResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespacedEvent(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedEvent(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -655,22 +1136,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(LimitRangeResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listLimitRangeForAllNamespaces(false, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listLimitRangeForAllNamespaces(false, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(LimitRangeResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespacedLimitRange(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedLimitRange(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -688,22 +1169,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(NamespaceResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespace(pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespace(pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(NamespaceResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespace(pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespace(pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -721,22 +1202,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(NodeResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNode(pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNode(pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(NodeResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNode(pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNode(pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -754,22 +1235,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(PersistentVolumeResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listPersistentVolume(pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listPersistentVolume(pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(PersistentVolumeResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listPersistentVolume(pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listPersistentVolume(pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -787,22 +1268,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(PersistentVolumeClaimResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listPersistentVolumeClaimForAllNamespaces(false, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listPersistentVolumeClaimForAllNamespaces(false, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(PersistentVolumeClaimResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespacedPersistentVolumeClaim(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedPersistentVolumeClaim(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -820,22 +1301,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(PodResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listPodForAllNamespaces(null, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listPodForAllNamespaces(null, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(PodResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespacedPod(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedPod(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -853,22 +1334,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(PodTemplateResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listPodTemplateForAllNamespaces(false, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listPodTemplateForAllNamespaces(false, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(PodTemplateResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespacedPodTemplate(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedPodTemplate(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -886,22 +1367,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(ReplicationControllerResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listReplicationControllerForAllNamespaces(false, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listReplicationControllerForAllNamespaces(false, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(ReplicationControllerResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespacedReplicationController(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedReplicationController(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -919,22 +1400,22 @@ public class ComponentInfoRegistry {
 
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(ResourceQuotaResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listResourceQuotaForAllNamespaces(false, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listResourceQuotaForAllNamespaces(false, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(ResourceQuotaResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespacedResourceQuota(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedResourceQuota(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -952,22 +1433,22 @@ public class ComponentInfoRegistry {
         
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(SecretResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listSecretForAllNamespaces(false, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listSecretForAllNamespaces(false, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(SecretResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespacedSecret(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedSecret(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -985,22 +1466,22 @@ public class ComponentInfoRegistry {
         
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(ServiceResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listServiceForAllNamespaces(false, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listServiceForAllNamespaces(false, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(ServiceResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespacedService(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedService(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
@@ -1018,22 +1499,22 @@ public class ComponentInfoRegistry {
         
         @Override
         public Object listClusterObject(CoreV1Api api, ComponentInfo info, String pretty, String labelSelector,
-                String resourceVersion, Boolean watch) throws ApiException {
+                String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(ServiceAccountResolver.class.getName(), "listClusterObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listServiceAccountForAllNamespaces(false, null, null, labelSelector, 60, pretty, resourceVersion, null, 60, watch);
+            return api.listServiceAccountForAllNamespaces(false, cont, null, labelSelector, LIST_PAGE_SIZE, pretty, resourceVersion, null, 60, watch);
         }
 
         @Override
         public Object listNamespacedObject(CoreV1Api api, ComponentInfo info, String namespace, String pretty,
-                String labelSelector, String resourceVersion, Boolean watch) throws ApiException {
+                String labelSelector, String resourceVersion, Boolean watch, String cont) throws ApiException {
             if (Logger.isDebugEnabled()) {
                 Logger.log(ServiceAccountResolver.class.getName(), "listNamespacedObject", Logger.LogType.DEBUG, "For componentInfo="+ info + ", namespace=" + namespace + ", pretty="+pretty  
                     + ", labelSelector="+ labelSelector +", resourceVersion=" + resourceVersion + ", watch=" + watch);
             }
-            return api.listNamespacedServiceAccount(namespace, pretty, false, null, null, labelSelector, 60, resourceVersion, null, 60, watch);
+            return api.listNamespacedServiceAccount(namespace, pretty, false, cont, null, labelSelector, LIST_PAGE_SIZE, resourceVersion, null, 60, watch);
         }
 
         @Override
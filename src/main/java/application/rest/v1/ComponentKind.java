@@ -51,6 +51,11 @@ public final class ComponentKind {
     }
     
     public static List<ComponentKind> getComponentKinds(final JsonElement element, ComponentInfoRegistry registry) {
+        return resolveComponentKinds(getDeclaredComponentKinds(element), registry);
+    }
+    
+    // Returns the component kinds listed under spec.componentKinds of an application, as written.
+    public static List<ComponentKind> getDeclaredComponentKinds(final JsonElement element) {
         List<ComponentKind> result = new ArrayList<>();
         if (element != null && element.isJsonObject()) {
             JsonObject root = element.getAsJsonObject();
@@ -67,40 +72,7 @@ public final class ComponentKind {
                             JsonElement kind = componentKind.get("kind");
                             if (kind != null) {
                                 String groupString = group != null ? group.getAsString() : "";
-                                ComponentKind ck = new ComponentKind(groupString, kind.getAsString());
-                                if (Logger.isInfoEnabled()) {
-                                    Logger.log(className, "getComponentKinds", Logger.LogType.INFO, "processing componentKind group: " + groupString + " kind: " +  kind.getAsString());
-                                }
-                                // validate group and kind
-                                Set<String> apiVersions = registry.getComponentGroupApiVersions(ck);
-                                if (apiVersions != null && !apiVersions.isEmpty()) {
-                                    for (String apiVersion : apiVersions) {
-                                        if (apiVersion != null) {
-                                            if (Logger.isInfoEnabled()) {
-                                                Logger.log(className, "getComponentKinds", Logger.LogType.INFO, "found apiVersion " + apiVersion + " for componentKind group: " + groupString + " kind: " +  kind.getAsString());
-                                            }
-                                            String[] substring = apiVersion.split("/");
-                                            // For backwards compatibility, invalid group name case,
-                                            // use the group of the default apiversion 
-                                            if (!substring[0].equals(groupString)) {
-                                                ck = new ComponentKind(substring[0], kind.getAsString());
-                                                Logger.log(className, "getComponentKinds", Logger.LogType.INFO, "Substituting group: " + substring[0] + " for group: " + groupString + " with kind: " + kind.getAsString());
-                                            }
-                                            result.add(ck);
-                                        }
-                                        else {
-                                            if (Logger.isInfoEnabled()) {
-                                                Logger.log(className, "getComponentKinds", Logger.LogType.INFO, "apiVersion null for componentKind group: " + groupString + " kind: " +  kind.getAsString() + " skipping");
-                                            }
-                                        }
-                                        break;
-                                    }
-                                }
-                                else {
-                                    if (Logger.isInfoEnabled()) {
-                                        Logger.log(className, "getComponentKinds", Logger.LogType.INFO, "componentKind group: " + groupString + " kind: " +  kind.getAsString() + " not recognized. skipping");
-                                    }
-                                }
+                                result.add(new ComponentKind(groupString, kind.getAsString()));
                             }
                         }
                     });
@@ -109,4 +81,49 @@ public final class ComponentKind {
         }
         return result;
     }
-}
\ No newline at end of file
+    
+    // Validates declared component kinds against the registry, dropping the kinds
+    // that are not recognized and substituting the group of the default apiVersion.
+    public static List<ComponentKind> resolveComponentKinds(final List<ComponentKind> declared, ComponentInfoRegistry registry) {
+        List<ComponentKind> result = new ArrayList<>();
+        for (ComponentKind declaredKind : declared) {
+            final String groupString = declaredKind.group;
+            final String kind = declaredKind.kind;
+            ComponentKind ck = declaredKind;
+            if (Logger.isInfoEnabled()) {
+                Logger.log(className, "getComponentKinds", Logger.LogType.INFO, "processing componentKind group: " + groupString + " kind: " +  kind);
+            }
+            // validate group and kind
+            Set<String> apiVersions = registry.getComponentGroupApiVersions(ck);
+            if (apiVersions != null && !apiVersions.isEmpty()) {
+                for (String apiVersion : apiVersions) {
+                    if (apiVersion != null) {
+                        if (Logger.isInfoEnabled()) {
+                            Logger.log(className, "getComponentKinds", Logger.LogType.INFO, "found apiVersion " + apiVersion + " for componentKind group: " + groupString + " kind: " +  kind);
+                        }
+                        String[] substring = apiVersion.split("/");
+                        // For backwards compatibility, invalid group name case,
+                        // use the group of the default apiversion 
+                        if (!substring[0].equals(groupString)) {
+                            ck = new ComponentKind(substring[0], kind);
+                            Logger.log(className, "getComponentKinds", Logger.LogType.INFO, "Substituting group: " + substring[0] + " for group: " + groupString + " with kind: " + kind);
+                        }
+                        result.add(ck);
+                    }
+                    else {
+                        if (Logger.isInfoEnabled()) {
+                            Logger.log(className, "getComponentKinds", Logger.LogType.INFO, "apiVersion null for componentKind group: " + groupString + " kind: " +  kind + " skipping");
+                        }
+                    }
+                    break;
+                }
+            }
+            else {
+                if (Logger.isInfoEnabled()) {
+                    Logger.log(className, "getComponentKinds", Logger.LogType.INFO, "componentKind group: " + groupString + " kind: " +  kind + " not recognized. skipping");
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import application.rest.v1.ApplicationCache.ApplicationInfo;
+import application.rest.v1.ComponentInfoRegistry.ComponentInfo;
+
+import com.ibm.kappnav.logging.Logger;
+
+/**
+ * Reverse index from components, identified by {group, kind, namespace, name}, to the applications
+ * that include them. An application includes a component if it declares the component's
+ * kind, selects components from its namespace (for namespaced kinds) and its selector
+ * matches the component's labels.
+ * <p>
+ * The owners of a component are computed from the parsed applications in the ApplicationCache,
+ * looking only at the applications that select components from the component's namespace,
+ * and are kept with the labels they were computed from, including for components that no
+ * application includes. They are recomputed as the ResourceCache reports changes to the
+ * component or when a component is looked up with different labels. When an application's
+ * selector, component kinds or component namespaces change, only that application is added
+ * to or removed from each entry. Lookups don't take a lock: an entry computed while an
+ * application changed is computed again.
+ */
+public final class ComponentOwnerIndex {
+
+    private static final String CLASS_NAME = ComponentOwnerIndex.class.getName();
+
+    // Configuration properties. Each can be set as a system property or an environment variable.
+    private static final String MAX_SIZE_PROPERTY = "kappnav.component.owner.index.max.size";
+
+    private static final long DEFAULT_MAX_SIZE = 50000L;
+
+    private static final long MAX_SIZE = KAppNavConfig.getLongSetting(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE);
+
+    private static final String APPLICATION_KIND = "Application";
+    private static final String METADATA_PROPERTY_NAME = "metadata";
+    private static final String LABELS_PROPERTY_NAME = "labels";
+
+    // The key is {group}/{kind}/{namespace}/{name} of the component (see getComponentKey()).
+    private static final Map<String,Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    // Incremented before the entries are updated for an application change. An entry computed while
+    // it changed may have been added after the update was applied, so it is computed again.
+    private static final AtomicLong EPOCH = new AtomicLong();
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Notified when a component changes, after its owners have been updated.
+     */
+    interface Listener {
+        /**
+         * The applications are the {namespace}/{name} keys of the applications that include
+         * the component after the change, or null if they are not known because the
+         * application cache is not synced.
+         */
+        void ownersChanged(ComponentInfo info, String type, JsonObject o, Set<String> applications);
+    }
+
+    static {
+        ResourceCache.addListener(new ResourceCache.Listener() {
+            @Override
+            public void objectChanged(ComponentInfo info, String type, JsonObject o) {
+                componentChanged(info, type, o);
+            }
+
+            @Override
+            public void cacheReset(ComponentInfo info) {
+                componentsReset(info);
+            }
+        });
+        ApplicationCache.addListener(new ApplicationCache.Listener() {
+            @Override
+            public void applicationChanged(ApplicationInfo previous, ApplicationInfo current) {
+                ComponentOwnerIndex.applicationChanged(previous, current);
+            }
+
+            @Override
+            public void cacheReset() {
+                EPOCH.incrementAndGet();
+                ENTRIES.clear();
+            }
+        });
+        Metrics.registerCache("componentowner", ComponentOwnerIndex::getHitCount, ComponentOwnerIndex::getMissCount, ComponentOwnerIndex::getSize);
+    }
+
+    private ComponentOwnerIndex() {}
+
+    static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Returns the parsed form of the applications that include the component, or null if
+     * the application cache is not synced. Cluster-scoped components have a null namespace.
+     */
+    public static List<ApplicationInfo> getOwners(String kind, String namespace, JsonObject component) {
+        final String group = getGroup(KAppNavEndpoint.getComponentApiVersion(component, kind));
+        final String name = KAppNavEndpoint.getComponentName(component);
+        final JsonObject labels = getLabels(component);
+        final String key = getComponentKey(group, kind, namespace, name);
+        final Entry entry = ENTRIES.get(key);
+        final Set<String> owners;
+        if (entry != null && Objects.equals(entry.labels, labels)) {
+            HITS.incrementAndGet();
+            owners = entry.owners;
+        }
+        else {
+            MISSES.incrementAndGet();
+            owners = update(key, group, kind, namespace, name, labels);
+            if (owners == null) {
+                return null;
+            }
+        }
+        final List<ApplicationInfo> result = new ArrayList<>(owners.size());
+        owners.forEach(v -> {
+            final ApplicationInfo info = ApplicationCache.getIndexedApplicationInfo(v);
+            if (info != null) {
+                result.add(info);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns true if the application includes the component. The reverse index is used when
+     * the application cache is synced; otherwise the application is evaluated directly.
+     */
+    public static boolean isOwner(ApplicationInfo application, String kind, String namespace, JsonObject component) {
+        final List<ApplicationInfo> owners = getOwners(kind, namespace, component);
+        if (owners != null) {
+            for (ApplicationInfo owner : owners) {
+                if (owner.getKey().equals(application.getKey())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return includes(application, kind, namespace, component);
+    }
+
+    /**
+     * Evaluates whether the application includes the component without using the index.
+     */
+    public static boolean includes(ApplicationInfo application, String kind, String namespace, JsonObject component) {
+        return includes(application, kind, namespace, KAppNavEndpoint.getComponentName(component), getLabels(component));
+    }
+
+    /**
+     * Returns the key identifying a component: {group}/{kind}/{namespace}/{name}, with an empty
+     * namespace for cluster-scoped components and an empty group for the core API group.
+     */
+    static String getComponentKey(String group, String kind, String namespace, String name) {
+        return ((group != null) ? group : "") + "/" + kind + "/" + ((namespace != null) ? namespace : "") + "/" + name;
+    }
+
+    /**
+     * Returns the API group of the apiVersion ({group}/{version}), or an empty string for the core group.
+     */
+    static String getGroup(String apiVersion) {
+        if (apiVersion == null) {
+            return "";
+        }
+        final int i = apiVersion.indexOf('/');
+        final String group = (i >= 0) ? apiVersion.substring(0, i) : "";
+        return "core".equals(group) ? "" : group;
+    }
+
+    static long getHitCount() {
+        return HITS.get();
+    }
+
+    static long getMissCount() {
+        return MISSES.get();
+    }
+
+    static int getSize() {
+        return ENTRIES.size();
+    }
+
+    // Called by the ResourceCache's watcher thread for the kind.
+    static void componentChanged(ComponentInfo info, String type, JsonObject o) {
+        final String namespace = info.namespaced ? KAppNavEndpoint.getComponentNamespace(o) : null;
+        final String name = KAppNavEndpoint.getComponentName(o);
+        final String key = getComponentKey(info.group, info.kind, namespace, name);
+        final Set<String> owners;
+        if ("DELETED".equals(type)) {
+            ENTRIES.remove(key);
+            owners = Collections.emptySet();
+        }
+        else {
+            owners = update(key, info.group, info.kind, namespace, name, getLabels(o));
+        }
+        LISTENERS.forEach(v -> v.ownersChanged(info, type, o, owners));
+    }
+
+    // Called when the ResourceCache drops the objects of the kind, which may have changed in the meantime.
+    static void componentsReset(ComponentInfo info) {
+        final String group = (info.group != null) ? info.group : "";
+        ENTRIES.values().removeIf(v -> v.kind.equals(info.kind) && v.group.equals(group));
+    }
+
+    // Called by the ApplicationCache's watcher thread after the application has been indexed. Adds
+    // the application to, or removes it from, the entries whose components it now includes or no
+    // longer includes.
+    static void applicationChanged(ApplicationInfo previous, ApplicationInfo current) {
+        if (previous != null && current != null && previous.getLabelSelector().equals(current.getLabelSelector())
+                && previous.getDeclaredKinds().equals(current.getDeclaredKinds())
+                && previous.getComponentNamespaces().equals(current.getComponentNamespaces())) {
+            // The application includes the same components.
+            return;
+        }
+        EPOCH.incrementAndGet();
+        final String applicationKey = (current != null) ? current.getKey() : previous.getKey();
+        for (String key : ENTRIES.keySet()) {
+            ENTRIES.computeIfPresent(key, (k, v) -> v.applicationChanged(applicationKey, current));
+        }
+        if (Logger.isDebugEnabled()) {
+            Logger.log(CLASS_NAME, "applicationChanged", Logger.LogType.DEBUG, "Updated " + ENTRIES.size()
+                    + " component owner entries for application " + applicationKey + ".");
+        }
+    }
+
+    // Computes the owners of the component and records them. Returns null if the application
+    // cache is not synced.
+    private static Set<String> update(String key, String group, String kind, String namespace, String name, JsonObject labels) {
+        while (true) {
+            final long epoch = EPOCH.get();
+            final List<ApplicationInfo> candidates = getCandidates(namespace);
+            if (candidates == null) {
+                ENTRIES.remove(key);
+                return null;
+            }
+            final Set<String> owners = new HashSet<>();
+            candidates.forEach(v -> {
+                if (includes(v, kind, namespace, name, labels)) {
+                    owners.add(v.getKey());
+                }
+            });
+            final Entry entry = new Entry(group, kind, namespace, name, labels, Collections.unmodifiableSet(owners));
+            if (ENTRIES.size() >= MAX_SIZE && !ENTRIES.containsKey(key)) {
+                ENTRIES.clear();
+            }
+            ENTRIES.put(key, entry);
+            if (EPOCH.get() == epoch) {
+                if (Logger.isDebugEnabled()) {
+                    Logger.log(CLASS_NAME, "update", Logger.LogType.DEBUG, "Component " + key + " is included in " + owners.size() + " application(s).");
+                }
+                return entry.owners;
+            }
+            // An application changed. The entry may have been missed by the update.
+            ENTRIES.remove(key, entry);
+        }
+    }
+
+    // Applications that can include components in the namespace: those that select it for
+    // namespaced components, all of them for cluster-scoped components.
+    private static List<ApplicationInfo> getCandidates(String namespace) {
+        return (namespace != null) ? ApplicationCache.getApplicationInfosForComponentNamespace(namespace)
+                : ApplicationCache.getApplicationInfos();
+    }
+
+    private static boolean includes(ApplicationInfo application, String kind, String namespace, String name, JsonObject labels) {
+        if (labels == null || !application.declaresKind(kind) || application.getSelector().isEmpty()) {
+            return false;
+        }
+        if (namespace != null && !application.getComponentNamespaces().contains(namespace)) {
+            return false;
+        }
+        if (APPLICATION_KIND.equals(kind) && application.getKey().equals(namespace + "/" + name)) {
+            // An application is not a component of itself.
+            return false;
+        }
+        return application.getCompiledSelector().matchesLabels(labels);
+    }
+
+    private static JsonObject getLabels(JsonObject o) {
+        final JsonElement metadata = o.get(METADATA_PROPERTY_NAME);
+        if (metadata != null && metadata.isJsonObject()) {
+            final JsonElement labels = metadata.getAsJsonObject().get(LABELS_PROPERTY_NAME);
+            if (labels != null && labels.isJsonObject()) {
+                return labels.getAsJsonObject();
+            }
+        }
+        return null;
+    }
+
+    private static final class Entry {
+        private final String group;
+        private final String kind;
+        private final String namespace;
+        private final String name;
+        // The labels the owners were computed from. Shared with the component; must not be modified.
+        private final JsonObject labels;
+        // Empty if no application includes the component.
+        private final Set<String> owners;
+        Entry(String group, String kind, String namespace, String name, JsonObject labels, Set<String> owners) {
+            this.group = (group != null) ? group : "";
+            this.kind = kind;
+            this.namespace = namespace;
+            this.name = name;
+            this.labels = labels;
+            this.owners = owners;
+        }
+        // Returns the entry with the application added or removed. The current form is null if the application was deleted.
+        Entry applicationChanged(String applicationKey, ApplicationInfo current) {
+            final boolean owner = current != null && includes(current, kind, namespace, name, labels);
+            if (owner == owners.contains(applicationKey)) {
+                return this;
+            }
+            final Set<String> _owners = new HashSet<>(owners);
+            if (owner) {
+                _owners.add(applicationKey);
+            }
+            else {
+                _owners.remove(applicationKey);
+            }
+            return new Entry(group, kind, namespace, name, labels, Collections.unmodifiableSet(_owners));
+        }
+    }
+}
@@ -17,12 +17,14 @@
 package application.rest.v1;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 import javax.inject.Inject;
 import javax.validation.constraints.Pattern;
@@ -34,6 +36,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
@@ -50,6 +53,7 @@ import com.ibm.kappnav.logging.Logger;
 
 import application.rest.v1.actions.ResolutionContext;
 import application.rest.v1.actions.ResolutionContext.ResolvedValue;
+import application.rest.v1.actions.ValidationException;
 import application.rest.v1.configmaps.ConfigMapProcessor;
 import application.rest.v1.configmaps.SectionConfigMapProcessor;
 import io.kubernetes.client.openapi.ApiClient;
@@ -63,14 +67,21 @@ public class ComponentsEndpoint extends KAppNavEndpoint {
 
     private static final String COMPONENTS_PROPERTY_NAME = "components";
     private static final String COMPONENT_PROPERTY_NAME = "component";
-    private static final String ACTION_MAP_PROPERTY_NAME = "action-map";
-    private static final String SECTION_MAP_PROPERTY_NAME = "section-map";
     private static final String KIND_PROPERTY_NAME = "kind";
     private static final String APIVERSION_PROPERTY_NAME = "apiVersion";
+    private static final String APPLICATIONS_PROPERTY_NAME = "applications";
+    private static final String NAMESPACE_PROPERTY_NAME = "namespace";
+    private static final String CODE_PROPERTY_NAME = "code";
+    private static final String MESSAGE_PROPERTY_NAME = "message";
     
     @Inject
     private ComponentInfoRegistry registry;
     
+    // For junit only
+    void setRegistryForJunit(ComponentInfoRegistry registry) {
+        this.registry = registry;
+    }
+    
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/{application-name}")
@@ -83,34 +94,111 @@ public class ComponentsEndpoint extends KAppNavEndpoint {
         @APIResponse(responseCode = "400", description = "Bad Request (Malformed input)"),
         @APIResponse(responseCode = "500", description = "Internal Server Error")})
     public Response getComponents(@Pattern(regexp = NAME_PATTERN_ONE_OR_MORE) @PathParam("application-name") @Parameter(description = "The name of the application") String name, 
-            @Pattern(regexp = NAME_PATTERN_ZERO_OR_MORE) @DefaultValue("default") @QueryParam("namespace") @Parameter(description = "The namespace of the application") String namespace) {
+            @Pattern(regexp = NAME_PATTERN_ZERO_OR_MORE) @DefaultValue("default") @QueryParam("namespace") @Parameter(description = "The namespace of the application") String namespace,
+            @DefaultValue("0") @QueryParam(ListPage.LIMIT_PARAMETER_NAME) @Parameter(description = "The maximum number of components to return, or 0 for all of them") int limit,
+            @DefaultValue("") @QueryParam(ListPage.CONTINUE_PARAMETER_NAME) @Parameter(description = "The continue token returned with the previous page") String cont) {
         try {
+            final ListPage page = ListPage.of(limit, cont);
+            if (page.getKubeContinue() != null) {
+                // Components are always paged by key.
+                throw new ValidationException("The continue token is not valid.", ListPage.CONTINUE_PARAMETER_NAME);
+            }
             final ApiClient client = getApiClient();
             if (registry == null) {
                 // Initialize the registry here if CDI failed to do it.
                 registry = new ComponentInfoRegistry(client);
             }
             final JsonObject o = ApplicationCache.getNamespacedApplicationObject(client, namespace, name);
+            final ApplicationCache.ApplicationInfo info = ApplicationCache.getApplicationInfo(o);
 
             //get names from application and application annotations
-            final List<String> namespaces = getNamespaceList(client, o, namespace);  
+            final List<String> namespaces = info.getComponentNamespaces();
                                           
-            final List<ComponentKind> componentKinds = ComponentKind.getComponentKinds(o, registry);
-            final Selector selector = Selector.getSelector(o);
-            return processComponentKinds(client, componentKinds, namespaces, selector, namespace, name);
+            final List<ComponentKind> componentKinds = info.getComponentKinds(registry);
+            final Selector selector = info.getSelector();
+            return processComponentKinds(client, componentKinds, namespaces, selector, namespace, name, page);
         }
-        catch (IOException | ApiException e) {
+        catch (IOException | ApiException | ValidationException e) {
             if (Logger.isErrorEnabled()) {
                 Logger.log(className, "getComponents", Logger.LogType.ERROR, "Caught Exception returning status: " + getResponseCode(e) + " " + e.toString());
             }
             return Response.status(getResponseCode(e)).entity(getStatusMessageAsJSON(e)).build();
         }   
     }
+
+    public Response getComponents(String name, String namespace) {
+        return getComponents(name, namespace, 0, "");
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/{component-name}/{component-kind}/applications")
+    @Operation(
+            summary = "Retrieve the applications that include a component.",
+            description = "Returns the list of applications whose component kinds, component namespaces and selector include the specified component."
+            )
+    @APIResponses({@APIResponse(responseCode = "200", description = "OK"),
+        @APIResponse(responseCode = "207", description = "Multi-Status (Error from Kubernetes API)"),
+        @APIResponse(responseCode = "400", description = "Bad Request (Malformed input)"),
+        @APIResponse(responseCode = "500", description = "Internal Server Error")})
+    public Response getComponentApplications(@Pattern(regexp = NAME_PATTERN_ONE_OR_MORE) @PathParam("component-name") @Parameter(description = "The name of the component") String name,
+            @PathParam("component-kind") @Parameter(description = "The Kubernetes resource kind for the component") String kind,
+            @Pattern(regexp = API_VERSION_PATTERN_ZERO_OR_MORE) @DefaultValue("") @QueryParam("apiVersion") @Parameter(description = "The apiVersion of the component") String apiVersion,
+            @Pattern(regexp = NAME_PATTERN_ZERO_OR_MORE) @DefaultValue("default") @QueryParam("namespace") @Parameter(description = "The namespace of the component") String namespace) {
+        try {
+            final ApiClient client = getApiClient();
+            if (registry == null) {
+                // Initialize the registry here if CDI failed to do it.
+                registry = new ComponentInfoRegistry(client);
+            }
+            final String componentNamespace = registry.isNamespaced(client, kind, apiVersion) ? namespace : null;
+            final JsonObject component = getResource(client, registry, name, kind, apiVersion, namespace);
+            List<ApplicationCache.ApplicationInfo> owners = ComponentOwnerIndex.getOwners(kind, componentNamespace, component);
+            if (owners == null) {
+                // The application cache is not available. Evaluate each of the applications.
+                owners = new ArrayList<>();
+                for (JsonObject app : ApplicationCache.listApplicationObject(client)) {
+                    final ApplicationCache.ApplicationInfo info = ApplicationCache.getApplicationInfo(app);
+                    if (ComponentOwnerIndex.includes(info, kind, componentNamespace, component)) {
+                        owners.add(info);
+                    }
+                }
+            }
+            final List<ApplicationCache.ApplicationInfo> sorted = new ArrayList<>(owners);
+            sorted.sort(Comparator.comparing(ApplicationCache.ApplicationInfo::getKey));
+            final JsonArray applications = new JsonArray();
+            sorted.forEach(v -> {
+                if (!v.isHidden()) {
+                    applications.add(v.getApplication());
+                }
+            });
+            final JsonObject response = new JsonObject();
+            response.add(APPLICATIONS_PROPERTY_NAME, applications);
+            return ok(response.toString());
+        }
+        catch (IOException | ApiException e) {
+            if (Logger.isErrorEnabled()) {
+                Logger.log(className, "getComponentApplications", Logger.LogType.ERROR, "Caught Exception returning status: " + getResponseCode(e) + " " + e.toString());
+            }
+            return Response.status(getResponseCode(e)).entity(getStatusMessageAsJSON(e)).build();
+        }
+    }
     
-    private Response processComponentKinds(ApiClient client, List<ComponentKind> componentKinds, List<String> namespaces, Selector selector, String appNamespace, String appName) {
-        final ComponentResponse response = new ComponentResponse();
+    private Response processComponentKinds(ApiClient client, List<ComponentKind> componentKinds, List<String> namespaces, Selector selector, String appNamespace, String appName, ListPage page) {
+        final List<ComponentList> results = new ArrayList<>();
+        // Queries whose components are missing from the response.
+        final JsonArray errors = new JsonArray();
         if (!selector.isEmpty()) {
+            final long deadline = System.currentTimeMillis() + FanOutExecutor.getDeadlineMillis();
             final String labelSelector = selector.toString();
+            // Build the list of queries (one per cluster-scoped kind and one per namespace for
+            // namespaced kinds) and run them concurrently. The results are written in query
+            // order so that the response is the same as a sequential run.
+            final List<Callable<ComponentList>> queries = new ArrayList<>();
+            // The kind, apiVersion and namespace (null if cluster-scoped) of each query.
+            final List<ComponentKind> queryKinds = new ArrayList<>();
+            final List<String> queryApiVersions = new ArrayList<>();
+            final List<String> queryNamespaces = new ArrayList<>();
             componentKinds.forEach(v -> {
                 try {
                     Set<String> apiVersions = registry.getComponentGroupApiVersions(v);
@@ -121,17 +209,53 @@ public class ComponentsEndpoint extends KAppNavEndpoint {
                                            " for Application: " + appName +" componentKind group: " + v.group + " kind: " + v.kind);
                             }
                             if (!registry.isNamespaced(client, v.kind, apiVersion)) {
-                                Object o = registry.listClusterObject(client, v.kind, apiVersion, null, labelSelector, null, null);
-                                processComponents(client, response, v, apiVersion, getItemsAsList(client, o));
+                                final int query = queries.size();
+                                queryKinds.add(v);
+                                queryApiVersions.add(apiVersion);
+                                queryNamespaces.add(null);
+                                queries.add(() -> {
+                                    try {
+                                        Object o = registry.listClusterObject(client, v.kind, apiVersion, null, labelSelector, null, null);
+                                        return new ComponentList(query, v, apiVersion, getItemsAsList(client, o), null, null);
+                                    } catch (ApiException | RuntimeException e) {
+                                        if (Logger.isErrorEnabled()) {
+                                            Logger.log(className, "processComponentKinds", Logger.LogType.ERROR, "Caught Exception listing " + v.kind
+                                                    + " " + apiVersion + " for Application: " + appName + ": " + e.toString());
+                                        }
+                                        final ComponentList failed = new ComponentList(query, v, apiVersion, new ArrayList<>(), null, null);
+                                        failed.error = getQueryError(v, apiVersion, null,
+                                                (e instanceof ApiException) ? ((ApiException) e).getCode() : 500, e.getMessage());
+                                        return failed;
+                                    }
+                                });
                             } else {
                                 // If the component kind is namespaced, query components for each of the specified namespaces.
-                                final String apiVersion1 = apiVersion;    // to avoid compiler error
                                 namespaces.forEach(n -> {
-                                    try {
-                                        Object o = registry.listNamespacedObject(client, v.kind, apiVersion1, n, null, labelSelector, null, null);
-                                        processComponents(client, response, v, apiVersion, getItemsAsList(client, o), appNamespace, appName);
-                                    } catch (ApiException e) {
-                                    }
+                                    final int query = queries.size();
+                                    queryKinds.add(v);
+                                    queryApiVersions.add(apiVersion);
+                                    queryNamespaces.add(n);
+                                    queries.add(() -> {
+                                        try {
+                                            Object o = registry.listNamespacedObject(client, v.kind, apiVersion, n, null, labelSelector, null, null);
+                                            return new ComponentList(query, v, apiVersion, getItemsAsList(client, o), appNamespace, appName);
+                                        } catch (ApiException e) {
+                                            // As before, namespaces that cannot be listed contribute no components.
+                                            if (Logger.isDebugEnabled()) {
+                                                Logger.log(className, "processComponentKinds", Logger.LogType.DEBUG, "Caught ApiException listing " + v.kind
+                                                        + " " + apiVersion + " in namespace " + n + ": " + e.toString());
+                                            }
+                                        } catch (RuntimeException e) {
+                                            if (Logger.isErrorEnabled()) {
+                                                Logger.log(className, "processComponentKinds", Logger.LogType.ERROR, "Caught Exception listing " + v.kind
+                                                        + " " + apiVersion + " in namespace " + n + ": " + e.toString());
+                                            }
+                                            final ComponentList failed = new ComponentList(query, v, apiVersion, new ArrayList<>(), appNamespace, appName);
+                                            failed.error = getQueryError(v, apiVersion, n, 500, e.getMessage());
+                                            return failed;
+                                        }
+                                        return new ComponentList(query, v, apiVersion, new ArrayList<>(), appNamespace, appName);
+                                    });
                                 });
                             }
                         } else {
@@ -147,36 +271,78 @@ public class ComponentsEndpoint extends KAppNavEndpoint {
                     }
                 }
             });
+            final long remaining = Math.max(0L, deadline - System.currentTimeMillis());
+            final List<ComponentList> lists = FanOutExecutor.invokeAll(queries, remaining);
+            for (int i = 0; i < lists.size(); ++i) {
+                final ComponentList r = lists.get(i);
+                if (r != null && r.error != null) {
+                    errors.add(r.error);
+                }
+                else if (r != null) {
+                    // Filter out the recursive app before the page is cut.
+                    if (r.appName != null && r.componentKind.kind.equals("Application")) {
+                        r.components.removeIf(c -> getComponentName(c).equals(r.appName) &&
+                                                   getComponentNamespace(c).equals(r.appNamespace));
+                    }
+                    results.add(r);
+                }
+                else {
+                    errors.add(getQueryError(queryKinds.get(i), queryApiVersions.get(i), queryNamespaces.get(i), 504,
+                            "The query did not complete within the deadline."));
+                }
+            }
         }
-        return Response.ok(response.getJSON()).build();
+        final ListPage.Page<ComponentList> result = selectPage(results, page);
+        // The action and section maps are resolved as the response is written.
+        final ComponentResponse response = new ComponentResponse(client, result.items, result.next, errors);
+        return (errors.size() > 0) ? partial(response) : ok(response);
     }
-    
-    private void processComponents(ApiClient client, ComponentResponse response, ComponentKind componentKind, 
-                                   String apiVersion, List<JsonObject> components) {
-        final ConfigMapProcessor processor = new ConfigMapProcessor(componentKind.kind);
-        final SectionConfigMapProcessor sectionProcessor = new SectionConfigMapProcessor(componentKind.kind);
-        components.forEach(v -> {
-            // Add 'kind' property to components that are missing it.
-            if (v.get(KIND_PROPERTY_NAME) == null) {
-                v.addProperty(KIND_PROPERTY_NAME, componentKind.kind);
-            }  
-            
-            // Add 'apiVersion' property to components that are missing it.
-            if (v.get(APIVERSION_PROPERTY_NAME) == null) {
-                v.addProperty(APIVERSION_PROPERTY_NAME, apiVersion);
-            }
-            JsonObject configMap = processor.getConfigMap(client, v, ConfigMapProcessor.ConfigMapType.ACTION);
-            response.add(v, configMap, sectionProcessor.processSectionMap(client, v));
-        });
+
+    // Describes a query whose components are missing from the response.
+    private static JsonObject getQueryError(ComponentKind componentKind, String apiVersion, String namespace, int code, String message) {
+        final JsonObject error = new JsonObject();
+        error.addProperty(KIND_PROPERTY_NAME, componentKind.kind);
+        error.addProperty(APIVERSION_PROPERTY_NAME, apiVersion);
+        if (namespace != null) {
+            error.addProperty(NAMESPACE_PROPERTY_NAME, namespace);
+        }
+        error.addProperty(CODE_PROPERTY_NAME, code);
+        error.addProperty(MESSAGE_PROPERTY_NAME, encodeHTML(message));
+        return error;
     }
 
-    private void processComponents(ApiClient client, ComponentResponse response, ComponentKind componentKind, 
-                                   String apiVersion, List<JsonObject> components, String appNamespace, String appName) {
+    // Cuts the requested page out of the query results. Components are ordered by kind,
+    // apiVersion, namespace and name, and the page is selected from the combined list.
+    private static ListPage.Page<ComponentList> selectPage(List<ComponentList> results, ListPage page) {
+        if (page == ListPage.ALL) {
+            return new ListPage.Page<>(results, null);
+        }
+        final List<PagedComponent> all = new ArrayList<>();
+        for (ComponentList list : results) {
+            list.components.forEach(v -> all.add(new PagedComponent(list, v)));
+        }
+        all.sort(Comparator.comparing(v -> v.key));
+        final ListPage.Page<PagedComponent> selected = page.select(all, v -> v.key);
+        // Regroup consecutive components from the same query.
+        final List<ComponentList> lists = new ArrayList<>();
+        ComponentList current = null;
+        for (PagedComponent v : selected.items) {
+            if (current == null || current.query != v.list.query) {
+                current = new ComponentList(v.list.query, v.list.componentKind, v.list.apiVersion, new ArrayList<>(), v.list.appNamespace, v.list.appName);
+                lists.add(current);
+            }
+            current.components.add(v.component);
+        }
+        return new ListPage.Page<>(lists, selected.next);
+    }
+    
+    private void processComponents(ApiClient client, JsonTupleWriter writer, ComponentList list) throws IOException {
+        final ComponentKind componentKind = list.componentKind;
         final ConfigMapProcessor processor = new ConfigMapProcessor(componentKind.kind);
         final SectionConfigMapProcessor sectionProcessor = new SectionConfigMapProcessor(componentKind.kind);
         final String methodName = "processComponents";
-        components.forEach(component -> {
-            if (Logger.isEntryEnabled()) {
+        for (JsonObject component : list.components) {
+            if (list.appName != null && Logger.isEntryEnabled()) {
                 Logger.log(className, methodName, Logger.LogType.ENTRY, "Processing component: " + getComponentName(component));
             }
             // Add 'kind' property to components that are missing it.
@@ -186,62 +352,95 @@ public class ComponentsEndpoint extends KAppNavEndpoint {
             
             // Add 'apiVersion' property to components that are missing it.
             if (component.get(APIVERSION_PROPERTY_NAME) == null) {
-                component.addProperty(APIVERSION_PROPERTY_NAME, apiVersion);
+                component.addProperty(APIVERSION_PROPERTY_NAME, list.apiVersion);
             }
-            // filter out recursive app from component list
-            if (!(componentKind.kind.equals("Application") &&
-                   getComponentName(component).equals(appName) &&
-                   getComponentNamespace(component).equals(appNamespace))) {                                       
+            if (list.appName == null) {
+                JsonObject configMap = processor.getConfigMap(client, component, ConfigMapProcessor.ConfigMapType.ACTION);
+                writer.write(COMPONENT_PROPERTY_NAME, component, configMap, sectionProcessor.processSectionMap(client, component));
+            }
+            // The recursive app has already been filtered out of the component list.
+            else {
                 JsonObject configMap = processor.getConfigMap(client, component, ConfigMapProcessor.ConfigMapType.ACTION);
                 resolveInputPatterns(configMap, client, registry, componentKind.kind, getComponentApiVersion(component, componentKind.kind), getComponentName(component), getComponentNamespace(component));
-                response.add(component, configMap, sectionProcessor.processSectionMap(client, component));
+                writer.write(COMPONENT_PROPERTY_NAME, component, configMap, sectionProcessor.processSectionMap(client, component));
             }
-        });
+        }
     }
 
-    private List<String> getNamespaceList(ApiClient client, JsonObject o, String namespace) {
-        final List<String> newNamespaces = new ArrayList<String>();
-    
-        //get namespaces from application
-        List<String> appNamespaces = Collections.singletonList(namespace);
-
-        //get kappnav.component.namespaces from application annotations
-        List<String> kappnavNamespaces = getAnnotationNamespaces(o);
-
-        kappnavNamespaces.addAll(appNamespaces);
-        
-        //remove duplicates
-        for (String element : kappnavNamespaces) { 
-            if (!newNamespaces.contains(element)) {
-                newNamespaces.add(element); 
-            } 
+    // The components returned by one query. For namespaced kinds the application is given
+    // so that it can be filtered out of its own components and input patterns are resolved.
+    private static final class ComponentList {
+        // The position of the query in the request.
+        private final int query;
+        private final ComponentKind componentKind;
+        private final String apiVersion;
+        private final List<JsonObject> components;
+        private final String appNamespace;
+        private final String appName;
+        // Set if the query failed.
+        private JsonObject error;
+        ComponentList(int query, ComponentKind componentKind, String apiVersion, List<JsonObject> components, String appNamespace, String appName) {
+            this.query = query;
+            this.componentKind = componentKind;
+            this.apiVersion = apiVersion;
+            this.components = components;
+            this.appNamespace = appNamespace;
+            this.appName = appName;
+        }
+    }
+
+    private static final class PagedComponent {
+        private final ComponentList list;
+        private final JsonObject component;
+        // The kind and apiVersion, then the namespace and name. The key depends only on the
+        // component so that it identifies the same position in the list on every request.
+        private final String key;
+        PagedComponent(ComponentList list, JsonObject component) {
+            this.list = list;
+            this.component = component;
+            this.key = list.componentKind.kind + '\u0000' + list.apiVersion + '\u0000' + ListPage.getObjectKey(component);
         }
-        return newNamespaces;
     }
    
-   
-    static final class ComponentResponse {
-        private final JsonObject o;
-        private final JsonArray components;
-        // Constructs:
+    final class ComponentResponse implements StreamingOutput {
+        private final ApiClient client;
+        private final List<ComponentList> results;
+        private final String next;
+        private final JsonArray errors;
+        // Writes:
         // {
-        //   components: [ { component: {...}, action-map: {...}, section-map: {...} } ]
+        //   components: [ { component: {...}, action-map: {...}, section-map: {...} } ],
+        //   errors: [ { kind: "...", apiVersion: "...", namespace: "...", code: ..., message: "..." } ],
+        //   continue: "..."
         // }
-        public ComponentResponse() {
-            o = new JsonObject();
-            o.add(COMPONENTS_PROPERTY_NAME, components = new JsonArray());
+        // 'errors' is only present if some of the queries failed or did not complete in time, in which
+        // case the response status is 207. 'continue' is only present if there are more components to
+        // retrieve. Each tuple is written as soon as its maps have been resolved. If resolving them fails,
+        // the response ends with an 'error' member in place of 'continue'.
+        public ComponentResponse(ApiClient client, List<ComponentList> results, String next, JsonArray errors) {
+            this.client = client;
+            this.results = results;
+            this.next = next;
+            this.errors = errors;
         }
-        public void add(final JsonObject component, final JsonObject actionMap, final JsonObject sectionMap) {
-            final JsonObject tuple = new JsonObject();
-            tuple.add(COMPONENT_PROPERTY_NAME, component != null ? component : new JsonObject());
-            tuple.add(ACTION_MAP_PROPERTY_NAME, actionMap != null ? actionMap : new JsonObject());
-            tuple.add(SECTION_MAP_PROPERTY_NAME, sectionMap != null ? sectionMap : new JsonObject()); 
-            components.add(tuple);
-        }
-        public String getJSON() {
-            return o.toString();
+        @Override
+        public void write(OutputStream os) throws IOException {
+            final JsonTupleWriter writer = new JsonTupleWriter(os, COMPONENTS_PROPERTY_NAME);
+            try {
+                for (ComponentList list : results) {
+                    processComponents(client, writer, list);
+                }
+            }
+            catch (RuntimeException e) {
+                // The status has already been sent. End the response with an error member.
+                if (Logger.isErrorEnabled()) {
+                    Logger.log(className, "write", Logger.LogType.ERROR, "Caught RuntimeException resolving the component maps. The response is incomplete: " + e.toString());
+                }
+                writer.setFailure(e);
+            }
+            writer.setErrors(errors);
+            writer.setContinue(next);
+            writer.close();
         }
     }
-   
-        
 }
@@ -73,8 +73,9 @@ public class CustomResourceWatcher {
                     throws ApiException {
                 CustomObjectsApi coa = new CustomObjectsApi();
                 coa.setApiClient(client);
-                Object o = coa.listNamespacedCustomObject(KAPPNAV_CR_GROUP, KAPPNAV_CR_VERSION, KAPPNAV_NAMESPACE, KAPPNAV_CR_PLURAL, null, null, null, null, 60, null, 60, Boolean.FALSE);
-                return Watcher.processCustomObjectsApiList(client, o, resourceVersion);
+                return Watcher.processCustomObjectsApiList(client, cont ->
+                    coa.listNamespacedCustomObject(KAPPNAV_CR_GROUP, KAPPNAV_CR_VERSION, KAPPNAV_NAMESPACE, KAPPNAV_CR_PLURAL, null, cont, null, null, 60, null, 60, Boolean.FALSE),
+                    resourceVersion);
             }
 
             @Override
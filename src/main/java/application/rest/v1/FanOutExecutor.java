@@ -0,0 +1,198 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.kappnav.logging.Logger;
+
+/**
+ * Shared executor for running the independent Kube API queries of a single request
+ * concurrently. Uses a virtual thread per task when the JVM supports virtual threads
+ * and a fixed size pool otherwise. In both cases the number of tasks running at once
+ * is bounded by kappnav.fanout.max.concurrency. The fixed pool queues at most
+ * kappnav.fanout.queue.size tasks; once the queue is full, further tasks run on the
+ * thread of the request that submitted them, which slows down the requests that are
+ * adding the load.
+ */
+public final class FanOutExecutor {
+
+    private static final String className = FanOutExecutor.class.getName();
+
+    // Configuration properties. Each can be set as a system property or an environment variable.
+    private static final String MAX_CONCURRENCY_PROPERTY = "kappnav.fanout.max.concurrency";
+    private static final String VIRTUAL_THREADS_PROPERTY = "kappnav.fanout.virtual.threads";
+    private static final String DEADLINE_PROPERTY = "kappnav.fanout.deadline.seconds";
+    private static final String QUEUE_SIZE_PROPERTY = "kappnav.fanout.queue.size";
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 16;
+    private static final long DEFAULT_DEADLINE_SECONDS = 30L;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    private static final int MAX_CONCURRENCY;
+    private static final long DEADLINE_MILLIS;
+
+    // Bounds the number of running tasks when using virtual threads. Null for the fixed pool.
+    private static final Semaphore PERMITS;
+    private static final ExecutorService EXECUTOR;
+
+    // Set on threads running tasks so that nested calls run inline instead of waiting on the pool.
+    private static final ThreadLocal<Boolean> IN_TASK = new ThreadLocal<>();
+
+    static {
+        MAX_CONCURRENCY = (int) KAppNavConfig.getLongSetting(MAX_CONCURRENCY_PROPERTY, DEFAULT_MAX_CONCURRENCY);
+        DEADLINE_MILLIS = TimeUnit.SECONDS.toMillis(KAppNavConfig.getLongSetting(DEADLINE_PROPERTY, DEFAULT_DEADLINE_SECONDS));
+        ExecutorService executor = null;
+        if (KAppNavConfig.getBooleanSetting(VIRTUAL_THREADS_PROPERTY, true)) {
+            executor = newVirtualThreadExecutor();
+        }
+        if (executor != null) {
+            PERMITS = new Semaphore(MAX_CONCURRENCY);
+        }
+        else {
+            PERMITS = null;
+            final AtomicInteger count = new AtomicInteger();
+            final int queueSize = (int) KAppNavConfig.getLongSetting(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE);
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_CONCURRENCY, MAX_CONCURRENCY, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), r -> {
+                        final Thread t = new Thread(r, "kAppNav Fan-out Worker-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        EXECUTOR = executor;
+        if (Logger.isInfoEnabled()) {
+            Logger.log(className, "<clinit>", Logger.LogType.INFO, "Fan-out executor: virtualThreads=" + (PERMITS != null)
+                    + ", maxConcurrency=" + MAX_CONCURRENCY + ", deadlineMillis=" + DEADLINE_MILLIS);
+        }
+    }
+
+    private FanOutExecutor() {}
+
+    /**
+     * Returns the configured per-request deadline in milliseconds.
+     */
+    public static long getDeadlineMillis() {
+        return DEADLINE_MILLIS;
+    }
+
+    /**
+     * Runs the tasks concurrently and waits until they have all completed or the timeout
+     * expires, cancelling any that are still running. Returns the results in the same
+     * order as the tasks. The result of a task that failed or did not complete in time
+     * is null.
+     */
+    public static <T> List<T> invokeAll(List<Callable<T>> tasks, long timeoutMillis) {
+        final List<T> results = new ArrayList<>(tasks.size());
+        if (tasks.size() <= 1 || Boolean.TRUE.equals(IN_TASK.get())) {
+            // Not worth a thread switch, or already on a worker.
+            for (Callable<T> task : tasks) {
+                results.add(callInline(task));
+            }
+            return results;
+        }
+        final List<Callable<T>> wrapped = new ArrayList<>(tasks.size());
+        tasks.forEach(t -> wrapped.add(wrap(t)));
+        try {
+            final List<Future<T>> futures = EXECUTOR.invokeAll(wrapped, timeoutMillis, TimeUnit.MILLISECONDS);
+            int timedOut = 0;
+            for (Future<T> f : futures) {
+                try {
+                    results.add(f.get());
+                }
+                catch (CancellationException e) {
+                    ++timedOut;
+                    results.add(null);
+                }
+                catch (ExecutionException e) {
+                    if (Logger.isDebugEnabled()) {
+                        Logger.log(className, "invokeAll", Logger.LogType.DEBUG, "Caught Exception from task: " + e.getCause());
+                    }
+                    results.add(null);
+                }
+            }
+            if (timedOut > 0 && Logger.isWarningEnabled()) {
+                Logger.log(className, "invokeAll", Logger.LogType.WARNING, timedOut + " of " + tasks.size()
+                        + " task(s) did not complete within " + timeoutMillis + " ms and were cancelled.");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            while (results.size() < tasks.size()) {
+                results.add(null);
+            }
+        }
+        return results;
+    }
+
+    private static <T> T callInline(Callable<T> task) {
+        try {
+            return task.call();
+        }
+        catch (Exception e) {
+            if (Logger.isDebugEnabled()) {
+                Logger.log(className, "callInline", Logger.LogType.DEBUG, "Caught Exception from task: " + e);
+            }
+            return null;
+        }
+    }
+
+    private static <T> Callable<T> wrap(Callable<T> task) {
+        return () -> {
+            if (PERMITS != null) {
+                PERMITS.acquire();
+            }
+            IN_TASK.set(Boolean.TRUE);
+            try {
+                return task.call();
+            }
+            finally {
+                IN_TASK.remove();
+                if (PERMITS != null) {
+                    PERMITS.release();
+                }
+            }
+        };
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is only available on Java 21+. Look it up reflectively.
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            if (Logger.isDebugEnabled()) {
+                Logger.log(className, "newVirtualThreadExecutor", Logger.LogType.DEBUG, "Virtual threads not available: " + e);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Writes a response of the form
+ * {
+ *   <array-name>: [ { <object-name>: {...}, action-map: {...}, section-map: {...} }, ... ]
+ * }
+ * to an output stream one tuple at a time, so that the response never has to be held
+ * in memory as a whole. The output is the same as JsonObject.toString() would produce.
+ * The errors of a partial response and the continue token of a paginated response
+ * follow the array. If resolving a tuple fails after the response has started, the
+ * response is ended with an error member in place of the continue token so that the
+ * client still receives valid JSON.
+ */
+final class JsonTupleWriter implements Closeable {
+
+    private static final String ACTION_MAP_PROPERTY_NAME = "action-map";
+    private static final String SECTION_MAP_PROPERTY_NAME = "section-map";
+    private static final String ERRORS_PROPERTY_NAME = "errors";
+    private static final String ERROR_PROPERTY_NAME = "error";
+    private static final String CODE_PROPERTY_NAME = "code";
+    private static final String MESSAGE_PROPERTY_NAME = "message";
+
+    // Matches the compact, non HTML escaped form written by JsonElement.toString().
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
+    private static final JsonObject EMPTY = new JsonObject();
+
+    private final JsonWriter writer;
+    private String continueToken;
+    private JsonArray errors;
+    private JsonObject error;
+
+    JsonTupleWriter(OutputStream os, String arrayName) throws IOException {
+        writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8)));
+        writer.beginObject();
+        writer.name(arrayName);
+        writer.beginArray();
+    }
+
+    void write(String objectName, JsonObject object, JsonObject actionMap, JsonObject sectionMap) throws IOException {
+        writer.beginObject();
+        writeProperty(objectName, object);
+        writeProperty(ACTION_MAP_PROPERTY_NAME, actionMap);
+        writeProperty(SECTION_MAP_PROPERTY_NAME, sectionMap);
+        writer.endObject();
+    }
+
+    private void writeProperty(String name, JsonObject value) throws IOException {
+        writer.name(name);
+        GSON.toJson(value != null ? value : EMPTY, writer);
+    }
+
+    void setContinue(String continueToken) {
+        this.continueToken = continueToken;
+    }
+
+    /**
+     * Sets the errors of the queries whose results are missing from the response, if any.
+     */
+    void setErrors(JsonArray errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * Records the failure that stopped the response partway through. The tuples already
+     * written are kept, and the error replaces the continue token because the rest of the
+     * page is missing.
+     */
+    void setFailure(Exception e) {
+        error = new JsonObject();
+        error.addProperty(CODE_PROPERTY_NAME, 500);
+        error.addProperty(MESSAGE_PROPERTY_NAME, KAppNavEndpoint.encodeHTML(e.getMessage()));
+    }
+
+    /**
+     * Completes the response and flushes it. The output stream is left open for the container to close.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.endArray();
+        if (errors != null && errors.size() > 0) {
+            writer.name(ERRORS_PROPERTY_NAME);
+            GSON.toJson(errors, writer);
+        }
+        if (error != null) {
+            writer.name(ERROR_PROPERTY_NAME);
+            GSON.toJson(error, writer);
+        }
+        else if (continueToken != null) {
+            writer.name(ListPage.CONTINUE_PROPERTY_NAME).value(continueToken);
+        }
+        writer.endObject();
+        writer.flush();
+    }
+}
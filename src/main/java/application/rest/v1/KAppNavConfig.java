@@ -97,6 +97,54 @@ public class KAppNavConfig {
         }
     }
     
+    /**
+     * Returns the value of a tuning setting, read from the system property with
+     * the given name, or if it isn't set from the environment variable with the
+     * same name. Returns null if neither is set.
+     */
+    public static String getSetting(final String name) {
+        try {
+            return AccessController.doPrivileged(new PrivilegedAction<String>() {
+                public String run() {
+                    final String prop = System.getProperty(name);
+                    if (prop != null) {
+                        return prop;
+                    }
+                    // Check environment variable if the system property hasn't been set.
+                    return System.getenv(name);
+                }
+            });
+        }
+        catch (SecurityException e) {
+            return null;
+        }
+    }
+
+    // Returns the setting as a positive long, or the default if it isn't set or isn't valid.
+    public static long getLongSetting(String name, long defaultValue) {
+        final String val = getSetting(name);
+        if (val != null) {
+            try {
+                final long result = Long.parseLong(val.trim());
+                if (result > 0) {
+                    return result;
+                }
+            }
+            catch (NumberFormatException e) {
+                if (Logger.isDebugEnabled()) {
+                    Logger.log(className, "getLongSetting", Logger.LogType.DEBUG, "Invalid value for " + name + ": " + val);
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    // Returns the setting as a boolean, or the default if it isn't set.
+    public static boolean getBooleanSetting(String name, boolean defaultValue) {
+        final String val = getSetting(name);
+        return (val != null) ? Boolean.parseBoolean(val.trim()) : defaultValue;
+    }
+
     private static final String MAP_NAME = "kappnav-config";
     
     private static final String KAPPNAV_SA_NAME = "kappnav-sa-name";
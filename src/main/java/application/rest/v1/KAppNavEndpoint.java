@@ -38,6 +38,7 @@ import org.apache.commons.text.StringEscapeUtils;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
+import javax.ws.rs.core.Response;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -47,16 +48,17 @@ import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSyntaxException;
 import com.ibm.kappnav.logging.Logger;
 
+import application.rest.v1.actions.CommandRejectedException;
 import application.rest.v1.actions.ResolutionContext;
 import application.rest.v1.actions.ValidationException;
 import application.rest.v1.actions.ResolutionContext.ResolvedValue;
+import application.rest.v1.configmaps.ConfigMapCache;
+import application.rest.v1.configmaps.KindActionMappingCache;
 import application.rest.v1.configmaps.OwnerRef;
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.CustomObjectsApi;
 import io.kubernetes.client.openapi.models.V1DeleteOptions;
-import io.kubernetes.client.util.Config;
-import io.kubernetes.client.openapi.Configuration;
 
 import okhttp3.OkHttpClient;
 import okhttp3.ConnectionSpec;
@@ -65,6 +67,10 @@ import okhttp3.ConnectionSpec;
 public abstract class KAppNavEndpoint {
     private static final String className = KAppNavEndpoint.class.getName();
 
+    // Warning added to responses that may be missing recent changes (RFC 7234, section 5.5).
+    private static final String WARNING_HEADER = "Warning";
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
     protected static final String NAME_PATTERN_ONE_OR_MORE = "^[a-z0-9-.:]+$";
     protected static final String NAME_PATTERN_ZERO_OR_MORE = "^[a-z0-9-.:]*$";
     protected static final String API_VERSION_PATTERN_ZERO_OR_MORE = "^[a-z0-9-.:/%]*$";
@@ -138,20 +144,21 @@ public abstract class KAppNavEndpoint {
     protected Object listApplicationObject(ApiClient client) throws ApiException {
     	final CustomObjectsApi coa = getCustomObjectsApi();
         coa.setApiClient(client);
-        return coa.listClusterCustomObject(APP_GROUP, APP_VERSION, APP_PLURAL, null, null, null, null, 60, null, 60, false);
+        return Watcher.listAllPages(client, cont ->
+            coa.listClusterCustomObject(APP_GROUP, APP_VERSION, APP_PLURAL, null, cont, null, null, 60, null, 60, false));
     }
     
     protected Object listNamespacedApplicationObject(ApiClient client, String namespace) throws ApiException {
     	final CustomObjectsApi coa = getCustomObjectsApi();
         coa.setApiClient(client);
-        return coa.listNamespacedCustomObject(APP_GROUP, APP_VERSION,
-                encodeURLParameter(namespace), APP_PLURAL, null, null, null, null, 60, null, 60, Boolean.FALSE);
+        return Watcher.listAllPages(client, cont -> coa.listNamespacedCustomObject(APP_GROUP, APP_VERSION,
+                encodeURLParameter(namespace), APP_PLURAL, null, cont, null, null, 60, null, 60, Boolean.FALSE));
     }
 
     public static List<JsonObject> getItemsAsList(ApiClient client, Object resources) {
 
         final List<JsonObject> result = new ArrayList<>();
-        final JsonElement element = client.getJSON().getGson().toJsonTree(resources);
+        final JsonElement element = (resources instanceof JsonObject) ? (JsonObject) resources : client.getJSON().getGson().toJsonTree(resources);
 
         if (element != null && element.isJsonObject()) {
             writeItemsToList(element.getAsJsonObject(), result);
@@ -595,9 +602,35 @@ public abstract class KAppNavEndpoint {
         return result;
     }
 
-    //private static ApiClient client;
+    // Returns the namespaces to search for the components of an application: the namespaces
+    // from its kappnav.component.namespaces annotation followed by its own namespace.
+    public static List<String> getComponentNamespaces(JsonObject o, String namespace) {
+        final List<String> newNamespaces = new ArrayList<String>();
+    
+        //get namespaces from application
+        List<String> appNamespaces = Collections.singletonList(namespace);
+
+        //get kappnav.component.namespaces from application annotations
+        List<String> kappnavNamespaces = getAnnotationNamespaces(o);
+
+        kappnavNamespaces.addAll(appNamespaces);
+        
+        //remove duplicates
+        for (String element : kappnavNamespaces) { 
+            if (!newNamespaces.contains(element)) {
+                newNamespaces.add(element); 
+            } 
+        }
+        return newNamespaces;
+    }
+
+    // Returns the shared ApiClient. See ApiClientProvider.
     public static ApiClient getApiClient() throws IOException {
-        final ApiClient client = Config.defaultClient();
+        return ApiClientProvider.getApiClient();
+    }
+    
+    // Applies the kAppNav TLS settings to a newly created ApiClient.
+    static ApiClient configureApiClient(ApiClient client) {
         if (!DISABLE_TRUST_ALL_CERTS) {
             trustAllCerts(client);
         }
@@ -806,7 +839,6 @@ public abstract class KAppNavEndpoint {
     }
     
     private static void trustAllCerts(ApiClient apiClient) {
-        ApiClient localApiClient = null;
         try {
             TrustManager[] trustAllCerts = new TrustManager[] { new X509TrustManager() {
                 @Override
@@ -824,13 +856,12 @@ public abstract class KAppNavEndpoint {
            
             ConnectionSpec spec = new ConnectionSpec.Builder(ConnectionSpec.MODERN_TLS).allEnabledCipherSuites().build();
 
-            localApiClient = apiClient.setHttpClient(apiClient.getHttpClient().newBuilder()
+            // Only this client is changed. The default client of the Kube library is left alone.
+            apiClient.setHttpClient(apiClient.getHttpClient().newBuilder()
                                                     .sslSocketFactory(sc.getSocketFactory(), (X509TrustManager)trustAllCerts[0])
                                                     .connectionSpecs(Collections.singletonList((spec)))
                                                     .build());
             
-            Configuration.setDefaultApiClient(localApiClient);
-            
         } catch (Exception e) {
             if (Logger.isDebugEnabled()) {
                 Logger.log(className, "trustAllCerts", Logger.LogType.DEBUG, "Caught Exception " + e.toString());
@@ -875,10 +906,38 @@ public abstract class KAppNavEndpoint {
             // Bad request.
             return 400;
         }
+        else if (e instanceof CommandRejectedException) {
+            // Service Unavailable. Too many commands are already running or queued.
+            return 503;
+        }
         // Internal Server Error
         return 500;
     }
 
+    /**
+     * Returns an OK response for the entity. The response has a Warning header (110, Response
+     * is Stale) if one of the caches is being served while its watch is down, so the response
+     * may be missing recent changes.
+     */
+    protected static Response ok(Object entity) {
+        return withStaleWarning(Response.ok(entity));
+    }
+
+    /**
+     * Returns a Multi-Status (207) response for an entity that is missing some of its results
+     * and describes the errors that caused it. The Warning header is set as for ok().
+     */
+    protected static Response partial(Object entity) {
+        return withStaleWarning(Response.status(207).entity(entity));
+    }
+
+    private static Response withStaleWarning(Response.ResponseBuilder builder) {
+        if (ApplicationCache.isStale() || ResourceCache.isStale() || ConfigMapCache.isStale() || KindActionMappingCache.isStale()) {
+            builder.header(WARNING_HEADER, STALE_WARNING);
+        }
+        return builder.build();
+    }
+
     protected static String getStatusMessageAsJSON(Exception e) {
         if (e instanceof ApiException) {
             final int code = ((ApiException) e).getCode();          
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Counts and times the requests made to the Kube API server by every ApiClient built by
+ * the ApiClientProvider, by verb (get, list, watch, create, ...) and resource (the plural
+ * name, qualified by the group for resources outside the core group). The time of a
+ * watch is the time until the API server starts streaming the events.
+ */
+final class KubeApiMetrics implements Interceptor {
+
+    static final KubeApiMetrics INSTANCE = new KubeApiMetrics();
+
+    private static final Metrics.Counter REQUESTS = Metrics.counter("kappnav_kube_api_requests_total",
+            "Requests made to the Kube API server.", "verb", "resource", "code");
+    private static final Metrics.Summary LATENCY = Metrics.summary("kappnav_kube_api_request_seconds",
+            "Time taken by requests to the Kube API server.", "verb", "resource");
+
+    private KubeApiMetrics() {}
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final HttpUrl url = chain.request().url();
+        final String resource = getResource(url.pathSegments());
+        final String verb = getVerb(chain.request().method(), url.pathSegments(), "true".equals(url.queryParameter("watch")));
+        final long start = System.nanoTime();
+        String code = "error";
+        try {
+            final Response response = chain.proceed(chain.request());
+            code = Integer.toString(response.code());
+            return response;
+        }
+        finally {
+            LATENCY.observeNanos(System.nanoTime() - start, verb, resource);
+            REQUESTS.inc(verb, resource, code);
+        }
+    }
+
+    // Paths are /api/{version}/... for the core group and /apis/{group}/{version}/... for the
+    // others, followed by [namespaces/{namespace}/]{resource}[/{name}[/{subresource}]].
+    static String getResource(List<String> segments) {
+        final List<String> rest = getResourceSegments(segments);
+        if (rest == null || rest.isEmpty() || rest.get(0).isEmpty()) {
+            return "discovery";
+        }
+        final String group = ("apis".equals(segments.get(0))) ? segments.get(1) : "";
+        return group.isEmpty() ? rest.get(0) : rest.get(0) + "." + group;
+    }
+
+    static String getVerb(String method, List<String> segments, boolean watch) {
+        final List<String> rest = getResourceSegments(segments);
+        final boolean named = rest != null && rest.size() > 1 && !rest.get(1).isEmpty();
+        switch (method) {
+        case "GET":
+            return watch ? "watch" : (named ? "get" : "list");
+        case "POST":
+            return "create";
+        case "PUT":
+            return "update";
+        case "PATCH":
+            return "patch";
+        case "DELETE":
+            return named ? "delete" : "deletecollection";
+        default:
+            return method.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // Returns the segments from the resource name on, or null for paths that are not resources.
+    private static List<String> getResourceSegments(List<String> segments) {
+        final int start;
+        if (segments.size() > 2 && "api".equals(segments.get(0))) {
+            start = 2;
+        }
+        else if (segments.size() > 3 && "apis".equals(segments.get(0))) {
+            start = 3;
+        }
+        else {
+            return null;
+        }
+        final List<String> rest = segments.subList(start, segments.size());
+        // namespaces/{namespace}/{resource}... but not namespaces/{namespace} itself.
+        if (rest.size() > 2 && "namespaces".equals(rest.get(0))) {
+            return rest.subList(2, rest.size());
+        }
+        return rest;
+    }
+}
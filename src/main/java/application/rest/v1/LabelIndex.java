@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Inverted index from label key to label value to the set of objects carrying
+ * that label. Used with CompiledSelector.select() to answer label selector
+ * queries by set operations instead of evaluating the selector against every
+ * object. Safe for one writer and many concurrent readers.
+ */
+public final class LabelIndex<K> {
+
+    private static final String METADATA_PROPERTY_NAME = "metadata";
+    private static final String LABELS_PROPERTY_NAME = "labels";
+
+    // The key is the label key. The value maps the label value to the set of objects with that label.
+    private final Map<String,Map<String,Set<K>>> index = new ConcurrentHashMap<>();
+
+    public void add(K object, Map<String,String> labels) {
+        labels.forEach((k, v) -> {
+            index.computeIfAbsent(k, x -> new ConcurrentHashMap<>())
+                 .computeIfAbsent(v, x -> ConcurrentHashMap.newKeySet()).add(object);
+        });
+    }
+
+    public void remove(K object, Map<String,String> labels) {
+        labels.forEach((k, v) -> {
+            final Map<String,Set<K>> values = index.get(k);
+            if (values != null) {
+                final Set<K> objects = values.get(v);
+                if (objects != null) {
+                    objects.remove(object);
+                    if (objects.isEmpty()) {
+                        values.remove(v);
+                        if (values.isEmpty()) {
+                            index.remove(k);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    public void clear() {
+        index.clear();
+    }
+
+    // Returns the objects with the label key=value.
+    Set<K> get(String key, String value) {
+        final Map<String,Set<K>> values = index.get(key);
+        if (values != null) {
+            final Set<K> objects = values.get(value);
+            if (objects != null) {
+                return objects;
+            }
+        }
+        return Collections.emptySet();
+    }
+
+    // Returns the objects with the label key=value grouped by value.
+    Map<String,Set<K>> get(String key) {
+        final Map<String,Set<K>> values = index.get(key);
+        return (values != null) ? values : Collections.emptyMap();
+    }
+
+    /**
+     * Returns the labels (metadata.labels) of a Kubernetes resource as a map.
+     */
+    public static Map<String,String> getLabels(JsonObject o) {
+        final JsonElement metadata = o.get(METADATA_PROPERTY_NAME);
+        if (metadata != null && metadata.isJsonObject()) {
+            final JsonElement labels = metadata.getAsJsonObject().get(LABELS_PROPERTY_NAME);
+            if (labels != null && labels.isJsonObject()) {
+                final Map<String,String> result = new HashMap<>();
+                for (Map.Entry<String,JsonElement> e : labels.getAsJsonObject().entrySet()) {
+                    if (e.getValue().isJsonPrimitive()) {
+                        result.put(e.getKey(), e.getValue().getAsString());
+                    }
+                }
+                return result;
+            }
+        }
+        return Collections.emptyMap();
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import application.rest.v1.actions.ValidationException;
+
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+
+/**
+ * The limit and continue token of a paginated list request. Lists served from memory
+ * are paged by key: their continue token holds the key of the last item returned and
+ * the next page starts after it, so a page is never skipped or repeated because the
+ * list changed in between. Lists served by the Kube API are paged by the API server and
+ * its continue token is passed through. The two kinds of token are told apart by their
+ * prefix, and a memory token can still be honoured if the list has to be retrieved from
+ * the cluster.
+ */
+final class ListPage {
+
+    static final String LIMIT_PARAMETER_NAME = "limit";
+    static final String CONTINUE_PARAMETER_NAME = "continue";
+    static final String CONTINUE_PROPERTY_NAME = "continue";
+
+    private static final String KEY_TOKEN_PREFIX = "c.";
+    private static final String KUBE_TOKEN_PREFIX = "k.";
+
+    private static final String METADATA_PROPERTY_NAME = "metadata";
+
+    // Page size used when all pages of a list are retrieved from the Kube API.
+    private static final int KUBE_PAGE_SIZE = 500;
+
+    // Requests without a limit or continue token get everything.
+    static final ListPage ALL = new ListPage(0, null, null);
+
+    private final int limit;
+    // The key of the last item of the previous page, for lists served from memory.
+    private final String afterKey;
+    // The continue token returned by the Kube API for the previous page.
+    private final String kubeContinue;
+
+    private ListPage(int limit, String afterKey, String kubeContinue) {
+        this.limit = limit;
+        this.afterKey = afterKey;
+        this.kubeContinue = kubeContinue;
+    }
+
+    /**
+     * Returns the page for the limit and continue query parameters. A limit of 0 means
+     * no limit. Throws a ValidationException if the limit is negative or the continue
+     * token was not issued by this API.
+     */
+    static ListPage of(int limit, String token) {
+        if (limit < 0) {
+            throw new ValidationException("The limit must not be negative.", LIMIT_PARAMETER_NAME);
+        }
+        if (token == null || token.isEmpty()) {
+            return (limit == 0) ? ALL : new ListPage(limit, null, null);
+        }
+        if (token.startsWith(KUBE_TOKEN_PREFIX) && token.length() > KUBE_TOKEN_PREFIX.length()) {
+            return new ListPage(limit, null, token.substring(KUBE_TOKEN_PREFIX.length()));
+        }
+        if (token.startsWith(KEY_TOKEN_PREFIX)) {
+            try {
+                final byte[] key = Base64.getUrlDecoder().decode(token.substring(KEY_TOKEN_PREFIX.length()));
+                return new ListPage(limit, new String(key, StandardCharsets.UTF_8), null);
+            }
+            catch (IllegalArgumentException e) {
+                // Fall through.
+            }
+        }
+        throw new ValidationException("The continue token is not valid.", CONTINUE_PARAMETER_NAME);
+    }
+
+    /**
+     * Returns the limit to pass to the Kube API, or null for no limit.
+     */
+    Integer getLimit() {
+        return (limit > 0) ? limit : null;
+    }
+
+    /**
+     * Returns the continue token to pass to the Kube API, or null to start at the beginning.
+     */
+    String getKubeContinue() {
+        return kubeContinue;
+    }
+
+    /**
+     * Returns true if this page continues a list that was served from memory.
+     */
+    boolean hasKeyToken() {
+        return afterKey != null;
+    }
+
+    /**
+     * Returns the items of this page from a list that is sorted by the given key.
+     */
+    <T> Page<T> select(List<T> sorted, Function<T,String> key) {
+        int start = 0;
+        if (afterKey != null) {
+            // Binary search for the first item after the key.
+            int low = 0;
+            int high = sorted.size();
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (key.apply(sorted.get(mid)).compareTo(afterKey) <= 0) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            start = low;
+        }
+        if (limit == 0 || sorted.size() - start <= limit) {
+            return new Page<>((start == 0) ? sorted : sorted.subList(start, sorted.size()), null);
+        }
+        final List<T> items = sorted.subList(start, start + limit);
+        final String last = key.apply(items.get(items.size() - 1));
+        return new Page<>(items, KEY_TOKEN_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(last.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Lists one page of objects from the Kube API. The limit and continue token may be null.
+     */
+    interface KubeLister {
+        Object list(Integer limit, String cont) throws ApiException;
+    }
+
+    /**
+     * Returns this page of a list that is only available from the Kube API. Without a limit
+     * or continue token every page is retrieved.
+     */
+    Page<JsonObject> listFromKube(ApiClient client, KubeLister lister) throws ApiException {
+        if (afterKey != null) {
+            throw new ValidationException("The continue token is not valid.", CONTINUE_PARAMETER_NAME);
+        }
+        if (limit == 0 && kubeContinue == null) {
+            final List<JsonObject> items = new ArrayList<>();
+            KAppNavEndpoint.writeItemsToList(Watcher.listAllPages(client, cont -> lister.list(KUBE_PAGE_SIZE, cont)), items);
+            return new Page<>(items, null);
+        }
+        final JsonObject list = KAppNavEndpoint.getItemAsObject(client, lister.list(getLimit(), kubeContinue));
+        final List<JsonObject> items = new ArrayList<>();
+        KAppNavEndpoint.writeItemsToList(list, items);
+        return fromKubeList(items, list);
+    }
+
+    /**
+     * Returns the page of a list returned by the Kube API, with the continue token from its metadata.
+     */
+    static Page<JsonObject> fromKubeList(List<JsonObject> items, JsonObject list) {
+        String token = null;
+        final JsonElement metadata = (list != null) ? list.get(METADATA_PROPERTY_NAME) : null;
+        if (metadata != null && metadata.isJsonObject()) {
+            final JsonElement cont = metadata.getAsJsonObject().get(CONTINUE_PROPERTY_NAME);
+            if (cont != null && cont.isJsonPrimitive() && !cont.getAsString().isEmpty()) {
+                token = KUBE_TOKEN_PREFIX + cont.getAsString();
+            }
+        }
+        return new Page<>(items, token);
+    }
+
+    /**
+     * Returns the continue token of a list returned by the Kube API, or null if it is the last page.
+     */
+    static String getKubeListContinue(JsonObject list) {
+        final String token = fromKubeList(Collections.emptyList(), list).next;
+        return (token != null) ? token.substring(KUBE_TOKEN_PREFIX.length()) : null;
+    }
+
+    /**
+     * Returns the key used to page lists of Kubernetes objects served from memory: the
+     * namespace, then the name, separated so that the keys sort in the order in which
+     * the caches return the objects.
+     */
+    static String getObjectKey(JsonObject o) {
+        final String namespace = KAppNavEndpoint.getComponentNamespace(o);
+        return ((namespace != null) ? namespace : "") + '\u0000' + KAppNavEndpoint.getComponentName(o);
+    }
+
+    /**
+     * A page of items and the token for the next page, which is null on the last page.
+     */
+    static final class Page<T> {
+        final List<T> items;
+        final String next;
+        Page(List<T> items, String next) {
+            this.items = items;
+            this.next = next;
+        }
+    }
+}
@@ -50,6 +50,18 @@ public final class MatchExpression {
         return this;
     }
     
+    String getKey() {
+        return key;
+    }
+    
+    Operator getOperator() {
+        return operator;
+    }
+    
+    List<String> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+    
     public boolean matchesLabels(JsonObject labels) {
         JsonElement e = labels.get(key);
         switch (operator) {
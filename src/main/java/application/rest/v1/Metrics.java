@@ -0,0 +1,320 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import com.ibm.kappnav.logging.Logger;
+
+/**
+ * In-process metrics, written in the Prometheus text format by the /metrics endpoint.
+ * A metric family is created once, usually in a static field, and its samples are
+ * looked up by their label values. Counters and summaries are updated by the code
+ * being measured; function counters and gauges read values that other classes already
+ * track (e.g. cache hit counts) when the metrics are scraped.
+ */
+public final class Metrics {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Sorted by name so that the output is stable.
+    private static final Map<String,Family> FAMILIES = new ConcurrentSkipListMap<>();
+
+    static {
+        functionCounter("kappnav_log_records_dropped_total", "Log records dropped because the asynchronous log buffer was full.")
+            .register(Logger::getDroppedCount);
+        gauge("kappnav_log_records_buffered", "Log records waiting to be written.").register(Logger::getBufferedCount);
+    }
+
+    private Metrics() {}
+
+    /**
+     * Returns the counter with the given name, creating it if it doesn't exist.
+     */
+    public static Counter counter(String name, String help, String... labelNames) {
+        return (Counter) FAMILIES.computeIfAbsent(name, k -> new Counter(name, help, labelNames));
+    }
+
+    /**
+     * Returns the summary with the given name, creating it if it doesn't exist. Summaries
+     * record the number and total duration of events, in seconds.
+     */
+    public static Summary summary(String name, String help, String... labelNames) {
+        return (Summary) FAMILIES.computeIfAbsent(name, k -> new Summary(name, help, labelNames));
+    }
+
+    /**
+     * Returns the gauge with the given name, creating it if it doesn't exist.
+     */
+    public static Gauge gauge(String name, String help, String... labelNames) {
+        return (Gauge) FAMILIES.computeIfAbsent(name, k -> new Gauge(name, help, "gauge", labelNames));
+    }
+
+    /**
+     * Returns the function counter with the given name, creating it if it doesn't exist. Its
+     * samples read a monotonically increasing value tracked elsewhere.
+     */
+    public static Gauge functionCounter(String name, String help, String... labelNames) {
+        return (Gauge) FAMILIES.computeIfAbsent(name, k -> new Gauge(name, help, "counter", labelNames));
+    }
+
+    /**
+     * Registers the hit, miss and size metrics of a cache.
+     */
+    public static void registerCache(String cache, DoubleSupplier hits, DoubleSupplier misses, DoubleSupplier size) {
+        functionCounter("kappnav_cache_hits_total", "Lookups answered from the cache.", "cache").register(hits, cache);
+        functionCounter("kappnav_cache_misses_total", "Lookups that could not be answered from the cache.", "cache").register(misses, cache);
+        gauge("kappnav_cache_size", "Number of entries in the cache.", "cache").register(size, cache);
+    }
+
+    /**
+     * Returns all the metrics in the Prometheus text format.
+     */
+    public static String scrape() {
+        final StringBuilder sb = new StringBuilder(4096);
+        FAMILIES.values().forEach(v -> v.write(sb));
+        return sb.toString();
+    }
+
+    /**
+     * A named metric with a fixed set of labels.
+     */
+    public static abstract class Family {
+        final String name;
+        final String help;
+        final String type;
+        final String[] labelNames;
+        // The key is the label values, joined.
+        final Map<String,Sample> samples = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type, String[] labelNames) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = labelNames;
+        }
+
+        final Sample getSample(String[] labelValues) {
+            if (labelValues.length != labelNames.length) {
+                throw new IllegalArgumentException("Metric " + name + " has labels " + Arrays.toString(labelNames)
+                        + " but was given " + Arrays.toString(labelValues));
+            }
+            final String key = getKey(labelValues);
+            Sample sample = samples.get(key);
+            if (sample == null) {
+                sample = samples.computeIfAbsent(key, k -> newSample(labelValues.clone()));
+            }
+            return sample;
+        }
+
+        static String getKey(String[] labelValues) {
+            return (labelValues.length == 1) ? labelValues[0] : String.join("\u0000", labelValues);
+        }
+
+        /**
+         * Removes the samples that have the given value for the given label, e.g. those of a
+         * watcher or cache that no longer exists.
+         */
+        public void remove(String labelName, String labelValue) {
+            final int index = Arrays.asList(labelNames).indexOf(labelName);
+            if (index < 0) {
+                throw new IllegalArgumentException("Metric " + name + " has labels " + Arrays.toString(labelNames)
+                        + " but was given " + labelName);
+            }
+            samples.values().removeIf(v -> labelValue.equals(v.labelValues[index]));
+        }
+
+        abstract Sample newSample(String[] labelValues);
+
+        final void write(StringBuilder sb) {
+            if (samples.isEmpty()) {
+                return;
+            }
+            sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            samples.values().forEach(v -> v.write(sb, this));
+        }
+
+        final void writeLine(StringBuilder sb, String suffix, String[] labelValues, double value) {
+            sb.append(name).append(suffix);
+            if (labelNames.length > 0) {
+                sb.append('{');
+                for (int i = 0; i < labelNames.length; ++i) {
+                    if (i > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(labelNames[i]).append("=\"");
+                    appendLabelValue(sb, labelValues[i]);
+                    sb.append('"');
+                }
+                sb.append('}');
+            }
+            sb.append(' ');
+            if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+                sb.append((long) value);
+            }
+            else {
+                sb.append(value);
+            }
+            sb.append('\n');
+        }
+
+        private static void appendLabelValue(StringBuilder sb, String value) {
+            if (value == null) {
+                return;
+            }
+            for (int i = 0; i < value.length(); ++i) {
+                final char c = value.charAt(i);
+                switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '"':  sb.append("\\\""); break;
+                case '\n': sb.append("\\n"); break;
+                default:   sb.append(c);
+                }
+            }
+        }
+    }
+
+    abstract static class Sample {
+        final String[] labelValues;
+        Sample(String[] labelValues) {
+            this.labelValues = labelValues;
+        }
+        abstract void write(StringBuilder sb, Family family);
+    }
+
+    /**
+     * A count of events.
+     */
+    public static final class Counter extends Family {
+        Counter(String name, String help, String[] labelNames) {
+            super(name, help, "counter", labelNames);
+        }
+
+        public void inc(String... labelValues) {
+            ((CounterSample) getSample(labelValues)).value.increment();
+        }
+
+        long get(String... labelValues) {
+            return ((CounterSample) getSample(labelValues)).value.sum();
+        }
+
+        @Override
+        Sample newSample(String[] labelValues) {
+            return new CounterSample(labelValues);
+        }
+
+        private static final class CounterSample extends Sample {
+            final LongAdder value = new LongAdder();
+            CounterSample(String[] labelValues) {
+                super(labelValues);
+            }
+            @Override
+            void write(StringBuilder sb, Family family) {
+                family.writeLine(sb, "", labelValues, value.sum());
+            }
+        }
+    }
+
+    /**
+     * The number and total duration of events.
+     */
+    public static final class Summary extends Family {
+        Summary(String name, String help, String[] labelNames) {
+            super(name, help, "summary", labelNames);
+        }
+
+        public void observeNanos(long nanos, String... labelValues) {
+            final SummarySample sample = (SummarySample) getSample(labelValues);
+            sample.count.increment();
+            sample.nanos.add(nanos);
+        }
+
+        long getCount(String... labelValues) {
+            return ((SummarySample) getSample(labelValues)).count.sum();
+        }
+
+        @Override
+        Sample newSample(String[] labelValues) {
+            return new SummarySample(labelValues);
+        }
+
+        private static final class SummarySample extends Sample {
+            final LongAdder count = new LongAdder();
+            final LongAdder nanos = new LongAdder();
+            SummarySample(String[] labelValues) {
+                super(labelValues);
+            }
+            @Override
+            void write(StringBuilder sb, Family family) {
+                family.writeLine(sb, "_count", labelValues, count.sum());
+                family.writeLine(sb, "_sum", labelValues, nanos.sum() / (double) TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+    }
+
+    /**
+     * A value read when the metrics are scraped.
+     */
+    public static final class Gauge extends Family {
+        Gauge(String name, String help, String type, String[] labelNames) {
+            super(name, help, type, labelNames);
+        }
+
+        /**
+         * Sets the function that returns the value of the sample with the given labels.
+         */
+        public void register(DoubleSupplier supplier, String... labelValues) {
+            ((GaugeSample) getSample(labelValues)).supplier = supplier;
+        }
+
+        /**
+         * Removes the sample with the given labels if it still reads the given function, so
+         * that a sample registered again since is kept. Returns true if the sample was removed.
+         */
+        public boolean unregister(DoubleSupplier supplier, String... labelValues) {
+            final String key = getKey(labelValues);
+            final Sample sample = samples.get(key);
+            return sample != null && ((GaugeSample) sample).supplier == supplier && samples.remove(key, sample);
+        }
+
+        @Override
+        Sample newSample(String[] labelValues) {
+            return new GaugeSample(labelValues);
+        }
+
+        private static final class GaugeSample extends Sample {
+            volatile DoubleSupplier supplier;
+            GaugeSample(String[] labelValues) {
+                super(labelValues);
+            }
+            @Override
+            void write(StringBuilder sb, Family family) {
+                final DoubleSupplier s = supplier;
+                if (s != null) {
+                    family.writeLine(sb, "", labelValues, s.getAsDouble());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+@Path("/metrics")
+@Tag(name = "metrics", description="kAppNav Metrics")
+public class MetricsEndpoint {
+
+    @GET
+    @Produces(Metrics.CONTENT_TYPE)
+    @Operation(
+            summary = "Retrieve the metrics of the kAppNav API.",
+            description = "Returns request timers, Kubernetes API call counters, cache statistics and watcher counters in the Prometheus text format."
+            )
+    @APIResponses({@APIResponse(responseCode = "200", description = "OK")})
+    public Response getMetrics() {
+        return Response.ok(Metrics.scrape(), Metrics.CONTENT_TYPE).build();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.ws.rs.Path;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Times every request to the API by endpoint (the path template of the resource method,
+ * e.g. /applications/{application-name}), HTTP method and status code. For responses
+ * with an entity the time ends when the entity has been written, so the work done by
+ * streamed responses (/applications, /components) as they are written is included.
+ */
+@Provider
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String START_PROPERTY = MetricsFilter.class.getName() + ".start";
+    private static final String ENDPOINT_PROPERTY = MetricsFilter.class.getName() + ".endpoint";
+    private static final String METHOD_PROPERTY = MetricsFilter.class.getName() + ".method";
+    private static final String STATUS_PROPERTY = MetricsFilter.class.getName() + ".status";
+
+    private static final Metrics.Summary REQUESTS = Metrics.summary("kappnav_http_request_seconds",
+            "Time taken to process requests to the API.", "endpoint", "method", "status");
+
+    // Path templates of the resource methods.
+    private static final Map<Method,String> ENDPOINTS = new ConcurrentHashMap<>();
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        final Object start = requestContext.getProperty(START_PROPERTY);
+        if (start instanceof Long) {
+            final Method method = (resourceInfo != null) ? resourceInfo.getResourceMethod() : null;
+            final String endpoint = (method != null) ? ENDPOINTS.computeIfAbsent(method, k -> getEndpoint(resourceInfo.getResourceClass(), k))
+                    : "unmatched";
+            final String status = Integer.toString(responseContext.getStatus());
+            if (responseContext.hasEntity()) {
+                // The time is recorded once the entity has been written.
+                requestContext.setProperty(ENDPOINT_PROPERTY, endpoint);
+                requestContext.setProperty(METHOD_PROPERTY, requestContext.getMethod());
+                requestContext.setProperty(STATUS_PROPERTY, status);
+            }
+            else {
+                requestContext.removeProperty(START_PROPERTY);
+                REQUESTS.observeNanos(System.nanoTime() - (Long) start, endpoint, requestContext.getMethod(), status);
+            }
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        try {
+            context.proceed();
+        }
+        finally {
+            final Object start = context.getProperty(START_PROPERTY);
+            final Object endpoint = context.getProperty(ENDPOINT_PROPERTY);
+            if (start instanceof Long && endpoint instanceof String) {
+                context.removeProperty(START_PROPERTY);
+                REQUESTS.observeNanos(System.nanoTime() - (Long) start, (String) endpoint,
+                        (String) context.getProperty(METHOD_PROPERTY), (String) context.getProperty(STATUS_PROPERTY));
+            }
+        }
+    }
+
+    static String getEndpoint(Class<?> resourceClass, Method method) {
+        final StringBuilder sb = new StringBuilder();
+        appendPath(sb, (resourceClass != null) ? resourceClass.getAnnotation(Path.class) : null);
+        appendPath(sb, method.getAnnotation(Path.class));
+        return (sb.length() > 0) ? sb.toString() : "/";
+    }
+
+    private static void appendPath(StringBuilder sb, Path path) {
+        if (path != null) {
+            final String value = path.value();
+            if (!value.isEmpty() && !value.equals("/")) {
+                if (value.charAt(0) != '/') {
+                    sb.append('/');
+                }
+                sb.append(value.endsWith("/") ? value.substring(0, value.length() - 1) : value);
+            }
+        }
+    }
+}
@@ -19,13 +19,16 @@ package application.rest.v1;
 import java.io.IOException;
 import java.util.List;
 
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
@@ -33,10 +36,11 @@ import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
+import application.rest.v1.actions.ValidationException;
+
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
-import io.kubernetes.client.openapi.models.V1NamespaceList;
 
 import com.ibm.kappnav.logging.Logger;
 
@@ -69,33 +73,38 @@ public class NamespacesEndpoint extends KAppNavEndpoint {
     @APIResponses({@APIResponse(responseCode = "200", description = "OK"),
         @APIResponse(responseCode = "207", description = "Multi-Status (Error from Kubernetes API)"),
         @APIResponse(responseCode = "500", description = "Internal Server Error")})
-    public Response getNamespaceList() {
+    public Response getNamespaceList(@DefaultValue("0") @QueryParam(ListPage.LIMIT_PARAMETER_NAME) @Parameter(description = "The maximum number of namespaces to return, or 0 for all of them") int limit,
+            @DefaultValue("") @QueryParam(ListPage.CONTINUE_PARAMETER_NAME) @Parameter(description = "The continue token returned with the previous page") String cont) {
         try {
             final ApiClient client = getApiClient();
-            final Object o = listNamespaces(client);
-            return processNamespaces(client, getItemsAsList(client, o));
+            final ListPage.Page<JsonObject> page = listNamespaces(client, ListPage.of(limit, cont));
+            return processNamespaces(client, page.items, page.next);
         }
-        catch (IOException | ApiException e) {
+        catch (IOException | ApiException | ValidationException e) {
             if (Logger.isDebugEnabled()) {
                 Logger.log(NamespacesEndpoint.class.getName(), "getNamespaceList", Logger.LogType.DEBUG, "Caught Exception returning status: " + getResponseCode(e) + e.toString());
             }
             return Response.status(getResponseCode(e)).entity(getStatusMessageAsJSON(e)).build();
         }
     }
+
+    public Response getNamespaceList() {
+        return getNamespaceList(0, "");
+    }
     
-    private Response processNamespaces(ApiClient client, List<JsonObject> appObjects) {
+    private Response processNamespaces(ApiClient client, List<JsonObject> appObjects, String next) {
         final NamespacesResponse response = new NamespacesResponse();
         appObjects.forEach(v -> {
             response.add(v);
         });
+        response.setContinue(next);
         return Response.ok(response.getJSON()).build();
     }
     
-    private Object listNamespaces(ApiClient client) throws ApiException {
+    private ListPage.Page<JsonObject> listNamespaces(ApiClient client, ListPage page) throws ApiException {
         final CoreV1Api api = getCoreV1ApiForInternal();
         api.setApiClient(client);
-        final V1NamespaceList namespaces = api.listNamespace(null, false, null, null, null, 60, null, null, 60, false);
-        return namespaces;
+        return page.listFromKube(client, (limit, cont) -> api.listNamespace(null, false, cont, null, null, limit, null, null, 60, false));
     }
     
     static final class NamespacesResponse {
@@ -103,8 +112,10 @@ public class NamespacesEndpoint extends KAppNavEndpoint {
         private final JsonArray namespaces;
         // Constructs:
         // {
-        //   namespaces: [ {...}, {...}, ... ]
+        //   namespaces: [ {...}, {...}, ... ],
+        //   continue: "..."
         // }
+        // 'continue' is only present if there are more namespaces to retrieve.
         public NamespacesResponse() {
             o = new JsonObject();
             o.add(NAMESPACES_PROPERTY_NAME, namespaces = new JsonArray());
@@ -112,6 +123,11 @@ public class NamespacesEndpoint extends KAppNavEndpoint {
         public void add(final JsonObject namespace) {
             namespaces.add(namespace);
         }
+        public void setContinue(final String next) {
+            if (next != null) {
+                o.addProperty(ListPage.CONTINUE_PROPERTY_NAME, next);
+            }
+        }
         public String getJSON() {
             return o.toString();
         }
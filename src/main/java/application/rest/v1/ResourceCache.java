@@ -0,0 +1,494 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.ibm.kappnav.logging.Logger;
+
+import application.rest.v1.ComponentInfoRegistry.ComponentInfo;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.Pair;
+import io.kubernetes.client.util.Watch;
+
+import okhttp3.Call;
+
+/**
+ * Watch-backed cache of component resources, one per {group, version, kind}. The watch for
+ * a kind is started the first time the kind is requested and is stopped once the kind has not
+ * been requested for a while. Objects are indexed by namespace and by label so that the label
+ * selector queries issued by the components API can be answered without calling the Kube API.
+ * Until the initial list for a kind has been loaded, or after its cache has been reset, the
+ * methods of this class return null and callers should go to the cluster. While the watch for a
+ * kind is down its objects are still served but are marked stale (see isStale()), because they
+ * may be missing recent changes. They are reconciled with a new list or a resumed watch once the
+ * watch is re-established.
+ */
+public class ResourceCache {
+
+    private static final String CLASS_NAME = ResourceCache.class.getName();
+
+    // Configuration properties. Each can be set as a system property or an environment variable.
+    private static final String ENABLED_PROPERTY = "kappnav.resource.cache.enabled";
+    private static final String EXCLUDED_KINDS_PROPERTY = "kappnav.resource.cache.excluded.kinds";
+    private static final String IDLE_TIMEOUT_PROPERTY = "kappnav.resource.cache.idle.timeout.minutes";
+
+    // Events change constantly and are rarely components of an application. Don't cache them by default.
+    private static final String DEFAULT_EXCLUDED_KINDS = "Event";
+    private static final long DEFAULT_IDLE_TIMEOUT_MINUTES = 15L;
+
+    // Page size used when listing the resources of a kind.
+    private static final int LIST_PAGE_SIZE = 500;
+    private static final int WATCH_TIMEOUT_SECONDS = 60;
+
+    private static final String ITEMS_PROPERTY_NAME = "items";
+    private static final String METADATA_PROPERTY_NAME = "metadata";
+    private static final String CONTINUE_PROPERTY_NAME = "continue";
+
+    private static final boolean ENABLED;
+    private static final Set<String> EXCLUDED_KINDS;
+    private static final long IDLE_TIMEOUT_MILLIS;
+
+    static {
+        ENABLED = KAppNavConfig.getBooleanSetting(ENABLED_PROPERTY, true);
+        final String excluded = KAppNavConfig.getSetting(EXCLUDED_KINDS_PROPERTY);
+        EXCLUDED_KINDS = new HashSet<>(Arrays.asList((excluded != null ? excluded : DEFAULT_EXCLUDED_KINDS).split("\\s*,\\s*")));
+        IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(KAppNavConfig.getLongSetting(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT_MINUTES));
+    }
+
+    // The key is {group}/{version}/{plural}.
+    private static final Map<String,KindCache> KIND_CACHES = new ConcurrentHashMap<>();
+
+    // Notified of every change applied to a kind cache.
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    // Evicts the caches for kinds that haven't been requested within the idle timeout.
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread t = new Thread(r, "kAppNav Resource Cache Evictor");
+        t.setDaemon(true);
+        return t;
+    });
+    static {
+        if (ENABLED) {
+            EVICTOR.scheduleWithFixedDelay(ResourceCache::evictIdleCaches, 1, 1, TimeUnit.MINUTES);
+        }
+    }
+
+    private ResourceCache() {}
+
+    /**
+     * Receives the changes applied to the caches. Called on the watcher thread of the
+     * kind so implementations must be quick and must not modify the objects.
+     */
+    interface Listener {
+        /**
+         * An object was added, modified or deleted. The type is the watch event type.
+         */
+        void objectChanged(ComponentInfo info, String type, JsonObject o);
+
+        /**
+         * The cache for the kind was cleared, either because it was stopped after being idle
+         * or because applying a new list to it failed. Changes may have been missed. A watch
+         * that is only down does not reset the cache; its objects are kept and marked stale.
+         */
+        void cacheReset(ComponentInfo info);
+    }
+
+    static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Returns true if objects of the given kind can be served from this cache.
+     */
+    static boolean isCacheable(ComponentInfo info) {
+        return ENABLED && !EXCLUDED_KINDS.contains(info.kind);
+    }
+
+    /**
+     * Returns a list object ({"items": [...]}) containing the objects of the given kind that are
+     * in the given namespace (or all namespaces if namespace is null) and that match the label
+     * selector. Starts the watch for the kind if it isn't running. Returns null if the cache
+     * cannot answer the query.
+     */
+    static JsonObject list(ComponentInfo info, String namespace, String labelSelector) {
+        if (!isCacheable(info)) {
+            return null;
+        }
+        final Selector selector = Selector.parse(labelSelector);
+        if (selector == null) {
+            if (Logger.isDebugEnabled()) {
+                Logger.log(CLASS_NAME, "list", Logger.LogType.DEBUG, "Unsupported label selector: " + labelSelector);
+            }
+            return null;
+        }
+        final KindCache cache = getKindCache(info, true);
+        final List<JsonObject> items = cache.list(namespace, selector);
+        if (items == null) {
+            return null;
+        }
+        final JsonArray array = new JsonArray();
+        items.forEach(v -> array.add(v));
+        final JsonObject result = new JsonObject();
+        result.add(ITEMS_PROPERTY_NAME, array);
+        return result;
+    }
+
+    /**
+     * Returns the names of the objects of the given kind that are in the given namespace (or all
+     * namespaces if namespace is null) and that match the label selector, without copying the
+     * objects. Starts the watch for the kind if it isn't running. Returns null if the cache
+     * cannot answer the query.
+     */
+    static List<String> listNames(ComponentInfo info, String namespace, String labelSelector) {
+        if (!isCacheable(info)) {
+            return null;
+        }
+        final Selector selector = Selector.parse(labelSelector);
+        if (selector == null) {
+            return null;
+        }
+        final Map<String,JsonObject> matches = getKindCache(info, true).select(namespace, selector);
+        if (matches == null) {
+            return null;
+        }
+        final List<String> result = new ArrayList<>(matches.size());
+        matches.values().forEach(v -> result.add(KAppNavEndpoint.getComponentName(v)));
+        return result;
+    }
+
+    /**
+     * Returns a copy of the named object if the cache for its kind is running and contains it,
+     * otherwise null. Does not start a watch.
+     */
+    static JsonObject get(ComponentInfo info, String namespace, String name) {
+        if (!isCacheable(info)) {
+            return null;
+        }
+        final KindCache cache = getKindCache(info, false);
+        return (cache != null) ? cache.get(namespace, name) : null;
+    }
+
+    private static KindCache getKindCache(ComponentInfo info, boolean create) {
+        final String key = info.group + "/" + info.version + "/" + info.plural;
+        KindCache cache = KIND_CACHES.get(key);
+        if (cache == null && create) {
+            cache = KIND_CACHES.computeIfAbsent(key, k -> {
+                if (Logger.isInfoEnabled()) {
+                    Logger.log(CLASS_NAME, "getKindCache", Logger.LogType.INFO, "Starting resource cache for " + k);
+                }
+                return new KindCache(info);
+            });
+        }
+        if (cache != null) {
+            cache.touch();
+        }
+        return cache;
+    }
+
+    /**
+     * Returns true if the cache of any kind is being served while its watch is down, so it may
+     * be missing recent changes.
+     */
+    static boolean isStale() {
+        for (KindCache cache : KIND_CACHES.values()) {
+            if (cache.stale) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void evictIdleCaches() {
+        final long now = System.currentTimeMillis();
+        KIND_CACHES.forEach((k, v) -> {
+            if (now - v.lastAccess > IDLE_TIMEOUT_MILLIS) {
+                if (KIND_CACHES.remove(k, v)) {
+                    if (Logger.isInfoEnabled()) {
+                        Logger.log(CLASS_NAME, "evictIdleCaches", Logger.LogType.INFO, "Stopping idle resource cache for " + k);
+                    }
+                    v.stop();
+                }
+            }
+        });
+    }
+
+    /**
+     * The cache for a single {group, version, kind}.
+     */
+    static final class KindCache {
+
+        private final ComponentInfo info;
+        private final String path;
+
+        // Synchronization lock used for waking up the watcher thread.
+        private final Object lock;
+
+        // All objects. The key is {namespace}/{name}.
+        private final Map<String,JsonObject> objects = new ConcurrentHashMap<>();
+        // The key is the namespace. The value is the set of object keys in that namespace.
+        private final Map<String,Set<String>> namespaceIndex = new ConcurrentHashMap<>();
+        // Inverted index of the object keys by label.
+        private final LabelIndex<String> labelIndex = new LabelIndex<>();
+
+        private volatile boolean synced;
+        // True while the watch is down and the objects may be missing recent changes.
+        private volatile boolean stale;
+        private volatile boolean stopped;
+        private volatile long lastAccess;
+
+        KindCache(ComponentInfo info) {
+            this.info = info;
+            this.path = ((info.group == null || info.group.isEmpty()) ? "/api/" : "/apis/" + info.group + "/")
+                    + info.version + "/" + info.plural;
+            this.lastAccess = System.currentTimeMillis();
+            this.lock = Watcher.start(new Watcher.Handler<Object>() {
+
+                @Override
+                public String getWatcherThreadName() {
+                    return "kAppNav Resource Watcher (" + path + ")";
+                }
+
+                @Override
+                public List<Object> listResources(ApiClient client, AtomicReference<String> resourceVersion) throws ApiException {
+                    final List<Object> result = new ArrayList<>();
+                    String cont = null;
+                    do {
+                        final JsonObject page = KAppNavEndpoint.getItemAsObject(client, listPage(client, cont));
+                        if (page == null) {
+                            break;
+                        }
+                        resourceVersion.set(KAppNavEndpoint.getResourceVersion(page));
+                        KAppNavEndpoint.writeItemsToList(page, result);
+                        cont = getContinue(page);
+                    }
+                    while (cont != null);
+                    return result;
+                }
+
+                @Override
+                public Call createWatchCall(ApiClient client, String resourceVersion) throws ApiException {
+                    // The initial list has been replayed by the time the first watch is created.
+                    synced = true;
+                    final List<Pair> queryParams = new ArrayList<>();
+                    queryParams.addAll(client.parameterToPair("resourceVersion", resourceVersion));
+                    queryParams.addAll(client.parameterToPair("timeoutSeconds", WATCH_TIMEOUT_SECONDS));
+                    queryParams.addAll(client.parameterToPair("watch", Boolean.TRUE));
+                    queryParams.addAll(client.parameterToPair("allowWatchBookmarks", Boolean.TRUE));
+                    return buildGetCall(client, queryParams);
+                }
+
+                @SuppressWarnings("serial")
+                @Override
+                public Type getWatchType() {
+                    return new TypeToken<Watch.Response<Object>>() {}.getType();
+                }
+
+                @Override
+                public void processResponse(ApiClient client, String type, Object object) {
+                    processEvent(type, KAppNavEndpoint.getItemAsObject(client, object));
+                }
+
+                @Override
+                public void setStale(boolean stale) {
+                    KindCache.this.stale = stale;
+                }
+
+                @Override
+                public void reset(ApiClient client) {
+                    // The watch can't be resumed, or has stopped. Delete the cache.
+                    clear();
+                }
+
+                @Override
+                public boolean isStopped() {
+                    return stopped;
+                }
+            });
+        }
+
+        private Object listPage(ApiClient client, String cont) throws ApiException {
+            final List<Pair> queryParams = new ArrayList<>();
+            queryParams.addAll(client.parameterToPair("limit", LIST_PAGE_SIZE));
+            if (cont != null) {
+                queryParams.addAll(client.parameterToPair("continue", cont));
+            }
+            final Call call = buildGetCall(client, queryParams);
+            return client.execute(call, Object.class).getData();
+        }
+
+        private Call buildGetCall(ApiClient client, List<Pair> queryParams) throws ApiException {
+            final Map<String,String> headerParams = new HashMap<>();
+            headerParams.put("Accept", "application/json");
+            return client.buildCall(path, "GET", queryParams, new ArrayList<Pair>(), null, headerParams,
+                    new HashMap<String,String>(), new HashMap<String,Object>(), new String[] { "BearerToken" }, null);
+        }
+
+        private static String getContinue(JsonObject list) {
+            final JsonElement metadata = list.get(METADATA_PROPERTY_NAME);
+            if (metadata != null && metadata.isJsonObject()) {
+                final JsonElement cont = metadata.getAsJsonObject().get(CONTINUE_PROPERTY_NAME);
+                if (cont != null && cont.isJsonPrimitive()) {
+                    final String value = cont.getAsString();
+                    return value.isEmpty() ? null : value;
+                }
+            }
+            return null;
+        }
+
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+
+        void stop() {
+            stopped = true;
+            clear();
+            // Wake up the watcher thread if it's waiting so that it exits.
+            synchronized (lock) {
+                lock.notify();
+            }
+        }
+
+        private void clear() {
+            synced = false;
+            objects.clear();
+            namespaceIndex.clear();
+            labelIndex.clear();
+            LISTENERS.forEach(v -> v.cacheReset(info));
+        }
+
+        void processEvent(String type, JsonObject o) {
+            if (o == null || stopped) {
+                return;
+            }
+            final String namespace = info.namespaced ? KAppNavEndpoint.getComponentNamespace(o) : "";
+            final String key = namespace + "/" + KAppNavEndpoint.getComponentName(o);
+            switch (type) {
+                case "ADDED":
+                case "MODIFIED":
+                    final JsonObject previous = objects.put(key, o);
+                    if (previous != null) {
+                        unindex(key, namespace, previous);
+                    }
+                    index(key, namespace, o);
+                    break;
+                case "DELETED":
+                    final JsonObject removed = objects.remove(key);
+                    if (removed != null) {
+                        unindex(key, namespace, removed);
+                    }
+                    break;
+                default:
+                    return;
+            }
+            LISTENERS.forEach(v -> v.objectChanged(info, type, o));
+        }
+
+        private void index(String key, String namespace, JsonObject o) {
+            namespaceIndex.computeIfAbsent(namespace, k -> ConcurrentHashMap.newKeySet()).add(key);
+            labelIndex.add(key, LabelIndex.getLabels(o));
+        }
+
+        private void unindex(String key, String namespace, JsonObject o) {
+            final Set<String> keys = namespaceIndex.get(namespace);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    namespaceIndex.remove(namespace);
+                }
+            }
+            labelIndex.remove(key, LabelIndex.getLabels(o));
+        }
+
+        List<JsonObject> list(String namespace, Selector selector) {
+            final Map<String,JsonObject> matches = select(namespace, selector);
+            if (matches == null) {
+                return null;
+            }
+            final List<JsonObject> result = new ArrayList<>(matches.size());
+            matches.values().forEach(v -> result.add(v.deepCopy()));
+            if (Logger.isDebugEnabled()) {
+                Logger.log(CLASS_NAME, "list", Logger.LogType.DEBUG, "Returning " + result.size() + " cached object(s) from " + path
+                        + " for namespace=" + namespace + ", selector=" + selector);
+            }
+            return result;
+        }
+
+        // Returns the cached objects that match, sorted by {namespace}/{name}, or null if the cache isn't synced.
+        // The objects are shared and must not be modified.
+        Map<String,JsonObject> select(String namespace, Selector selector) {
+            if (!synced) {
+                // Wake up the watcher thread in case the watch failed and needs to be re-established.
+                synchronized (lock) {
+                    lock.notify();
+                }
+                return null;
+            }
+            final String ns = info.namespaced ? namespace : null;
+            Set<String> candidates = objects.keySet();
+            if (ns != null) {
+                candidates = namespaceIndex.get(ns);
+                if (candidates == null) {
+                    return Collections.emptyMap();
+                }
+            }
+            // Evaluate the selector against the label index. The objects are checked again
+            // below in case they changed while the index was being read.
+            final CompiledSelector compiled = selector.compile();
+            if (!selector.isEmpty()) {
+                candidates = compiled.select(labelIndex, candidates);
+            }
+            // Sort by {namespace}/{name} to match the order returned by the Kube API.
+            final Map<String,JsonObject> result = new TreeMap<>();
+            for (String key : candidates) {
+                final JsonObject o = objects.get(key);
+                if (o != null && (selector.isEmpty() || compiled.matches(o))) {
+                    result.put(key, o);
+                }
+            }
+            return result;
+        }
+
+        JsonObject get(String namespace, String name) {
+            if (!synced) {
+                return null;
+            }
+            final JsonObject o = objects.get((info.namespaced ? namespace : "") + "/" + name);
+            return (o != null) ? o.deepCopy() : null;
+        }
+    }
+}
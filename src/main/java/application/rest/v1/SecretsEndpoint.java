@@ -20,9 +20,11 @@ import java.io.IOException;
 import java.util.List;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -36,10 +38,11 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 
+import application.rest.v1.actions.ValidationException;
+
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
-import io.kubernetes.client.openapi.models.V1SecretList;
 
 import com.ibm.kappnav.logging.Logger;
 
@@ -77,22 +80,28 @@ public class SecretsEndpoint extends KAppNavEndpoint {
         @APIResponse(responseCode = "207", description = "Multi-Status (Error from Kubernetes API)"),
         @APIResponse(responseCode = "500", description = "Internal Server Error")})
     public Response getSecrets(@PathParam("label-name") @Parameter(description = "The name of the label") String name,
-            @PathParam("label-value") @Parameter(description = "The value of the label") String value) {
+            @PathParam("label-value") @Parameter(description = "The value of the label") String value,
+            @DefaultValue("0") @QueryParam(ListPage.LIMIT_PARAMETER_NAME) @Parameter(description = "The maximum number of secrets to return, or 0 for all of them") int limit,
+            @DefaultValue("") @QueryParam(ListPage.CONTINUE_PARAMETER_NAME) @Parameter(description = "The continue token returned with the previous page") String cont) {
         try {
             final ApiClient client = getApiClient();
             final Selector s = new Selector().addMatchLabel(name, value); // <name>: <value>
-            final Object o = listSecrets(client, s.toString());
-            return processSecrets(client, getItemsAsList(client, o));  
+            final ListPage.Page<JsonObject> page = listSecrets(client, s.toString(), ListPage.of(limit, cont));
+            return processSecrets(client, page.items, page.next);
         }
-        catch (IOException | JsonParseException | ApiException e) {
+        catch (IOException | JsonParseException | ApiException | ValidationException e) {
             if (Logger.isDebugEnabled()) {
                 Logger.log(SecretsEndpoint.class.getName(), "getSecrets", Logger.LogType.DEBUG, "Caught Exception returning status: " + getResponseCode(e) + " " + e.toString());
             }
             return Response.status(getResponseCode(e)).entity(getStatusMessageAsJSON(e)).build();
         }
     }
+
+    public Response getSecrets(String name, String value) {
+        return getSecrets(name, value, 0, "");
+    }
     
-    private Response processSecrets(ApiClient client, List<JsonObject> secretObjects) {
+    private Response processSecrets(ApiClient client, List<JsonObject> secretObjects, String next) {
         final SecretsResponse response = new SecretsResponse();
         secretObjects.forEach(v -> {
             // Add 'kind' property to resources that are missing it.
@@ -101,14 +110,14 @@ public class SecretsEndpoint extends KAppNavEndpoint {
             }
             response.add(v);
         });
+        response.setContinue(next);
         return Response.ok(response.getJSON()).build();
     }
     
-    private Object listSecrets(ApiClient client, String selector) throws ApiException {
+    private ListPage.Page<JsonObject> listSecrets(ApiClient client, String selector, ListPage page) throws ApiException {
         final CoreV1Api api = getCoreV1ApiForInternal();
         api.setApiClient(client);
-        final V1SecretList secrets = api.listSecretForAllNamespaces(false, null, null, selector, 60, null, null, null, 60, false);
-        return secrets;
+        return page.listFromKube(client, (limit, cont) -> api.listSecretForAllNamespaces(false, cont, null, selector, limit, null, null, null, 60, false));
     }
     
     static final class SecretsResponse {
@@ -116,8 +125,10 @@ public class SecretsEndpoint extends KAppNavEndpoint {
         private final JsonArray secrets;
         // Constructs:
         // {
-        //   secrets: [ {...}, {...}, ... ]
+        //   secrets: [ {...}, {...}, ... ],
+        //   continue: "..."
         // }
+        // 'continue' is only present if there are more secrets to retrieve.
         public SecretsResponse() {
             o = new JsonObject();
             o.add(SECRETS_PROPERTY_NAME, secrets = new JsonArray());
@@ -125,6 +136,11 @@ public class SecretsEndpoint extends KAppNavEndpoint {
         public void add(final JsonObject secret) {
             secrets.add(secret);
         }
+        public void setContinue(final String next) {
+            if (next != null) {
+                o.addProperty(ListPage.CONTINUE_PROPERTY_NAME, next);
+            }
+        }
         public String getJSON() {
             return o.toString();
         }
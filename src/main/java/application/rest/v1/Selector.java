@@ -17,6 +17,7 @@
 package application.rest.v1;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,22 +41,44 @@ public final class Selector {
     private final Map<String,String> matchLabels = new LinkedHashMap<>();
     private final List<MatchExpression> matchExpressions = new ArrayList<>();
     
+    // Compiled form of this selector. Cleared whenever the selector is modified.
+    private volatile CompiledSelector compiled;
+    
     public Selector() {}
     
     public Selector addMatchLabel(String key, String value) {
         matchLabels.put(key, value);
+        compiled = null;
         return this;
     }
     
     public Selector addMatchExpression(MatchExpression expression) {
         matchExpressions.add(expression);
+        compiled = null;
         return this;
     }
     
+    /**
+     * Returns the compiled form of this selector for evaluating it against
+     * many objects or against a LabelIndex.
+     */
+    public CompiledSelector compile() {
+        CompiledSelector result = compiled;
+        if (result == null) {
+            result = new CompiledSelector(matchLabels, matchExpressions);
+            compiled = result;
+        }
+        return result;
+    }
+    
     public boolean isEmpty() {
         return matchLabels.isEmpty() && matchExpressions.isEmpty();
     }
     
+    Map<String,String> getMatchLabels() {
+        return Collections.unmodifiableMap(matchLabels);
+    }
+    
     public boolean matches(ApiClient client, Object component) {
         return matches(client.getJSON().getGson().toJsonTree(component));
     }
@@ -128,6 +151,89 @@ public final class Selector {
         return sb.toString();
     }
     
+    // Parses a label selector string (e.g. "tier=cache,environment notin (dev),!canary").
+    // Returns null if the string is not a label selector that can be represented by this class.
+    public static Selector parse(String labelSelector) {
+        final Selector result = new Selector();
+        if (labelSelector == null) {
+            return result;
+        }
+        // Split on the commas that are not inside a value list.
+        final List<String> requirements = new ArrayList<>();
+        int depth = 0;
+        int mark = 0;
+        final int length = labelSelector.length();
+        for (int i = 0; i < length; ++i) {
+            final char c = labelSelector.charAt(i);
+            if (c == '(') {
+                ++depth;
+            }
+            else if (c == ')') {
+                --depth;
+            }
+            else if (c == ',' && depth == 0) {
+                requirements.add(labelSelector.substring(mark, i));
+                mark = i + 1;
+            }
+        }
+        if (depth != 0) {
+            return null;
+        }
+        requirements.add(labelSelector.substring(mark));
+        for (String r : requirements) {
+            r = r.trim();
+            if (r.isEmpty()) {
+                continue;
+            }
+            int i;
+            if ((i = r.indexOf('(')) != -1) {
+                // key in (v1, v2) or key notin (v1, v2)
+                if (!r.endsWith(")")) {
+                    return null;
+                }
+                final String[] keyOp = r.substring(0, i).trim().split("\\s+");
+                if (keyOp.length != 2) {
+                    return null;
+                }
+                final Operator op;
+                if ("in".equals(keyOp[1])) {
+                    op = Operator.IN;
+                }
+                else if ("notin".equals(keyOp[1])) {
+                    op = Operator.NOT_IN;
+                }
+                else {
+                    return null;
+                }
+                final MatchExpression me = new MatchExpression(keyOp[0], op);
+                for (String v : r.substring(i + 1, r.length() - 1).split(",")) {
+                    v = v.trim();
+                    if (!v.isEmpty()) {
+                        me.addValue(v);
+                    }
+                }
+                result.addMatchExpression(me);
+            }
+            else if ((i = r.indexOf("!=")) != -1) {
+                result.addMatchExpression(new MatchExpression(r.substring(0, i).trim(), Operator.NOT_IN).addValue(r.substring(i + 2).trim()));
+            }
+            else if ((i = r.indexOf('=')) != -1) {
+                final int j = r.startsWith("==", i) ? i + 2 : i + 1;
+                result.addMatchLabel(r.substring(0, i).trim(), r.substring(j).trim());
+            }
+            else if (r.startsWith("!")) {
+                result.addMatchExpression(new MatchExpression(r.substring(1).trim(), Operator.DOES_NOT_EXIST));
+            }
+            else if (r.indexOf(' ') == -1) {
+                result.addMatchExpression(new MatchExpression(r, Operator.EXISTS));
+            }
+            else {
+                return null;
+            }
+        }
+        return result;
+    }
+    
     // Extract the selector from a component object.
     //
     // (Example)
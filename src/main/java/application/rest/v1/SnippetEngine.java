@@ -0,0 +1,318 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
+
+import com.ibm.kappnav.logging.Logger;
+
+/**
+ * Runs JavaScript snippets (status algorithms and action snippets). Creating a
+ * JavaScript engine and compiling a snippet are expensive, so engines are pooled
+ * and each engine keeps the snippets it has compiled, keyed by their source, in an
+ * LRU cache. An engine is used by one invocation at a time, and each invocation
+ * evaluates the snippet into its own global scope so that nothing it defines is seen
+ * by later invocations. Each invocation runs on a worker thread from a bounded pool and
+ * is abandoned if it does not complete within the time budget; the engine it was using
+ * is then discarded. A snippet that never completes keeps its worker thread busy, so
+ * invocations are rejected once all of the workers are busy and the queue is full.
+ */
+public final class SnippetEngine {
+
+    private static final String className = SnippetEngine.class.getName();
+
+    // Configuration properties. Each can be set as a system property or an environment variable.
+    private static final String POOL_SIZE_PROPERTY = "kappnav.snippet.engine.pool.size";
+    private static final String MAX_SCRIPTS_PROPERTY = "kappnav.snippet.engine.max.scripts";
+    private static final String TIME_BUDGET_PROPERTY = "kappnav.snippet.time.budget.millis";
+    private static final String MAX_THREADS_PROPERTY = "kappnav.snippet.max.threads";
+    private static final String QUEUE_SIZE_PROPERTY = "kappnav.snippet.queue.size";
+
+    private static final long DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    private static final long DEFAULT_MAX_SCRIPTS = 256L;
+    private static final long DEFAULT_TIME_BUDGET_MILLIS = 5000L;
+    private static final long DEFAULT_MAX_THREADS = 2L * Runtime.getRuntime().availableProcessors();
+    private static final long DEFAULT_QUEUE_SIZE = 100L;
+
+    private static final int POOL_SIZE = (int) KAppNavConfig.getLongSetting(POOL_SIZE_PROPERTY, DEFAULT_POOL_SIZE);
+    private static final int MAX_SCRIPTS = (int) KAppNavConfig.getLongSetting(MAX_SCRIPTS_PROPERTY, DEFAULT_MAX_SCRIPTS);
+    private static final int MAX_THREADS = (int) Math.max(1L, KAppNavConfig.getLongSetting(MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS));
+    private static final int QUEUE_SIZE = (int) Math.max(1L, KAppNavConfig.getLongSetting(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE));
+    private static long timeBudgetMillis = KAppNavConfig.getLongSetting(TIME_BUDGET_PROPERTY, DEFAULT_TIME_BUDGET_MILLIS);
+
+    private static final String ENGINE_NAME = "JavaScript";
+
+    private static final ScriptEngineManager MANAGER = new ScriptEngineManager();
+
+    // Idle engines. At most POOL_SIZE engines are kept; extra engines are created on demand and dropped when returned.
+    private static final ConcurrentLinkedQueue<PooledEngine> IDLE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger IDLE_COUNT = new AtomicInteger();
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static ExecutorService executor = newExecutor(MAX_THREADS, QUEUE_SIZE);
+
+    private static final AtomicLong COMPILATIONS = new AtomicLong();
+    private static final AtomicLong TIMEOUTS = new AtomicLong();
+    private static final AtomicLong REJECTIONS = new AtomicLong();
+    // Invocations that exceeded the time budget and are still running on a worker thread.
+    private static final AtomicInteger ABANDONED = new AtomicInteger();
+
+    // For junit only
+    static void setExecutorForJunit(int threads, int queueSize, long timeBudgetMillis) {
+        executor = newExecutor(threads, queueSize);
+        SnippetEngine.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    // Up to the given number of worker threads, which exit after being idle for a minute. Tasks are queued
+    // while all of them are busy and rejected when the queue is full.
+    private static ExecutorService newExecutor(int threads, int queueSize) {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    final Thread t = new Thread(r, "kAppNav Snippet Worker-" + THREAD_COUNT.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static final class PooledEngine {
+        private final ScriptEngine engine;
+        // Compiled snippets keyed by their source, in access order.
+        private final Map<String,CompiledScript> scripts = new LinkedHashMap<String,CompiledScript>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,CompiledScript> eldest) {
+                return size() > MAX_SCRIPTS;
+            }
+        };
+
+        PooledEngine(ScriptEngine engine) {
+            this.engine = engine;
+        }
+
+        // Defines the functions of the snippet in a new global scope and invokes the named function in that scope.
+        Object invokeFunction(String snippet, String functionName, Object[] args) throws ScriptException, NoSuchMethodException {
+            final Bindings bindings = engine.createBindings();
+            final ScriptContext context = new SimpleScriptContext();
+            context.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
+            if (engine instanceof Compilable) {
+                CompiledScript script = scripts.get(snippet);
+                if (script == null) {
+                    script = ((Compilable) engine).compile(snippet);
+                    scripts.put(snippet, script);
+                    COMPILATIONS.incrementAndGet();
+                }
+                script.eval(context);
+            }
+            else {
+                engine.eval(snippet, context);
+            }
+            // Invocable uses the engine's context. The engine is only used by this invocation.
+            final ScriptContext previous = engine.getContext();
+            engine.setContext(context);
+            try {
+                return ((Invocable) engine).invokeFunction(functionName, args);
+            }
+            finally {
+                engine.setContext(previous);
+            }
+        }
+    }
+
+    private SnippetEngine() {}
+
+    /**
+     * Evaluates the snippet and invokes the named function it defines with the given
+     * arguments. Throws a ScriptException if the snippet fails, no JavaScript engine
+     * is available, or the invocation exceeds the time budget.
+     */
+    public static Object invokeFunction(String snippet, String functionName, Object... args) throws ScriptException, NoSuchMethodException {
+        return run("function " + functionName, () -> {
+            final PooledEngine engine = borrowEngine();
+            final Object result = engine.invokeFunction(snippet, functionName, args);
+            // Only engines that completed normally go back to the pool.
+            returnEngine(engine);
+            return result;
+        });
+    }
+
+    // Runs the task on a worker thread within the time budget.
+    static Object run(String description, Callable<Object> task) throws ScriptException, NoSuchMethodException {
+        final Invocation invocation = new Invocation(description, task);
+        final Future<Object> future;
+        try {
+            future = executor.submit(invocation);
+        }
+        catch (RejectedExecutionException e) {
+            REJECTIONS.incrementAndGet();
+            if (Logger.isWarningEnabled()) {
+                Logger.log(className, "run", Logger.LogType.WARNING, "Invocation of " + description + " was rejected. "
+                        + ABANDONED.get() + " abandoned invocation(s) are still running.");
+            }
+            throw new ScriptException(description + " was rejected because too many snippets are running");
+        }
+        try {
+            return future.get(timeBudgetMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            // An invocation that is running can't always be interrupted (a JavaScript loop doesn't check
+            // the interrupt flag) so it may keep its worker thread until it completes.
+            future.cancel(true);
+            TIMEOUTS.incrementAndGet();
+            final boolean abandoned = invocation.abandon();
+            if (Logger.isWarningEnabled()) {
+                Logger.log(className, "run", Logger.LogType.WARNING, "Invocation of " + description
+                        + " did not complete within " + timeBudgetMillis + " ms and was " + (abandoned ? "abandoned. " : "cancelled. ")
+                        + ABANDONED.get() + " abandoned invocation(s) are still running.");
+            }
+            throw new ScriptException(description + " did not complete within " + timeBudgetMillis + " ms");
+        }
+        catch (InterruptedException e) {
+            future.cancel(true);
+            invocation.abandon();
+            Thread.currentThread().interrupt();
+            throw new ScriptException("interrupted while invoking " + description);
+        }
+        catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ScriptException) {
+                throw (ScriptException) cause;
+            }
+            if (cause instanceof NoSuchMethodException) {
+                throw (NoSuchMethodException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ScriptException(cause.toString());
+        }
+    }
+
+    private static PooledEngine borrowEngine() throws ScriptException {
+        final PooledEngine engine = IDLE.poll();
+        if (engine != null) {
+            IDLE_COUNT.decrementAndGet();
+            return engine;
+        }
+        final ScriptEngine se = MANAGER.getEngineByName(ENGINE_NAME);
+        if (se == null) {
+            throw new ScriptException("no " + ENGINE_NAME + " engine is available");
+        }
+        if (Logger.isDebugEnabled()) {
+            Logger.log(className, "borrowEngine", Logger.LogType.DEBUG, "Created script engine " + se.getFactory().getEngineName());
+        }
+        return new PooledEngine(se);
+    }
+
+    private static void returnEngine(PooledEngine engine) {
+        if (IDLE_COUNT.incrementAndGet() <= POOL_SIZE) {
+            IDLE.offer(engine);
+        }
+        else {
+            IDLE_COUNT.decrementAndGet();
+        }
+    }
+
+    public static long getCompilationCount() {
+        return COMPILATIONS.get();
+    }
+
+    public static long getTimeoutCount() {
+        return TIMEOUTS.get();
+    }
+
+    public static long getRejectionCount() {
+        return REJECTIONS.get();
+    }
+
+    // Returns the number of invocations that exceeded the time budget and are still running.
+    public static int getAbandonedCount() {
+        return ABANDONED.get();
+    }
+
+    // A task that tracks whether it is still running after its caller gave up on it.
+    private static final class Invocation implements Callable<Object> {
+        private static final int NEW = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+        private static final int ABANDONED_STATE = 3;
+
+        private final String description;
+        private final Callable<Object> task;
+        private final AtomicInteger state = new AtomicInteger(NEW);
+
+        Invocation(String description, Callable<Object> task) {
+            this.description = description;
+            this.task = task;
+        }
+
+        @Override
+        public Object call() throws Exception {
+            if (!state.compareAndSet(NEW, RUNNING)) {
+                // Abandoned before it started.
+                return null;
+            }
+            try {
+                return task.call();
+            }
+            finally {
+                if (!state.compareAndSet(RUNNING, DONE)) {
+                    final int abandoned = ABANDONED.decrementAndGet();
+                    if (Logger.isInfoEnabled()) {
+                        Logger.log(className, "call", Logger.LogType.INFO, "Abandoned invocation of " + description
+                                + " completed. " + abandoned + " abandoned invocation(s) are still running.");
+                    }
+                }
+            }
+        }
+
+        // Called when the caller gives up. Returns true if the task is still running on a worker thread.
+        boolean abandon() {
+            if (state.compareAndSet(RUNNING, ABANDONED_STATE)) {
+                ABANDONED.incrementAndGet();
+                return true;
+            }
+            state.compareAndSet(NEW, DONE);
+            return false;
+        }
+    }
+}
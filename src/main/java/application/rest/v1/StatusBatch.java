@@ -0,0 +1,206 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import com.google.gson.JsonObject;
+
+import application.rest.v1.configmaps.ConfigMapProcessor;
+
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+
+import com.ibm.kappnav.logging.Logger;
+
+/**
+ * Lists the components of an application and computes the status of many resources
+ * concurrently. Used by the batch status API and the application status cache.
+ */
+final class StatusBatch {
+
+    private static final String className = StatusBatch.class.getName();
+
+    static final String KIND_PROPERTY_NAME = "kind";
+    static final String APIVERSION_PROPERTY_NAME = "apiVersion";
+    static final String NAME_PROPERTY_NAME = "name";
+    static final String NAMESPACE_PROPERTY_NAME = "namespace";
+    static final String STATUS_PROPERTY_NAME = "status";
+    static final String ERROR_PROPERTY_NAME = "error";
+    static final String CODE_PROPERTY_NAME = "code";
+    static final String MESSAGE_PROPERTY_NAME = "message";
+
+    // Number of resources of the same kind evaluated by each task.
+    private static final int CHUNK_SIZE = 16;
+
+    private StatusBatch() {}
+
+    // Lists the components of the application. Queries run concurrently, one per cluster-scoped
+    // kind and one per namespace for namespaced kinds, as in ComponentsEndpoint.
+    static List<StatusItem> getApplicationStatusItems(ApiClient client, ComponentInfoRegistry registry, JsonObject app,
+            String appName, String appNamespace) throws ApiException {
+        final ApplicationCache.ApplicationInfo info = ApplicationCache.getApplicationInfo(app);
+        if (info.getSelector().isEmpty()) {
+            return Collections.emptyList();
+        }
+        final long deadline = System.currentTimeMillis() + FanOutExecutor.getDeadlineMillis();
+        final String labelSelector = info.getLabelSelector();
+        final List<String> namespaces = info.getComponentNamespaces();
+        final List<Callable<List<JsonObject>>> queries = new ArrayList<>();
+        final List<String> queryKinds = new ArrayList<>();
+        final List<String> queryApiVersions = new ArrayList<>();
+        for (ComponentKind v : info.getComponentKinds(registry)) {
+            final Set<String> apiVersions = registry.getComponentGroupApiVersions(v);
+            for (String apiVersion : apiVersions) {
+                if (apiVersion == null) {
+                    continue;
+                }
+                if (!registry.isNamespaced(client, v.kind, apiVersion)) {
+                    queries.add(() -> KAppNavEndpoint.getItemsAsList(client, registry.listClusterObject(client, v.kind, apiVersion, null, labelSelector, null, null)));
+                    queryKinds.add(v.kind);
+                    queryApiVersions.add(apiVersion);
+                }
+                else {
+                    for (String n : namespaces) {
+                        queries.add(() -> KAppNavEndpoint.getItemsAsList(client, registry.listNamespacedObject(client, v.kind, apiVersion, n, null, labelSelector, null, null)));
+                        queryKinds.add(v.kind);
+                        queryApiVersions.add(apiVersion);
+                    }
+                }
+            }
+        }
+        final List<List<JsonObject>> results = FanOutExecutor.invokeAll(queries, Math.max(0L, deadline - System.currentTimeMillis()));
+        final List<StatusItem> items = new ArrayList<>();
+        for (int i = 0; i < results.size(); ++i) {
+            final List<JsonObject> components = results.get(i);
+            if (components == null) {
+                continue;
+            }
+            final String kind = queryKinds.get(i);
+            for (JsonObject component : components) {
+                final String name = KAppNavEndpoint.getComponentName(component);
+                final String namespace = KAppNavEndpoint.getComponentNamespace(component);
+                // Filter out the application itself.
+                if (!("Application".equals(kind) && appName.equals(name) && appNamespace.equals(namespace))) {
+                    final String apiVersion = KAppNavEndpoint.getComponentApiVersion(component, kind);
+                    items.add(new StatusItem(kind, (apiVersion != null) ? apiVersion : queryApiVersions.get(i), namespace, name, component));
+                }
+            }
+        }
+        return items;
+    }
+
+    // Computes the status of each item. Items of the same kind share a ConfigMapProcessor so the status
+    // mapping config maps resolved for one are reused for the others. Each task evaluates a chunk of
+    // items of one kind and the tasks run concurrently. Items not evaluated within the deadline are
+    // left without a status.
+    static void computeStatuses(ApiClient client, ComponentInfoRegistry registry, KAppNavConfig config, List<StatusItem> items) {
+        final long deadline = System.currentTimeMillis() + FanOutExecutor.getDeadlineMillis();
+        final Map<String,List<StatusItem>> byKind = new LinkedHashMap<>();
+        items.forEach(v -> byKind.computeIfAbsent(v.kind, k -> new ArrayList<>()).add(v));
+        final StatusProcessor statusProcessor = new StatusProcessor(config);
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        byKind.forEach((kind, kindItems) -> {
+            for (int start = 0; start < kindItems.size(); start += CHUNK_SIZE) {
+                final List<StatusItem> chunk = kindItems.subList(start, Math.min(start + CHUNK_SIZE, kindItems.size()));
+                tasks.add(() -> {
+                    final ConfigMapProcessor processor = new ConfigMapProcessor(kind);
+                    for (StatusItem item : chunk) {
+                        computeStatus(client, registry, processor, statusProcessor, item);
+                    }
+                    return null;
+                });
+            }
+        });
+        FanOutExecutor.invokeAll(tasks, Math.max(0L, deadline - System.currentTimeMillis()));
+    }
+
+    private static void computeStatus(ApiClient client, ComponentInfoRegistry registry, ConfigMapProcessor processor,
+            StatusProcessor statusProcessor, StatusItem item) {
+        try {
+            JsonObject resource = item.resource;
+            if (resource == null) {
+                resource = KAppNavEndpoint.getItemAsObject(client,
+                        registry.getNamespacedObject(client, item.kind, item.apiVersion, item.namespace, item.name));
+            }
+            // Add a 'kind' property to the resource if it is missing.
+            if (resource.get(KIND_PROPERTY_NAME) == null) {
+                resource.addProperty(KIND_PROPERTY_NAME, item.kind);
+            }
+            final JsonObject configMap = processor.getConfigMap(client, resource, ConfigMapProcessor.ConfigMapType.STATUS_MAPPING);
+            item.status = statusProcessor.getComponentStatus(client, registry, resource, configMap);
+        }
+        catch (ApiException | RuntimeException e) {
+            if (Logger.isDebugEnabled()) {
+                Logger.log(className, "computeStatus", Logger.LogType.DEBUG, "Caught Exception computing status of " + item.kind
+                        + " " + item.namespace + "/" + item.name + ": " + e.toString());
+            }
+            final JsonObject error = new JsonObject();
+            error.addProperty(CODE_PROPERTY_NAME, (e instanceof ApiException) ? ((ApiException) e).getCode() : 500);
+            error.addProperty(MESSAGE_PROPERTY_NAME, KAppNavEndpoint.encodeHTML(e.getMessage()));
+            item.error = error;
+        }
+    }
+
+    // A resource and its computed status.
+    static final class StatusItem {
+        final String kind;
+        final String apiVersion;
+        final String namespace;
+        final String name;
+        // The resource if it is already known, otherwise it is retrieved when the status is computed.
+        final JsonObject resource;
+        volatile JsonObject status;
+        volatile JsonObject error;
+
+        StatusItem(String kind, String apiVersion, String namespace, String name, JsonObject resource) {
+            this.kind = kind;
+            this.apiVersion = apiVersion;
+            this.namespace = namespace;
+            this.name = name;
+            this.resource = resource;
+        }
+
+        JsonObject toJSON() {
+            final JsonObject o = new JsonObject();
+            o.addProperty(KIND_PROPERTY_NAME, kind);
+            o.addProperty(APIVERSION_PROPERTY_NAME, apiVersion);
+            o.addProperty(NAMESPACE_PROPERTY_NAME, namespace);
+            o.addProperty(NAME_PROPERTY_NAME, name);
+            final JsonObject _status = status;
+            if (_status != null) {
+                o.add(STATUS_PROPERTY_NAME, _status);
+            }
+            else {
+                JsonObject _error = error;
+                if (_error == null) {
+                    _error = new JsonObject();
+                    _error.addProperty(CODE_PROPERTY_NAME, 504);
+                    _error.addProperty(MESSAGE_PROPERTY_NAME, "The status was not computed within the deadline.");
+                }
+                o.add(ERROR_PROPERTY_NAME, _error);
+            }
+            return o;
+        }
+    }
+}
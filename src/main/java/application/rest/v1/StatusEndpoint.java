@@ -20,11 +20,18 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.inject.Inject;
 import javax.validation.constraints.Pattern;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
@@ -34,12 +41,19 @@ import javax.ws.rs.core.Response;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
 
+import application.rest.v1.StatusBatch.StatusItem;
 import application.rest.v1.configmaps.ConfigMapProcessor;
 
 import io.kubernetes.client.openapi.ApiClient;
@@ -52,6 +66,20 @@ import com.ibm.kappnav.logging.Logger;
 public class StatusEndpoint extends KAppNavEndpoint {
     
     private static final String KIND_PROPERTY_NAME = "kind";
+    private static final String APIVERSION_PROPERTY_NAME = "apiVersion";
+    private static final String NAME_PROPERTY_NAME = "name";
+    private static final String NAMESPACE_PROPERTY_NAME = "namespace";
+    private static final String RESOURCES_PROPERTY_NAME = "resources";
+    private static final String APPLICATION_PROPERTY_NAME = "application";
+    private static final String STATUSES_PROPERTY_NAME = "statuses";
+    private static final String APPLICATION_KIND = "Application";
+    private static final String APPLICATION_API_VERSION = "app.k8s.io/v1beta1";
+
+    // Maximum number of resources in a batch status request. Can be set as a system property or an environment variable.
+    private static final String BATCH_MAX_RESOURCES_PROPERTY = "kappnav.status.batch.max.resources";
+    private static final long DEFAULT_BATCH_MAX_RESOURCES = 1000L;
+    private static final long BATCH_MAX_RESOURCES = KAppNavConfig.getLongSetting(BATCH_MAX_RESOURCES_PROPERTY, DEFAULT_BATCH_MAX_RESOURCES);
+
     
     @Inject
     private ComponentInfoRegistry registry;
@@ -96,7 +124,7 @@ public class StatusEndpoint extends KAppNavEndpoint {
             final StatusProcessor statusProcessor = new StatusProcessor(config);
             final JsonObject configMap = processor.getConfigMap(client, resource, ConfigMapProcessor.ConfigMapType.STATUS_MAPPING);
             final JsonObject status = statusProcessor.getComponentStatus(client, registry, resource, configMap);
-            return Response.ok(status.toString()).build();
+            return ok(status.toString());
         }
         catch (IOException | ApiException e) {
             if (Logger.isDebugEnabled()) {
@@ -106,6 +134,181 @@ public class StatusEndpoint extends KAppNavEndpoint {
         } 
     }
     
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(
+            summary = "Computes the kAppNav status of many Kubernetes resources.",
+            description = "Returns the computed kAppNav status objects, in request order, for a list of resources or for all components of an application."
+            )
+    @APIResponses({@APIResponse(responseCode = "200", description = "OK"),
+        @APIResponse(responseCode = "207", description = "Multi-Status (Error from Kubernetes API)"),
+        @APIResponse(responseCode = "400", description = "Bad Request (Malformed input)"),
+        @APIResponse(responseCode = "500", description = "Internal Server Error")})
+    @RequestBody(description = "Either {\"resources\": [{\"kind\": ..., \"apiVersion\": ..., \"namespace\": ..., \"name\": ...}, ...]} "
+            + "or {\"application\": {\"name\": ..., \"namespace\": ...}}")
+    public Response computeStatuses(String jsonstr) {
+        if (Logger.isEntryEnabled()) {
+            Logger.log(StatusEndpoint.class.getName(), "computeStatuses", Logger.LogType.ENTRY, "");
+        }
+        try {
+            // Validate the request before contacting the cluster.
+            final JsonElement request = new JsonParser().parse(jsonstr);
+            if (request == null || !request.isJsonObject()) {
+                throw new JsonSyntaxException("The request must be a JSON object.");
+            }
+            final JsonElement resources = request.getAsJsonObject().get(RESOURCES_PROPERTY_NAME);
+            final JsonElement application = request.getAsJsonObject().get(APPLICATION_PROPERTY_NAME);
+            List<StatusItem> items = null;
+            String appName = null;
+            String appNamespace = null;
+            if (resources != null && resources.isJsonArray()) {
+                items = getStatusItems(resources.getAsJsonArray());
+            }
+            else if (application != null && application.isJsonObject()) {
+                final JsonObject app = application.getAsJsonObject();
+                appName = getRequiredString(app, NAME_PROPERTY_NAME);
+                appNamespace = getString(app, NAMESPACE_PROPERTY_NAME);
+                if (appNamespace == null) {
+                    appNamespace = "default";
+                }
+            }
+            else {
+                throw new JsonSyntaxException("The request must contain a \"" + RESOURCES_PROPERTY_NAME + "\" array or an \""
+                        + APPLICATION_PROPERTY_NAME + "\" object.");
+            }
+            final ApiClient client = getApiClient();
+            if (registry == null) {
+                // Initialize the registry here if CDI failed to do it.
+                registry = new ComponentInfoRegistry(client);
+            }
+            if (config == null) {
+                // Initialize the config here if CDI failed to do it.
+                config = new KAppNavConfig(client);
+            }
+            if (items == null) {
+                final JsonObject app = ApplicationCache.getNamespacedApplicationObject(client, appNamespace, appName);
+                items = StatusBatch.getApplicationStatusItems(client, registry, app, appName, appNamespace);
+            }
+            StatusBatch.computeStatuses(client, registry, config, items);
+            final JsonArray statuses = new JsonArray();
+            items.forEach(v -> statuses.add(v.toJSON()));
+            final JsonObject result = new JsonObject();
+            result.add(STATUSES_PROPERTY_NAME, statuses);
+            return ok(result.toString());
+        }
+        catch (IOException | JsonParseException | ApiException e) {
+            if (Logger.isDebugEnabled()) {
+                Logger.log(StatusEndpoint.class.getName(), "computeStatuses", Logger.LogType.DEBUG, "Caught Exception returning status: " + getResponseCode(e) + " " + e.toString());
+            }
+            return Response.status(getResponseCode(e)).entity(getStatusMessageAsJSON(e)).build();
+        }
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/applications")
+    @Operation(
+            summary = "Retrieves the kAppNav status of all applications in a namespace.",
+            description = "Returns the status of each application, aggregated from the status of its components using the app-status-precedence list. "
+                    + "Statuses are cached and the components that change are evaluated again."
+            )
+    @APIResponses({@APIResponse(responseCode = "200", description = "OK"),
+        @APIResponse(responseCode = "207", description = "Multi-Status (Error from Kubernetes API)"),
+        @APIResponse(responseCode = "400", description = "Bad Request (Malformed input)"),
+        @APIResponse(responseCode = "500", description = "Internal Server Error")})
+    public Response getApplicationStatuses(@Pattern(regexp = NAME_PATTERN_ZERO_OR_MORE) @DefaultValue("default") @QueryParam("namespace") @Parameter(description = "The namespace of the applications") String namespace) {
+        if (Logger.isEntryEnabled()) {
+            Logger.log(StatusEndpoint.class.getName(), "getApplicationStatuses", Logger.LogType.ENTRY, "namespace = " + namespace);
+        }
+        try {
+            final ApiClient client = getApiClient();
+            if (registry == null) {
+                // Initialize the registry here if CDI failed to do it.
+                registry = new ComponentInfoRegistry(client);
+            }
+            if (config == null) {
+                // Initialize the config here if CDI failed to do it.
+                config = new KAppNavConfig(client);
+            }
+            final long deadline = System.currentTimeMillis() + FanOutExecutor.getDeadlineMillis();
+            final List<StatusItem> items = new ArrayList<>();
+            final Set<String> names = new HashSet<>();
+            for (JsonObject app : ApplicationCache.listNamespacedApplicationObject(client, namespace)) {
+                final String name = getComponentName(app);
+                names.add(name);
+                if (!ApplicationCache.getApplicationInfo(app).isHidden()) {
+                    items.add(new StatusItem(APPLICATION_KIND, APPLICATION_API_VERSION, namespace, name, app));
+                }
+            }
+            ApplicationStatusCache.retainApplications(namespace, names);
+            final List<Callable<Void>> tasks = new ArrayList<>();
+            items.forEach(v -> tasks.add(() -> {
+                computeApplicationStatus(client, v);
+                return null;
+            }));
+            FanOutExecutor.invokeAll(tasks, Math.max(0L, deadline - System.currentTimeMillis()));
+            final JsonArray statuses = new JsonArray();
+            items.forEach(v -> statuses.add(v.toJSON()));
+            final JsonObject result = new JsonObject();
+            result.add(STATUSES_PROPERTY_NAME, statuses);
+            return ok(result.toString());
+        }
+        catch (IOException | ApiException e) {
+            if (Logger.isDebugEnabled()) {
+                Logger.log(StatusEndpoint.class.getName(), "getApplicationStatuses", Logger.LogType.DEBUG, "Caught Exception returning status: " + getResponseCode(e) + " " + e.toString());
+            }
+            return Response.status(getResponseCode(e)).entity(getStatusMessageAsJSON(e)).build();
+        }
+    }
+
+    private void computeApplicationStatus(ApiClient client, StatusItem item) {
+        try {
+            item.status = ApplicationStatusCache.getApplicationStatus(client, registry, config, item.resource);
+        }
+        catch (ApiException | RuntimeException e) {
+            if (Logger.isDebugEnabled()) {
+                Logger.log(StatusEndpoint.class.getName(), "computeApplicationStatus", Logger.LogType.DEBUG, "Caught Exception computing status of application "
+                        + item.namespace + "/" + item.name + ": " + e.toString());
+            }
+            final JsonObject error = new JsonObject();
+            error.addProperty(StatusBatch.CODE_PROPERTY_NAME, (e instanceof ApiException) ? ((ApiException) e).getCode() : 500);
+            error.addProperty(StatusBatch.MESSAGE_PROPERTY_NAME, encodeHTML(e.getMessage()));
+            item.error = error;
+        }
+    }
+
+    private static List<StatusItem> getStatusItems(JsonArray resources) {
+        if (resources.size() > BATCH_MAX_RESOURCES) {
+            throw new JsonSyntaxException("The request contains " + resources.size() + " resources. The limit is " + BATCH_MAX_RESOURCES + ".");
+        }
+        final List<StatusItem> items = new ArrayList<>(resources.size());
+        for (JsonElement e : resources) {
+            if (!e.isJsonObject()) {
+                throw new JsonSyntaxException("Each resource must be a JSON object.");
+            }
+            final JsonObject o = e.getAsJsonObject();
+            final String apiVersion = getString(o, APIVERSION_PROPERTY_NAME);
+            final String namespace = getString(o, NAMESPACE_PROPERTY_NAME);
+            items.add(new StatusItem(getRequiredString(o, KIND_PROPERTY_NAME), (apiVersion != null) ? apiVersion : "",
+                    (namespace != null) ? namespace : "default", getRequiredString(o, NAME_PROPERTY_NAME), null));
+        }
+        return items;
+    }
+
+    private static String getString(JsonObject o, String property) {
+        final JsonElement e = o.get(property);
+        return (e != null && e.isJsonPrimitive()) ? e.getAsString() : null;
+    }
+
+    private static String getRequiredString(JsonObject o, String property) {
+        final String value = getString(o, property);
+        if (value == null || value.isEmpty()) {
+            throw new JsonSyntaxException("The \"" + property + "\" property is required.");
+        }
+        return value;
+    }
+
     private JsonObject getResource(ApiClient client, String name, String kind, String apiVersion, String namespace) throws ApiException {
         if (registry == null) {
             // Initialize the registry here if CDI failed to do it.
@@ -16,9 +16,6 @@
 
 package application.rest.v1;
 
-import javax.script.Invocable;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import com.google.gson.JsonElement;
@@ -75,8 +72,7 @@ public class StatusProcessor {
                                 expression = "$" + expression;
                             }
                             // Parse the JSON path expression and attempt to match it against the status object.
-                            final JSONPathParser parser = new JSONPathParser();
-                            final JSONPath path = parser.parse(expression);
+                            final JSONPath path = JSONPathParser.compile(expression);
                             if (path != null) {
                                 final String statusValue = path.resolveLeaf(componentStatusObj);
                                 if (statusValue != null) {
@@ -110,13 +106,9 @@ public class StatusProcessor {
                     JsonElement algorithm = configMap.get(StatusMappingConfigMapBuilder.ALGORITHM_PROPERTY_NAME);
                     if (algorithm != null) {
                         // Invoke the snippet using the built-in JavaScript engine.
-                        ScriptEngineManager sce = new ScriptEngineManager();
-                        ScriptEngine se = sce.getEngineByName("JavaScript");
                         try {
-                            se.eval(algorithm.getAsString());
-                            Invocable inv = (Invocable) se; // This cast should never fail.
                             String status = (componentStatusObj != null) ? componentStatusObj.toString() : "";
-                            Object o = inv.invokeFunction("getStatus", status);
+                            Object o = SnippetEngine.invokeFunction(algorithm.getAsString(), "getStatus", status);
                             if (o != null) {
                                 JsonParser parser = new JsonParser();
                                 JsonElement element = parser.parse(o.toString());
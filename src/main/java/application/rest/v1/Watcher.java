@@ -16,23 +16,34 @@
 
 package application.rest.v1;
 
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleSupplier;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.ibm.kappnav.logging.Logger;
 
+import io.kubernetes.client.common.KubernetesObject;
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
 import io.kubernetes.client.util.Watch;
-import io.kubernetes.client.openapi.Configuration;
 
 import okhttp3.Call;
-import okhttp3.OkHttpClient;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
 
 
 /**
@@ -40,6 +51,43 @@ import okhttp3.OkHttpClient;
  */
 public class Watcher {
     
+    private static final Metrics.Counter EVENTS = Metrics.counter("kappnav_watcher_events_total",
+            "Events received by the watchers.", "watcher", "type");
+    private static final Metrics.Counter RELISTS = Metrics.counter("kappnav_watcher_relists_total",
+            "Full lists of the watched resources made by the watchers.", "watcher");
+    private static final Metrics.Counter RECONNECTS = Metrics.counter("kappnav_watcher_reconnects_total",
+            "Watches restarted from the last resource version without listing the resources again.", "watcher");
+    private static final Metrics.Gauge STALE = Metrics.gauge("kappnav_watcher_stale",
+            "1 while a watcher is re-establishing a failed watch and its state may be missing recent changes.", "watcher");
+    
+    // Configuration properties. Each can be set as a system property or an environment variable.
+    private static final String RETRY_INITIAL_DELAY_PROPERTY = "kappnav.watch.retry.initial.delay.millis";
+    private static final String RETRY_MAX_DELAY_PROPERTY = "kappnav.watch.retry.max.delay.millis";
+    private static final String MIN_WATCH_LIFETIME_PROPERTY = "kappnav.watch.min.lifetime.millis";
+    
+    private static final long DEFAULT_RETRY_INITIAL_DELAY_MILLIS = 1000L;
+    private static final long DEFAULT_RETRY_MAX_DELAY_MILLIS = 60000L;
+    private static final long DEFAULT_MIN_WATCH_LIFETIME_MILLIS = 10000L;
+    
+    private static final long RETRY_INITIAL_DELAY_MILLIS = Math.max(1L,
+            KAppNavConfig.getLongSetting(RETRY_INITIAL_DELAY_PROPERTY, DEFAULT_RETRY_INITIAL_DELAY_MILLIS));
+    private static final long RETRY_MAX_DELAY_MILLIS = Math.max(RETRY_INITIAL_DELAY_MILLIS,
+            KAppNavConfig.getLongSetting(RETRY_MAX_DELAY_PROPERTY, DEFAULT_RETRY_MAX_DELAY_MILLIS));
+    // A watch must run for this long before the failure count is reset. A watch that ends
+    // sooner is retried after a delay, as if it had failed.
+    private static final long MIN_WATCH_LIFETIME_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            KAppNavConfig.getLongSetting(MIN_WATCH_LIFETIME_PROPERTY, DEFAULT_MIN_WATCH_LIFETIME_MILLIS));
+    
+    private static final String METADATA_PROPERTY_NAME = "metadata";
+    private static final String RESOURCE_VERSION_PROPERTY_NAME = "resourceVersion";
+    private static final String NAME_PROPERTY_NAME = "name";
+    private static final String NAMESPACE_PROPERTY_NAME = "namespace";
+    private static final String ITEMS_PROPERTY_NAME = "items";
+    private static final String CONTINUE_PROPERTY_NAME = "continue";
+    private static final String REMAINING_ITEM_COUNT_PROPERTY_NAME = "remainingItemCount";
+    
+    private static final String ALLOW_WATCH_BOOKMARKS_PARAMETER = "allowWatchBookmarks";
+    
     /**
      * A callback interface that the watcher invokes to set up the watch and report results.
      */
@@ -50,10 +98,13 @@ public class Watcher {
         public String getWatcherThreadName();
         /**
          * Returns the current set of resources under watch. Sets the resource version of the list on the AtomicReference.
+         * Must not discard the state built from earlier events: when the resources are listed again only the
+         * differences from that state are passed to processResponse().
          */
         public List<T> listResources(ApiClient client, AtomicReference<String> resourceVersion) throws ApiException;
         /**
          * Returns the watch call for the resource under watch, created using the given resource version.
+         * The watcher requests bookmarks on the call unless it sets allowWatchBookmarks itself.
          */
         public Call createWatchCall(ApiClient client, String resourceVersion) throws ApiException;
         /**
@@ -61,13 +112,40 @@ public class Watcher {
          */
         public Type getWatchType();
         /**
-         * Processes a response returned from the watch.
+         * Processes a response returned from the watch, or a change found when the resources were
+         * listed. Objects passed as DELETED after a list only have their metadata (namespace, name
+         * and resourceVersion) set. BOOKMARK events are handled by the watcher and not passed on.
          */
         public void processResponse(ApiClient client, String type, T object);
         /**
-         * Clean up method for when the watch ends or fails.
+         * Returns the keys (see getKey(String, String)) of objects in the handler's state that it did not
+         * receive from the watcher, for example ones read directly from the cluster. Those that are not
+         * in the list are passed to processResponse() as DELETED when the resources are listed again.
+         */
+        public default Set<String> getKeys() {
+            return Collections.emptySet();
+        }
+        /**
+         * Clean up method for when the state built from the list and the watch can no longer be
+         * kept current: after a failure while the changes from a list were being processed and
+         * when the watcher stops. A watch that fails for any other reason, including an expired
+         * resource version, is resumed or relisted without resetting the handler.
          */
         public void reset(ApiClient client);
+        /**
+         * Called on the watcher thread when the handler's state becomes stale because the watch is
+         * down and changes may be missed, and again when the watch has been re-established. The
+         * state should still be served while it is stale.
+         */
+        public default void setStale(boolean stale) {
+        }
+        /**
+         * Returns true if the watch should be shut down permanently. The watcher
+         * thread exits the next time it checks this flag.
+         */
+        public default boolean isStopped() {
+            return false;
+        }
     }
     
     // Returns a synchronization object for waking up the thread.
@@ -76,154 +154,515 @@ public class Watcher {
     }
     
     // Returns a synchronization object for waking up the thread if autoRestart is false.
-    // Returns null if autoRestart is true.
+    // Returns null if autoRestart is true. Either way a watch that fails is re-established
+    // after a delay; notifying the object cuts the delay short.
     public static <T> Object start(final Handler<T> h, boolean autoRestart) {
+        final WatchRunner<T> runner = new WatchRunner<>(h);
+        STALE.register(runner.staleGauge, h.getWatcherThreadName());
+        Thread t = new Thread(runner);
+        t.setName(h.getWatcherThreadName());
+        t.setDaemon(true);
+        t.start();
+        return !autoRestart ? runner.lock : null;
+    }
+    
+    /**
+     * Lists the resources and then watches them, resuming the watch from the resource
+     * version of the last event or bookmark it received whenever it ends. When that
+     * resource version has expired (status 410) the resources are listed again and only
+     * the ones that were added, modified or deleted since the handler last saw them are
+     * passed to it. While a failed watch is being re-established the handler's state is
+     * kept, and served, even though it may be missing the latest changes; the handler is
+     * told that its state is stale. Every retry, including a relist after a 410 and a watch
+     * that ended too soon, waits for the retry delay.
+     */
+    private static final class WatchRunner<T> implements Runnable {
+        
+        // Indicates that the resource requested is no longer available and will not be available again.
+        private static final int HTTP_STATUS_CODE_GONE = 410;
+        
+        private static final String BOOKMARK_EVENT_TYPE = "BOOKMARK";
+        
+        private final Handler<T> h;
+        private final String name;
         // Synchronization lock used for waking up the watcher thread.
-        final Object LOCK = new Object();
-        Thread t = new Thread(new Runnable() {
-            
-            // Indicates that the resource requested is no longer available and will not be available again.
-            private static final int HTTP_STATUS_CODE_GONE = 410;
-            
-            @Override
-            public void run() {
-                while (true) {
-                    boolean gone = false;
-                    try {
-                        ApiClient client = KAppNavEndpoint.getApiClient();
-
-                        ApiClient localclient = client.setHttpClient(client.getHttpClient().newBuilder()
-                                                            .readTimeout(0, TimeUnit.SECONDS)
-                                                            .build());
-                        Configuration.setDefaultApiClient(localclient);                                    
-                       
-                        final AtomicReference<String> resourceVersion = new AtomicReference<>();
-                        long watchStartTime = 0L;
-                        Watch<T> watch = null;
-                        try {
-                            List<T> list = h.listResources(client, resourceVersion);
-                            if (Logger.isDebugEnabled()) {
-                                Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Retrieved current list of resources for " +
-                                        h.getClass().getName() + " at resourceVersion (" + resourceVersion.get() + ").");
-                            }
-                            
-                            list.forEach(v -> {
-                                h.processResponse(client, "ADDED", v);
-                            });
-                            
-                            watchStartTime = System.currentTimeMillis();
-                            
-                            if (Logger.isDebugEnabled()) {
-                                Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Watch starting for " + h.getClass().getName() +
-                                        " at resourceVersion (" + resourceVersion.get() + ").");
+        private final Object lock = new Object();
+        // True while the watch is down and the handler's state may be behind the cluster.
+        private volatile boolean stale;
+        // The function read by the stale gauge.
+        private final DoubleSupplier staleGauge = () -> stale ? 1 : 0;
+        // The resource version of each object the handler has been given, keyed by {namespace}/{name},
+        // or null if the handler has no state. Only used by the watcher thread.
+        private Map<String,String> versions;
+        
+        WatchRunner(Handler<T> h) {
+            this.h = h;
+            this.name = h.getWatcherThreadName();
+        }
+        
+        @Override
+        public void run() {
+            // True once the resources have been listed and until the watch's resource version expires.
+            boolean listed = false;
+            // The resource version to start the next watch from.
+            String resourceVersion = null;
+            // The number of consecutive failures, for the retry delay.
+            int failures = 0;
+            ApiClient client = null;
+            // The credentials the client was built with.
+            ApiClientProvider.CredentialStamp clientStamp = null;
+            while (!h.isStopped()) {
+                boolean gone = false;
+                boolean failed = false;
+                // True if the watch ended normally but too soon.
+                boolean ended = false;
+                // When the current watch was started.
+                long watchStarted = 0L;
+                Watch<T> watch = null;
+                try {
+                    // Watches use their own client (no read timeout) which shares the
+                    // connection pool with the client returned from KAppNavEndpoint.getApiClient().
+                    // It is only rebuilt when the credentials change on disk.
+                    final ApiClientProvider.CredentialStamp stamp = ApiClientProvider.getCredentialStamp();
+                    if (client == null || !stamp.equals(clientStamp)) {
+                        client = ApiClientProvider.newWatchClient();
+                        clientStamp = stamp;
+                    }
+                    
+                    boolean resumed = listed;
+                    if (!listed) {
+                        resourceVersion = list(client);
+                        listed = true;
+                    }
+                    
+                    OUTER: while (!h.isStopped()) {
+                        if (resumed) {
+                            RECONNECTS.inc(name);
+                        }
+                        resumed = true;
+                        if (Logger.isDebugEnabled()) {
+                            Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Watch starting for " + h.getClass().getName() +
+                                    " at resourceVersion (" + resourceVersion + ").");
+                        }
+                        watch = Watch.createWatch(client, allowBookmarks(client, h.createWatchCall(client, resourceVersion)), h.getWatchType());
+                        watchStarted = System.nanoTime();
+                        if (stale) {
+                            setStale(false);
+                            if (Logger.isInfoEnabled()) {
+                                Logger.log(getClass().getName(), "run", Logger.LogType.INFO, "Thread (" + name +
+                                        ") re-established the watch at resourceVersion (" + resourceVersion + ").");
                             }
-                            
-                            OUTER: while (true) {
-                                watch = Watch.createWatch(
-                                        client,
-                                        h.createWatchCall(client, resourceVersion.get()),
-                                        h.getWatchType());
-                                
-                                // Note: While the watch is active this iterator loop will block waiting for notifications of resource changes from the Kube API. 
-                                for (Watch.Response<T> item : watch) {
-                                    if (item.status != null || "ERROR".equals(item.type)) {
-                                        if (item.status != null) {
-                                            final Integer code = item.status.getCode();
-                                            if (code != null) {
-                                                final int codeValue = code.intValue();
-                                                if (codeValue == HTTP_STATUS_CODE_GONE) {
-                                                    gone = true;
-                                                    if (Logger.isDebugEnabled()) {
-                                                        Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG,
-                                                                "The resourceVersion (" + resourceVersion.get() +
-                                                                ") is too old (status 410). The watch for " + h.getClass().getName() +
-                                                                " will be restarted from the current resource version."); 
-                                                    }
-                                                }
-                                                else if (Logger.isDebugEnabled()) {
-                                                    Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG,
-                                                            "Status (" + codeValue + ") returned from the watch on resourceVersion (" +
-                                                            resourceVersion.get() + "). The watch for " + h.getClass().getName() +
-                                                            " will be restarted from the current resource version.");
-                                                }
-                                            }
-                                        }
-                                        else if (Logger.isDebugEnabled()) {
-                                            Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG,
-                                                    "An unknown error was returned from the watch on resourceVersion (" +
-                                                    resourceVersion.get() + "). The watch for " + h.getClass().getName() +
-                                                    " will be restarted from the current resource version.");
-                                        }
-                                        // Breaking out of the outer loop in order to restart the watch from the current resource version.
-                                        break OUTER;
+                        }
+                        
+                        // Note: While the watch is active this iterator loop will block waiting for notifications of resource changes from the Kube API. 
+                        for (Watch.Response<T> item : watch) {
+                            EVENTS.inc(name, String.valueOf(item.type));
+                            if (item.status != null || "ERROR".equals(item.type)) {
+                                final Integer code = (item.status != null) ? item.status.getCode() : null;
+                                if (code != null && code.intValue() == HTTP_STATUS_CODE_GONE) {
+                                    gone = true;
+                                    if (Logger.isDebugEnabled()) {
+                                        Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG,
+                                                "The resourceVersion (" + resourceVersion + ") is too old (status 410). The resources for " +
+                                                h.getClass().getName() + " will be listed again."); 
                                     }
-                                    h.processResponse(client, item.type, item.object);
                                 }
-                                watch.close();
-                                watch = null;
-                                
-                                if (Logger.isDebugEnabled()) {
-                                    Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Watch restarting for " + h.getClass().getName() +
-                                            " at resourceVersion (" + resourceVersion.get() + ").");
+                                else {
+                                    failed = true;
+                                    if (Logger.isDebugEnabled()) {
+                                        Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG,
+                                                "Status (" + code + ") returned from the watch on resourceVersion (" +
+                                                resourceVersion + "). The watch for " + h.getClass().getName() + " will be resumed.");
+                                    }
                                 }
+                                break OUTER;
+                            }
+                            // A bookmark only carries the resource version that the watch has reached.
+                            final String version = BOOKMARK_EVENT_TYPE.equals(item.type) ? getResourceVersion(client, item.object)
+                                    : process(client, item.type, item.object);
+                            if (version != null) {
+                                resourceVersion = version;
                             }
+                            if (h.isStopped()) {
+                                break OUTER;
+                            }
+                        }
+                        watch.close();
+                        watch = null;
+                        // The API server ended the watch (timeoutSeconds). Resume it straight away
+                        // unless it ended too soon.
+                        if (System.nanoTime() - watchStarted < MIN_WATCH_LIFETIME_NANOS) {
+                            ended = true;
+                            break OUTER;
+                        }
+                        failures = 0;
+                    }
+                }
+                catch (ApiException e) {
+                    if (e.getCode() == HTTP_STATUS_CODE_GONE) {
+                        gone = true;
+                    }
+                    else {
+                        failed = true;
+                    }
+                    if (Logger.isDebugEnabled()) {
+                        Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Caught ApiException from running watch: " + e.toString()
+                                + ", code=" + e.getCode());
+                    }
+                }
+                catch (Exception e) {
+                    failed = true;
+                    if (Logger.isDebugEnabled()) {
+                        Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Caught Exception from running watch: " + e.toString());
+                    }
+                }
+                finally {
+                    if (watch != null) {
+                        try {
+                            watch.close();
                         }
                         catch (Exception e) {
                             if (Logger.isDebugEnabled()) {
-                                Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Caught Exception from running watch: " + e.toString());
-                            }
-                        }
-                        finally {
-                            h.reset(client);
-                            if (watch != null) {
-                                watch.close();
-                            }
-                            if (Logger.isDebugEnabled() && watchStartTime > 0L) {
-                                Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Watch completed for " + h.getClass().getName() +
-                                        " at resourceVersion (" + resourceVersion.get() + ") after " + (System.currentTimeMillis() - watchStartTime) + " ms.");
+                                Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Caught Exception closing watch: " + e.toString());
                             }
                         }
                     }
-                    catch (Exception e) {
-                        if (Logger.isDebugEnabled()) {
-                            Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Caught Exception from watch initialization or shutdown: " + e.toString());
+                }
+                if (h.isStopped()) {
+                    break;
+                }
+                if (watchStarted != 0L && System.nanoTime() - watchStarted >= MIN_WATCH_LIFETIME_NANOS) {
+                    // The watch ran for long enough. This is a new run of failures.
+                    failures = 0;
+                }
+                if (gone) {
+                    // List the resources again. The handler's state is kept until the list shows what changed.
+                    listed = false;
+                    if (versions != null && !stale) {
+                        setStale(true);
+                    }
+                    waitToRetry(++failures);
+                }
+                else if (failed) {
+                    if (versions != null && !stale) {
+                        setStale(true);
+                        if (Logger.isInfoEnabled()) {
+                            Logger.log(getClass().getName(), "run", Logger.LogType.INFO, "Thread (" + name +
+                                    ") lost the watch. Keeping the current state while " + (listed ? "the watch is resumed from resourceVersion (" +
+                                    resourceVersion + ")." : "the resources are listed again."));
                         }
                     }
-                    // If the version of the resource being watched is gone or the creator of the watch requested an auto-restart, restart immediately.
-                    if (!(gone || autoRestart)) {
-                        // Sleep until notified by another thread, then try to re-establish the watch.
-                        synchronized (LOCK) {
-                            try {
-                                LOCK.wait();
-                            }
-                            catch (InterruptedException e) {
-                                if (Logger.isDebugEnabled()) {
-                                    Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Thread (" + h.getWatcherThreadName() + ") awakened.");
-                                }
-                            }
+                    waitToRetry(++failures);
+                }
+                else if (ended) {
+                    waitToRetry(++failures);
+                }
+            }
+            h.reset(client);
+            versions = null;
+            if (stale) {
+                setStale(false);
+            }
+            // Drop the metrics of the watcher, unless a new watcher with the same name has registered them again.
+            if (STALE.unregister(staleGauge, name)) {
+                EVENTS.remove("watcher", name);
+                RELISTS.remove("watcher", name);
+                RECONNECTS.remove("watcher", name);
+            }
+            if (Logger.isDebugEnabled()) {
+                Logger.log(getClass().getName(), "run", Logger.LogType.DEBUG, "Thread (" + name + ") stopped.");
+            }
+        }
+        
+        private void setStale(boolean stale) {
+            this.stale = stale;
+            h.setStale(stale);
+        }
+        
+        // Lists the resources and returns the resource version of the list. If the handler has no state
+        // each resource is passed to it as ADDED, otherwise only the differences from its state are. If
+        // processing them fails the handler is reset to discard the partial update.
+        private String list(ApiClient client) throws ApiException {
+            RELISTS.inc(name);
+            final AtomicReference<String> resourceVersion = new AtomicReference<>();
+            final List<T> list = h.listResources(client, resourceVersion);
+            if (Logger.isDebugEnabled()) {
+                Logger.log(getClass().getName(), "list", Logger.LogType.DEBUG, "Retrieved current list of resources for " +
+                        h.getClass().getName() + " at resourceVersion (" + resourceVersion.get() + ").");
+            }
+            try {
+                if (versions == null) {
+                    versions = new HashMap<>();
+                    list.forEach(v -> {
+                        process(client, "ADDED", v);
+                    });
+                }
+                else {
+                    processChanges(client, list);
+                }
+            }
+            catch (RuntimeException e) {
+                versions = null;
+                h.reset(client);
+                throw e;
+            }
+            return resourceVersion.get();
+        }
+        
+        // Passes the resources that were added or modified since the handler last saw them, and the
+        // ones that are no longer listed, to the handler.
+        private void processChanges(ApiClient client, List<T> list) {
+            final Set<String> keys = new HashSet<>();
+            int changes = 0;
+            for (T object : list) {
+                final String key = getKey(client, object);
+                if (key == null || !versions.containsKey(key)) {
+                    process(client, "ADDED", object);
+                    ++changes;
+                }
+                else {
+                    final String version = getResourceVersion(client, object);
+                    if (version == null || !version.equals(versions.get(key))) {
+                        process(client, "MODIFIED", object);
+                        ++changes;
+                    }
+                }
+                if (key != null) {
+                    keys.add(key);
+                }
+            }
+            // Objects the handler read from the cluster itself are never in the versions.
+            final Set<String> known = new HashSet<>(versions.keySet());
+            known.addAll(h.getKeys());
+            final List<String> deleted = new ArrayList<>();
+            known.forEach(k -> {
+                if (!keys.contains(k)) {
+                    deleted.add(k);
+                }
+            });
+            for (String key : deleted) {
+                process(client, "DELETED", newDeletedObject(client, key, versions.get(key)));
+            }
+            changes += deleted.size();
+            if (Logger.isDebugEnabled()) {
+                Logger.log(getClass().getName(), "processChanges", Logger.LogType.DEBUG, changes + " of " + list.size() +
+                        " listed resource(s) for " + h.getClass().getName() + " changed, including " + deleted.size() + " deletion(s).");
+            }
+        }
+        
+        // Passes the change to the handler and records the object's resource version, which is returned.
+        private String process(ApiClient client, String type, T object) {
+            h.processResponse(client, type, object);
+            final String version = getResourceVersion(client, object);
+            final String key = getKey(client, object);
+            if (key != null && versions != null) {
+                if ("DELETED".equals(type)) {
+                    versions.remove(key);
+                }
+                else {
+                    versions.put(key, version);
+                }
+            }
+            return version;
+        }
+        
+        // Returns an object with the metadata of a resource that was deleted while the watch was down.
+        private T newDeletedObject(ApiClient client, String key, String resourceVersion) {
+            final int i = key.indexOf('/');
+            final JsonObject metadata = new JsonObject();
+            if (i > 0) {
+                metadata.addProperty(NAMESPACE_PROPERTY_NAME, key.substring(0, i));
+            }
+            metadata.addProperty(NAME_PROPERTY_NAME, key.substring(i + 1));
+            if (resourceVersion != null) {
+                metadata.addProperty(RESOURCE_VERSION_PROPERTY_NAME, resourceVersion);
+            }
+            final JsonObject o = new JsonObject();
+            o.add(METADATA_PROPERTY_NAME, metadata);
+            final Type watchType = h.getWatchType();
+            // The type of the objects is the type argument of Watch.Response<T>.
+            final Type type = (watchType instanceof ParameterizedType) ? ((ParameterizedType) watchType).getActualTypeArguments()[0] : Object.class;
+            return client.getJSON().getGson().fromJson(o, type);
+        }
+        
+        // Waits before the next attempt. A notify on the lock (from a request that found no cached
+        // data) ends the wait early, though not before the initial retry delay has passed.
+        private void waitToRetry(int failures) {
+            final long delay = getRetryDelay(failures, RETRY_INITIAL_DELAY_MILLIS, RETRY_MAX_DELAY_MILLIS,
+                    ThreadLocalRandom.current().nextDouble());
+            if (Logger.isDebugEnabled()) {
+                Logger.log(getClass().getName(), "waitToRetry", Logger.LogType.DEBUG, "Thread (" + name + ") retrying in " + delay +
+                        " ms after " + failures + " consecutive failure(s).");
+            }
+            final long start = System.nanoTime();
+            final long earliest = start + TimeUnit.MILLISECONDS.toNanos(Math.min(delay, RETRY_INITIAL_DELAY_MILLIS));
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(delay);
+            synchronized (lock) {
+                long remaining = deadline - start;
+                while (remaining > 0 && !h.isStopped()) {
+                    try {
+                        lock.wait(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                    }
+                    catch (InterruptedException e) {
+                        if (Logger.isDebugEnabled()) {
+                            Logger.log(getClass().getName(), "waitToRetry", Logger.LogType.DEBUG, "Thread (" + name + ") awakened.");
                         }
+                        return;
                     }
+                    deadline = Math.min(deadline, earliest);
+                    remaining = deadline - System.nanoTime();
                 }
             }
-        });
-        t.setName(h.getWatcherThreadName());
-        t.setDaemon(true);
-        t.start();
-        return !autoRestart ? LOCK : null;
+        }
+    }
+    
+    /**
+     * Requests bookmarks on a watch call unless the handler has set allowWatchBookmarks itself. The
+     * API server then sends the resource version the watch has reached from time to time, so that a
+     * watch on resources that rarely change can be resumed instead of its resource version expiring.
+     */
+    static Call allowBookmarks(ApiClient client, Call call) {
+        final Request request = call.request();
+        if (request.url().queryParameter(ALLOW_WATCH_BOOKMARKS_PARAMETER) != null) {
+            return call;
+        }
+        final HttpUrl url = request.url().newBuilder().addQueryParameter(ALLOW_WATCH_BOOKMARKS_PARAMETER, "true").build();
+        return client.getHttpClient().newCall(request.newBuilder().url(url).build());
+    }
+    
+    /**
+     * Returns the delay before the given attempt to re-establish a watch: exponential backoff from
+     * the initial delay, capped at the maximum, with half of the delay random so that watchers
+     * that failed together do not retry together.
+     */
+    static long getRetryDelay(int failures, long initialDelay, long maxDelay, double random) {
+        long delay = initialDelay;
+        for (int i = 1; i < failures && delay < maxDelay; ++i) {
+            delay <<= 1;
+        }
+        delay = Math.min(delay, maxDelay);
+        final long half = delay / 2;
+        return half + (long) (random * (delay - half));
     }
     
     /**
-     * Utility method for processing a generic list from the CustomObjectsApi.
+     * Returns the resource version from the metadata of an object returned from a watch.
      */
-    public static List<Object> processCustomObjectsApiList(ApiClient client, Object objectList, AtomicReference<String> resourceVersion) {
-        JsonObject jsonList = KAppNavEndpoint.getItemAsObject(client, objectList);
-        if (jsonList != null) {
-            String version = KAppNavEndpoint.getResourceVersion(jsonList);
-            resourceVersion.set(version);
-            List<Object> list = new ArrayList<>();
-            KAppNavEndpoint.writeItemsToList(jsonList, list);
-            return list;
-        }
-        return Collections.emptyList();
+    static String getResourceVersion(ApiClient client, Object object) {
+        if (object instanceof KubernetesObject) {
+            final V1ObjectMeta metadata = ((KubernetesObject) object).getMetadata();
+            return (metadata != null) ? metadata.getResourceVersion() : null;
+        }
+        return getMetadataProperty(client, object, RESOURCE_VERSION_PROPERTY_NAME);
+    }
+    
+    /**
+     * Returns the {namespace}/{name} key of an object returned from a watch or a list, with an
+     * empty namespace for cluster-scoped objects, or null if the object has no name.
+     */
+    static String getKey(ApiClient client, Object object) {
+        final String namespace;
+        final String name;
+        if (object instanceof KubernetesObject) {
+            final V1ObjectMeta metadata = ((KubernetesObject) object).getMetadata();
+            if (metadata == null) {
+                return null;
+            }
+            namespace = metadata.getNamespace();
+            name = metadata.getName();
+        }
+        else {
+            namespace = getMetadataProperty(client, object, NAMESPACE_PROPERTY_NAME);
+            name = getMetadataProperty(client, object, NAME_PROPERTY_NAME);
+        }
+        return (name != null) ? getKey(namespace, name) : null;
+    }
+    
+    /**
+     * Returns the key used by the watcher for the object with the given namespace (null if the
+     * object is cluster scoped) and name: {namespace}/{name}.
+     */
+    public static String getKey(String namespace, String name) {
+        return ((namespace != null) ? namespace : "") + "/" + name;
+    }
+    
+    // Returns a string property from the metadata of an object that doesn't have a model class.
+    private static String getMetadataProperty(ApiClient client, Object object, String property) {
+        if (object instanceof Map) {
+            // Objects deserialized without a model class.
+            final Object metadata = ((Map<?,?>) object).get(METADATA_PROPERTY_NAME);
+            if (metadata instanceof Map) {
+                final Object value = ((Map<?,?>) metadata).get(property);
+                return (value instanceof String) ? (String) value : null;
+            }
+            return null;
+        }
+        final JsonObject o = (object instanceof JsonObject) ? (JsonObject) object : KAppNavEndpoint.getItemAsObject(client, object);
+        final JsonElement metadata = (o != null) ? o.get(METADATA_PROPERTY_NAME) : null;
+        if (metadata != null && metadata.isJsonObject()) {
+            final JsonElement value = metadata.getAsJsonObject().get(property);
+            return (value != null && value.isJsonPrimitive()) ? value.getAsString() : null;
+        }
+        return null;
+    }
+    
+    /**
+     * Returns one page of a list, starting at the given continue token (null for the first page).
+     */
+    public interface ListPager {
+        Object listPage(String cont) throws ApiException;
+    }
+
+    /**
+     * Utility method for retrieving all of the pages of a list from the Kube API, following the
+     * continue token of each page. Returns the first page with the items of the following pages
+     * appended to it, or null if the list could not be read.
+     */
+    public static JsonObject listAllPages(ApiClient client, ListPager pager) throws ApiException {
+        JsonObject result = null;
+        String cont = null;
+        do {
+            final JsonObject page = KAppNavEndpoint.getItemAsObject(client, pager.listPage(cont));
+            if (page == null) {
+                break;
+            }
+            cont = ListPage.getKubeListContinue(page);
+            if (result == null) {
+                result = page;
+                continue;
+            }
+            final JsonElement items = page.get(ITEMS_PROPERTY_NAME);
+            if (items != null && items.isJsonArray()) {
+                JsonElement resultItems = result.get(ITEMS_PROPERTY_NAME);
+                if (resultItems == null || !resultItems.isJsonArray()) {
+                    resultItems = new JsonArray();
+                    result.add(ITEMS_PROPERTY_NAME, resultItems);
+                }
+                resultItems.getAsJsonArray().addAll(items.getAsJsonArray());
+            }
+            // The merged list is complete.
+            final JsonElement metadata = result.get(METADATA_PROPERTY_NAME);
+            if (metadata != null && metadata.isJsonObject()) {
+                metadata.getAsJsonObject().remove(CONTINUE_PROPERTY_NAME);
+                metadata.getAsJsonObject().remove(REMAINING_ITEM_COUNT_PROPERTY_NAME);
+            }
+        }
+        while (cont != null);
+        return result;
+    }
+
+    /**
+     * Utility method for listing all of the pages of a generic list from the CustomObjectsApi,
+     * following the continue token of each page.
+     */
+    public static List<Object> processCustomObjectsApiList(ApiClient client, ListPager pager, AtomicReference<String> resourceVersion) throws ApiException {
+        final JsonObject jsonList = listAllPages(client, pager);
+        if (jsonList == null) {
+            return Collections.emptyList();
+        }
+        resourceVersion.set(KAppNavEndpoint.getResourceVersion(jsonList));
+        final List<Object> list = new ArrayList<>();
+        KAppNavEndpoint.writeItemsToList(jsonList, list);
+        return list;
     }
 }
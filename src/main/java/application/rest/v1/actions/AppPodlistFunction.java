@@ -18,13 +18,13 @@ package application.rest.v1.actions;
 
 import java.util.List;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import application.rest.v1.ApplicationCache;
+import application.rest.v1.ApplicationCache.ApplicationInfo;
 import application.rest.v1.ComponentInfoRegistry;
+import application.rest.v1.ComponentOwnerIndex;
 import application.rest.v1.KAppNavEndpoint;
-import application.rest.v1.Selector;
 import application.rest.v1.ComponentKind;
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
@@ -33,15 +33,14 @@ import com.ibm.kappnav.logging.Logger;
 
 // apppodlist() or apppodlist(<application-namespace>,<application-name>)
 // Returns a list of pod names from all deployments belonging to specified application.
+// Deployments are checked against the ComponentOwnerIndex so that only the ones the application includes are used.
+// Pods are only returned from the application's namespace.
 // Return value structure is: { "pods" : "[<name1>,<name2>,etc]" }
 public class AppPodlistFunction implements Function {
     private static final String className = AppPodlistFunction.class.getName();
     
-    private static final String PODS_PROPERTY_NAME = "pods";
     private static final String DEPLOYMENT_KIND = "Deployment";
     private static final String APPLICATION_KIND = "Application";
-    private static final String POD_KIND = "Pod";
-    private static final String METADATA_PROPERTY_NAME = "metadata";
 
     @Override
     public String getName() {
@@ -91,110 +90,45 @@ public class AppPodlistFunction implements Function {
                 return null;
             }  
         }   
-        List<ComponentKind> componentKinds = ComponentKind.getComponentKinds(client, resource, registry);    
-        return getPodListFromApp(client, resource, registry, componentKinds);                    
+        final ApplicationInfo info = ApplicationCache.getApplicationInfo(resource);
+        List<ComponentKind> componentKinds = info.getComponentKinds(registry);    
+        return getPodListFromApp(client, info, registry, componentKinds);                    
     }
 
 
-    private String getPodListFromApp(ApiClient client, JsonObject resource, ComponentInfoRegistry registry, List<ComponentKind> componentKinds) {
-        PodlistResult result = new PodlistResult();             
+    private String getPodListFromApp(ApiClient client, ApplicationInfo info, ComponentInfoRegistry registry, List<ComponentKind> componentKinds) {
+        final PodlistFunction.PodlistResult result = new PodlistFunction.PodlistResult();             
         //retrieve app namespace from the resource 
-        String appNamespace = getNameSpaceFromResource(resource);
+        final String appNamespace = KAppNavEndpoint.getComponentNamespace(info.getApplication());
         if (Logger.isDebugEnabled()) {
             Logger.log(className, "getPodListFromApp", Logger.LogType.DEBUG, "For appNamespace=" + appNamespace);
         }
 
         //check if app contains "Deployment" component kind        
-        componentKinds.forEach(v -> {  
-            if (v.kind.equals("Deployment")) {
-                final Selector aSelector = Selector.getSelector(resource);    
-                if (!aSelector.isEmpty()) {
-                    final String alabelSelector = aSelector.toString();           
-                    try {  
-                        //retrieve deployment object from app with the labels matching 
-                        Object deplO = registry.listClusterObject(client, DEPLOYMENT_KIND, "", null, alabelSelector, null, null);
-                        List<JsonObject> deployments = KAppNavEndpoint.getItemsAsList(client, deplO); 
-                        deployments.forEach(d -> {                   
-                            Selector dSelector = Selector.getSelector(d);  
-                            if (!dSelector.isEmpty()) {        
-                                final String dlabelSelector = dSelector.toString();                              
-                                try {
-                                    //retrieve pod object from deployment with the label matching
-                                    Object podO = registry.listClusterObject(client, POD_KIND, "", null, dlabelSelector, null, null);
-                                    List<JsonObject> items = KAppNavEndpoint.getItemsAsList(client, podO);
-                                    items.forEach(p -> {
-                                        JsonElement element = p.get(METADATA_PROPERTY_NAME);
-                                        if (element != null && element.isJsonObject()) {
-                                            JsonObject pmetadata = element.getAsJsonObject();                                                                                          
-                                            //find pod's namespace matching with app's namespace 
-                                            JsonElement pNamespace  = pmetadata.get("namespace");
-                                            if (pNamespace!= null && pNamespace.isJsonPrimitive()) {                                           
-                                                if (pNamespace.getAsString().equals(appNamespace)) {
-                                                    //get pod name  
-                                                    JsonElement pName  = pmetadata.get("name");
-                                                    if (pName!= null && pName.isJsonPrimitive()) {
-                                                        result.add(pName.getAsString());
-                                                    }                                                   
-                                                }
-                                            } 
-                                        }
-                                    });
-                                } catch (ApiException e) {
-                                    if (Logger.isDebugEnabled()) {
-                                        Logger.log(className, "getPodListFromApp", Logger.LogType.DEBUG, "Caught ApiException-1 " + e.toString());
-                                    }
-                                }
-                            }
-                        });
-                    } catch (ApiException e) {
-                        if (Logger.isDebugEnabled()) {
-                            Logger.log(className, "getPodListFromApp", Logger.LogType.DEBUG, "Caught ApiException-2 " + e.toString());
-                        }
+        boolean hasDeployments = false;
+        for (ComponentKind v : componentKinds) {
+            hasDeployments |= DEPLOYMENT_KIND.equals(v.kind);
+        }
+        if (hasDeployments && appNamespace != null && !info.getSelector().isEmpty()) {
+            try {  
+                // Only the pods in the application's namespace are returned, so only the deployments
+                // in that namespace are listed. Both lists are served from the ResourceCache when available.
+                Object deplO = registry.listNamespacedObject(client, DEPLOYMENT_KIND, "", appNamespace, null, info.getLabelSelector(), null, null);
+                List<JsonObject> deployments = KAppNavEndpoint.getItemsAsList(client, deplO); 
+                deployments.forEach(d -> {                   
+                    if (ComponentOwnerIndex.isOwner(info, DEPLOYMENT_KIND, appNamespace, d)) {
+                        PodlistFunction.addPods(client, registry, d, result);
                     }
+                });
+            } catch (ApiException e) {
+                if (Logger.isDebugEnabled()) {
+                    Logger.log(className, "getPodListFromApp", Logger.LogType.DEBUG, "Caught ApiException " + e.toString());
                 }
-            } 
-        });       
+            }
+        }
         if (Logger.isDebugEnabled()) {
             Logger.log(className, "getPodListFromApp", Logger.LogType.DEBUG, "Result=" + result.getJSON());
         }    
         return result.getJSON();
     }
-
-    private String getNameSpaceFromResource(JsonObject resource) {
-        String appnamespace = null;
-        JsonElement element = resource.get(METADATA_PROPERTY_NAME);
-        if (element != null && element.isJsonObject()) {
-            JsonObject metadata = element.getAsJsonObject();                                                                                          
-            JsonElement namespace  = metadata.get("namespace");
-            if (namespace!= null && namespace.isJsonPrimitive()) {
-                appnamespace = namespace.getAsString();
-            }
-        }
-        if (Logger.isDebugEnabled()) {
-            Logger.log(className, "getNameSpaceFromResource", Logger.LogType.DEBUG, "Return appNamespace=" + appnamespace);
-        }
-        return appnamespace;
-    }
-                               
-          
-    static final class PodlistResult {
-        private final JsonObject o;
-        private final JsonArray pods;
-        // Constructs:
-        // {
-        //   pods: [ <name1>, <name2>, ... ]
-        // } 
-        public PodlistResult() {
-            o = new JsonObject();
-            o.add(PODS_PROPERTY_NAME, pods = new JsonArray());
-        }
-        public void add(final String name) {
-            if (! pods.toString().contains(name))
-                pods.add(name);
-        }
-        public String getJSON() {
-            return o.toString();
-        }
-    }
 }
-
@@ -17,10 +17,9 @@
 package application.rest.v1.actions;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -45,28 +44,38 @@ public final class Command {
         this.timeoutUnit = timeoutUnit;
     }
     
-    // Executes the command synchronously.
+    // Executes the command synchronously. The process's output streams are read while
+    // it runs. The timeout covers both running the process and reading its output. If
+    // no thread is free to read the output the process is destroyed and the result is
+    // REJECTED. If the thread is interrupted the process is destroyed.
     public Result invoke() {
         if (Logger.isEntryEnabled()) {
             Logger.log(Command.class.getName(), "invoke", Logger.LogType.ENTRY, "");
         }
+        Process p = null;
+        Future<String> stdout = null;
+        Future<String> stderr = null;
+        final long start = System.nanoTime();
+        final long deadline = start + timeoutUnit.toNanos(timeout);
         try {
             final ProcessBuilder pb = new ProcessBuilder(commandArgs);
-            final Process p = pb.start();
+            p = pb.start();
+            stdout = CommandExecutor.read(p.getInputStream());
+            stderr = CommandExecutor.read(p.getErrorStream());
             if (p.waitFor(timeout, timeoutUnit)) {
                 final int i = p.exitValue();
+                // The streams end once the process has exited, unless it left a child
+                // process holding them open.
+                final String output = stdout.get(remaining(deadline), TimeUnit.NANOSECONDS);
                 if (i == 0) {
-                    final InputStreamReader reader = new InputStreamReader(p.getInputStream());
-                    final StringBuilder sb = new StringBuilder();
-                    int count;
-                    final char[] buffer = new char[1 << 10]; // 1K buffer
-                    while ((count = reader.read(buffer)) != -1) {
-                        sb.append(buffer, 0, count);
-                    }
                     if (Logger.isExitEnabled()) {
-                        Logger.log(Command.class.getName(), "invoke", Logger.LogType.EXIT, sb.toString());
+                        Logger.log(Command.class.getName(), "invoke", Logger.LogType.EXIT, output);
                     }
-                    return Result.complete(0, sb.toString());
+                    return Result.complete(0, output);
+                }
+                if (Logger.isDebugEnabled()) {
+                    Logger.log(Command.class.getName(), "invoke", Logger.LogType.DEBUG, "Exit value " + i + ", error output: "
+                            + stderr.get(remaining(deadline), TimeUnit.NANOSECONDS));
                 }
                 if (Logger.isExitEnabled()) {
                     Logger.log(Command.class.getName(), "invoke", Logger.LogType.EXIT, "Returning null.");
@@ -74,44 +83,64 @@ public final class Command {
                 return Result.complete(i, null);
             }
             else {
-                p.destroy();
                 if (Logger.isExitEnabled()) {
                     Logger.log(Command.class.getName(), "invoke", Logger.LogType.EXIT, "Timed out.");
                 }
                 return Result.timedOut();
             }
         }
-        catch (IOException | InterruptedException | SecurityException e) {
+        catch (RejectedExecutionException e) {
+            if (Logger.isExitEnabled()) {
+                Logger.log(Command.class.getName(), "invoke", Logger.LogType.EXIT, "No thread available to read output.");
+            }
+            return Result.rejected();
+        }
+        catch (TimeoutException e) {
+            if (Logger.isExitEnabled()) {
+                Logger.log(Command.class.getName(), "invoke", Logger.LogType.EXIT, "Timed out reading output.");
+            }
+            return Result.timedOut();
+        }
+        catch (IOException | InterruptedException | ExecutionException | SecurityException e) {
+            if (e instanceof InterruptedException) {
+                // Cancelled. Keep the interrupt for the caller.
+                Thread.currentThread().interrupt();
+            }
             if (Logger.isDebugEnabled()) {
                 Logger.log(Command.class.getName(), "invoke", Logger.LogType.DEBUG, "Caught Exception " + e.toString());
             }
             return Result.failed(e);
         }
+        finally {
+            if (p != null) {
+                CommandExecutor.recordRunTime(System.nanoTime() - start);
+                if (p.isAlive()) {
+                    // Timed out, cancelled or rejected.
+                    p.destroyForcibly();
+                }
+                if (stdout != null) {
+                    stdout.cancel(true);
+                }
+                if (stderr != null) {
+                    stderr.cancel(true);
+                }
+            }
+        }
+    }
+    
+    private static long remaining(long deadline) {
+        return Math.max(0L, deadline - System.nanoTime());
     }
     
-    // Executes the command asynchronously. The result is
-    // written to the Future once its available.
+    // Executes the command asynchronously on the CommandExecutor. The result is
+    // written to the Future once its available. Cancelling the Future with
+    // mayInterruptIfRunning destroys the process. If too many commands are
+    // already queued the result is REJECTED.
     public Future<Result> asyncInvoke() {
         if (Logger.isEntryEnabled()) {
             Logger.log(Command.class.getName(), "asyncInvoke", Logger.LogType.ENTRY, "");
         }
-        final FutureResult result = new FutureResult();
-        final Thread t = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    result.set(invoke());
-                }
-                catch (Exception e) {
-                    if (Logger.isDebugEnabled()) {
-                        Logger.log(Command.class.getName(), "asyncInvoke", Logger.LogType.DEBUG, "Caught Exception " + e.toString());
-                    }
-                    result.setException(e);
-                }
-            }
-        });
-        t.setDaemon(true);
-        t.start();
+        final Future<Result> result = CommandExecutor.submit(this);
         if (Logger.isExitEnabled()) {
             Logger.log(Command.class.getName(), "asyncInvoke", Logger.LogType.EXIT, "");
         }
@@ -145,56 +174,9 @@ public final class Command {
         public static Result failed(Exception e) {
             return new Result(-1, null, Status.FAILED);
         }
-    }
-    
-    public final static class FutureResult implements Future<Result> {
-        
-        private final CountDownLatch done = new CountDownLatch(1);
-        private volatile Result result;
-        private volatile Throwable t;
-
-        @Override
-        public boolean cancel(boolean mayInterruptIfRunning) {
-            return false;
-        }
-
-        @Override
-        public boolean isCancelled() {
-            return false;
-        }
-
-        @Override
-        public boolean isDone() {
-            return done.getCount() == 0;
-        }
-
-        @Override
-        public Result get() throws InterruptedException, ExecutionException {
-            done.await();
-            if (t != null) {
-                throw new ExecutionException(t);
-            }
-            return result;
-        }
-
-        @Override
-        public Result get(long timeout, TimeUnit unit)
-                throws InterruptedException, ExecutionException, TimeoutException {
-            done.await(timeout, unit);
-            if (t != null) {
-                throw new ExecutionException(t);
-            }
-            return result;
-        }
-        
-        void set(Result result) {
-            this.result = result;
-            done.countDown();
-        }
         
-        void setException(Throwable t) {
-            this.t = t;
-            done.countDown();
+        public static Result rejected() {
+            return new Result(-1, null, Status.REJECTED);
         }
     }
     
@@ -202,6 +184,7 @@ public final class Command {
         RUNNING,
         COMPLETE,
         TIMED_OUT,
-        FAILED
+        FAILED,
+        REJECTED
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.actions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import application.rest.v1.KAppNavConfig;
+import application.rest.v1.Metrics;
+
+import com.ibm.kappnav.logging.Logger;
+
+/**
+ * Shared executor for native commands. Commands submitted with Command.asyncInvoke() run
+ * on a fixed size pool with a bounded queue; once the queue is full further commands are
+ * rejected instead of piling up. The output streams of every command process, synchronous
+ * or not, are drained on a separate bounded pool while the command runs so that a process
+ * writing more than the pipe buffer holds cannot block. A command that cannot get a reader
+ * thread is destroyed and its result is REJECTED.
+ */
+public final class CommandExecutor {
+
+    private static final String className = CommandExecutor.class.getName();
+
+    // Configuration properties. Each can be set as a system property or an environment variable.
+    private static final String MAX_CONCURRENCY_PROPERTY = "kappnav.command.max.concurrency";
+    private static final String MAX_QUEUE_PROPERTY = "kappnav.command.max.queue";
+    private static final String MAX_READERS_PROPERTY = "kappnav.command.max.readers";
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final int DEFAULT_MAX_QUEUE = 64;
+
+    private static final int MAX_CONCURRENCY = Math.max(1,
+            (int) KAppNavConfig.getLongSetting(MAX_CONCURRENCY_PROPERTY, DEFAULT_MAX_CONCURRENCY));
+    private static final int MAX_QUEUE = Math.max(1,
+            (int) KAppNavConfig.getLongSetting(MAX_QUEUE_PROPERTY, DEFAULT_MAX_QUEUE));
+    // Two readers per running command, with headroom for readers still draining the
+    // output of a child process that outlived its command.
+    private static final int MAX_READERS = Math.max(2,
+            (int) KAppNavConfig.getLongSetting(MAX_READERS_PROPERTY, 4L * MAX_CONCURRENCY));
+
+    private static final ThreadPoolExecutor EXECUTOR;
+    // Threads that read the output of command processes. Two per running process.
+    private static final ThreadPoolExecutor STREAMS;
+
+    private static final AtomicLong SUBMITTED = new AtomicLong();
+    private static final AtomicLong REJECTED = new AtomicLong();
+    private static final AtomicLong COMPLETED = new AtomicLong();
+    private static final AtomicLong RUN_TIME_NANOS = new AtomicLong();
+    private static final AtomicLong QUEUE_TIME_NANOS = new AtomicLong();
+
+    static {
+        final AtomicInteger workers = new AtomicInteger();
+        EXECUTOR = new ThreadPoolExecutor(MAX_CONCURRENCY, MAX_CONCURRENCY, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_QUEUE), r -> {
+                    final Thread t = new Thread(r, "kAppNav Command Worker-" + workers.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+        final AtomicInteger readers = new AtomicInteger();
+        // A queued reader would not drain its stream, so readers are handed straight to
+        // a thread or rejected.
+        STREAMS = new ThreadPoolExecutor(MAX_READERS, MAX_READERS, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), r -> {
+                    final Thread t = new Thread(r, "kAppNav Command Output Reader-" + readers.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        STREAMS.allowCoreThreadTimeOut(true);
+        if (Logger.isInfoEnabled()) {
+            Logger.log(className, "<clinit>", Logger.LogType.INFO, "Command executor: maxConcurrency=" + MAX_CONCURRENCY
+                    + ", maxQueue=" + MAX_QUEUE + ", maxReaders=" + MAX_READERS);
+        }
+        Metrics.gauge("kappnav_command_queue_depth", "Commands waiting for a thread.").register(CommandExecutor::getQueueDepth);
+        Metrics.gauge("kappnav_command_active", "Asynchronous commands running.").register(CommandExecutor::getActiveCount);
+        Metrics.functionCounter("kappnav_command_rejected_total", "Asynchronous commands rejected because the queue was full.")
+            .register(CommandExecutor::getRejectedCount);
+        Metrics.functionCounter("kappnav_command_run_seconds_total", "Time that command processes ran for.")
+            .register(() -> RUN_TIME_NANOS.get() / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private CommandExecutor() {}
+
+    /**
+     * Queues the command. The returned future's cancel(true) destroys the command's process
+     * if it is running. If the queue is full the command is not run and the future holds a
+     * REJECTED result.
+     */
+    static Future<Command.Result> submit(Command command) {
+        final long queued = System.nanoTime();
+        final Callable<Command.Result> task = () -> {
+            QUEUE_TIME_NANOS.addAndGet(System.nanoTime() - queued);
+            try {
+                return command.invoke();
+            }
+            finally {
+                COMPLETED.incrementAndGet();
+            }
+        };
+        try {
+            final Future<Command.Result> result = EXECUTOR.submit(task);
+            SUBMITTED.incrementAndGet();
+            return result;
+        }
+        catch (RejectedExecutionException e) {
+            REJECTED.incrementAndGet();
+            if (Logger.isWarningEnabled()) {
+                Logger.log(className, "submit", Logger.LogType.WARNING, "Command rejected. " + EXECUTOR.getQueue().size()
+                        + " command(s) are already queued.");
+            }
+            return CompletableFuture.completedFuture(Command.Result.rejected());
+        }
+    }
+
+    /**
+     * Starts reading the stream to completion. The future returns what was read. Throws
+     * RejectedExecutionException if all of the reader threads are busy.
+     */
+    static Future<String> read(InputStream in) {
+        return STREAMS.submit(() -> {
+            try (InputStreamReader reader = new InputStreamReader(in)) {
+                final StringBuilder sb = new StringBuilder();
+                int count;
+                final char[] buffer = new char[1 << 10]; // 1K buffer
+                while ((count = reader.read(buffer)) != -1) {
+                    sb.append(buffer, 0, count);
+                }
+                return sb.toString();
+            }
+            catch (IOException e) {
+                // The stream is closed when the process is destroyed.
+                if (Logger.isDebugEnabled()) {
+                    Logger.log(className, "read", Logger.LogType.DEBUG, "Caught IOException " + e.toString());
+                }
+                return null;
+            }
+        });
+    }
+
+    // Records the time a command process ran for, whether it was invoked synchronously or not.
+    static void recordRunTime(long nanos) {
+        RUN_TIME_NANOS.addAndGet(nanos);
+    }
+
+    /**
+     * Returns the number of commands waiting for a thread.
+     */
+    public static int getQueueDepth() {
+        return EXECUTOR.getQueue().size();
+    }
+
+    /**
+     * Returns the number of asynchronous commands running.
+     */
+    public static int getActiveCount() {
+        return EXECUTOR.getActiveCount();
+    }
+
+    public static long getSubmittedCount() {
+        return SUBMITTED.get();
+    }
+
+    public static long getRejectedCount() {
+        return REJECTED.get();
+    }
+
+    public static long getCompletedCount() {
+        return COMPLETED.get();
+    }
+
+    /**
+     * Returns the total time that command processes ran for, in milliseconds.
+     */
+    public static long getTotalRunTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(RUN_TIME_NANOS.get());
+    }
+
+    /**
+     * Returns the total time that asynchronous commands waited in the queue, in milliseconds.
+     */
+    public static long getTotalQueueTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(QUEUE_TIME_NANOS.get());
+    }
+}
@@ -16,11 +16,40 @@
 
 package application.rest.v1.actions;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import com.ibm.kappnav.logging.Logger;
+
 // Parent class for functions that invoke a native command.
 public abstract class CommandFunction implements Function {
     
+    // Runs the command on the CommandExecutor, which bounds the number of command processes.
+    // The time spent waiting for a thread counts towards the timeout. Returns null if the
+    // command failed or did not complete in time. Throws CommandRejectedException if the
+    // executor is busy.
     public final String invoke(ResolutionContext context, String[] commandArgs) {
         final Command command = new Command(commandArgs, context.getTimeout(), context.getTimeoutUnit());
-        return command.invoke().output;
+        final Future<Command.Result> future = command.asyncInvoke();
+        final Command.Result result;
+        try {
+            result = future.get(context.getTimeout(), context.getTimeoutUnit());
+        }
+        catch (TimeoutException | ExecutionException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (Logger.isDebugEnabled()) {
+                Logger.log(CommandFunction.class.getName(), "invoke", Logger.LogType.DEBUG, "Caught Exception " + e.toString());
+            }
+            // Removes the command from the queue or destroys its process.
+            future.cancel(true);
+            return null;
+        }
+        if (result.status == Command.Status.REJECTED) {
+            throw new CommandRejectedException("The server is busy running other commands. Try again later.");
+        }
+        return result.output;
     }
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.actions;
+
+// Thrown when a native command is not run because the CommandExecutor's queue is full.
+// The request can be tried again later.
+public class CommandRejectedException extends PatternException {
+    
+    private static final long serialVersionUID = -3346121507468104583L;
+    
+    public CommandRejectedException(String message) {
+        super(message);
+    }
+}
@@ -16,14 +16,34 @@
 
 package application.rest.v1.actions;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import application.rest.v1.ComponentInfoRegistry;
+import application.rest.v1.ComponentInfoRegistry.ResourceType;
+import application.rest.v1.KAppNavEndpoint;
+import application.rest.v1.json.JSONPath;
+import application.rest.v1.json.JSONPathParser;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
 
 import com.ibm.kappnav.logging.Logger;
 
 // kubectlGet(<arg1>,<arg2>,etc...)
-// Invokes "kubectl get <arg1> <arg2> etc..."
+// Returns the output of "kubectl get <arg1> <arg2> etc...".
+// The common forms are answered in-process through the ComponentInfoRegistry (and so from the
+// ResourceCache when the kind is cached): <type> <name>, <type>/<name> or <type> with -l/--selector,
+// -n/--namespace, -A/--all-namespaces, and -o json or -o jsonpath=<template>. Anything else,
+// including table output and resource types the registry does not know, invokes kubectl.
 public class KubectlGetFunction extends CommandFunction {
-    
+
     private static final String KUBECTL = "kubectl";
     private static final String GET = "get";
 
@@ -31,7 +51,7 @@ public class KubectlGetFunction extends CommandFunction {
     public String getName() {
         return "kubectlGet";
     }
-    
+
     @Override
     public boolean allowedParameterCount(int parameterCount) {
         return parameterCount > 0;
@@ -39,6 +59,25 @@ public class KubectlGetFunction extends CommandFunction {
 
     @Override
     public String invoke(ResolutionContext context, List<String> parameters) {
+        final Request request = Request.parse(parameters);
+        if (request != null) {
+            try {
+                final String result = request.invoke(context.getApiClient(), context.getComponentInfoRegistry());
+                if (result != null) {
+                    if (Logger.isDebugEnabled()) {
+                        Logger.log(KubectlGetFunction.class.getName(), "invoke", Logger.LogType.DEBUG, "Native result=" + result);
+                    }
+                    return result;
+                }
+            }
+            catch (ApiException e) {
+                if (Logger.isErrorEnabled()) {
+                    Logger.log(KubectlGetFunction.class.getName(), "invoke", Logger.LogType.ERROR, "Caught ApiException " + e.toString());
+                }
+                throw new PatternException("Kubectl get " + parameters + " can not be resolved");
+            }
+        }
+
         final int length = parameters.size();
         final String[] params = parameters.toArray(new String[length]);
         if (Logger.isDebugEnabled()) {
@@ -61,6 +100,8 @@ public class KubectlGetFunction extends CommandFunction {
                 Logger.log(KubectlGetFunction.class.getName(), "invoke", Logger.LogType.DEBUG, "Result=" + result);
             }
             return result;
+        } catch (CommandRejectedException e) {
+            throw e;
         } catch (Exception e) {
             if (Logger.isErrorEnabled()) {
                 Logger.log(KubectlGetFunction.class.getName(), "invoke", Logger.LogType.ERROR, "Caught Exception " + e.toString());
@@ -68,4 +109,259 @@ public class KubectlGetFunction extends CommandFunction {
             throw new PatternException("Kubectl get " + params.toString() + " can not be resolved");
         }
     }
+
+    // The arguments of a "kubectl get" that can be answered without invoking kubectl.
+    static final class Request {
+
+        private static final String JSON_OUTPUT = "json";
+        private static final String JSONPATH_OUTPUT_PREFIX = "jsonpath=";
+
+        final String resource;
+        final String name;
+        final String namespace;
+        final boolean allNamespaces;
+        final String labelSelector;
+        // Null for JSON output, otherwise the segments of the jsonpath template:
+        // literal text (String) and expressions (JSONPath).
+        final List<Object> template;
+
+        private Request(String resource, String name, String namespace, boolean allNamespaces,
+                String labelSelector, List<Object> template) {
+            this.resource = resource;
+            this.name = name;
+            this.namespace = namespace;
+            this.allNamespaces = allNamespaces;
+            this.labelSelector = labelSelector;
+            this.template = template;
+        }
+
+        // Returns null if the arguments use a form or flag that is not supported natively.
+        static Request parse(List<String> parameters) {
+            String resource = null;
+            String name = null;
+            String namespace = null;
+            boolean allNamespaces = false;
+            String labelSelector = null;
+            String output = null;
+            final int size = parameters.size();
+            for (int i = 0; i < size; ++i) {
+                final String p = parameters.get(i);
+                if (p.equals("-n") || p.equals("--namespace")
+                        || p.equals("-l") || p.equals("--selector")
+                        || p.equals("-o") || p.equals("--output")) {
+                    if (++i == size) {
+                        return null;
+                    }
+                    final String value = parameters.get(i);
+                    if (p.equals("-n") || p.equals("--namespace")) {
+                        namespace = value;
+                    }
+                    else if (p.equals("-l") || p.equals("--selector")) {
+                        labelSelector = value;
+                    }
+                    else {
+                        output = value;
+                    }
+                }
+                else if (p.startsWith("--namespace=")) {
+                    namespace = p.substring("--namespace=".length());
+                }
+                else if (p.startsWith("--selector=")) {
+                    labelSelector = p.substring("--selector=".length());
+                }
+                else if (p.startsWith("--output=")) {
+                    output = p.substring("--output=".length());
+                }
+                else if (p.startsWith("-n") && !p.startsWith("--")) {
+                    namespace = p.substring(2);
+                }
+                else if (p.startsWith("-l") && !p.startsWith("--")) {
+                    labelSelector = p.substring(2);
+                }
+                else if (p.startsWith("-o") && !p.startsWith("--")) {
+                    output = p.substring(2);
+                }
+                else if (p.equals("-A") || p.equals("--all-namespaces")) {
+                    allNamespaces = true;
+                }
+                else if (p.startsWith("-")) {
+                    return null;
+                }
+                else if (resource == null) {
+                    final int index = p.indexOf('/');
+                    if (index >= 0) {
+                        resource = p.substring(0, index);
+                        name = p.substring(index + 1);
+                    }
+                    else {
+                        resource = p;
+                    }
+                }
+                else if (name == null) {
+                    name = p;
+                }
+                else {
+                    // Several names.
+                    return null;
+                }
+            }
+            if (resource == null || resource.isEmpty() || resource.indexOf(',') >= 0 || output == null
+                    || (name != null && (name.isEmpty() || name.indexOf('/') >= 0 || labelSelector != null || allNamespaces))
+                    || (namespace != null && namespace.isEmpty())) {
+                return null;
+            }
+            List<Object> template = null;
+            if (!output.equals(JSON_OUTPUT)) {
+                if (!output.startsWith(JSONPATH_OUTPUT_PREFIX)) {
+                    return null;
+                }
+                template = parseTemplate(output.substring(JSONPATH_OUTPUT_PREFIX.length()));
+                if (template == null) {
+                    return null;
+                }
+            }
+            return new Request(resource, name, namespace, allNamespaces, labelSelector, template);
+        }
+
+        // Splits a template such as "{.spec.host}:{.spec.port.targetPort}" into literal text and
+        // expressions. Returns null for constructs such as {range} that are not supported.
+        private static List<Object> parseTemplate(String template) {
+            final List<Object> result = new ArrayList<>();
+            int start = 0;
+            int open;
+            while ((open = template.indexOf('{', start)) >= 0) {
+                final int close = template.indexOf('}', open);
+                if (close < 0) {
+                    return null;
+                }
+                if (open > start) {
+                    result.add(template.substring(start, open));
+                }
+                final String expression = template.substring(open + 1, close).trim();
+                final JSONPath path;
+                if (expression.startsWith(".")) {
+                    path = JSONPathParser.compile("$" + expression);
+                }
+                else if (expression.startsWith("$")) {
+                    path = JSONPathParser.compile(expression);
+                }
+                else {
+                    return null;
+                }
+                if (path == null) {
+                    return null;
+                }
+                result.add(path);
+                start = close + 1;
+            }
+            if (start < template.length()) {
+                result.add(template.substring(start));
+            }
+            return result;
+        }
+
+        // Returns the output of the request, or null if it must be answered by kubectl.
+        String invoke(ApiClient client, ComponentInfoRegistry registry) throws ApiException {
+            final ResourceType type = registry.getResourceType(resource);
+            if (type == null) {
+                return null;
+            }
+            if (name != null) {
+                // Cluster-scoped objects can only be listed through the registry.
+                if (!type.namespaced || namespace == null) {
+                    return null;
+                }
+                final Object o = registry.getNamespacedObject(client, type.kind, type.apiVersion, namespace, name);
+                final JsonObject object = KAppNavEndpoint.getItemAsObject(client, o);
+                if (object == null) {
+                    return null;
+                }
+                return format(setTypeMeta((JsonObject) normalizeNumbers(object), type));
+            }
+            final Object o;
+            if (!type.namespaced || allNamespaces) {
+                o = registry.listClusterObject(client, type.kind, type.apiVersion, null, labelSelector, null, null);
+            }
+            else if (namespace != null) {
+                o = registry.listNamespacedObject(client, type.kind, type.apiVersion, namespace, null, labelSelector, null, null);
+            }
+            else {
+                // The default namespace depends on kubectl's configuration.
+                return null;
+            }
+            // kubectl returns the items in a List, each with its kind and apiVersion.
+            final JsonArray items = new JsonArray();
+            KAppNavEndpoint.getItemsAsList(client, o).forEach(v -> items.add(setTypeMeta((JsonObject) normalizeNumbers(v), type)));
+            final JsonObject metadata = new JsonObject();
+            metadata.addProperty("resourceVersion", "");
+            final JsonObject list = new JsonObject();
+            list.addProperty("apiVersion", "v1");
+            list.add("items", items);
+            list.addProperty("kind", "List");
+            list.add("metadata", metadata);
+            return format(list);
+        }
+
+        // Formats the object as JSON or with the jsonpath template. Like kubectl, the values
+        // selected by an expression are separated by spaces and missing values print nothing.
+        String format(JsonObject o) {
+            if (template == null) {
+                return o.toString();
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (Object segment : template) {
+                if (segment instanceof JSONPath) {
+                    final List<JsonElement> values = ((JSONPath) segment).resolveAll(o);
+                    for (int i = 0; i < values.size(); ++i) {
+                        if (i > 0) {
+                            sb.append(' ');
+                        }
+                        final JsonElement value = values.get(i);
+                        sb.append(value.isJsonPrimitive() ? value.getAsString() : value.toString());
+                    }
+                }
+                else {
+                    sb.append(segment);
+                }
+            }
+            return sb.toString();
+        }
+
+        // Objects returned by the CustomObjectsApi are converted from maps in which Gson reads every
+        // number as a double, so 3 would print as 3.0. Prints whole numbers without a fraction, as
+        // kubectl does and as they are in the objects parsed from the ResourceCache's watch events.
+        // Only the double values are replaced, so shared cached objects are left as they are.
+        static JsonElement normalizeNumbers(JsonElement e) {
+            if (e.isJsonObject()) {
+                for (Map.Entry<String,JsonElement> entry : e.getAsJsonObject().entrySet()) {
+                    entry.setValue(normalizeNumbers(entry.getValue()));
+                }
+            }
+            else if (e.isJsonArray()) {
+                final JsonArray array = e.getAsJsonArray();
+                for (int i = 0; i < array.size(); ++i) {
+                    array.set(i, normalizeNumbers(array.get(i)));
+                }
+            }
+            else if (e.isJsonPrimitive() && e.getAsJsonPrimitive().isNumber()) {
+                final Number n = e.getAsNumber();
+                if ((n instanceof Double || n instanceof Float) && !Double.isInfinite(n.doubleValue())
+                        && n.doubleValue() == Math.rint(n.doubleValue())) {
+                    return new JsonPrimitive(BigDecimal.valueOf(n.doubleValue()).toBigInteger());
+                }
+            }
+            return e;
+        }
+
+        // Objects returned by the typed APIs do not always include their kind and apiVersion.
+        private static JsonObject setTypeMeta(JsonObject o, ResourceType type) {
+            if (!o.has("apiVersion")) {
+                o.addProperty("apiVersion", type.apiVersion.startsWith("/") ? type.apiVersion.substring(1) : type.apiVersion);
+            }
+            if (!o.has("kind")) {
+                o.addProperty("kind", type.kind);
+            }
+            return o;
+        }
+    }
 }
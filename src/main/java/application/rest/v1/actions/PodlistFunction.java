@@ -16,10 +16,11 @@
 
 package application.rest.v1.actions;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import application.rest.v1.ComponentInfoRegistry;
@@ -41,7 +42,6 @@ public class PodlistFunction implements Function {
     private static final String DEPLOYMENT_KIND = "Deployment";
     private static final String POD_KIND = "Pod";
     private static final String POD_APIVERSION = "/v1"; // means group="", version=v1
-    private static final String METADATA_PROPERTY_NAME = "metadata";
 
     @Override
     public String getName() {
@@ -78,7 +78,7 @@ public class PodlistFunction implements Function {
             final String namespace = parameters.get(0);
             final String name = parameters.get(1);
             try {
-                Object o = registry.getNamespacedObject(client, DEPLOYMENT_KIND, namespace, name, "");
+                Object o = registry.getNamespacedObject(client, DEPLOYMENT_KIND, "", namespace, name);
                 resource = KAppNavEndpoint.getItemAsObject(client, o);
             }
             catch (ApiException e) {
@@ -93,82 +93,49 @@ public class PodlistFunction implements Function {
      
     private String getPodListFromDeployment(ApiClient client, JsonObject resource, ComponentInfoRegistry registry) {
         PodlistResult result = new PodlistResult();   
-        //retrieve deployment namespace from the resource
-        String deplNamespace = getNameSpaceFromResource(resource);
+        addPods(client, registry, resource, result);
+        if (Logger.isDebugEnabled()) {
+            Logger.log(className, "getPodListFromDeployment", Logger.LogType.DEBUG, "Result=" + result.getJSON());
+        }
+        return result.getJSON();
+    }
 
-        // Retrieve the pods for the deployment.
-        final Selector selector = Selector.getSelector(resource);
-        if (!selector.isEmpty()) {
-            final String labelSelector = selector.toString();
+    // Adds the names of the pods selected by the deployment. The pods are listed from the
+    // deployment's namespace, from the ResourceCache's label index when the pods are cached.
+    static void addPods(ApiClient client, ComponentInfoRegistry registry, JsonObject deployment, PodlistResult result) {
+        //retrieve deployment namespace from the resource
+        final String deplNamespace = KAppNavEndpoint.getComponentNamespace(deployment);
+        final Selector selector = Selector.getSelector(deployment);
+        if (deplNamespace != null && !selector.isEmpty()) {
             try {
-                Object o = registry.listClusterObject(client, POD_KIND, POD_APIVERSION, null, labelSelector, null, null);
-                List<JsonObject> items = KAppNavEndpoint.getItemsAsList(client, o);
-                
-                items.forEach(v -> {
-                    JsonElement element = v.get(METADATA_PROPERTY_NAME);
-                    if (element != null && element.isJsonObject()) {
-                        JsonObject metadata = element.getAsJsonObject();
-                        //find pod's namespace matching with deployment's namespace 
-                        JsonElement pNamespace  = metadata.get("namespace");
-                        if (pNamespace!= null && pNamespace.isJsonPrimitive()) {                                           
-                            if (pNamespace.getAsString().equals(deplNamespace)) {
-                                //get pod name  
-                                JsonElement pName  = metadata.get("name");
-                                if (pName!= null && pName.isJsonPrimitive()) {
-                                    result.add(pName.getAsString());
-                                }
-                            }    
-                        }                           
-                    }
-                });               
+                registry.listNamespacedObjectNames(client, POD_KIND, POD_APIVERSION, deplNamespace, selector.toString()).forEach(result::add);
             }
             catch (ApiException e) {
                 if (Logger.isDebugEnabled()) {
-                    Logger.log(className, "getPodListFromDeployment", Logger.LogType.DEBUG, "Caught ApiException " + e.toString());
+                    Logger.log(className, "addPods", Logger.LogType.DEBUG, "Caught ApiException " + e.toString());
                 }
             }
         }
-        if (Logger.isDebugEnabled()) {
-            Logger.log(className, "getPodListFromDeployment", Logger.LogType.DEBUG, "Result=" + result.getJSON());
-        }
-        return result.getJSON();
     }
 
-    private String getNameSpaceFromResource(JsonObject resource) {
-        if (Logger.isEntryEnabled()) {
-            Logger.log(className, "getNameSpaceFromResource", Logger.LogType.ENTRY, "For resource="+ resource.toString());
-        }
-        
-        String deplnamespace = null;
-        JsonElement element = resource.get(METADATA_PROPERTY_NAME);
-        if (element != null && element.isJsonObject()) {
-            JsonObject metadata = element.getAsJsonObject();                                                                                          
-            JsonElement namespace  = metadata.get("namespace");
-            if (namespace!= null && namespace.isJsonPrimitive()) {
-                deplnamespace = namespace.getAsString();
-            }
-        }
-        if (Logger.isExitEnabled()) {
-            Logger.log(className, "getNameSpaceFromResource", Logger.LogType.EXIT, "Result=" + deplnamespace);
-        }
-        return deplnamespace;
-    }
-    
     static final class PodlistResult {
-        private final JsonObject o;
-        private final JsonArray pods;
+        // Pod names in the order they were added, without duplicates.
+        private final Set<String> pods = new LinkedHashSet<>();
         // Constructs:
         // {
         //   pods: [ <name1>, <name2>, ... ]
         // } 
-        public PodlistResult() {
-            o = new JsonObject();
-            o.add(PODS_PROPERTY_NAME, pods = new JsonArray());
-        }
         public void add(final String name) {
             pods.add(name);
         }
+        public int size() {
+            return pods.size();
+        }
         public String getJSON() {
+            final JsonArray array = new JsonArray();
+            pods.forEach(array::add);
+            final JsonObject o = new JsonObject();
+            o.add(PODS_PROPERTY_NAME, array);
             return o.toString();
         }
     }
@@ -25,9 +25,6 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import javax.script.Invocable;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import com.google.gson.JsonArray;
@@ -39,6 +36,7 @@ import com.ibm.kappnav.logging.Logger;
 
 import application.rest.v1.ComponentInfoRegistry;
 import application.rest.v1.KAppNavConfig;
+import application.rest.v1.SnippetEngine;
 import application.rest.v1.configmaps.ConfigMapCache;
 import application.rest.v1.configmaps.ConfigMapProcessor;
 import io.kubernetes.client.openapi.ApiClient;
@@ -502,12 +500,8 @@ public final class ResolutionContext {
             throw new PatternException("no function found in the snippet " + snippet);
         }
         // Invoke the snippet using the built-in JavaScript engine.
-        ScriptEngineManager sce = new ScriptEngineManager();
-        ScriptEngine se = sce.getEngineByName("JavaScript");
         try {
-            se.eval(snippet);
-            Invocable inv = (Invocable) se; // This cast should never fail.
-            Object o = inv.invokeFunction(functionName, (Object[]) parameters.toArray());
+            Object o = SnippetEngine.invokeFunction(snippet, functionName, (Object[]) parameters.toArray());
             if (o != null) {
                 if (Logger.isExitEnabled()) {
                     Logger.log(className, "invokeSnippet", Logger.LogType.EXIT, o.toString());
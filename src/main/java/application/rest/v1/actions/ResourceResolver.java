@@ -21,7 +21,7 @@ import application.rest.v1.json.JSONPathParser;
 
 import com.ibm.kappnav.logging.Logger;
 
-// ${resource.<json-path>} (only supports child-axis; dot and bracket notation)
+// ${resource.<json-path>} (supports child-axis, array indexes, wildcards and filters)
 public final class ResourceResolver implements Resolver {
     
     @Override
@@ -34,8 +34,7 @@ public final class ResourceResolver implements Resolver {
         if (Logger.isDebugEnabled()) {
             Logger.log(ResourceResolver.class.getName(), "resolve", Logger.LogType.DEBUG, "For suffix=" + suffix);
         }
-        final JSONPathParser parser = new JSONPathParser();
-        final JSONPath path = parser.parse(suffix);
+        final JSONPath path = JSONPathParser.compile(suffix);
         if (path != null) {
             return path.resolveLeaf(context.getResource());
         } else {
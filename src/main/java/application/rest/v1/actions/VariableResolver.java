@@ -83,11 +83,12 @@ public class VariableResolver implements Resolver {
                 }
             } 
             /* If can't resolve, check if there is a default value
-               to return. If not, re-throw exception. */
+               to return. If not, re-throw exception. A busy server
+               is reported rather than hidden behind the default value. */
             catch(PatternException e) { 
-                if ( defaultValue == null ) { 
+                if ( defaultValue == null || e instanceof CommandRejectedException ) { 
                     if (Logger.isErrorEnabled()) {
-                        Logger.log(VariableResolver.class.getName(), "resolve", Logger.LogType.ERROR, suffix + "Default value is null and caught PatternException " + e.toString());
+                        Logger.log(VariableResolver.class.getName(), "resolve", Logger.LogType.ERROR, suffix + "Default value is null or the server is busy and caught PatternException " + e.toString());
                     }
                     throw e; 
                 } 
@@ -19,9 +19,14 @@ package application.rest.v1.configmaps;
 import java.lang.ref.SoftReference;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.xml.namespace.QName;
@@ -33,6 +38,7 @@ import com.ibm.kappnav.logging.Logger;
 
 import application.rest.v1.KAppNavConfig;
 import application.rest.v1.MatchExpression;
+import application.rest.v1.Metrics;
 import application.rest.v1.Selector;
 import application.rest.v1.Watcher;
 import application.rest.v1.MatchExpression.Operator;
@@ -59,13 +65,31 @@ public class ConfigMapCache {
 
     private static final String KAPPNAV_NAMESPACE = KAppNavConfig.getkAppNavNamespace();
 
+    // Page size used when the ConfigMaps are listed from the Kube API.
+    private static final int LIST_PAGE_SIZE = 500;
+
     // AtomicReference containing the current instance of the ConfigMap cache or null if there is no cache available.
     // The map uses QNames as keys to represent the name and namespace pair identifying a ConfigMap.
     // The map uses SoftReferences as values to allow GC to reclaim the ConfigMaps if required to keep the JVM from running out of memory.
     private static final AtomicReference<Map<QName,SoftReference<V1ConfigMap>>> MAP_CACHE_REF = new AtomicReference<>(null);
 
-    // This Special value used to represent null. A ConcurrentHashMap cannot directly store null values.
-    private static final SoftReference<V1ConfigMap> NULL_REFERENCE = new SoftReference<>(null);
+    // Negative entries, and entries for ConfigMaps without the kappnav.io/map-type label, are kept for this
+    // long. Those ConfigMaps are not watched so the cache would not otherwise notice when they change.
+    private static final String NOT_FOUND_TTL_PROPERTY = "kappnav.configmap.cache.not.found.ttl.seconds";
+    private static final long DEFAULT_NOT_FOUND_TTL_SECONDS = 300L;
+    private static final long NOT_FOUND_TTL_MILLIS = TimeUnit.SECONDS.toMillis(
+            KAppNavConfig.getLongSetting(NOT_FOUND_TTL_PROPERTY, DEFAULT_NOT_FOUND_TTL_SECONDS));
+
+    // Cache statistics.
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+
+    // True while the watch is down and the cache may be missing recent changes.
+    private static volatile boolean stale = false;
+
+    // Incremented whenever the contents of the cache may have changed. Used by MergedConfigMapCache.
+    private static final AtomicLong GENERATION = new AtomicLong();
 
     // Synchronization lock used for waking up the "kAppNav ConfigMap Watcher" thread.
     private static final Object LOCK;
@@ -73,6 +97,43 @@ public class ConfigMapCache {
     // Name of the watcher thread.
     private static final String WATCHER_THREAD_NAME = "kAppNav ConfigMap Watcher";
 
+    // Status code of a ConfigMap that doesn't exist. Only those are cached as negative entries.
+    private static final int HTTP_STATUS_CODE_NOT_FOUND = 404;
+
+    // For junit only
+    private static CoreV1Api cv1a = null;
+    static void setCoreV1ApiForJunit(CoreV1Api cv1ainput) {
+        cv1a = cv1ainput;
+    }
+
+    private static CoreV1Api getCoreV1ApiForInternal() {
+        if (cv1a == null) {
+            return new CoreV1Api();
+        } else {
+            return cv1a;
+        }
+    }
+
+    // For junit only. Replaces the cache with an empty one, as if the ConfigMaps had been listed,
+    // or removes it, as if the watch had been reset.
+    public static void setCachedForJunit(boolean cached) {
+        MAP_CACHE_REF.set(cached ? new ConcurrentHashMap<>() : null);
+        GENERATION.incrementAndGet();
+    }
+
+    // For junit only. Clears the soft references in the cache, as the garbage collector would.
+    static void clearReferencesForJunit() {
+        final Map<QName,SoftReference<V1ConfigMap>> mapCache = MAP_CACHE_REF.get();
+        if (mapCache != null) {
+            mapCache.values().forEach(SoftReference::clear);
+        }
+    }
+
+    // For junit only. Processes a watch event.
+    static void processEventForJunit(String type, V1ConfigMap object) {
+        processConfigMapEvent(type, object);
+    }
+
     static {
         LOCK = Watcher.start(new Watcher.Handler<V1ConfigMap>() {
 
@@ -85,9 +146,25 @@ public class ConfigMapCache {
                 final CoreV1Api api = new CoreV1Api();
                 api.setApiClient(client);
                 final Selector selector = getSelector();
-                final V1ConfigMapList list = api.listConfigMapForAllNamespaces(false, null, null, selector.toString(), 60, null, null, null, 60, false);
-                resourceVersion.set(list.getMetadata().getResourceVersion());
-                return list.getItems();
+                // Follow the continue tokens so that the list is complete. The resource version
+                // of the first page is the one the watch resumes from.
+                final List<V1ConfigMap> items = new ArrayList<>();
+                String cont = null;
+                do {
+                    final V1ConfigMapList list = api.listConfigMapForAllNamespaces(false, cont, null, selector.toString(), LIST_PAGE_SIZE, null, null, null, 60, false);
+                    if (cont == null) {
+                        resourceVersion.set(list.getMetadata().getResourceVersion());
+                    }
+                    items.addAll(list.getItems());
+                    cont = list.getMetadata().getContinue();
+                }
+                while (cont != null && !cont.isEmpty());
+                // The listed ConfigMaps are added to a new cache as ADDED events, or only the changes are
+                // applied to the existing cache if the resources are being listed again.
+                if (MAP_CACHE_REF.compareAndSet(null, new ConcurrentHashMap<>())) {
+                    GENERATION.incrementAndGet();
+                }
+                return items;
             }
 
             @Override
@@ -96,7 +173,7 @@ public class ConfigMapCache {
                 api.setApiClient(client);
                 final Selector selector = getSelector();
                 final ApiCallback callBack = null;
-                return api.listConfigMapForAllNamespacesCall(false, null, null, selector.toString(), 60, null, resourceVersion, null, 60, Boolean.TRUE, callBack);
+                return api.listConfigMapForAllNamespacesCall(true, null, null, selector.toString(), 60, null, resourceVersion, null, 60, Boolean.TRUE, callBack);
             }
             
             @SuppressWarnings("serial")
@@ -107,19 +184,39 @@ public class ConfigMapCache {
 
             @Override
             public void processResponse(ApiClient client, String type, V1ConfigMap object) {
-                // Invalidate the cache if any changes are made to the ConfigMaps under watch.
-                MAP_CACHE_REF.set(new ConcurrentHashMap<>());
-                if (Logger.isDebugEnabled()) {
-                    V1ObjectMeta meta = object.getMetadata();
-                    Logger.log(getClass().getName(), "processResponse", Logger.LogType.DEBUG, "ConfigMap Cache invalidated due to ConfigMap change event :: Type: " 
-                            + type + " :: Name: " + meta.getName() + " :: Namespace: " + meta.getNamespace());
+                processConfigMapEvent(type, object);
+            }
+
+            @Override
+            public Set<String> getKeys() {
+                // ConfigMaps read from the cluster by getConfigMap(). Those in expiring entries aren't
+                // watched, or weren't found, so they are never in the list.
+                final Map<QName,SoftReference<V1ConfigMap>> mapCache = MAP_CACHE_REF.get();
+                if (mapCache == null) {
+                    return Collections.emptySet();
                 }
+                final Set<String> keys = new HashSet<>();
+                mapCache.forEach((k, v) -> {
+                    if (!(v instanceof ExpiringReference)) {
+                        keys.add(Watcher.getKey(k.getNamespaceURI(), k.getLocalPart()));
+                    }
+                });
+                return keys;
+            }
+
+            @Override
+            public void setStale(boolean stale) {
+                ConfigMapCache.stale = stale;
             }
 
             @Override
             public void reset(ApiClient client) {
-                // If the watch stops or fails delete the cache.
-                MAP_CACHE_REF.set(null);
+                // The watch can't be resumed, or has stopped. Delete the cache.
+                final Map<QName,SoftReference<V1ConfigMap>> mapCache = MAP_CACHE_REF.getAndSet(null);
+                GENERATION.incrementAndGet();
+                if (mapCache != null) {
+                    EVICTIONS.addAndGet(mapCache.size());
+                }
             }
             
             private Selector getSelector() {
@@ -129,6 +226,78 @@ public class ConfigMapCache {
                 return selector;
             }
         });
+        Metrics.registerCache("configmap", ConfigMapCache::getHitCount, ConfigMapCache::getMissCount, ConfigMapCache::getSize);
+    }
+
+    // Updates the entry for the ConfigMap in place. Other entries are unaffected.
+    private static void processConfigMapEvent(String type, V1ConfigMap object) {
+        final V1ObjectMeta meta = object.getMetadata();
+        if (meta == null) {
+            return;
+        }
+        Map<QName,SoftReference<V1ConfigMap>> mapCache = MAP_CACHE_REF.get();
+        if (mapCache == null) {
+            MAP_CACHE_REF.compareAndSet(null, new ConcurrentHashMap<>());
+            mapCache = MAP_CACHE_REF.get();
+        }
+        final QName tuple = new QName(meta.getNamespace(), meta.getName());
+        switch (type) {
+            case "ADDED":
+            case "MODIFIED":
+                // Replaces the previous copy or a negative entry.
+                mapCache.put(tuple, new SoftReference<>(object));
+                break;
+            case "DELETED":
+                final SoftReference<V1ConfigMap> previous = mapCache.remove(tuple);
+                if (previous != null && previous.get() != null) {
+                    EVICTIONS.incrementAndGet();
+                }
+                break;
+            default:
+                return;
+        }
+        GENERATION.incrementAndGet();
+        if (Logger.isDebugEnabled()) {
+            Logger.log(CLASS_NAME, "processConfigMapEvent", Logger.LogType.DEBUG, "ConfigMap cache updated due to ConfigMap change event :: Type: " 
+                    + type + " :: Name: " + meta.getName() + " :: Namespace: " + meta.getNamespace());
+        }
+    }
+
+    // Returns the number of lookups answered from the cache, including negative entries.
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    // Returns the number of lookups that had to read the ConfigMap from the cluster.
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    // Returns the number of entries dropped from the cache, by watch events, by the
+    // garbage collector clearing a soft reference or by the watch being reset.
+    public static long getEvictionCount() {
+        return EVICTIONS.get();
+    }
+
+    /**
+     * Returns the generation of the cache, which changes whenever a cached ConfigMap
+     * may have changed, or -1 if the cache isn't available and changes aren't tracked.
+     */
+    public static long getGeneration() {
+        final long generation = GENERATION.get();
+        return (MAP_CACHE_REF.get() != null) ? generation : -1L;
+    }
+
+    /**
+     * Returns true if the cache is being served while its watch is down, so it may be missing recent changes.
+     */
+    public static boolean isStale() {
+        return stale;
+    }
+
+    public static int getSize() {
+        final Map<QName,SoftReference<V1ConfigMap>> mapCache = MAP_CACHE_REF.get();
+        return (mapCache != null) ? mapCache.size() : 0;
     }
 
     public static ArrayList <JsonObject> getConfigMapsAsJSON(ApiClient client, ArrayList<QName> configMapsList) {
@@ -168,20 +337,32 @@ public class ConfigMapCache {
         QName tuple = new QName(namespace, name);
         Map<QName,SoftReference<V1ConfigMap>> mapCache = MAP_CACHE_REF.get();
         if (mapCache != null) {
-            if (mapCache.containsKey(tuple)) {
-                SoftReference<V1ConfigMap> ref = mapCache.get(tuple);
+            final SoftReference<V1ConfigMap> ref = mapCache.get(tuple);
+            if (ref != null) {
+                final boolean expiring = ref instanceof ExpiringReference;
+                final boolean expired = expiring && ((ExpiringReference) ref).isExpired();
+                final boolean negative = expiring && ((ExpiringReference) ref).isNegative();
                 V1ConfigMap map = ref.get();
-                if (map != null || ref == NULL_REFERENCE) {
+                // A positive entry whose referent was cleared by the garbage collector is a miss.
+                if (!expired && (map != null || negative)) {
+                    HITS.incrementAndGet();
                     if (Logger.isExitEnabled()) 
                     Logger.log(CLASS_NAME, "getConfigMap", Logger.LogType.EXIT, 
                                "name = " + name + " in namespace " + namespace + " is found in the cache.");
 
                     return map;
                 }
+                // Drop the cleared or expired entry unless it has been replaced in the meantime.
+                if (mapCache.remove(tuple, ref)) {
+                    EVICTIONS.incrementAndGet();
+                    // An expired ConfigMap isn't watched so it may have changed since it was cached, and
+                    // merged maps built while a cleared entry was being missed may have left it out.
+                    GENERATION.incrementAndGet();
+                }
                 if (Logger.isDebugEnabled()) {
                     Logger.log(CLASS_NAME, "getConfigMap", Logger.LogType.DEBUG, 
                             "The entry in the cache for ConfigMap, Name: " + name + ", Namespace: " 
-                                    + namespace + " was garbage collected. Attempting to refresh the value from the cluster.");
+                                    + namespace + (expired ? " expired." : " was garbage collected.") + " Attempting to refresh the value from the cluster.");
                 }
             }
         }
@@ -194,12 +375,15 @@ public class ConfigMapCache {
                 Logger.log(CLASS_NAME, "getConfigMap", Logger.LogType.DEBUG, 
                         "No ConfigMap cache available. Notify thread (" + WATCHER_THREAD_NAME + ") to awaken and re-establish the cache.");
         }
+        MISSES.incrementAndGet();
         try {
-            CoreV1Api api = new CoreV1Api();
+            CoreV1Api api = getCoreV1ApiForInternal();
             api.setApiClient(client);
             V1ConfigMap map = api.readNamespacedConfigMap(name, namespace, null, null, null);
 
             // issue warning if kappnav.io/map-type label is not set
+            final V1ObjectMeta meta = map.getMetadata();
+            final boolean watched = meta != null && meta.getLabels() != null && meta.getLabels().containsKey("kappnav.io/map-type");
             if (Logger.isWarningEnabled()) {
                 V1ObjectMeta metadata = map.getMetadata();
                 if (metadata != null) {
@@ -220,7 +404,8 @@ public class ConfigMapCache {
             }
 
             if (mapCache != null) {
-                mapCache.put(tuple, new SoftReference<>(map));
+                // Don't overwrite a newer copy stored by the watcher.
+                mapCache.putIfAbsent(tuple, watched ? new SoftReference<>(map) : new ExpiringReference(map, false));
                 if (Logger.isDebugEnabled()) 
                     Logger.log(CLASS_NAME, "getConfigMap", Logger.LogType.DEBUG, 
                             "Found ConfigMap, Name: " + name + ", Namespace: " 
@@ -234,12 +419,19 @@ public class ConfigMapCache {
         }
         catch (ApiException e) {
             if (Logger.isDebugEnabled()) 
-                Logger.log(CLASS_NAME, "getConfigMap", Logger.LogType.DEBUG, "Caught ApiException: " + e.toString());
+                Logger.log(CLASS_NAME, "getConfigMap", Logger.LogType.DEBUG, "Caught ApiException: " + e.toString() + ", code=" + e.getCode());
+            if (e.getCode() != HTTP_STATUS_CODE_NOT_FOUND) {
+                // The ConfigMap may exist. Don't cache the failure.
+                if (Logger.isExitEnabled())
+                    Logger.log(CLASS_NAME, "getConfigMap", Logger.LogType.EXIT, 
+                               "Return null as the configmap " + name + " could not be read from " + namespace);
+                return null;
+            }
         }
 
-        // No ConfigMap. Store null reference in the cache.
+        // No ConfigMap. Store a negative entry in the cache unless the watcher has added the ConfigMap in the meantime.
         if (mapCache != null) {
-            mapCache.put(tuple, NULL_REFERENCE);
+            mapCache.putIfAbsent(tuple, new ExpiringReference(null, true));
             if (Logger.isDebugEnabled()) 
                 Logger.log(CLASS_NAME, "getConfigMap", Logger.LogType.DEBUG, 
                         "ConfigMap, Name: " + name + ", Namespace: " 
@@ -251,4 +443,22 @@ public class ConfigMapCache {
 
         return null;
     }
+
+    // Cache entry for a ConfigMap that isn't watched, or a negative entry for one that wasn't found.
+    // A ConcurrentHashMap cannot directly store null values. The referent of a negative entry is null;
+    // that of a positive entry only becomes null if it's cleared by the garbage collector.
+    private static final class ExpiringReference extends SoftReference<V1ConfigMap> {
+        private final long expiry = System.currentTimeMillis() + NOT_FOUND_TTL_MILLIS;
+        private final boolean negative;
+        ExpiringReference(V1ConfigMap map, boolean negative) {
+            super(map);
+            this.negative = negative;
+        }
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiry;
+        }
+        boolean isNegative() {
+            return negative;
+        }
+    }
 }
@@ -65,6 +65,15 @@ public class ConfigMapProcessor {
         if (Logger.isEntryEnabled()) 
             Logger.log(className, "getConfigMap", Logger.LogType.ENTRY, "ConfigMapType = " + type.toString());
 
+        JsonObject configMapFound = MergedConfigMapCache.getConfigMap(MergedConfigMapCache.getKey(type, component),
+                () -> resolveConfigMap(client, component, type));
+        if (Logger.isExitEnabled()) 
+            Logger.log(className, "getConfigMap", Logger.LogType.EXIT, "configMap found = " + configMapFound);
+        return configMapFound;
+    }
+
+    private JsonObject resolveConfigMap(ApiClient client, JsonObject component, ConfigMapType type) {
+
         final ConfigMapBuilder builder = type == ConfigMapType.ACTION ? new ActionConfigMapBuilder() : new StatusMappingConfigMapBuilder();   
         final String namespace = KAppNavEndpoint.getComponentNamespace(component);        
         final String kind = KAppNavEndpoint.getComponentKind(component);
@@ -109,10 +118,7 @@ public class ConfigMapProcessor {
             
         }
 
-        JsonObject configMapFound = builder.getConfigMap();
-        if (Logger.isExitEnabled()) 
-            Logger.log(className, "getConfigMap", Logger.LogType.EXIT, "configMap found = " + configMapFound);
-        return configMapFound;
+        return builder.getConfigMap();
     }
 
     /**
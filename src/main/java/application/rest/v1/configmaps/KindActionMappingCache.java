@@ -27,6 +27,7 @@ import com.google.gson.JsonObject;
 import com.ibm.kappnav.logging.Logger;
 
 import application.rest.v1.KAppNavEndpoint;
+import application.rest.v1.Metrics;
 import application.rest.v1.Watcher;
 import io.kubernetes.client.openapi.ApiClient;
 import io.kubernetes.client.openapi.ApiException;
@@ -72,6 +73,12 @@ public class KindActionMappingCache {
     // Mod count.
     private static final AtomicLong MOD_COUNT = new AtomicLong(0);
 
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    // True while the watch is down and the cache may be missing recent changes.
+    private static volatile boolean stale = false;
+
     static class KAMCache {
         private volatile List<JsonObject> kamCacheList;
         private final long modCount;
@@ -110,8 +117,8 @@ public class KindActionMappingCache {
                             KAM_GROUP + "\n version = " + KAM_VERSION + "\n plural = " + KAM_PLURAL);
                 }
 
-                Object kamCRs = coa.listClusterCustomObject(KAM_GROUP, KAM_VERSION, KAM_PLURAL, null, null, null, null, 60, null, 60, false);         
-                return Watcher.processCustomObjectsApiList(client, kamCRs, resourceVersion);
+                return Watcher.processCustomObjectsApiList(client, cont ->
+                    coa.listClusterCustomObject(KAM_GROUP, KAM_VERSION, KAM_PLURAL, null, cont, null, null, 60, null, 60, false), resourceVersion);
             }
 
             @Override
@@ -152,20 +159,42 @@ public class KindActionMappingCache {
                 }
             }
 
+            @Override
+            public void setStale(boolean stale) {
+                KindActionMappingCache.stale = stale;
+            }
+
             @Override
             public void reset(ApiClient client) {
-                // If the watch stops or fails delete the cache.
+                // The watch can't be resumed, or has stopped. Delete the cache.
                 KAM_WATCHER_REF.set(null);
                 KAM_CACHE_REF.set(null);
                 updateModCount();
             }
         });
+        Metrics.registerCache("kindactionmapping", KindActionMappingCache::getHitCount,
+                KindActionMappingCache::getMissCount, KindActionMappingCache::getSize);
+    }
+
+    // For junit only. Marks the kam watcher as running, so changes are tracked, or as stopped.
+    public static void setWatchingForJunit(boolean watching) {
+        KAM_WATCHER_REF.set(watching ? new Object() : null);
+        updateModCount();
     }
 
     public static long updateModCount() {
         return MOD_COUNT.incrementAndGet();
     }
 
+    /**
+     * Returns the current mod count, or -1 if the kam watcher isn't running and
+     * changes to KindActionMapping custom resources aren't being tracked.
+     */
+    public static long getModCount() {
+        final long modCount = MOD_COUNT.get();
+        return (KAM_WATCHER_REF.get() != null) ? modCount : -1L;
+    }
+
     /**
      * Get all "KindActionMapping" custom resources in the kam cache. If the cache is not available yet,
      * set it up and populate it with kams retrieved from the cluster.
@@ -190,12 +219,14 @@ public class KindActionMappingCache {
                         Logger.log(CLASS_NAME,methodName, Logger.LogType.DEBUG, 
                                    "Returning cached KindActionMapping list for all namespaces.");
                     }
+                    HITS.incrementAndGet();
                     kamList = kamCacheList;
                 } 
             } 
 
             // No cached value. Retrieve the list directly from the cluster and cache it. 
             if (kamList == null) {                             
+                MISSES.incrementAndGet();
                 List<JsonObject> kams = listKAMCustomResourcesFromCluster(client);
                 if (kams != null ) {
                     final long modCount = MOD_COUNT.get();
@@ -217,6 +248,7 @@ public class KindActionMappingCache {
                 Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG, 
                         "No KAM cache available. Notify thread (" + WATCHER_THREAD_NAME + 
                         ") to awaken and re-establish the cache and retrieve kams from the cluster.");
+            MISSES.incrementAndGet();
             List<JsonObject> kams = listKAMCustomResourcesFromCluster(client);
             if (kams != null)
                 kamList = Collections.unmodifiableList(kams);
@@ -227,6 +259,28 @@ public class KindActionMappingCache {
         return kamList;  
     }
 
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    /**
+     * Returns true if the cache is being served while its watch is down, so it may be missing recent changes.
+     */
+    public static boolean isStale() {
+        return stale;
+    }
+
+    // Returns the number of KindActionMappings in the cached list.
+    public static int getSize() {
+        final KAMCache kamCacheObj = KAM_CACHE_REF.get();
+        final List<JsonObject> kamCacheList = (kamCacheObj != null) ? kamCacheObj.kamCacheList : null;
+        return (kamCacheList != null) ? kamCacheList.size() : 0;
+    }
+
     /**
      * Retrieve all "KindActionMapping" custom resources in a cluster
      * 
@@ -245,8 +299,8 @@ public class KindActionMappingCache {
                        KAM_GROUP + "\n version = " + KAM_VERSION + "\n plural = " + KAM_PLURAL);
         }
 
-        Object kamResource = coa.listClusterCustomObject(KAM_GROUP, KAM_VERSION, KAM_PLURAL, null, null, 
-                             null, null, 60, null, 60, false);                     
+        final Object kamResource = Watcher.listAllPages(client, cont ->
+            coa.listClusterCustomObject(KAM_GROUP, KAM_VERSION, KAM_PLURAL, null, cont, null, null, 60, null, 60, false));
         return KAppNavEndpoint.getItemAsList(client, kamResource);
     }
 }
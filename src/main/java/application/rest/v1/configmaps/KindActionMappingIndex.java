@@ -0,0 +1,295 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.configmaps;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.ibm.kappnav.logging.Logger;
+
+import application.rest.v1.configmaps.ConfigMapProcessor.ConfigMapType;
+
+/**
+ * Precompiled mapping rules of the KindActionMapping custom resources. The rules are
+ * parsed once per KAM list and grouped by configmap type, kind and apiVersion so that
+ * a lookup only visits the rules that can possibly match a resource. Rules with a
+ * wildcard kind or apiVersion are kept in separate buckets that every lookup visits.
+ *
+ * The KAM list returned by KindActionMappingCache is replaced whenever its mod count
+ * changes, so the index is rebuilt when a different list is passed to get().
+ */
+final class KindActionMappingIndex {
+
+    private static final String CLASS_NAME = KindActionMappingIndex.class.getName();
+
+    private static final String WILDCARD = "*";
+
+    static final int MAX_PRECEDENCE = 9;
+
+    private static final String ITEMS_PROPERTY_NAME = "items";
+    private static final String SPEC_PROPERTY_NAME = "spec";
+    private static final String PRECEDENCE_PROPERTY_NAME = "precedence";
+    private static final String MAPPINGS_PROPERTY_NAME = "mappings";
+    private static final String STATUS_MAPPINGS_PROPERTY_NAME = "statusMappings";
+    private static final String SECTION_MAPPINGS_PROPERTY_NAME = "sectionMappings";
+    private static final String APIVERSION_PROPERTY_NAME = "apiVersion";
+    private static final String OWNER_PROPERTY_NAME = "owner";
+    private static final String UID_PROPERTY_NAME = "uid";
+    private static final String NAME_PROPERTY_NAME = "name";
+    private static final String SUBKIND_PROPERTY_NAME = "subkind";
+    private static final String KIND_PROPERTY_NAME = "kind";
+    private static final String MAPNAME_PROPERTY_NAME = "mapname";
+
+    // Index of the most recently seen KAM list.
+    private static final AtomicReference<KindActionMappingIndex> INDEX_REF = new AtomicReference<>(null);
+
+    /**
+     * A compiled mapping rule.
+     */
+    static final class Rule {
+        // Position of the rule in the KAM list. Rules of the same precedence are applied in this order.
+        final int order;
+        final int precedenceIndex;
+        final String kamNamespace;
+        final String apiVersion;
+        final String ownerKind;
+        final String ownerAPI;
+        final String ownerUID;
+        final String name;
+        final String subkind;
+        final String kind;
+        final String mapname;
+
+        Rule(int order, int precedenceIndex, String kamNamespace, String apiVersion, String ownerKind, String ownerAPI,
+                String ownerUID, String name, String subkind, String kind, String mapname) {
+            this.order = order;
+            this.precedenceIndex = precedenceIndex;
+            this.kamNamespace = kamNamespace;
+            this.apiVersion = apiVersion;
+            this.ownerKind = ownerKind;
+            this.ownerAPI = ownerAPI;
+            this.ownerUID = ownerUID;
+            this.name = name;
+            this.subkind = subkind;
+            this.kind = kind;
+            this.mapname = mapname;
+        }
+    }
+
+    // Rules for a single kind (or the wildcard kind).
+    private static final class KindBucket {
+        // Rules keyed by their exact apiVersion.
+        private final Map<String,List<Rule>> byApiVersion = new HashMap<>();
+        // Rules whose apiVersion contains a wildcard.
+        private final List<Rule> wildcardApiVersion = new ArrayList<>();
+
+        void add(Rule rule) {
+            if (rule.apiVersion.contains(WILDCARD)) {
+                wildcardApiVersion.add(rule);
+            }
+            else {
+                byApiVersion.computeIfAbsent(rule.apiVersion, k -> new ArrayList<>()).add(rule);
+            }
+        }
+
+        void addCandidates(String apiVersion, List<Rule> candidates) {
+            final List<Rule> rules = byApiVersion.get(apiVersion);
+            if (rules != null) {
+                candidates.addAll(rules);
+            }
+            candidates.addAll(wildcardApiVersion);
+        }
+    }
+
+    private final List<JsonObject> source;
+    private final Map<ConfigMapType,Map<String,KindBucket>> byType = new EnumMap<>(ConfigMapType.class);
+    private final Map<ConfigMapType,KindBucket> wildcardKind = new EnumMap<>(ConfigMapType.class);
+
+    private KindActionMappingIndex(List<JsonObject> kamList) {
+        this.source = kamList;
+        final int[] order = new int[1];
+        for (JsonObject v : kamList) {
+            final JsonElement items = v.get(ITEMS_PROPERTY_NAME);
+            if ((items != null) && (items.isJsonArray())) {
+                for (JsonElement kam : items.getAsJsonArray()) {
+                    if ((kam != null) && (kam.isJsonObject())) {
+                        addKAM(kam, order);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index for the given KAM list, building it if the list isn't the one
+     * the current index was built from.
+     */
+    static KindActionMappingIndex get(List<JsonObject> kamList) {
+        final KindActionMappingIndex index = INDEX_REF.get();
+        if (index != null && index.source == kamList) {
+            return index;
+        }
+        final KindActionMappingIndex newIndex = new KindActionMappingIndex(kamList);
+        INDEX_REF.set(newIndex);
+        if (Logger.isDebugEnabled()) {
+            Logger.log(CLASS_NAME, "get", Logger.LogType.DEBUG, "Rebuilt KindActionMapping rule index from " + kamList.size() + " list(s).");
+        }
+        return newIndex;
+    }
+
+    /**
+     * Returns the rules of the given configmap type that may match a resource with the
+     * given kind and (normalized) apiVersion, in the order they appear in the KAM list.
+     * The caller must still check each rule against the resource.
+     */
+    List<Rule> getCandidates(ConfigMapType cmType, String kind, String apiVersion) {
+        final List<Rule> candidates = new ArrayList<>();
+        final Map<String,KindBucket> buckets = byType.get(cmType);
+        if (buckets != null && kind != null) {
+            final KindBucket bucket = buckets.get(kind);
+            if (bucket != null) {
+                bucket.addCandidates(apiVersion, candidates);
+            }
+        }
+        final KindBucket bucket = wildcardKind.get(cmType);
+        if (bucket != null) {
+            bucket.addCandidates(apiVersion, candidates);
+        }
+        if (candidates.size() > 1) {
+            candidates.sort((r1, r2) -> Integer.compare(r1.order, r2.order));
+        }
+        return candidates;
+    }
+
+    private void addKAM(JsonElement kam, int[] order) {
+        final String methodName = "addKAM";
+        final JsonElement element = kam.getAsJsonObject().get(SPEC_PROPERTY_NAME);
+        if (element == null) {
+            return;
+        }
+        final String kamNamespace = KindActionMappingProcessor.getKAMNamespace(kam);
+        final JsonObject spec = element.getAsJsonObject();
+        final JsonElement precedence = spec.get(PRECEDENCE_PROPERTY_NAME);
+        // No precedence specified: set default precedenceIndex as 0 (The default for precedence is 1)
+        final int precedenceIndex = (precedence != null) ? precedence.getAsInt() - 1 : 0;
+        if (precedenceIndex < 0 || precedenceIndex >= MAX_PRECEDENCE) {
+            if (Logger.isWarningEnabled()) {
+                Logger.log(CLASS_NAME, methodName, Logger.LogType.WARNING, "The precedence " + (precedenceIndex + 1)
+                        + " of the KAM " + KindActionMappingProcessor.getKAMName(kam) + " is out of range. The KAM is ignored.");
+            }
+            return;
+        }
+        boolean hasMappings = false;
+        for (ConfigMapType cmType : ConfigMapType.values()) {
+            final JsonArray mappings = spec.getAsJsonArray(getMappingsPropertyName(cmType));
+            if (mappings != null) {
+                hasMappings = true;
+                for (JsonElement mapItem : mappings) {
+                    if (mapItem != null && mapItem.isJsonObject()) {
+                        final Rule rule = compileRule(mapItem.getAsJsonObject(), order[0]++, precedenceIndex, kamNamespace);
+                        if (rule != null) {
+                            add(cmType, rule);
+                        }
+                    }
+                }
+            }
+        }
+        if (!hasMappings && Logger.isErrorEnabled()) {
+            Logger.log(CLASS_NAME, methodName, Logger.LogType.ERROR,
+                    "There is no mappings properties found for the KAM: " + KindActionMappingProcessor.getKAMName(kam));
+        }
+    }
+
+    private static Rule compileRule(JsonObject props, int order, int precedenceIndex, String kamNamespace) {
+        final String methodName = "compileRule";
+        final String apiVersion = getString(props, APIVERSION_PROPERTY_NAME);
+        String ownerKind = null;
+        String ownerAPI = null;
+        String ownerUID = null;
+        final JsonObject owner = props.getAsJsonObject(OWNER_PROPERTY_NAME);
+        if (owner != null) {
+            ownerAPI = getString(owner, APIVERSION_PROPERTY_NAME);
+            ownerKind = getString(owner, KIND_PROPERTY_NAME);
+            ownerUID = getString(owner, UID_PROPERTY_NAME);
+        }
+        final String name = getString(props, NAME_PROPERTY_NAME);
+        final String subkind = getString(props, SUBKIND_PROPERTY_NAME);
+        final String kind = getString(props, KIND_PROPERTY_NAME);
+        final String mapname = getString(props, MAPNAME_PROPERTY_NAME);
+        if (Logger.isDebugEnabled()) {
+            Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG,
+                    "\nmapping info: " +
+                    "\napiVersion = " + apiVersion +
+                    "\nownerKind = " + ownerKind +
+                    "\nownerAPI = " + ownerAPI +
+                    "\nownerUID = " + ownerUID +
+                    "\nname = " + name +
+                    "\nsubkind = " + subkind +
+                    "\nkind = " + kind +
+                    "\nmapname = " + mapname);
+        }
+        if (apiVersion == null || apiVersion.isEmpty()) {
+            if (Logger.isErrorEnabled()) {
+                Logger.log(CLASS_NAME, methodName, Logger.LogType.ERROR,
+                        "apiVersion of the KindActionMapping resource " + name + " is null.");
+            }
+            return null;
+        }
+        if (kind == null || kind.isEmpty()) {
+            if (Logger.isErrorEnabled()) {
+                Logger.log(CLASS_NAME, methodName, Logger.LogType.ERROR, "kind of the KindActionMapping resource " + name + " is null.");
+            }
+            return null;
+        }
+        return new Rule(order, precedenceIndex, kamNamespace, KindActionMappingProcessor.normalizeApiVersion(apiVersion),
+                ownerKind, ownerAPI, ownerUID, name, subkind, kind, mapname);
+    }
+
+    private void add(ConfigMapType cmType, Rule rule) {
+        final KindBucket bucket;
+        if (WILDCARD.equals(rule.kind)) {
+            bucket = wildcardKind.computeIfAbsent(cmType, k -> new KindBucket());
+        }
+        else {
+            bucket = byType.computeIfAbsent(cmType, k -> new HashMap<>()).computeIfAbsent(rule.kind, k -> new KindBucket());
+        }
+        bucket.add(rule);
+    }
+
+    private static String getMappingsPropertyName(ConfigMapType cmType) {
+        switch (cmType) {
+        case STATUS_MAPPING:
+            return STATUS_MAPPINGS_PROPERTY_NAME;
+        case SECTION:
+            return SECTION_MAPPINGS_PROPERTY_NAME;
+        default:
+            return MAPPINGS_PROPERTY_NAME;
+        }
+    }
+
+    private static String getString(JsonObject o, String property) {
+        final JsonElement prop = o.get(property);
+        return (prop != null && !prop.isJsonNull()) ? prop.getAsString() : null;
+    }
+}
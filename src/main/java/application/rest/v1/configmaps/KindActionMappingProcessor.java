@@ -22,7 +22,6 @@ import java.util.Locale;
 
 import javax.xml.namespace.QName;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
@@ -47,10 +46,6 @@ public class KindActionMappingProcessor {
     // KindActionMapping/KAM definitions
     private static final String WILDCARD = "*";
 
-    private static final int MAX_PRECEDENCE = 9;
-    private static final int TOTAL_KSN_VALUES = 4;
-    private static final int KAM_N = 10;
-
     private static final int KSN = 3; // Kind, Subkind, name - instance specific
     private static final int KN = 2; // Kind, name - instance specific
     private static final int KS = 1; // Kind, Subkind - subkind specific
@@ -59,20 +54,7 @@ public class KindActionMappingProcessor {
 
     private static final String METADATA_PROPERTY_NAME = "metadata";
     private static final String NAMESPACE_PROPERTY_NAME = "namespace";
-    private static final String ITEMS_PROPERTY_NAME = "items";
-    private static final String SPEC_PROPERTY_NAME = "spec";
-    private static final String PRECEDENCE_PROPERTY_NAME = "precedence";
-    private static final String MAPPINGS_PROPERTY_NAME = "mappings";
-    private static final String STATUS_MAPPINGS_PROPERTY_NAME = "statusMappings";
-    private static final String SECTION_MAPPINGS_PROPERTY_NAME = "sectionMappings";
-
-    private static final String APIVERSION_PROPERTY_NAME = "apiVersion";
-    private static final String OWNER_PROPERTY_NAME = "owner"; 
-    private static final String UID_PROPERTY_NAME = "uid";
     private static final String NAME_PROPERTY_NAME = "name";
-    private static final String SUBKIND_PROPERTY_NAME = "subkind";
-    private static final String KIND_PROPERTY_NAME = "kind";
-    private static final String MAPNAME_PROPERTY_NAME = "mapname";
     private static final String UNREGISTERED = "kappnav.status-mapping-unregistered";
 
     private String compNamespace;
@@ -136,7 +118,6 @@ public class KindActionMappingProcessor {
         if (Logger.isEntryEnabled()) 
                 Logger.log(CLASS_NAME, methodName, Logger.LogType.ENTRY,"configMap type = " + cmType + " configMapName = " + configMapName);
 
-        QName[][][] mapNamesFound = new QName[MAX_PRECEDENCE][KAM_N][TOTAL_KSN_VALUES];
         ArrayList<QName> configMapsList = null;
         List <JsonObject> kamList = null;
 
@@ -149,148 +130,7 @@ public class KindActionMappingProcessor {
                 return configMapsList;
             }
 
-            kamList.forEach (v -> {
-                JsonElement items = v.get(ITEMS_PROPERTY_NAME);
-                if ((items != null) && (items.isJsonArray())) {
-                    JsonArray itemsArray = items.getAsJsonArray();
-
-                    // go though all kams to get the qualified configmaps defined in those kams   
-                    // Sort the configmaps found in order of hierarchy & precedence
-                    itemsArray.forEach (kam -> {
-                        if ( (kam != null) && (kam.isJsonObject()) ) {
-                            if (Logger.isDebugEnabled()) 
-                                Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG,
-                                    "\nKindActionMapping found: " + kam);
-
-                            JsonElement element = kam.getAsJsonObject().get(SPEC_PROPERTY_NAME);
-                            String kamNamespace = getKAMNamespace(kam);
-                            if (element != null) {
-                                JsonObject spec = element.getAsJsonObject();                           
-                                JsonElement precedence = spec.get(PRECEDENCE_PROPERTY_NAME);
-                                int precedenceIndex;
-                                if (precedence != null)
-                                    precedenceIndex = spec.get(PRECEDENCE_PROPERTY_NAME).getAsInt()-1;
-                                else 
-                                    precedenceIndex = 0; // No precedence specified: set default precedenceIndex as 0 
-                                                         // (The default for precedence is 1)
-                                JsonArray mappings = getMappingsByConfigMapType(spec, cmType);
-
-                                // iterate through each mapping within a KAM custom resource
-                                if (mappings != null) {
-                                    mappings.forEach(mapItem-> {
-                                        if (mapItem != null) {
-                                            JsonObject props = mapItem.getAsJsonObject();
-                                            if (props != null) {
-                                                JsonElement prop = props.get(APIVERSION_PROPERTY_NAME);
-                                                String apiVersion = (prop != null) ? prop.getAsString():null;
-
-                                                String ownerKind= null;
-                                                String ownerAPI= null;
-                                                String ownerUID= null; 
-                                                JsonObject owner= props.getAsJsonObject(OWNER_PROPERTY_NAME);
-                                                if ( owner != null ) { 
-                                                    prop= owner.get(APIVERSION_PROPERTY_NAME);
-                                                    ownerAPI = (prop != null) ? prop.getAsString():null;
-                                                    prop = owner.get(KIND_PROPERTY_NAME);
-                                                    ownerKind = (prop != null) ? prop.getAsString():null;
-                                                    prop = owner.get(UID_PROPERTY_NAME);
-                                                    ownerUID = (prop != null) ? prop.getAsString():null;
-                                                } 
-
-                                                prop = props.get(NAME_PROPERTY_NAME);
-                                                String name = (prop != null) ? prop.getAsString():null;
-                                                prop = props.get(SUBKIND_PROPERTY_NAME);
-                                                String subkind = (prop != null) ? prop.getAsString():null;
-                                                prop = props.get(KIND_PROPERTY_NAME);
-                                                String kind = (prop != null) ? prop.getAsString():null;
-                                                prop = props.get(MAPNAME_PROPERTY_NAME);
-                                                String mapname = (prop != null) ? prop.getAsString():null;
-                                                if ( Logger.isDebugEnabled()) { 
-                                                    Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG,
-                                                        "\nmapping info: " + 
-                                                        "\napiVersion = " + apiVersion +
-                                                        "\nownerKind = " + ownerKind +
-                                                        "\nownerAPI = " + ownerAPI +
-                                                        "\nownerUID = " + ownerUID +
-                                                        "\nname = " + name +
-                                                        "\nsubkind = " + subkind +
-                                                        "\nkind = " + kind + 
-                                                        "\nmapname = " + mapname);
-                                                }
-
-                                                String normalizedApiVersion = normalizeApiVersion(apiVersion);
-                                                if (isApiVersionMatch(normalizedApiVersion, compApiVersion) && 
-                                                    ownerMatches(ownerKind, ownerAPI, ownerUID, compOwners)) {
-                                                    int compPropsIdx = examineMappingProperties(compName, compSubkind, compKind);
-                                                    int kamMappingPropIdx = examineMappingProperties(name, subkind, kind);
-
-                                                    // if the resource given matches the kind action mapping rules?
-                                                    boolean matches = isResourceMatchesRule(compPropsIdx, kamMappingPropIdx,
-                                                                                            name, subkind, kind);
-
-                                                    if (matches) {                                               
-                                                        // find next available slot for a kam in same precedence
-                                                        // currently, we allow 10 kams with the same precedence with this impl.
-                                                        // The kam found after all slots are used are being ignored with a warning.
-                                                        int kamNIndex=-1;
-                                                        for (int i=0; i<KAM_N; i++) {
-                                                            if (mapNamesFound[precedenceIndex][i][kamMappingPropIdx] == null) { 
-                                                                kamNIndex = i;
-                                                                break;
-                                                            }   
-                                                        }
-
-                                                        // each mapname found is stored in the 3D array as "mapname@namespace"
-                                                        // D1: precedence;
-                                                        // D2: kams-in-same-precedence;
-                                                        // D3: possible combination of kam mapping properties (kind, subkind, and name)
-                                                        if (kamNIndex != -1) {
-                                                            if ((kamMappingPropIdx == KSN) || (kamMappingPropIdx == KN))
-                                                                mapNamesFound[precedenceIndex][kamNIndex][kamMappingPropIdx] = 
-                                                                    new QName(compNamespace, mapname);
-                                                            else
-                                                                mapNamesFound[precedenceIndex][kamNIndex][kamMappingPropIdx] = 
-                                                                    new QName(kamNamespace, mapname);
-                                                            if (Logger.isDebugEnabled()) 
-                                                                Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG, 
-                                                                    "mapName " + mapname + " is stored in configMapsFound["+kamMappingPropIdx+"]["
-                                                                    + precedenceIndex+"][" + kamNIndex+"]");
-                                                        } else {
-                                                            if (Logger.isWarningEnabled()) 
-                                                                Logger.log(CLASS_NAME, methodName, Logger.LogType.WARNING, 
-                                                                    "The number of kams with the precedence " + precedenceIndex+1 + 
-                                                                    " passes the limit of " + KAM_N);
-                                                        }
-                                                    } else {
-                                                        if (Logger.isDebugEnabled()) 
-                                                            Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG, "no match!!!");
-                                                    }                                                
-                                                } else {
-                                                    if (apiVersion == null) {
-                                                        if (Logger.isErrorEnabled()) 
-                                                            Logger.log(CLASS_NAME, methodName, Logger.LogType.ERROR, 
-                                                                "apiVersion of the KindActionMapping resource " + name + " is null.");
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    });  // mappings.forEach
-                                } else {
-                                    String kamName = getKAMName(kam);
-                                    if (Logger.isErrorEnabled()) {
-                                        Logger.log(CLASS_NAME, methodName, Logger.LogType.ERROR, 
-                                            "There is no mappings properties found for the KAM: " + kamName);
-                                    }
-                                }
-                            }
-                        }  
-                    });  
-                }
-            });// kamList.forEach
-             
-            // process candidate mapnames including a string substitution as needed and then store 
-            // them to a list according the configmap hierarchy and (high to low) precedence 
-            configMapsList = processCandidateMapnames(mapNamesFound, compNamespace, configMapName);
+            configMapsList = getConfigMapsFromKAMs(kamList, cmType, configMapName);
             if (Logger.isDebugEnabled()) 
                 Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG, "configMapslist: " + configMapsList.toString());
         } catch  (ApiException e) {
@@ -305,32 +145,53 @@ public class KindActionMappingProcessor {
     }
 
     /**
-     * Return the responding mapping array per a given configmap type
-     * 
-     * @param cmType - configMap type (ACTION, STATUS, SECTION)
-     * @return a JsonArray the responding mappings for a given configmap type
+     * Match the resource against the precompiled mapping rules of the given KAM list. Only
+     * the rules indexed under the resource's kind and apiVersion (or a wildcard) are examined.
      */
-    private JsonArray getMappingsByConfigMapType(JsonObject spec, ConfigMapType cmType) {
-        String methodName = "getMappingsByConfigMapType";
-        if (Logger.isEntryEnabled()) 
-                    Logger.log(CLASS_NAME, methodName, Logger.LogType.ENTRY,
-                        "configmap type = " + cmType);
-        JsonArray mappings = null;
-        if (cmType == ConfigMapProcessor.ConfigMapType.ACTION)
-            mappings = spec.getAsJsonArray(MAPPINGS_PROPERTY_NAME);
-        else if (cmType == ConfigMapProcessor.ConfigMapType.STATUS_MAPPING)
-            mappings = spec.getAsJsonArray(STATUS_MAPPINGS_PROPERTY_NAME);
-        else if (cmType == ConfigMapProcessor.ConfigMapType.SECTION)
-            mappings = spec.getAsJsonArray(SECTION_MAPPINGS_PROPERTY_NAME);
-        else {
-            if (Logger.isWarningEnabled()) 
-                Logger.log(CLASS_NAME, methodName, Logger.LogType.WARNING,
-                           "KindActionMapping does not support the configmap type " + cmType); 
+    ArrayList<QName> getConfigMapsFromKAMs(List<JsonObject> kamList, ConfigMapType cmType, String configMapName) {
+        String methodName = "getConfigMapsFromKAMs";
+        final int compPropsIdx = examineMappingProperties(compName, compSubkind, compKind);
+        final List<Candidate> mapNamesFound = new ArrayList<>();
+
+        for (KindActionMappingIndex.Rule rule : KindActionMappingIndex.get(kamList).getCandidates(cmType, compKind, compApiVersion)) {
+            if (isApiVersionMatch(rule.apiVersion, compApiVersion)) {
+                this.compMatchingOwner = null;
+                if (ownerMatches(rule.ownerKind, rule.ownerAPI, rule.ownerUID, compOwners)) {
+                    int kamMappingPropIdx = examineMappingProperties(rule.name, rule.subkind, rule.kind);
+
+                    // if the resource given matches the kind action mapping rules?
+                    if (isResourceMatchesRule(compPropsIdx, kamMappingPropIdx, rule.name, rule.subkind, rule.kind)) {
+                        // instance specific mapnames are looked up in the resource's namespace
+                        final String namespace = ((kamMappingPropIdx == KSN) || (kamMappingPropIdx == KN)) ? compNamespace : rule.kamNamespace;
+                        mapNamesFound.add(new Candidate(rule, kamMappingPropIdx, new QName(namespace, rule.mapname), compMatchingOwner));
+                        if (Logger.isDebugEnabled()) 
+                            Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG, 
+                                "mapName " + rule.mapname + " found with precedence " + (rule.precedenceIndex+1) + " and KSN " + kamMappingPropIdx);
+                    } else {
+                        if (Logger.isDebugEnabled()) 
+                            Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG, "no match!!!");
+                    }
+                }
+            }
+        }
+
+        // process candidate mapnames including a string substitution as needed and then store 
+        // them to a list according the configmap hierarchy and (high to low) precedence 
+        return processCandidateMapnames(mapNamesFound, compNamespace, configMapName);
+    }
+
+    // A mapname found for the resource along with the position of its rule in the configmap hierarchy.
+    private static final class Candidate {
+        private final KindActionMappingIndex.Rule rule;
+        private final int ksnIdx;
+        private final QName mapName;
+        private final OwnerRef matchingOwner;
+        Candidate(KindActionMappingIndex.Rule rule, int ksnIdx, QName mapName, OwnerRef matchingOwner) {
+            this.rule = rule;
+            this.ksnIdx = ksnIdx;
+            this.mapName = mapName;
+            this.matchingOwner = matchingOwner;
         }
-        if (Logger.isExitEnabled()) 
-                    Logger.log(CLASS_NAME, methodName, Logger.LogType.EXIT,
-                        "returned mappings = " + mappings); 
-        return mappings;
     }
 
     /**
@@ -339,7 +200,7 @@ public class KindActionMappingProcessor {
      * @param apiVersion
      * @return apiVersion normalized
      */
-    private String normalizeApiVersion(String apiVersion) {
+    static String normalizeApiVersion(String apiVersion) {
         String methodName = "normalizeApiVersion";
         if (apiVersion.startsWith("/") && (apiVersion.length() > 1) ) {
             apiVersion = apiVersion.substring(1);
@@ -706,30 +567,31 @@ public class KindActionMappingProcessor {
      * @param namespace matching resource's namespace
      * @return processed configmap list
      */
-    private ArrayList<QName> processCandidateMapnames(QName[][][] configMapsFound, String namespace, String configMapName) {
+    private ArrayList<QName> processCandidateMapnames(List<Candidate> configMapsFound, String namespace, String configMapName) {
         String methodName = "processCandidateMapnames";
         ArrayList<QName> configMapList = new ArrayList<QName> ();
 
-        for (int ksnIdx=KSN; ksnIdx>=0; ksnIdx--) {
-            for (int precedenceIdx=MAX_PRECEDENCE-1; precedenceIdx>=0; precedenceIdx--) {
-                for (int kamNIdx=0; kamNIdx<KAM_N; kamNIdx++) { 
-                    QName aQName = configMapsFound[precedenceIdx][kamNIdx][ksnIdx];        
-                    if (aQName != null) {
-                        String rawMapName = aQName.getLocalPart();             
-                        String actualMapName = mapNameSubstitute(rawMapName, namespace);
-                        if (Logger.isDebugEnabled()) 
-                            Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG, 
-                            "rawMapName = " + rawMapName + ", actualMapName = " + actualMapName + ", configMapName = " + configMapName);     
-                        if (!actualMapName.equals(configMapName) && configMapName.equals(UNREGISTERED)) {
-                            actualMapName = configMapName;
-                        }        
-                        if (Logger.isDebugEnabled()) 
-                            Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG, 
-                                "actualMapName = " + actualMapName);
-                        configMapList.add(new QName(aQName.getNamespaceURI(), actualMapName));
-                    }
-                }
-            }
+        configMapsFound.sort((c1, c2) -> {
+            if (c1.ksnIdx != c2.ksnIdx)
+                return Integer.compare(c2.ksnIdx, c1.ksnIdx);
+            if (c1.rule.precedenceIndex != c2.rule.precedenceIndex)
+                return Integer.compare(c2.rule.precedenceIndex, c1.rule.precedenceIndex);
+            return Integer.compare(c1.rule.order, c2.rule.order);
+        });
+        for (Candidate candidate : configMapsFound) {
+            QName aQName = candidate.mapName;
+            String rawMapName = aQName.getLocalPart();             
+            String actualMapName = mapNameSubstitute(rawMapName, namespace, candidate.matchingOwner);
+            if (Logger.isDebugEnabled()) 
+                Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG, 
+                "rawMapName = " + rawMapName + ", actualMapName = " + actualMapName + ", configMapName = " + configMapName);     
+            if (!actualMapName.equals(configMapName) && configMapName.equals(UNREGISTERED)) {
+                actualMapName = configMapName;
+            }        
+            if (Logger.isDebugEnabled()) 
+                Logger.log(CLASS_NAME, methodName, Logger.LogType.DEBUG, 
+                    "actualMapName = " + actualMapName);
+            configMapList.add(new QName(aQName.getNamespaceURI(), actualMapName));
         }
         return configMapList;
     }
@@ -740,9 +602,10 @@ public class KindActionMappingProcessor {
      * 
      * @param rawMapName mapName without the string substitute
      * @param namespace matching resource's namespace
+     * @param matchingOwner owner reference matched by the mapping rule, or null
      * @return substituted mapName
      */
-    private String mapNameSubstitute(String rawMapName, String namespace) {
+    private String mapNameSubstitute(String rawMapName, String namespace, OwnerRef matchingOwner) {
         String methodName = "mapNameSubstitute";
         if (Logger.isEntryEnabled()) {
             Logger.log(CLASS_NAME, methodName, Logger.LogType.ENTRY, "rawMapName: " + rawMapName + ", namespace: " + namespace);
@@ -774,14 +637,14 @@ public class KindActionMappingProcessor {
             } else if ( parts[i].equals("${kind}") ) {
                 actualMapName = actualMapName + this.compKind.toLowerCase(Locale.ENGLISH);
             } else if ( parts[i].equals("${owner-apiVersion}") && 
-                        this.compMatchingOwner != null ) {
-                actualMapName = actualMapName + this.compMatchingOwner.getApiVersion().replace('/','-');
+                        matchingOwner != null ) {
+                actualMapName = actualMapName + matchingOwner.getApiVersion().replace('/','-');
             } else if ( parts[i].equals("${owner-kind}") && 
-                        this.compMatchingOwner != null ) {
-                actualMapName = actualMapName + this.compMatchingOwner.getKind().toLowerCase(Locale.ENGLISH);
+                        matchingOwner != null ) {
+                actualMapName = actualMapName + matchingOwner.getKind().toLowerCase(Locale.ENGLISH);
             } else if ( parts[i].equals("${owner-uid}") && 
-                        this.compMatchingOwner != null ) {
-                actualMapName = actualMapName + this.compMatchingOwner.getUID();
+                        matchingOwner != null ) {
+                actualMapName = actualMapName + matchingOwner.getUID();
             } else {
                 actualMapName = actualMapName + parts[i];
             }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.configmaps;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.google.gson.JsonObject;
+import com.ibm.kappnav.logging.Logger;
+
+import application.rest.v1.KAppNavConfig;
+import application.rest.v1.KAppNavEndpoint;
+import application.rest.v1.Metrics;
+import application.rest.v1.configmaps.ConfigMapProcessor.ConfigMapType;
+
+/**
+ * Process-wide cache of the final merged action, status mapping and section maps.
+ * A merged map depends only on the component's identity, the KindActionMapping
+ * custom resources and the ConfigMaps they select, so entries are tagged with the
+ * KindActionMappingCache mod count and the ConfigMapCache generation and the whole
+ * cache is dropped when either changes. Nothing is cached while either of those
+ * caches isn't tracking changes.
+ */
+public final class MergedConfigMapCache {
+
+    private static final String CLASS_NAME = MergedConfigMapCache.class.getName();
+
+    // Maximum number of merged maps cached. Can be set as a system property or an environment variable.
+    private static final String MAX_SIZE_PROPERTY = "kappnav.merged.map.cache.max.size";
+    private static final long DEFAULT_MAX_SIZE = 10000L;
+    private static long maxSize = KAppNavConfig.getLongSetting(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE);
+
+    // For junit only
+    static void setMaxSizeForJunit(long size) {
+        maxSize = size;
+    }
+
+    private static final AtomicReference<Generation> GENERATION_REF = new AtomicReference<>(new Generation(-1L, -1L));
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    static {
+        Metrics.registerCache("mergedconfigmap", MergedConfigMapCache::getHitCount,
+                MergedConfigMapCache::getMissCount, MergedConfigMapCache::getSize);
+    }
+
+    private static final class Generation {
+        private final long kamModCount;
+        private final long configMapGeneration;
+        private final Map<String,JsonObject> maps = new ConcurrentHashMap<>();
+        Generation(long kamModCount, long configMapGeneration) {
+            this.kamModCount = kamModCount;
+            this.configMapGeneration = configMapGeneration;
+        }
+        boolean isCurrent(long kamModCount, long configMapGeneration) {
+            return this.kamModCount == kamModCount && this.configMapGeneration == configMapGeneration;
+        }
+    }
+
+    private MergedConfigMapCache() {}
+
+    /**
+     * Returns the cache key of the merged map of the given type for a component:
+     * (type, apiVersion, kind, subkind, name, namespace, owners).
+     */
+    static String getKey(ConfigMapType type, JsonObject component) {
+        final String kind = KAppNavEndpoint.getComponentKind(component);
+        return type + "|" + KAppNavEndpoint.getComponentApiVersion(component, kind) + "|" + kind
+                + "|" + KAppNavEndpoint.getComponentSubKind(component)
+                + "|" + KAppNavEndpoint.getComponentName(component)
+                + "|" + KAppNavEndpoint.getComponentNamespace(component)
+                + "|" + ConfigMapProcessor.ownerRefArrayToString(KAppNavEndpoint.getOwners(component));
+    }
+
+    /**
+     * Returns a copy of the cached merged map for the key, or computes it with the
+     * resolver and caches a copy if the KAM and ConfigMap caches didn't change while
+     * it was being computed. The caller may modify the returned map.
+     */
+    static JsonObject getConfigMap(String key, Supplier<JsonObject> resolver) {
+        final long kamModCount = KindActionMappingCache.getModCount();
+        final long configMapGeneration = ConfigMapCache.getGeneration();
+        if (kamModCount < 0 || configMapGeneration < 0) {
+            // Changes aren't being tracked so the merged map can't be cached.
+            return resolver.get();
+        }
+        Generation generation = GENERATION_REF.get();
+        if (!generation.isCurrent(kamModCount, configMapGeneration)) {
+            final Generation next = new Generation(kamModCount, configMapGeneration);
+            generation = GENERATION_REF.compareAndSet(generation, next) ? next : GENERATION_REF.get();
+            if (Logger.isDebugEnabled()) {
+                Logger.log(CLASS_NAME, "getConfigMap", Logger.LogType.DEBUG, "Merged map cache invalidated. kamModCount="
+                        + kamModCount + ", configMapGeneration=" + configMapGeneration);
+            }
+        }
+        if (generation.isCurrent(kamModCount, configMapGeneration)) {
+            final JsonObject map = generation.maps.get(key);
+            if (map != null) {
+                HITS.incrementAndGet();
+                return map.deepCopy();
+            }
+        }
+        MISSES.incrementAndGet();
+        final JsonObject map = resolver.get();
+        if (map != null && generation.isCurrent(KindActionMappingCache.getModCount(), ConfigMapCache.getGeneration())
+                && generation.maps.size() < maxSize) {
+            generation.maps.putIfAbsent(key, map.deepCopy());
+        }
+        return map;
+    }
+
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    public static int getSize() {
+        return GENERATION_REF.get().maps.size();
+    }
+}
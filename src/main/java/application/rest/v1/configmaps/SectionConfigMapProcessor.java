@@ -70,6 +70,16 @@ public class SectionConfigMapProcessor {
         if (Logger.isEntryEnabled()) 
             Logger.log(className, "getConfigMap", Logger.LogType.ENTRY, "");
 
+        JsonObject configMapFound = MergedConfigMapCache.getConfigMap(
+                MergedConfigMapCache.getKey(ConfigMapProcessor.ConfigMapType.SECTION, component),
+                () -> resolveConfigMap(client, component));
+        if (Logger.isExitEnabled()) 
+            Logger.log(className, "getConfigMap", Logger.LogType.EXIT, "configMap found = " + configMapFound);
+        return configMapFound;
+    }
+
+    private JsonObject resolveConfigMap(ApiClient client, JsonObject component) {
+
         final SectionConfigMapBuilder builder = new SectionConfigMapBuilder();
         final String namespace = KAppNavEndpoint.getComponentNamespace(component);        
         final String kind = KAppNavEndpoint.getComponentKind(component);
@@ -100,10 +110,7 @@ public class SectionConfigMapProcessor {
             map = getConfigMap(client, kam, namespace, configMapName, builder);
         }
         
-        JsonObject configMapFound = builder.getConfigMap();
-        if (Logger.isExitEnabled()) 
-            Logger.log(className, "getConfigMap", Logger.LogType.EXIT, "configMap found = " + configMapFound);
-        return configMapFound;
+        return builder.getConfigMap();
     } 
 
     public JsonObject getConfigMap(ApiClient client, KindActionMappingProcessor kam, String namespace,
@@ -16,46 +16,39 @@
 
 package application.rest.v1.json;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 
 import com.ibm.kappnav.logging.Logger;
 
-// Subset of JSON Path (only supports child-axis; dot and bracket notation).
+// Subset of JSON Path: child-axis (dot and bracket notation), array indexes, wildcards and filter predicates.
+// Instances are immutable and can be shared between threads.
 public class JSONPath {
-    
-    private final List<String> children;
-    
-    JSONPath (List<String> children) {
-        this.children = (children != null) ? children : Collections.emptyList();
+
+    private final Step[] steps;
+
+    JSONPath (List<Step> steps) {
+        this.steps = (steps != null) ? steps.toArray(new Step[steps.size()]) : new Step[0];
     }
-    
+
+    /**
+     * Returns the value of the first primitive leaf selected by this path, or null
+     * if the path does not select a primitive. When a wildcard or filter selects
+     * several elements they are searched in document order.
+     */
     public String resolveLeaf(final JsonObject context) {
-        if (!children.isEmpty()) {
-            JsonObject o = context;
+        if (steps.length > 0 && context != null) {
             if (Logger.isDebugEnabled()) {
-                Logger.log(JSONPath.class.getName(), "resolveLeaf", Logger.LogType.DEBUG, "For " +  o.toString());
+                Logger.log(JSONPath.class.getName(), "resolveLeaf", Logger.LogType.DEBUG, "For " +  context.toString());
             }
-            // Walk to the JsonObject that contains the leaf.
-            final int end = children.size() - 1;
-            for (int i = 0; i < end; ++i) {
-                JsonElement e = o.get(children.get(i));
-                if (e != null && e.isJsonObject()) {
-                    o = e.getAsJsonObject();
-                }
-                else {
-                    if (Logger.isDebugEnabled()) {
-                        Logger.log(JSONPath.class.getName(), "resolveLeaf", Logger.LogType.DEBUG, "Returning null.");
-                    }
-                    return null;
-                }
-            }
-            // Return the value of the leaf node.
-            final JsonElement result = o.get(children.get(end));
-            if (result != null && result.isJsonPrimitive()) {
+            final JsonPrimitive result = resolve(context, 0);
+            if (result != null) {
                 String finalResult = result.getAsString();
                 if (Logger.isDebugEnabled()) {
                     Logger.log(JSONPath.class.getName(), "resolveLeaf", Logger.LogType.DEBUG, "Result=" + finalResult);
@@ -68,4 +61,195 @@ public class JSONPath {
         }
         return null;
     }
+
+    /**
+     * Returns every element selected by this path in document order, including objects
+     * and arrays, or an empty list if nothing is selected.
+     */
+    public List<JsonElement> resolveAll(final JsonElement context) {
+        final List<JsonElement> result = new ArrayList<>();
+        if (context != null && !context.isJsonNull()) {
+            collect(context, 0, result);
+        }
+        return result;
+    }
+
+    // Depth-first walk from the given step. Adds every element reached after the last step.
+    private void collect(JsonElement e, int step, List<JsonElement> result) {
+        if (step == steps.length) {
+            result.add(e);
+            return;
+        }
+        final Step s = steps[step];
+        switch (s.type) {
+        case CHILD:
+            if (e.isJsonObject()) {
+                collectNext(e.getAsJsonObject().get(s.name), step, result);
+            }
+            break;
+        case INDEX:
+            if (e.isJsonArray()) {
+                final JsonArray a = e.getAsJsonArray();
+                final int i = (s.index < 0) ? a.size() + s.index : s.index;
+                if (i >= 0 && i < a.size()) {
+                    collectNext(a.get(i), step, result);
+                }
+            }
+            break;
+        case WILDCARD:
+        case FILTER:
+            if (e.isJsonArray()) {
+                for (JsonElement child : e.getAsJsonArray()) {
+                    if (s.type == StepType.WILDCARD || s.filter.test(child)) {
+                        collectNext(child, step, result);
+                    }
+                }
+            }
+            else if (e.isJsonObject()) {
+                for (Map.Entry<String,JsonElement> entry : e.getAsJsonObject().entrySet()) {
+                    if (s.type == StepType.WILDCARD || s.filter.test(entry.getValue())) {
+                        collectNext(entry.getValue(), step, result);
+                    }
+                }
+            }
+            break;
+        }
+    }
+
+    private void collectNext(JsonElement child, int step, List<JsonElement> result) {
+        if (child != null && !child.isJsonNull()) {
+            collect(child, step + 1, result);
+        }
+    }
+
+    // Depth-first walk from the given step. Returns the first primitive reached after the last step.
+    private JsonPrimitive resolve(JsonElement e, int step) {
+        if (step == steps.length) {
+            return (e != null && e.isJsonPrimitive()) ? e.getAsJsonPrimitive() : null;
+        }
+        final Step s = steps[step];
+        switch (s.type) {
+        case CHILD:
+            return e.isJsonObject() ? resolveNext(e.getAsJsonObject().get(s.name), step) : null;
+        case INDEX:
+            if (e.isJsonArray()) {
+                final JsonArray a = e.getAsJsonArray();
+                final int i = (s.index < 0) ? a.size() + s.index : s.index;
+                return (i >= 0 && i < a.size()) ? resolveNext(a.get(i), step) : null;
+            }
+            return null;
+        case WILDCARD:
+        case FILTER:
+            if (e.isJsonArray()) {
+                final JsonArray a = e.getAsJsonArray();
+                for (int i = 0; i < a.size(); ++i) {
+                    final JsonElement child = a.get(i);
+                    if (s.type == StepType.WILDCARD || s.filter.test(child)) {
+                        final JsonPrimitive result = resolveNext(child, step);
+                        if (result != null) {
+                            return result;
+                        }
+                    }
+                }
+            }
+            else if (e.isJsonObject()) {
+                for (Map.Entry<String,JsonElement> entry : e.getAsJsonObject().entrySet()) {
+                    final JsonElement child = entry.getValue();
+                    if (s.type == StepType.WILDCARD || s.filter.test(child)) {
+                        final JsonPrimitive result = resolveNext(child, step);
+                        if (result != null) {
+                            return result;
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+        return null;
+    }
+
+    private JsonPrimitive resolveNext(JsonElement child, int step) {
+        return (child != null && !child.isJsonNull()) ? resolve(child, step + 1) : null;
+    }
+
+    enum StepType {
+        CHILD,
+        INDEX,
+        WILDCARD,
+        FILTER
+    }
+
+    static final class Step {
+        private final StepType type;
+        private final String name;
+        private final int index;
+        private final Filter filter;
+
+        private Step(StepType type, String name, int index, Filter filter) {
+            this.type = type;
+            this.name = name;
+            this.index = index;
+            this.filter = filter;
+        }
+
+        static Step child(String name) {
+            return new Step(StepType.CHILD, name, 0, null);
+        }
+
+        static Step index(int index) {
+            return new Step(StepType.INDEX, null, index, null);
+        }
+
+        static Step wildcard() {
+            return new Step(StepType.WILDCARD, null, 0, null);
+        }
+
+        static Step filter(Filter filter) {
+            return new Step(StepType.FILTER, null, 0, filter);
+        }
+    }
+
+    /**
+     * Filter predicate: [?(@.a.b)] tests that a child exists, [?(@.a.b == 'value')] and
+     * [?(@.a.b != 'value')] compare a primitive child with a string, number or boolean literal.
+     */
+    static final class Filter {
+        private final String[] path;
+        // Null for an existence test.
+        private final String operator;
+        private final JsonPrimitive literal;
+
+        Filter(List<String> path, String operator, JsonPrimitive literal) {
+            this.path = path.toArray(new String[path.size()]);
+            this.operator = operator;
+            this.literal = literal;
+        }
+
+        boolean test(JsonElement e) {
+            for (String name : path) {
+                if (e == null || !e.isJsonObject()) {
+                    return false;
+                }
+                e = e.getAsJsonObject().get(name);
+            }
+            if (operator == null) {
+                return e != null && !e.isJsonNull();
+            }
+            final boolean equal = e != null && e.isJsonPrimitive() && equalsLiteral(e.getAsJsonPrimitive());
+            return "==".equals(operator) ? equal : !equal;
+        }
+
+        private boolean equalsLiteral(JsonPrimitive value) {
+            if (literal.isNumber()) {
+                if (value.isNumber()) {
+                    return value.getAsDouble() == literal.getAsDouble();
+                }
+                return false;
+            }
+            if (literal.isBoolean()) {
+                return value.isBoolean() && value.getAsBoolean() == literal.getAsBoolean();
+            }
+            return value.isString() && value.getAsString().equals(literal.getAsString());
+        }
+    }
 }
@@ -18,125 +18,220 @@ package application.rest.v1.json;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-// Parses a subset of JSON Path (only supports child-axis; dot and bracket notation).
+import com.google.gson.JsonPrimitive;
+
+import application.rest.v1.KAppNavConfig;
+
+// Parses a subset of JSON Path: child-axis (dot and bracket notation), array indexes, wildcards and filter predicates.
 public final class JSONPathParser {
-    
+
+    // Maximum number of compiled expressions cached by compile(). Can be set as a system property or an environment variable.
+    private static final String CACHE_MAX_SIZE_PROPERTY = "kappnav.jsonpath.cache.max.size";
+    private static final long DEFAULT_CACHE_MAX_SIZE = 1024L;
+    private static final long CACHE_MAX_SIZE = KAppNavConfig.getLongSetting(CACHE_MAX_SIZE_PROPERTY, DEFAULT_CACHE_MAX_SIZE);
+
+    // Cached value for expressions that are invalid or not supported. A ConcurrentHashMap cannot store null values.
+    private static final JSONPath INVALID = new JSONPath(null);
+
+    private static final Map<String,JSONPath> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the compiled JSONPath for the expression, parsing it only the first time
+     * the expression is seen. Returns null if the expression is invalid or not supported.
+     */
+    public static JSONPath compile(String path) {
+        JSONPath result = CACHE.get(path);
+        if (result == null) {
+            result = new JSONPathParser().parse(path);
+            if (result == null) {
+                result = INVALID;
+            }
+            if (CACHE.size() >= CACHE_MAX_SIZE) {
+                // The expressions come from config maps and action patterns so this should be rare.
+                CACHE.clear();
+            }
+            CACHE.put(path, result);
+        }
+        return (result != INVALID) ? result : null;
+    }
+
     /**
-     * Supports simple JSON path expressions (e.g. $.one.two.three, $['one']['two']['three'])
-     * Returns a JSONPath object for a valid expression otherwise null if the expression is
-     * invalid or not supported.
+     * Supports JSON path expressions such as $.one.two.three, $['one']['two']['three'],
+     * $.items[0].name, $.items[-1].name, $.items[*].name, $.spec.*.image and
+     * $.conditions[?(@.type=='Available')].status. Filters support existence tests
+     * ([?(@.a)]) and == and != comparisons with string, number and boolean literals.
+     * Returns a JSONPath object for a valid expression otherwise null if the expression
+     * is invalid or not supported.
      */
     public JSONPath parse(String path) {
-        List<String> children = new ArrayList<>();
-        int mark = 0;
-        ParserState state = ParserState.START_EXPRESSION;
+        if (path == null || path.isEmpty() || path.charAt(0) != '$') {
+            return null;
+        }
+        final List<JSONPath.Step> steps = new ArrayList<>();
         final int length = path.length();
-        for (int i = 0; i < length; ++i) {
-            char c = path.charAt(i);
-            // State machine for walking the JSON path expression.
-            switch (state) {
-                case START_EXPRESSION:
-                    if (path.charAt(0) == '$') {
-                        state = ParserState.START_CHILD;
-                    }
-                    else {
-                        return null;
-                    }
-                    break;
-                case START_CHILD:
-                    if (i < length - 1) {
-                        if (c == '.') {
-                            state = ParserState.CHILD_NAME_DOT_NOTATION;
-                            mark = i + 1;
-                        }
-                        else if (c == '[') {
-                            state = ParserState.START_CHILD_BRACKET_NOTATION;
-                        }
-                        else {
-                            return null;
-                        }
-                    }
-                    else {
-                        return null;
-                    }
-                    break;
-                case CHILD_NAME_DOT_NOTATION:
-                    if (c == '.' || c == '[') {
-                        if (i < length - 1) {
-                            if (i > mark) {
-                                // Reached end of child name. Add it to the list.
-                                children.add(path.substring(mark, i));
-                            }
-                            else {
-                                return null;
-                            }
-                            if (c == '.') {
-                                mark = i + 1;
-                            }
-                            else { // '['
-                                state = ParserState.START_CHILD_BRACKET_NOTATION;
-                            }
-                        }
-                        else {
-                            return null;
-                        }
-                    }
-                    else if (i == length - 1) {
-                        // Reached end of child name. Add it to the list.
-                        children.add(path.substring(mark, i + 1));
-                    }
-                    break;
-                case START_CHILD_BRACKET_NOTATION:
-                    if (i < length - 1) {
-                        if (c == '\'') {
-                            state = ParserState.CHILD_NAME_BRACKET_NOTATION;
-                            mark = i + 1;
-                        }
-                        else {
-                            return null;
-                        }
-                    }
-                    else {
-                        return null;
-                    }
-                    break;
-                case CHILD_NAME_BRACKET_NOTATION:
-                    if (i < length - 1) {
-                        if (c == '\'') {
-                            if (i > mark) {
-                                // Reached end of child name. Add it to the list.
-                                children.add(path.substring(mark, i));
-                            }
-                            else {
-                                return null;
-                            }
-                            state = ParserState.END_CHILD_BRACKET_NOTATION;
-                        }
-                    }
-                    else {
-                        return null;
-                    }
-                    break;
-                case END_CHILD_BRACKET_NOTATION:
-                    if (c == ']') {
-                        state = ParserState.START_CHILD;
+        int i = 1;
+        while (i < length) {
+            final char c = path.charAt(i);
+            if (c == '.') {
+                // Dot notation: the name runs up to the next '.' or '['.
+                final int mark = ++i;
+                while (i < length && path.charAt(i) != '.' && path.charAt(i) != '[') {
+                    ++i;
+                }
+                if (i == mark || (i < length && i == length - 1)) {
+                    return null;
+                }
+                final String name = path.substring(mark, i);
+                steps.add("*".equals(name) ? JSONPath.Step.wildcard() : JSONPath.Step.child(name));
+            }
+            else if (c == '[') {
+                final int end = parseBracket(path, i + 1, steps);
+                if (end < 0) {
+                    return null;
+                }
+                i = end;
+            }
+            else {
+                return null;
+            }
+        }
+        return new JSONPath(steps);
+    }
+
+    // Parses the contents of a bracket starting after the '['. Returns the index after the closing ']' or -1.
+    private static int parseBracket(String path, int i, List<JSONPath.Step> steps) {
+        final int length = path.length();
+        if (i >= length) {
+            return -1;
+        }
+        final char c = path.charAt(i);
+        if (c == '\'' || c == '"') {
+            final int close = path.indexOf(c, i + 1);
+            if (close <= i + 1 || close + 1 >= length || path.charAt(close + 1) != ']') {
+                return -1;
+            }
+            steps.add(JSONPath.Step.child(path.substring(i + 1, close)));
+            return close + 2;
+        }
+        if (c == '*') {
+            if (i + 1 >= length || path.charAt(i + 1) != ']') {
+                return -1;
+            }
+            steps.add(JSONPath.Step.wildcard());
+            return i + 2;
+        }
+        if (c == '?') {
+            return parseFilter(path, i + 1, steps);
+        }
+        final int close = path.indexOf(']', i);
+        if (close < 0) {
+            return -1;
+        }
+        try {
+            steps.add(JSONPath.Step.index(Integer.parseInt(path.substring(i, close).trim())));
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+        return close + 1;
+    }
+
+    // Parses "(@.a.b op literal)]" starting after the '?'. Returns the index after the closing ']' or -1.
+    private static int parseFilter(String path, int i, List<JSONPath.Step> steps) {
+        final int length = path.length();
+        if (i + 1 >= length || path.charAt(i) != '(' || path.charAt(i + 1) != '@') {
+            return -1;
+        }
+        i += 2;
+        // Relative path of the value tested.
+        final List<String> names = new ArrayList<>();
+        while (i < length) {
+            final char c = path.charAt(i);
+            if (c == '.') {
+                final int mark = ++i;
+                while (i < length && isNameChar(path.charAt(i))) {
+                    ++i;
+                }
+                if (i == mark) {
+                    return -1;
+                }
+                names.add(path.substring(mark, i));
+            }
+            else if (c == '[') {
+                final char quote = (i + 1 < length) ? path.charAt(i + 1) : 0;
+                if (quote != '\'' && quote != '"') {
+                    return -1;
+                }
+                final int close = path.indexOf(quote, i + 2);
+                if (close <= i + 2 || close + 1 >= length || path.charAt(close + 1) != ']') {
+                    return -1;
+                }
+                names.add(path.substring(i + 2, close));
+                i = close + 2;
+            }
+            else {
+                break;
+            }
+        }
+        if (names.isEmpty()) {
+            return -1;
+        }
+        i = skipSpaces(path, i);
+        String operator = null;
+        JsonPrimitive literal = null;
+        if (path.startsWith("==", i) || path.startsWith("!=", i)) {
+            operator = path.substring(i, i + 2);
+            i = skipSpaces(path, i + 2);
+            if (i >= length) {
+                return -1;
+            }
+            final char c = path.charAt(i);
+            if (c == '\'' || c == '"') {
+                final int close = path.indexOf(c, i + 1);
+                if (close < 0) {
+                    return -1;
+                }
+                literal = new JsonPrimitive(path.substring(i + 1, close));
+                i = close + 1;
+            }
+            else {
+                final int mark = i;
+                while (i < length && path.charAt(i) != ')' && path.charAt(i) != ' ') {
+                    ++i;
+                }
+                final String token = path.substring(mark, i);
+                if ("true".equals(token) || "false".equals(token)) {
+                    literal = new JsonPrimitive(Boolean.valueOf(token));
+                }
+                else {
+                    try {
+                        literal = new JsonPrimitive(Double.valueOf(token));
                     }
-                    else {
-                        return null;
+                    catch (NumberFormatException e) {
+                        return -1;
                     }
-                    break;
-            }  
+                }
+            }
+            i = skipSpaces(path, i);
         }
-        return new JSONPath(children);
+        if (i + 1 >= length || path.charAt(i) != ')' || path.charAt(i + 1) != ']') {
+            return -1;
+        }
+        steps.add(JSONPath.Step.filter(new JSONPath.Filter(names, operator, literal)));
+        return i + 2;
+    }
+
+    private static boolean isNameChar(char c) {
+        return c != '.' && c != '[' && c != ' ' && c != '=' && c != '!' && c != ')';
     }
-    
-    enum ParserState {
-        START_EXPRESSION,
-        START_CHILD,
-        CHILD_NAME_DOT_NOTATION,
-        START_CHILD_BRACKET_NOTATION,
-        CHILD_NAME_BRACKET_NOTATION,
-        END_CHILD_BRACKET_NOTATION
+
+    private static int skipSpaces(String path, int i) {
+        while (i < path.length() && path.charAt(i) == ' ') {
+            ++i;
+        }
+        return i;
     }
 }
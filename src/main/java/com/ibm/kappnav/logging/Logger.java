@@ -16,8 +16,12 @@
 
 package com.ibm.kappnav.logging;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import application.rest.v1.CustomResourceWatcher;
 
 import com.google.gson.JsonObject;
@@ -32,6 +36,13 @@ import io.kubernetes.client.openapi.apis.CustomObjectsApi;
 
 /**
  * KAppNav logging.
+ * <p>
+ * Lines are written to System.out by the logging thread unless kappnav.logging.async
+ * is true. In that case they are queued in a bounded ring buffer and written by a single
+ * writer thread, so that verbose logging does not serialize the threads doing the work.
+ * When the buffer is full lines are dropped and counted, or with
+ * kappnav.logging.async.overflow=block the logging thread waits for space.
+ * With kappnav.logging.format=json each line is a JSON object.
  */
 public class Logger { 
 
@@ -46,6 +57,32 @@ public class Logger {
 
    private static boolean[] typeEnabled= new boolean[LogType.values().length];
 
+    // Configuration properties. Each can be set as a system property or an environment variable.
+    private static final String ASYNC_PROPERTY = "kappnav.logging.async";
+    private static final String BUFFER_SIZE_PROPERTY = "kappnav.logging.async.buffer.size";
+    private static final String OVERFLOW_PROPERTY = "kappnav.logging.async.overflow";
+    private static final String FORMAT_PROPERTY = "kappnav.logging.format";
+
+    private static final long DEFAULT_BUFFER_SIZE = 8192L;
+
+    // The timestamp format of text lines. DateTimeFormatter is immutable so one instance is shared.
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("MM/dd/yy HH:mm:ss:SSS z").withZone(ZoneId.systemDefault());
+
+    private static final boolean JSON_FORMAT = "json".equalsIgnoreCase(KAppNavConfig.getSetting(FORMAT_PROPERTY));
+    private static final boolean BLOCK_ON_OVERFLOW = "block".equalsIgnoreCase(KAppNavConfig.getSetting(OVERFLOW_PROPERTY));
+
+    // Null unless logging is asynchronous.
+    private static final RingBuffer<Record> BUFFER = KAppNavConfig.getBooleanSetting(ASYNC_PROPERTY, false)
+            ? new RingBuffer<Record>((int) Math.min(1 << 20, KAppNavConfig.getLongSetting(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE)))
+            : null;
+    private static final Thread WRITER = (BUFFER != null) ? startWriter() : null;
+    // Set while the writer is parked waiting for lines.
+    private static volatile boolean writerWaiting;
+
+    private static final AtomicLong WRITTEN = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+
    static { 
             //set initial logger level in case it is changed before kappnav is installed.  If no logging found in kappnav CR, set default level to INFO     
             setInitialLoggerLevel();     
@@ -64,10 +101,151 @@ public class Logger {
     } 
 
     public static void log(String className, String methodName, LogType logType, String logData) {
-      if ( typeEnabled[logType.ordinal()] ) 
-        System.out.println("[" +new SimpleDateFormat("MM/dd/yy HH:mm:ss:SSS z").format(new Date())  
-            + "] " + Thread.currentThread().getId() + " " + className + " " + methodName 
-            + " " + getLogMessage(logType, logData)); 
+      if ( typeEnabled[logType.ordinal()] ) {
+        final long millis = System.currentTimeMillis();
+        final long threadId = Thread.currentThread().getId();
+        if (BUFFER != null) {
+            enqueue(new Record(millis, threadId, className, methodName, logType, logData));
+        }
+        else {
+            System.out.println(format(new StringBuilder(), JSON_FORMAT, millis, threadId, className, methodName, logType, logData));
+            WRITTEN.incrementAndGet();
+        }
+      }
+    }
+
+    // Number of lines written, and dropped because the asynchronous buffer was full.
+    public static long getWrittenCount() {
+        return WRITTEN.get();
+    }
+
+    public static long getDroppedCount() {
+        return DROPPED.get();
+    }
+
+    // Number of lines waiting to be written. Always 0 unless logging is asynchronous.
+    public static int getBufferedCount() {
+        return (BUFFER != null) ? BUFFER.size() : 0;
+    }
+
+    // Appends a log line, without the line separator, to the StringBuilder.
+    static StringBuilder format(StringBuilder sb, boolean json, long millis, long threadId, String className,
+            String methodName, LogType logType, String logData) {
+        if (json) {
+            sb.append("{\"timestamp\":\"").append(Instant.ofEpochMilli(millis))
+              .append("\",\"thread\":").append(threadId)
+              .append(",\"class\":");
+            appendJsonString(sb, className);
+            sb.append(",\"method\":");
+            appendJsonString(sb, methodName);
+            sb.append(",\"type\":\"").append(logType).append("\",\"message\":");
+            appendJsonString(sb, logData);
+            return sb.append('}');
+        }
+        sb.append('[');
+        TIMESTAMP_FORMAT.formatTo(Instant.ofEpochMilli(millis), sb);
+        return sb.append("] ").append(threadId).append(' ').append(className).append(' ').append(methodName)
+            .append(" [").append(logType).append("] ").append(logData);
+    }
+
+    private static void appendJsonString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); ++i) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void enqueue(Record record) {
+        while (!BUFFER.offer(record)) {
+            if (!BLOCK_ON_OVERFLOW) {
+                DROPPED.incrementAndGet();
+                return;
+            }
+            LockSupport.unpark(WRITER);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        if (writerWaiting) {
+            LockSupport.unpark(WRITER);
+        }
+    }
+
+    private static Thread startWriter() {
+        final Thread t = new Thread(Logger::write, "kAppNav Log Writer");
+        t.setDaemon(true);
+        t.start();
+        // Write what is still buffered when the JVM exits.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            LockSupport.unpark(t);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (BUFFER.size() > 0 && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }, "kAppNav Log Writer Shutdown"));
+        return t;
+    }
+
+    // Body of the writer thread.
+    private static void write() {
+        final StringBuilder sb = new StringBuilder(256);
+        long reportedDropped = 0;
+        while (true) {
+            final Record r = BUFFER.poll();
+            if (r != null) {
+                sb.setLength(0);
+                System.out.println(format(sb, JSON_FORMAT, r.millis, r.threadId, r.className, r.methodName, r.logType, r.logData));
+                WRITTEN.incrementAndGet();
+                continue;
+            }
+            final long dropped = DROPPED.get();
+            if (dropped != reportedDropped) {
+                sb.setLength(0);
+                System.out.println(format(sb, JSON_FORMAT, System.currentTimeMillis(), Thread.currentThread().getId(), className, "write",
+                        LogType.WARNING, (dropped - reportedDropped) + " log line(s) dropped because the log buffer was full."));
+                reportedDropped = dropped;
+            }
+            writerWaiting = true;
+            // Check again in case a line was queued before the flag was set.
+            if (BUFFER.size() == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            }
+            writerWaiting = false;
+        }
+    }
+
+    private static final class Record {
+        final long millis;
+        final long threadId;
+        final String className;
+        final String methodName;
+        final LogType logType;
+        final String logData;
+        Record(long millis, long threadId, String className, String methodName, LogType logType, String logData) {
+            this.millis = millis;
+            this.threadId = threadId;
+            this.className = className;
+            this.methodName = methodName;
+            this.logType = logType;
+            this.logData = logData;
+        }
     }
 
     // guard methods 
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.kappnav.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Each slot carries a
+ * sequence number: a producer claims a position by advancing the tail and publishes its
+ * element by advancing the slot's sequence, which the consumer waits for before reading
+ * the slot. offer() fails instead of waiting when the queue is full.
+ */
+final class RingBuffer<T> {
+
+    private final int mask;
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Only written by the consumer. Volatile so that size() can be called from any thread.
+    private volatile long head;
+
+    // The capacity is rounded up to a power of two.
+    RingBuffer(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        slots = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Adds the element, returning false if the queue is full. Can be called from any thread.
+     */
+    boolean offer(T e) {
+        while (true) {
+            final long position = tail.get();
+            final int index = (int) position & mask;
+            final long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = e;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            }
+            else if (sequence < position) {
+                // The consumer has not yet read the element written one lap ago.
+                return false;
+            }
+            // Another producer claimed the position; try the next one.
+        }
+    }
+
+    /**
+     * Removes the oldest element, or returns null if there is none. Must only be called
+     * from the consumer thread.
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        final int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        final T e = (T) slots[index];
+        slots[index] = null;
+        sequences.lazySet(index, head + slots.length);
+        ++head;
+        return e;
+    }
+
+    /**
+     * Returns the approximate number of elements in the queue.
+     */
+    int size() {
+        return (int) Math.max(0, Math.min(slots.length, tail.get() - head));
+    }
+}
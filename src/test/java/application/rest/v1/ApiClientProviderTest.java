@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.kubernetes.client.openapi.ApiClient;
+
+public class ApiClientProviderTest {
+
+    private File token;
+    private File kubeConfig;
+
+    @Before
+    public void setUp() throws IOException {
+        token = File.createTempFile("token", null);
+        kubeConfig = File.createTempFile("kubeconfig", null);
+        ApiClientProvider.setCredentialFilesForJunit(token, kubeConfig);
+        ApiClientProvider.invalidate();
+    }
+
+    @After
+    public void tearDown() {
+        ApiClientProvider.setCredentialFilesForJunit(null, null);
+        ApiClientProvider.invalidate();
+        token.delete();
+        kubeConfig.delete();
+    }
+
+    @Test
+    public void getApiClient_rebuiltWhenCredentialsChange() throws Exception {
+        final long interval = ApiClientProvider.getReloadCheckIntervalMillis();
+        long now = System.currentTimeMillis();
+        final ApiClient first = ApiClientProvider.getApiClient(now);
+        assertSame("The shared client was rebuilt within the check interval", first, ApiClientProvider.getApiClient(now + 1));
+
+        // Checked again after the interval. The credentials are unchanged.
+        now += interval + 1;
+        assertSame("The shared client was rebuilt with unchanged credentials", first, ApiClientProvider.getApiClient(now));
+
+        // The service account token is rotated.
+        assertTrue(token.setLastModified(token.lastModified() + 60000L));
+        now += interval + 1;
+        final ApiClient second = ApiClientProvider.getApiClient(now);
+        assertNotSame("The shared client was not rebuilt after the token changed", first, second);
+        assertSame(second, ApiClientProvider.getApiClient(now + interval + 1));
+
+        // The kubeconfig file is changed.
+        assertTrue(kubeConfig.setLastModified(kubeConfig.lastModified() + 60000L));
+        now += 2 * (interval + 1);
+        assertNotSame("The shared client was not rebuilt after the kubeconfig changed", second, ApiClientProvider.getApiClient(now));
+    }
+}
@@ -217,6 +217,63 @@ public class ApplicationCacheTest {
         }
     }
     
+    @Test
+    public void listApplicationObject_followsContinue() throws Exception {
+        final JsonObject page1 = jsonObject1.deepCopy();
+        final JsonObject metadata = new JsonObject();
+        metadata.addProperty("resourceVersion", "100");
+        metadata.addProperty("continue", "page2");
+        metadata.addProperty("remainingItemCount", 1);
+        page1.add("metadata", metadata);
+        final JsonObject page2 = jsonObject1.deepCopy();
+        final JsonObject app2 = page2.getAsJsonArray("items").get(0).getAsJsonObject();
+        app2.getAsJsonObject("metadata").addProperty("name", "stock-trader-2");
+        final List<JsonObject> expected = new ArrayList<JsonObject>(jsonList);
+        expected.add(app2);
+
+        mock.checking(new Expectations() {
+            {
+                oneOf(coa).setApiClient(with(any(ApiClient.class)));
+                oneOf(coa).listClusterCustomObject("app.k8s.io", "v1beta1", "applications", null, null, null, null, 60, null, 60, Boolean.FALSE);
+                will(returnValue(page1));
+                oneOf(coa).listClusterCustomObject("app.k8s.io", "v1beta1", "applications", null, "page2", null, null, 60, null, 60, Boolean.FALSE);
+                will(returnValue(page2));
+            }
+        });
+
+        List<JsonObject> result = ApplicationCache.listApplicationObject(ac);
+        assertEquals("Test listApplicationObject_followsContinue FAILED", expected, result);
+    }
+
+    @Test
+    public void listApplicationObject_notServedUntilSynced() throws Exception {
+        ApplicationCache.resetCache();
+        try {
+            // The first application of the initial list has been loaded.
+            final JsonObject loaded = jsonObject2.deepCopy();
+            loaded.getAsJsonObject("metadata").addProperty("name", "loaded");
+            ApplicationCache.processApplicationEvent("ADDED", loaded);
+            mock.checking(new Expectations() {
+                {
+                    oneOf(coa).setApiClient(with(any(ApiClient.class)));
+                    oneOf(coa).listClusterCustomObject("app.k8s.io", "v1beta1", "applications", null, null, null, null, 60, null, 60, Boolean.FALSE);
+                    will(returnValue(jsonObject1));
+                }
+            });
+            assertFalse(ApplicationCache.isSynced());
+            assertEquals(jsonList, ApplicationCache.listApplicationObject(ac));
+
+            ApplicationCache.setSyncedForJunit();
+            assertTrue(ApplicationCache.isSynced());
+            final List<JsonObject> expected = new ArrayList<JsonObject>();
+            expected.add(loaded);
+            assertEquals(expected, ApplicationCache.listApplicationObject(ac));
+        }
+        finally {
+            ApplicationCache.resetCache();
+        }
+    }
+
     @Test
     public void listNamespacedApplicationObject_succeeds() throws Exception {
         mock.checking(new Expectations() {
@@ -235,4 +292,20 @@ public class ApplicationCacheTest {
         }
     }
     
+    @Test
+    public void applicationInfo_parsesApplication() throws Exception {
+        final ApplicationCache.ApplicationInfo info = new ApplicationCache.ApplicationInfo(jsonObject2, "stock-trader", "stock-trader");
+        assertSame(jsonObject2, info.getApplication());
+        assertFalse(info.isHidden());
+        assertEquals(5, info.getDeclaredComponentKinds().size());
+        assertEquals("Deployment", info.getDeclaredComponentKinds().get(0).kind);
+        assertEquals("solution=stock-trader", info.getLabelSelector());
+        assertEquals("[twas, liberty, localliberty, appmetrics-dash, stock-trader]", info.getComponentNamespaces().toString());
+        assertTrue(info.getCompiledSelector().matches(new JsonParser().parse(
+                "{\"metadata\":{\"labels\":{\"solution\":\"stock-trader\"}}}").getAsJsonObject()));
+
+        final JsonObject hidden = jsonObject2.deepCopy();
+        hidden.getAsJsonObject("metadata").getAsJsonObject("annotations").addProperty("kappnav.application.hidden", "true");
+        assertTrue(ApplicationCache.getApplicationInfo(hidden).isHidden());
+    }
 }
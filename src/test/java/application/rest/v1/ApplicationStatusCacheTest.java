@@ -0,0 +1,256 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import application.rest.v1.ComponentInfoRegistry.ComponentInfo;
+import application.rest.v1.StatusBatch.StatusItem;
+import application.rest.v1.configmaps.ConfigMapCache;
+import application.rest.v1.configmaps.KindActionMappingCache;
+
+import io.kubernetes.client.openapi.ApiClient;
+
+public class ApplicationStatusCacheTest {
+    @SuppressWarnings("deprecation")
+    private final Mockery mock = new JUnit4Mockery() {
+        {
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }
+    };
+
+    private static final List<String> PRECEDENCE = Arrays.asList("Problem", "Warning", "Unknown", "Normal");
+
+    private static final ComponentInfo DEPLOYMENT = new ComponentInfo("Deployment", "apps", "v1", "deployments", true);
+
+    private final ApiClient client = new ApiClient();
+    private final ComponentInfoRegistry registry = mock.mock(ComponentInfoRegistry.class);
+    private final KAppNavConfig config = mock.mock(KAppNavConfig.class);
+    private final Source source = new Source();
+
+    // Lists the deployments it holds as the components of any application. The status of
+    // a component is the value of its status property.
+    private static final class Source implements ApplicationStatusCache.StatusSource {
+        private final Map<String,JsonObject> components = new ConcurrentHashMap<>();
+        // The names of the components whose statuses were computed, in order.
+        private final List<String> computed = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public List<StatusItem> getApplicationStatusItems(ApiClient client, ComponentInfoRegistry registry, JsonObject app,
+                String appName, String appNamespace) {
+            final List<StatusItem> items = new ArrayList<>();
+            components.values().forEach(v -> items.add(new StatusItem("Deployment", "apps/v1",
+                    KAppNavEndpoint.getComponentNamespace(v), KAppNavEndpoint.getComponentName(v), v.deepCopy())));
+            return items;
+        }
+
+        @Override
+        public void computeStatuses(ApiClient client, ComponentInfoRegistry registry, KAppNavConfig config, List<StatusItem> items) {
+            for (StatusItem item : items) {
+                computed.add(item.name);
+                item.status = item.resource.getAsJsonObject("status");
+            }
+        }
+    }
+
+    private static JsonObject deployment(String namespace, String name, String label, String status) {
+        return new JsonParser().parse("{\"apiVersion\":\"apps/v1\",\"kind\":\"Deployment\",\"metadata\":{\"name\":\"" + name
+                + "\",\"namespace\":\"" + namespace + "\",\"labels\":{\"app\":\"" + label + "\"}},"
+                + "\"status\":{\"value\":\"" + status + "\"}}").getAsJsonObject();
+    }
+
+    private void add(JsonObject component) {
+        source.components.put(KAppNavEndpoint.getComponentName(component), component);
+    }
+
+    private String status(JsonObject app) throws Exception {
+        return ApplicationStatusCache.getApplicationStatus(client, registry, config, app).get("value").getAsString();
+    }
+
+    @Before
+    public void setUp() {
+        mock.checking(new Expectations() {
+            {
+                allowing(registry).getComponentGroupApiVersions(with(any(ComponentKind.class)));
+                will(returnValue(Collections.singleton("apps/v1")));
+                allowing(registry).isCached(client, "Deployment", "apps/v1");
+                will(returnValue(true));
+                allowing(config).getAppStatusPrecedence();
+                will(returnValue(PRECEDENCE));
+                allowing(config).getStatusUnknown();
+                will(returnValue("Unknown"));
+            }
+        });
+        // Registers the listeners before the application cache is reset.
+        ComponentOwnerIndex.getSize();
+        ApplicationStatusCache.getSize();
+        ApplicationCache.resetCache();
+        ApplicationCache.setSyncedForJunit();
+        KindActionMappingCache.setWatchingForJunit(true);
+        ConfigMapCache.setCachedForJunit(true);
+        ApplicationStatusCache.setStatusSourceForJunit(source);
+    }
+
+    @After
+    public void tearDown() {
+        ApplicationStatusCache.setStatusSourceForJunit(null);
+        ApplicationCache.resetCache();
+        ConfigMapCache.setCachedForJunit(false);
+        KindActionMappingCache.setWatchingForJunit(false);
+    }
+
+    @Test
+    public void getApplicationStatus_componentStatusChange() throws Exception {
+        final JsonObject app = ComponentOwnerIndexTest.application("stock", "trader", "trader");
+        ApplicationCache.processApplicationEvent("ADDED", app);
+        add(deployment("stock", "web", "trader", "Normal"));
+        add(deployment("stock", "db", "trader", "Normal"));
+        assertEquals("Normal", status(app));
+        assertEquals(2, source.computed.size());
+        assertEquals("Normal", status(app));
+        assertEquals("Unchanged components were evaluated again", 2, source.computed.size());
+
+        final JsonObject web = deployment("stock", "web", "trader", "Problem");
+        add(web);
+        ComponentOwnerIndex.componentChanged(DEPLOYMENT, "MODIFIED", web);
+        assertEquals("Problem", status(app));
+        assertEquals(Arrays.asList("web"), source.computed.subList(2, source.computed.size()));
+    }
+
+    @Test
+    public void getApplicationStatus_componentAddedAndDeleted() throws Exception {
+        final JsonObject app = ComponentOwnerIndexTest.application("stock", "trader", "trader");
+        ApplicationCache.processApplicationEvent("ADDED", app);
+        add(deployment("stock", "web", "trader", "Normal"));
+        assertEquals("Normal", status(app));
+        assertEquals(1, ApplicationStatusCache.getLinkCount());
+
+        final JsonObject cache = deployment("stock", "cache", "trader", "Warning");
+        ComponentOwnerIndex.componentChanged(DEPLOYMENT, "ADDED", cache);
+        assertEquals("Warning", status(app));
+        assertEquals(Arrays.asList("web", "cache"), source.computed);
+        assertEquals(2, ApplicationStatusCache.getLinkCount());
+
+        ComponentOwnerIndex.componentChanged(DEPLOYMENT, "DELETED", cache);
+        assertEquals("Normal", status(app));
+        assertEquals(1, ApplicationStatusCache.getLinkCount());
+
+        // A component that no longer matches the selector leaves the application.
+        ComponentOwnerIndex.componentChanged(DEPLOYMENT, "MODIFIED", deployment("stock", "web", "broker", "Problem"));
+        assertEquals("Unknown", status(app));
+        assertEquals(0, ApplicationStatusCache.getLinkCount());
+        assertEquals(2, source.computed.size());
+    }
+
+    @Test
+    public void getApplicationStatus_otherGroupNotDelivered() throws Exception {
+        final JsonObject app = ComponentOwnerIndexTest.application("stock", "trader", "trader");
+        ApplicationCache.processApplicationEvent("ADDED", app);
+        add(deployment("stock", "web", "trader", "Problem"));
+        assertEquals("Problem", status(app));
+
+        // A kind of the same name in another group.
+        final ComponentInfo other = new ComponentInfo("Deployment", "example.com", "v1", "deployments", true);
+        ComponentOwnerIndex.componentChanged(other, "DELETED", deployment("stock", "web", "trader", "Problem"));
+        assertEquals("Problem", status(app));
+        assertEquals(1, source.computed.size());
+    }
+
+    @Test
+    public void applicationChanged_dropsEntryAndLinks() throws Exception {
+        final JsonObject app = ComponentOwnerIndexTest.application("stock", "trader", "trader");
+        ApplicationCache.processApplicationEvent("ADDED", app);
+        add(deployment("stock", "web", "trader", "Normal"));
+        add(deployment("stock", "db", "trader", "Normal"));
+        assertEquals("Normal", status(app));
+        assertEquals(1, ApplicationStatusCache.getSize());
+        assertEquals(2, ApplicationStatusCache.getLinkCount());
+
+        final JsonObject modified = app.deepCopy();
+        modified.getAsJsonObject("metadata").addProperty("resourceVersion", "2");
+        ApplicationCache.processApplicationEvent("MODIFIED", modified);
+        assertEquals(0, ApplicationStatusCache.getSize());
+        assertEquals(0, ApplicationStatusCache.getLinkCount());
+
+        assertEquals("Normal", status(modified));
+        assertEquals(2, ApplicationStatusCache.getLinkCount());
+        ApplicationCache.processApplicationEvent("DELETED", modified);
+        assertEquals(0, ApplicationStatusCache.getSize());
+        assertEquals(0, ApplicationStatusCache.getLinkCount());
+    }
+
+    @Test
+    public void retainApplications_dropsLinks() throws Exception {
+        final JsonObject trader = ComponentOwnerIndexTest.application("stock", "trader", "trader");
+        final JsonObject broker = ComponentOwnerIndexTest.application("stock", "broker", "trader");
+        ApplicationCache.processApplicationEvent("ADDED", trader);
+        ApplicationCache.processApplicationEvent("ADDED", broker);
+        add(deployment("stock", "web", "trader", "Normal"));
+        assertEquals("Normal", status(trader));
+        assertEquals("Normal", status(broker));
+        assertEquals(2, ApplicationStatusCache.getSize());
+        assertEquals(1, ApplicationStatusCache.getLinkCount());
+
+        ApplicationStatusCache.retainApplications("stock", Collections.singleton("broker"));
+        assertEquals(1, ApplicationStatusCache.getSize());
+        assertEquals(1, ApplicationStatusCache.getLinkCount());
+        ApplicationStatusCache.retainApplications("stock", Collections.emptySet());
+        assertEquals(0, ApplicationStatusCache.getSize());
+        assertEquals(0, ApplicationStatusCache.getLinkCount());
+    }
+
+    @Test
+    public void aggregateStatus_precedence() {
+        final JsonObject status = ApplicationStatusCache.aggregateStatus(
+                Arrays.asList("Normal", "Warning", "Normal", "Unknown"), PRECEDENCE, "Unknown");
+        assertEquals("Warning", status.get("value").getAsString());
+        assertEquals("Warning: 1, Unknown: 1, Normal: 2", status.get("flyover").getAsString());
+        assertEquals("Normal", ApplicationStatusCache.aggregateStatus(
+                Arrays.asList("Normal", "Normal"), PRECEDENCE, "Unknown").get("value").getAsString());
+    }
+
+    @Test
+    public void aggregateStatus_unlistedAndEmpty() {
+        // Values that are not in the precedence list count as unknown.
+        final JsonObject status = ApplicationStatusCache.aggregateStatus(
+                Arrays.asList("Normal", "Degraded"), PRECEDENCE, "Unknown");
+        assertEquals("Unknown", status.get("value").getAsString());
+        assertEquals("Unknown: 1, Normal: 1", status.get("flyover").getAsString());
+        assertEquals("Unknown", ApplicationStatusCache.aggregateStatus(
+                Collections.emptyList(), PRECEDENCE, "Unknown").get("value").getAsString());
+        assertEquals("Unknown", ApplicationStatusCache.aggregateStatus(
+                Arrays.asList("Normal"), Collections.singletonList("Unknown"), "Unknown").get("value").getAsString());
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class CompiledSelectorTest {
+
+    private static final String[] OBJECTS = {
+        "{\"metadata\":{\"name\":\"a\",\"labels\":{\"app\":\"stock-trader\",\"tier\":\"db\",\"environment\":\"prod\"}}}",
+        "{\"metadata\":{\"name\":\"b\",\"labels\":{\"app\":\"stock-trader\",\"tier\":\"web\",\"release\":\"1\"}}}",
+        "{\"metadata\":{\"name\":\"c\",\"labels\":{\"app\":\"stock-trader\",\"tier\":\"cache\",\"environment\":\"dev\"}}}",
+        "{\"metadata\":{\"name\":\"d\",\"labels\":{\"app\":\"bookinfo\",\"tier\":\"db\",\"canary\":\"true\"}}}",
+        "{\"metadata\":{\"name\":\"e\",\"labels\":{}}}",
+        "{\"metadata\":{\"name\":\"f\"}}",
+    };
+
+    private static final String[] SELECTORS = {
+        "app=stock-trader",
+        "app=stock-trader,tier=db",
+        "tier in (cache, db)",
+        "tier notin (db)",
+        "app!=stock-trader",
+        "release",
+        "!canary",
+        "app=stock-trader,tier in (cache, db),environment notin (dev),!canary",
+        "app in (bookinfo),release",
+        "app=unknown",
+    };
+
+    private final Map<String,JsonObject> objects = new LinkedHashMap<>();
+    private final LabelIndex<String> index = new LabelIndex<>();
+
+    @Before
+    public void setUp() {
+        for (String json : OBJECTS) {
+            final JsonObject o = new JsonParser().parse(json).getAsJsonObject();
+            final String name = KAppNavEndpoint.getComponentName(o);
+            objects.put(name, o);
+            index.add(name, LabelIndex.getLabels(o));
+        }
+    }
+
+    @Test
+    public void matches_agreesWithSelector() {
+        for (String s : SELECTORS) {
+            final Selector selector = Selector.parse(s);
+            assertNotNull("Test matches_agreesWithSelector FAILED: " + s, selector);
+            final CompiledSelector compiled = selector.compile();
+            objects.forEach((name, o) -> {
+                assertEquals("Test matches_agreesWithSelector FAILED: " + s + " on " + name,
+                        selector.matches(o), compiled.matches(o));
+                final JsonObject metadata = o.getAsJsonObject("metadata");
+                if (metadata.has("labels")) {
+                    final JsonObject labels = metadata.getAsJsonObject("labels");
+                    assertEquals("Test matches_agreesWithSelector FAILED: " + s + " on " + name,
+                            selector.matchesLabels(labels), compiled.matchesLabels(LabelIndex.getLabels(o)));
+                }
+            });
+        }
+    }
+
+    @Test
+    public void select_agreesWithSelector() {
+        for (String s : SELECTORS) {
+            final Selector selector = Selector.parse(s);
+            final Set<String> expected = new HashSet<>();
+            objects.forEach((name, o) -> {
+                // select() works on the labels alone, so an object without labels is treated as
+                // having an empty label map.
+                final JsonObject metadata = o.getAsJsonObject("metadata");
+                final JsonObject labels = metadata.has("labels") ? metadata.getAsJsonObject("labels") : new JsonObject();
+                if (selector.matchesLabels(labels)) {
+                    expected.add(name);
+                }
+            });
+            assertEquals("Test select_agreesWithSelector FAILED: " + s, expected,
+                    selector.compile().select(index, objects.keySet()));
+        }
+    }
+
+    @Test
+    public void select_afterRemove() {
+        index.remove("a", LabelIndex.getLabels(objects.get("a")));
+        final Set<String> universe = new HashSet<>(objects.keySet());
+        universe.remove("a");
+        final Set<String> result = Selector.parse("tier=db").compile().select(index, universe);
+        assertEquals("Test select_afterRemove FAILED", 1, result.size());
+        assertTrue("Test select_afterRemove FAILED", result.contains("d"));
+    }
+
+    @Test
+    public void compile_emptyMatchesNothing() {
+        final Selector selector = new Selector();
+        assertTrue(selector.compile().isEmpty());
+        assertFalse(selector.compile().matches(objects.get("a")));
+        assertTrue(selector.compile().select(index, objects.keySet()).isEmpty());
+        // Modifying the selector discards the compiled form.
+        selector.addMatchLabel("app", "bookinfo");
+        assertTrue(selector.compile().matches(objects.get("d")));
+    }
+}
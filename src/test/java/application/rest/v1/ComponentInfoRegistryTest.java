@@ -22,6 +22,8 @@ import application.rest.v1.ComponentInfoRegistry.ComponentInfo;
 import static org.junit.Assert.*;
 
 import java.lang.String;
+import java.util.Collections;
+import java.util.Map;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -32,6 +34,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.Ignore;	
 
+import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
@@ -40,6 +43,9 @@ import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.apis.ApisApi;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.apis.CustomObjectsApi;
+import io.kubernetes.client.openapi.models.V1APIGroup;
+import io.kubernetes.client.openapi.models.V1APIGroupList;
+import io.kubernetes.client.openapi.models.V1GroupVersionForDiscovery;
 
 /**
  * @author jasuryak
@@ -323,5 +329,143 @@ public class ComponentInfoRegistryTest {
             fail("Test listClusterObject_succeeds failed with exception " + e.getMessage());
         }
     }
- 
+
+    @Test
+    public void getComponentInfo_cachesNotFound() throws Exception {
+        mock.checking(new Expectations() {
+            {
+                allowing(apis).setApiClient(with(any(ApiClient.class)));
+                allowing(apis).getAPIVersions();
+                allowing(coa).setApiClient(with(any(ApiClient.class)));
+                // Only the first lookup refreshes the group version.
+                oneOf(coa).listClusterCustomObject("example.com", "v1", ".", null, null, null, null, 60, null, 60, false);
+                will(throwException(new ApiException(404, "Not Found")));
+            }
+        });
+
+        cir = new ComponentInfoRegistry();
+        for (int i = 0; i < 2; ++i) {
+            try {
+                cir.isNamespaced(ac, "Gadget", "example.com/v1");
+                fail("Test getComponentInfo_cachesNotFound should have failed.");
+            } catch (ApiException e) {
+                assertEquals("Test getComponentInfo_cachesNotFound FAILED", 207, e.getCode());
+            }
+        }
+    }
+
+    @Test
+    public void getComponentInfo_boundsNotFound() throws Exception {
+        mock.checking(new Expectations() {
+            {
+                allowing(apis).setApiClient(with(any(ApiClient.class)));
+                allowing(apis).getAPIVersions();
+                allowing(coa).setApiClient(with(any(ApiClient.class)));
+                allowing(coa).listClusterCustomObject("example.com", "v1", ".", null, null, null, null, 60, null, 60, false);
+                will(throwException(new ApiException(404, "Not Found")));
+            }
+        });
+
+        cir = new ComponentInfoRegistry();
+        // The kinds come from requests. The negative cache doesn't grow past its maximum size.
+        for (int i = 0; i <= 1000; ++i) {
+            try {
+                cir.isNamespaced(ac, "Gadget" + i, "example.com/v1");
+                fail("Test getComponentInfo_boundsNotFound should have failed.");
+            } catch (ApiException e) {
+                assertEquals("Test getComponentInfo_boundsNotFound FAILED", 207, e.getCode());
+            }
+            assertTrue("Test getComponentInfo_boundsNotFound FAILED", cir.getNotFoundCountForJunit() <= 1000);
+        }
+        assertTrue("Test getComponentInfo_boundsNotFound FAILED", cir.getNotFoundCountForJunit() > 0);
+    }
+
+    @Test
+    public void processCRDEvent_addsAndRemovesKind() throws Exception {
+        mock.checking(new Expectations() {
+            {
+                allowing(apis).setApiClient(with(any(ApiClient.class)));
+                allowing(apis).getAPIVersions();
+                allowing(coa).setApiClient(with(any(ApiClient.class)));
+                allowing(coa).listClusterCustomObject("example.com", "v1", ".", null, null, null, null, 60, null, 60, false);
+                will(throwException(new ApiException(404, "Not Found")));
+            }
+        });
+
+        final JsonObject crd = new JsonParser().parse("{\"spec\":{\"group\":\"example.com\",\"scope\":\"Namespaced\","
+                + "\"names\":{\"kind\":\"Widget\",\"plural\":\"widgets\"},"
+                + "\"versions\":[{\"name\":\"v1\",\"served\":true},{\"name\":\"v1alpha1\",\"served\":false}]}}").getAsJsonObject();
+        cir = new ComponentInfoRegistry();
+        cir.processCRDEvent("ADDED", crd);
+        assertTrue("Test processCRDEvent_addsAndRemovesKind FAILED", cir.isNamespaced(ac, "Widget", "example.com/v1"));
+        assertEquals("Test processCRDEvent_addsAndRemovesKind FAILED", "[example.com/v1]",
+                cir.getComponentGroupApiVersions(new ComponentKind("example.com", "Widget")).toString());
+
+        cir.processCRDEvent("DELETED", crd);
+        try {
+            cir.isNamespaced(ac, "Widget", "example.com/v1");
+            fail("Test processCRDEvent_addsAndRemovesKind should have failed.");
+        } catch (ApiException e) {
+            assertEquals("Test processCRDEvent_addsAndRemovesKind FAILED", 207, e.getCode());
+        }
+    }
+
+    @Test
+    public void processCRDEvent_removesKindWhenDeletedWithMetadataOnly() throws Exception {
+        mock.checking(new Expectations() {
+            {
+                allowing(apis).setApiClient(with(any(ApiClient.class)));
+                allowing(apis).getAPIVersions();
+                allowing(coa).setApiClient(with(any(ApiClient.class)));
+                allowing(coa).listClusterCustomObject("example.com", "v1", ".", null, null, null, null, 60, null, 60, false);
+                will(throwException(new ApiException(404, "Not Found")));
+            }
+        });
+
+        final JsonObject crd = new JsonParser().parse("{\"metadata\":{\"name\":\"widgets.example.com\"},"
+                + "\"spec\":{\"group\":\"example.com\",\"scope\":\"Namespaced\","
+                + "\"names\":{\"kind\":\"Widget\",\"plural\":\"widgets\"},"
+                + "\"versions\":[{\"name\":\"v1\",\"served\":true}]}}").getAsJsonObject();
+        cir = new ComponentInfoRegistry();
+        cir.processCRDEvent("ADDED", crd);
+        assertTrue("Test processCRDEvent_removesKindWhenDeletedWithMetadataOnly FAILED", cir.isNamespaced(ac, "Widget", "example.com/v1"));
+
+        // A CRD deleted while the watch was down is passed on with only its metadata.
+        cir.processCRDEvent("DELETED", new JsonParser().parse("{\"metadata\":{\"name\":\"widgets.example.com\"}}").getAsJsonObject());
+        assertEquals("Test processCRDEvent_removesKindWhenDeletedWithMetadataOnly FAILED", "[null]",
+                cir.getComponentGroupApiVersions(new ComponentKind("example.com", "Widget")).toString());
+        try {
+            cir.isNamespaced(ac, "Widget", "example.com/v1");
+            fail("Test processCRDEvent_removesKindWhenDeletedWithMetadataOnly should have failed.");
+        } catch (ApiException e) {
+            assertEquals("Test processCRDEvent_removesKindWhenDeletedWithMetadataOnly FAILED", 207, e.getCode());
+        }
+    }
+
+    @Test
+    public void processGroupList_keepsKindsOfGroupVersionNotListed() throws Exception {
+        final V1GroupVersionForDiscovery v1 = new V1GroupVersionForDiscovery().groupVersion("example.com/v1").version("v1");
+        final V1APIGroupList groups = new V1APIGroupList().groups(Collections.singletonList(
+                new V1APIGroup().name("example.com").preferredVersion(v1).versions(Collections.singletonList(v1))));
+        final Object resources = new Gson().fromJson("{\"resources\":[{\"name\":\"widgets\",\"kind\":\"Widget\",\"namespaced\":true}]}", Map.class);
+        mock.checking(new Expectations() {
+            {
+                allowing(apis).setApiClient(with(any(ApiClient.class)));
+                allowing(apis).getAPIVersions();
+                will(returnValue(groups));
+                allowing(coa).setApiClient(with(any(ApiClient.class)));
+                oneOf(coa).listClusterCustomObject("example.com", "v1", ".", null, null, null, null, 60, null, 60, false);
+                will(returnValue(resources));
+                oneOf(coa).listClusterCustomObject("example.com", "v1", ".", null, null, null, null, 60, null, 60, false);
+                will(throwException(new ApiException(503, "Service Unavailable")));
+            }
+        });
+
+        assertTrue("Test processGroupList_keepsKindsOfGroupVersionNotListed FAILED", new ComponentInfoRegistry().isNamespaced(ac, "Widget", "example.com/v1"));
+        // The second discovery can't list the group version, so it keeps the kinds found by the first.
+        cir = new ComponentInfoRegistry();
+        assertTrue("Test processGroupList_keepsKindsOfGroupVersionNotListed FAILED", cir.isNamespaced(ac, "Widget", "example.com/v1"));
+        assertEquals("Test processGroupList_keepsKindsOfGroupVersionNotListed FAILED", "[example.com/v1]",
+                cir.getComponentGroupApiVersions(new ComponentKind("example.com", "Widget")).toString());
+    }
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import application.rest.v1.ApplicationCache.ApplicationInfo;
+import application.rest.v1.ComponentInfoRegistry.ComponentInfo;
+
+public class ComponentOwnerIndexTest {
+
+    private static final JsonObject APP = new JsonParser().parse(
+        "{\"kind\":\"Application\",\"metadata\":{\"name\":\"trader\",\"namespace\":\"stock\","
+        + "\"annotations\":{\"kappnav.component.namespaces\":\"shared\"}},"
+        + "\"spec\":{\"componentKinds\":[{\"group\":\"apps\",\"kind\":\"Deployment\"},{\"group\":\"app.k8s.io\",\"kind\":\"Application\"}],"
+        + "\"selector\":{\"matchLabels\":{\"app\":\"trader\"}}}}").getAsJsonObject();
+
+    private static final ComponentInfo DEPLOYMENT = new ComponentInfo("Deployment", "apps", "v1", "deployments", true);
+
+    // The events passed to the listener, as "{type} {name} {owners}".
+    private static final List<String> EVENTS = Collections.synchronizedList(new ArrayList<>());
+
+    static {
+        ComponentOwnerIndex.addListener((info, type, o, applications) ->
+            EVENTS.add(type + " " + KAppNavEndpoint.getComponentName(o) + " " + ((applications != null) ? new TreeSet<>(applications) : null)));
+    }
+
+    private static JsonObject component(String namespace, String name, String label) {
+        return new JsonParser().parse("{\"metadata\":{\"name\":\"" + name + "\",\"namespace\":\"" + namespace
+                + "\",\"labels\":{\"app\":\"" + label + "\"}}}").getAsJsonObject();
+    }
+
+    private static JsonObject deployment(String namespace, String name, String label) {
+        final JsonObject o = component(namespace, name, label);
+        o.addProperty("apiVersion", "apps/v1");
+        o.addProperty("kind", "Deployment");
+        return o;
+    }
+
+    static JsonObject application(String namespace, String name, String label, String kinds) {
+        return new JsonParser().parse("{\"apiVersion\":\"app.k8s.io/v1beta1\",\"kind\":\"Application\",\"metadata\":{\"name\":\""
+                + name + "\",\"namespace\":\"" + namespace + "\",\"resourceVersion\":\"1\"},"
+                + "\"spec\":{\"componentKinds\":" + kinds + ",\"selector\":{\"matchLabels\":{\"app\":\"" + label + "\"}}}}").getAsJsonObject();
+    }
+
+    static JsonObject application(String namespace, String name, String label) {
+        return application(namespace, name, label, "[{\"group\":\"apps\",\"kind\":\"Deployment\"}]");
+    }
+
+    private static Set<String> owners(String namespace, JsonObject component) {
+        final List<ApplicationInfo> owners = ComponentOwnerIndex.getOwners("Deployment", namespace, component);
+        if (owners == null) {
+            return null;
+        }
+        final Set<String> keys = new TreeSet<>();
+        owners.forEach(v -> keys.add(v.getKey()));
+        return keys;
+    }
+
+    @Before
+    public void setUp() {
+        // Registers the index's listeners before the application cache is reset.
+        ComponentOwnerIndex.getSize();
+        ApplicationCache.resetCache();
+        ApplicationCache.setSyncedForJunit();
+        EVENTS.clear();
+    }
+
+    @After
+    public void tearDown() {
+        ApplicationCache.resetCache();
+    }
+
+    @Test
+    public void includes_kindNamespaceAndSelector() {
+        final ApplicationInfo info = new ApplicationInfo(APP, "stock", "trader");
+        assertTrue(ComponentOwnerIndex.includes(info, "Deployment", "stock", component("stock", "web", "trader")));
+        assertTrue(ComponentOwnerIndex.includes(info, "Deployment", "shared", component("shared", "db", "trader")));
+        assertFalse(ComponentOwnerIndex.includes(info, "Deployment", "other", component("other", "web", "trader")));
+        assertFalse(ComponentOwnerIndex.includes(info, "Deployment", "stock", component("stock", "web", "broker")));
+        assertFalse(ComponentOwnerIndex.includes(info, "Service", "stock", component("stock", "web", "trader")));
+        // Kinds that are not declared are never included, whatever their scope.
+        assertFalse(ComponentOwnerIndex.includes(info, "ClusterRole", null, component("", "admin", "trader")));
+    }
+
+    @Test
+    public void includes_notItself() {
+        final ApplicationInfo info = new ApplicationInfo(APP, "stock", "trader");
+        assertFalse(ComponentOwnerIndex.includes(info, "Application", "stock", component("stock", "trader", "trader")));
+        assertTrue(ComponentOwnerIndex.includes(info, "Application", "stock", component("stock", "portfolio", "trader")));
+    }
+
+    @Test
+    public void getOwners_computedOnceIncludingNoOwners() {
+        ApplicationCache.processApplicationEvent("ADDED", application("stock", "trader", "trader"));
+        ApplicationCache.processApplicationEvent("ADDED", application("stock", "broker", "broker"));
+        final JsonObject web = deployment("stock", "web", "trader");
+        final JsonObject batch = deployment("stock", "batch", "none");
+        final long misses = ComponentOwnerIndex.getMissCount();
+        assertEquals(Collections.singleton("stock/trader"), owners("stock", web));
+        assertEquals(Collections.emptySet(), owners("stock", batch));
+        assertEquals(2, ComponentOwnerIndex.getSize());
+        assertEquals(Collections.singleton("stock/trader"), owners("stock", web));
+        assertEquals(Collections.emptySet(), owners("stock", batch));
+        assertEquals("Lookups were not answered from the index", misses + 2, ComponentOwnerIndex.getMissCount());
+
+        // Looked up with other labels.
+        assertEquals(Collections.singleton("stock/broker"), owners("stock", deployment("stock", "web", "broker")));
+        assertEquals(misses + 3, ComponentOwnerIndex.getMissCount());
+    }
+
+    @Test
+    public void getOwners_notSynced() {
+        ApplicationCache.resetCache();
+        assertNull(owners("stock", deployment("stock", "web", "trader")));
+        assertEquals(0, ComponentOwnerIndex.getSize());
+        final ApplicationInfo info = new ApplicationInfo(application("stock", "trader", "trader"), "stock", "trader");
+        assertTrue(ComponentOwnerIndex.isOwner(info, "Deployment", "stock", deployment("stock", "web", "trader")));
+    }
+
+    @Test
+    public void applicationChanged_updatesOnlyThatApplication() {
+        ApplicationCache.processApplicationEvent("ADDED", application("stock", "trader", "trader"));
+        final JsonObject web = deployment("stock", "web", "trader");
+        final JsonObject db = deployment("stock", "db", "db");
+        assertEquals(Collections.singleton("stock/trader"), owners("stock", web));
+        assertEquals(Collections.emptySet(), owners("stock", db));
+        final long misses = ComponentOwnerIndex.getMissCount();
+
+        // Applications that don't include the components, or that include the same components, leave the entries alone.
+        ApplicationCache.processApplicationEvent("ADDED", application("other", "portfolio", "trader"));
+        ApplicationCache.processApplicationEvent("MODIFIED", application("stock", "trader", "trader"));
+
+        // A new application includes db.
+        ApplicationCache.processApplicationEvent("ADDED", application("stock", "database", "db"));
+        assertEquals(Collections.singleton("stock/trader"), owners("stock", web));
+        assertEquals(Collections.singleton("stock/database"), owners("stock", db));
+
+        // The selector changes.
+        ApplicationCache.processApplicationEvent("MODIFIED", application("stock", "trader", "db"));
+        assertEquals(Collections.emptySet(), owners("stock", web));
+        assertEquals(new TreeSet<>(Arrays.asList("stock/database", "stock/trader")), owners("stock", db));
+
+        // The component kinds change.
+        ApplicationCache.processApplicationEvent("MODIFIED", application("stock", "trader", "db", "[{\"group\":\"\",\"kind\":\"Service\"}]"));
+        assertEquals(Collections.singleton("stock/database"), owners("stock", db));
+
+        // The application is deleted.
+        ApplicationCache.processApplicationEvent("DELETED", application("stock", "database", "db"));
+        assertEquals(Collections.emptySet(), owners("stock", db));
+        assertEquals("Entries were recomputed after application changes", misses, ComponentOwnerIndex.getMissCount());
+        assertEquals(2, ComponentOwnerIndex.getSize());
+
+        // The application cache is reset.
+        ApplicationCache.resetCache();
+        assertEquals(0, ComponentOwnerIndex.getSize());
+    }
+
+    @Test
+    public void componentChanged_updatesEntryAndNotifies() {
+        ApplicationCache.processApplicationEvent("ADDED", application("stock", "trader", "trader"));
+        final long misses = ComponentOwnerIndex.getMissCount();
+        ComponentOwnerIndex.componentChanged(DEPLOYMENT, "ADDED", deployment("stock", "web", "trader"));
+        assertEquals(Collections.singleton("stock/trader"), owners("stock", deployment("stock", "web", "trader")));
+        ComponentOwnerIndex.componentChanged(DEPLOYMENT, "MODIFIED", deployment("stock", "web", "other"));
+        assertEquals(Collections.emptySet(), owners("stock", deployment("stock", "web", "other")));
+        assertEquals(misses, ComponentOwnerIndex.getMissCount());
+        ComponentOwnerIndex.componentChanged(DEPLOYMENT, "DELETED", deployment("stock", "web", "other"));
+        assertEquals(0, ComponentOwnerIndex.getSize());
+        assertEquals(Arrays.asList("ADDED web [stock/trader]", "MODIFIED web []", "DELETED web []"), EVENTS);
+    }
+
+    @Test
+    public void componentsReset_keyedByGroup() {
+        ApplicationCache.processApplicationEvent("ADDED", application("stock", "trader", "trader"));
+        final ComponentInfo other = new ComponentInfo("Deployment", "example.com", "v1", "deployments", true);
+        final JsonObject web = deployment("stock", "web", "trader");
+        final JsonObject otherWeb = component("stock", "web", "none");
+        otherWeb.addProperty("apiVersion", "example.com/v1");
+        ComponentOwnerIndex.componentChanged(DEPLOYMENT, "ADDED", web);
+        ComponentOwnerIndex.componentChanged(other, "ADDED", otherWeb);
+        assertEquals(2, ComponentOwnerIndex.getSize());
+        assertEquals(Collections.emptySet(), owners("stock", otherWeb));
+        assertEquals(Collections.singleton("stock/trader"), owners("stock", web));
+
+        ComponentOwnerIndex.componentsReset(other);
+        assertEquals(1, ComponentOwnerIndex.getSize());
+        final long misses = ComponentOwnerIndex.getMissCount();
+        assertEquals(Collections.singleton("stock/trader"), owners("stock", web));
+        assertEquals(misses, ComponentOwnerIndex.getMissCount());
+    }
+
+    @Test
+    public void getGroup() {
+        assertEquals("apps", ComponentOwnerIndex.getGroup("apps/v1"));
+        assertEquals("", ComponentOwnerIndex.getGroup("v1"));
+        assertEquals("", ComponentOwnerIndex.getGroup("/v1"));
+        assertEquals("", ComponentOwnerIndex.getGroup("core/v1"));
+        assertEquals("", ComponentOwnerIndex.getGroup(null));
+    }
+}
@@ -20,16 +20,26 @@ import application.rest.v1.ComponentsEndpoint;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.concurrent.Synchroniser;
 import org.jmock.lib.legacy.ClassImposteriser;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 
 import io.kubernetes.client.openapi.ApiClient;
@@ -47,12 +57,16 @@ public class ComponentsEndpointTest {
     private final Mockery mock = new JUnit4Mockery() {
         {
             setImposteriser(ClassImposteriser.INSTANCE);
+            // The component queries run on the fan-out threads.
+            setThreadingPolicy(new Synchroniser());
         }
     };
 
     private final ApisApi apis = mock.mock(ApisApi.class);
     private final CustomObjectsApi coa = mock.mock(CustomObjectsApi.class);
 
+    private final ComponentInfoRegistry registry = mock.mock(ComponentInfoRegistry.class);
+
     private final ComponentsEndpoint cep = new ComponentsEndpoint();
     private Response response = null;
 
@@ -72,8 +86,23 @@ public class ComponentsEndpointTest {
     public void tearDown() throws Exception {
     }
 
+    // A cache miss wakes the application watcher thread, which lists the applications on the
+    // same mock. Fail its list so it backs off.
+    private void allowApplicationWatcher() throws Exception {
+        mock.checking(new Expectations() {
+            {
+                allowing(coa).setApiClient(with(any(ApiClient.class)));
+                allowing(coa).listClusterCustomObject(with(equal("app.k8s.io")), with(equal("v1beta1")), with(equal("applications")),
+                        with(aNull(String.class)), with(aNull(String.class)), with(aNull(String.class)), with(aNull(String.class)),
+                        with(any(Integer.class)), with(aNull(String.class)), with(any(Integer.class)), with(equal(Boolean.FALSE)));
+                will(throwException(new ApiException(503, "Not available in this test.")));
+            }
+        });
+    }
+
     @Test
     public void getComponents_succeeds() throws Exception {
+        allowApplicationWatcher();
         mock.checking(new Expectations() {
             {
                 allowing(apis).setApiClient(with(any(ApiClient.class)));
@@ -94,6 +123,7 @@ public class ComponentsEndpointTest {
 
     @Test
     public void getComponentsThrowApiException_error() throws Exception {
+        allowApplicationWatcher();
         mock.checking(new Expectations() {
             {
                 allowing(apis).setApiClient(with(any(ApiClient.class)));
@@ -113,4 +143,123 @@ public class ComponentsEndpointTest {
         }
     }
 
+    private void expectDeployment(JsonObject deployment) throws Exception {
+        mock.checking(new Expectations() {
+            {
+                allowing(registry).isNamespaced(with(any(ApiClient.class)), with(equal("Deployment")), with(equal("apps/v1")));
+                will(returnValue(true));
+                oneOf(registry).getNamespacedObject(with(any(ApiClient.class)), with(equal("Deployment")), with(equal("apps/v1")),
+                        with(equal("stock")), with(equal("web")));
+                will(returnValue(deployment));
+            }
+        });
+    }
+
+    private static String getApplicationNames(Response response) {
+        final JsonArray applications = new JsonParser().parse((String) response.getEntity()).getAsJsonObject().getAsJsonArray("applications");
+        final StringBuilder names = new StringBuilder();
+        applications.forEach(v -> names.append(names.length() > 0 ? "," : "").append(KAppNavEndpoint.getComponentName(v.getAsJsonObject())));
+        return names.toString();
+    }
+
+    @Test
+    public void getComponentApplications_fromIndex() throws Exception {
+        allowApplicationWatcher();
+        ComponentOwnerIndex.getSize();
+        ApplicationCache.resetCache();
+        ApplicationCache.setSyncedForJunit();
+        try {
+            ApplicationCache.processApplicationEvent("ADDED", ComponentOwnerIndexTest.application("stock", "trader", "trader"));
+            ApplicationCache.processApplicationEvent("ADDED", ComponentOwnerIndexTest.application("stock", "broker", "broker"));
+            ApplicationCache.processApplicationEvent("ADDED", ComponentOwnerIndexTest.application("other", "portfolio", "trader"));
+            final JsonObject hidden = ComponentOwnerIndexTest.application("stock", "hidden", "trader");
+            hidden.getAsJsonObject("metadata").add("annotations", new JsonParser().parse("{\"kappnav.application.hidden\":\"true\"}"));
+            ApplicationCache.processApplicationEvent("ADDED", hidden);
+            ApplicationCache.processApplicationEvent("ADDED", ComponentOwnerIndexTest.application("stock", "account", "trader"));
+            expectDeployment(new JsonParser().parse("{\"apiVersion\":\"apps/v1\",\"kind\":\"Deployment\","
+                    + "\"metadata\":{\"name\":\"web\",\"namespace\":\"stock\",\"labels\":{\"app\":\"trader\"}}}").getAsJsonObject());
+            cep.setRegistryForJunit(registry);
+            response = cep.getComponentApplications("web", "Deployment", "apps/v1", "stock");
+            assertEquals(200, response.getStatus());
+            assertEquals("account,trader", getApplicationNames(response));
+        }
+        finally {
+            ApplicationCache.resetCache();
+        }
+    }
+
+    @Test
+    public void getComponentApplications_notSynced() throws Exception {
+        ApplicationCache.resetCache();
+        final JsonObject list = new JsonObject();
+        final JsonArray items = new JsonArray();
+        items.add(ComponentOwnerIndexTest.application("stock", "trader", "trader"));
+        items.add(ComponentOwnerIndexTest.application("stock", "broker", "broker"));
+        list.add("items", items);
+        list.add("metadata", new JsonObject());
+        mock.checking(new Expectations() {
+            {
+                allowing(coa).setApiClient(with(any(ApiClient.class)));
+                // The application watcher thread may list the applications too.
+                allowing(coa).listClusterCustomObject("app.k8s.io", "v1beta1", "applications", null, null, null, null, 60, null, 60, false);
+                will(returnValue(list));
+            }
+        });
+        expectDeployment(new JsonParser().parse("{\"apiVersion\":\"apps/v1\",\"kind\":\"Deployment\","
+                + "\"metadata\":{\"name\":\"web\",\"namespace\":\"stock\",\"labels\":{\"app\":\"trader\"}}}").getAsJsonObject());
+        cep.setRegistryForJunit(registry);
+        response = cep.getComponentApplications("web", "Deployment", "apps/v1", "stock");
+        assertEquals(200, response.getStatus());
+        assertEquals("trader", getApplicationNames(response));
+    }
+
+    @Test
+    public void getComponents_clusterQueryFailed() throws Exception {
+        allowApplicationWatcher();
+        ApplicationCache.resetCache();
+        ApplicationCache.setSyncedForJunit();
+        try {
+            final JsonObject app = ComponentOwnerIndexTest.application("stock", "trader", "trader",
+                    "[{\"group\":\"apps\",\"kind\":\"Deployment\"},{\"group\":\"rbac.authorization.k8s.io\",\"kind\":\"ClusterRole\"}]");
+            app.getAsJsonObject("metadata").add("annotations", new JsonParser().parse("{\"kappnav.component.namespaces\":\"shared\"}"));
+            ApplicationCache.processApplicationEvent("ADDED", app);
+            final JsonObject empty = new JsonParser().parse("{\"items\":[]}").getAsJsonObject();
+            mock.checking(new Expectations() {
+                {
+                    allowing(registry).getComponentGroupApiVersions(with(any(ComponentKind.class)));
+                    will(new CustomAction("apiVersions") {
+                        @Override
+                        public Object invoke(Invocation invocation) {
+                            final ComponentKind kind = (ComponentKind) invocation.getParameter(0);
+                            return Collections.singleton("Deployment".equals(kind.kind) ? "apps/v1" : "rbac.authorization.k8s.io/v1");
+                        }
+                    });
+                    allowing(registry).isNamespaced(with(any(ApiClient.class)), with(equal("Deployment")), with(equal("apps/v1")));
+                    will(returnValue(true));
+                    allowing(registry).isNamespaced(with(any(ApiClient.class)), with(equal("ClusterRole")), with(equal("rbac.authorization.k8s.io/v1")));
+                    will(returnValue(false));
+                    oneOf(registry).listNamespacedObject(with(any(ApiClient.class)), with(equal("Deployment")), with(equal("apps/v1")),
+                            with(equal("stock")), with(aNull(String.class)), with(equal("app=trader")), with(aNull(String.class)), with(aNull(Boolean.class)));
+                    will(returnValue(empty));
+                    // As before, a namespace that cannot be listed contributes no components and is not an error.
+                    oneOf(registry).listNamespacedObject(with(any(ApiClient.class)), with(equal("Deployment")), with(equal("apps/v1")),
+                            with(equal("shared")), with(aNull(String.class)), with(equal("app=trader")), with(aNull(String.class)), with(aNull(Boolean.class)));
+                    will(throwException(new ApiException(403, "forbidden")));
+                    oneOf(registry).listClusterObject(with(any(ApiClient.class)), with(equal("ClusterRole")), with(equal("rbac.authorization.k8s.io/v1")),
+                            with(aNull(String.class)), with(equal("app=trader")), with(aNull(String.class)), with(aNull(Boolean.class)));
+                    will(throwException(new ApiException(403, "forbidden")));
+                }
+            });
+            cep.setRegistryForJunit(registry);
+            response = cep.getComponents("trader", "stock");
+            assertEquals(207, response.getStatus());
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            ((StreamingOutput) response.getEntity()).write(os);
+            assertEquals("{\"components\":[],\"errors\":[{\"kind\":\"ClusterRole\",\"apiVersion\":\"rbac.authorization.k8s.io/v1\","
+                    + "\"code\":403,\"message\":\"forbidden\"}]}", os.toString("UTF-8"));
+        }
+        finally {
+            ApplicationCache.resetCache();
+        }
+    }
 }
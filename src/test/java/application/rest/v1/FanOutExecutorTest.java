@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+public class FanOutExecutorTest {
+
+    @Test
+    public void invokeAll_preservesTaskOrder() {
+        final List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            final int n = i;
+            tasks.add(() -> {
+                // Finish in reverse order.
+                Thread.sleep(40 - 2 * n);
+                return n;
+            });
+        }
+        final List<Integer> results = FanOutExecutor.invokeAll(tasks, 10000L);
+        for (int i = 0; i < 20; ++i) {
+            assertEquals("Test invokeAll_preservesTaskOrder FAILED", Integer.valueOf(i), results.get(i));
+        }
+    }
+
+    @Test
+    public void invokeAll_failedTaskReturnsNull() {
+        final List<Callable<String>> tasks = Arrays.asList(() -> "a", () -> { throw new Exception("failed"); }, () -> "c");
+        assertEquals("Test invokeAll_failedTaskReturnsNull FAILED", Arrays.asList("a", null, "c"), FanOutExecutor.invokeAll(tasks, 10000L));
+    }
+
+    @Test
+    public void invokeAll_cancelsTasksPastDeadline() {
+        final List<Callable<String>> tasks = Arrays.asList(() -> "fast", () -> {
+            Thread.sleep(60000L);
+            return "slow";
+        });
+        final long start = System.currentTimeMillis();
+        final List<String> results = FanOutExecutor.invokeAll(tasks, 500L);
+        assertTrue("Test invokeAll_cancelsTasksPastDeadline FAILED", System.currentTimeMillis() - start < 10000L);
+        assertEquals("Test invokeAll_cancelsTasksPastDeadline FAILED", Arrays.asList("fast", null), results);
+    }
+
+    @Test
+    public void invokeAll_nestedCallsRunInline() {
+        final List<Callable<List<Integer>>> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            final int n = i;
+            tasks.add(() -> FanOutExecutor.invokeAll(Arrays.asList(() -> n, () -> n + 1), 10000L));
+        }
+        final List<List<Integer>> results = FanOutExecutor.invokeAll(tasks, 10000L);
+        for (int i = 0; i < 4; ++i) {
+            assertEquals("Test invokeAll_nestedCallsRunInline FAILED", Arrays.asList(i, i + 1), results.get(i));
+        }
+        assertEquals(Collections.emptyList(), FanOutExecutor.invokeAll(Collections.<Callable<Integer>>emptyList(), 0L));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class JsonTupleWriterTest {
+
+    @Test
+    public void write_matchesToString() throws Exception {
+        final JsonObject app = new JsonParser().parse("{\"metadata\":{\"name\":\"trader\",\"annotations\":"
+                + "{\"kappnav.url\":\"http://host/?a=1&b=<2>\",\"note\":\"café\"}},\"spec\":{\"replicas\":2}}").getAsJsonObject();
+        app.add("status", JsonNull.INSTANCE);
+        final JsonObject actionMap = new JsonParser().parse("{\"url-actions\":[{\"name\":\"open\"}]}").getAsJsonObject();
+
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final JsonTupleWriter writer = new JsonTupleWriter(os, "applications");
+        writer.write("application", app, actionMap, null);
+        writer.write("application", null, null, null);
+        writer.close();
+
+        final JsonArray applications = new JsonArray();
+        final JsonObject tuple = new JsonObject();
+        tuple.add("application", app);
+        tuple.add("action-map", actionMap);
+        tuple.add("section-map", new JsonObject());
+        applications.add(tuple);
+        final JsonObject empty = new JsonObject();
+        empty.add("application", new JsonObject());
+        empty.add("action-map", new JsonObject());
+        empty.add("section-map", new JsonObject());
+        applications.add(empty);
+        final JsonObject expected = new JsonObject();
+        expected.add("applications", applications);
+        assertEquals(expected.toString(), new String(os.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void close_afterFailure() throws Exception {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final JsonTupleWriter writer = new JsonTupleWriter(os, "components");
+        writer.write("component", new JsonObject(), null, null);
+        writer.setFailure(new IllegalStateException("bad <map>"));
+        writer.setContinue("next");
+        writer.close();
+
+        final JsonObject response = new JsonParser().parse(new String(os.toByteArray(), StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(1, response.getAsJsonArray("components").size());
+        assertEquals(500, response.getAsJsonObject("error").get("code").getAsInt());
+        assertEquals("bad &lt;map&gt;", response.getAsJsonObject("error").get("message").getAsString());
+        assertFalse(response.has("continue"));
+    }
+}
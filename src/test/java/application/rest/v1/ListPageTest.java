@@ -0,0 +1,89 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import application.rest.v1.actions.ValidationException;
+
+public class ListPageTest {
+
+    private static final List<String> ITEMS = Arrays.asList("a", "b", "c", "d", "e");
+
+    @Test
+    public void select_keyTokens() {
+        ListPage.Page<String> page = ListPage.of(2, "").select(ITEMS, Function.identity());
+        assertEquals(Arrays.asList("a", "b"), page.items);
+        assertNotNull(page.next);
+
+        // Items removed or added before the key do not shift the next page.
+        page = ListPage.of(2, page.next).select(Arrays.asList("a", "c", "d", "e"), Function.identity());
+        assertEquals(Arrays.asList("c", "d"), page.items);
+
+        page = ListPage.of(2, page.next).select(ITEMS, Function.identity());
+        assertEquals(Collections.singletonList("e"), page.items);
+        assertNull(page.next);
+
+        page = ListPage.ALL.select(ITEMS, Function.identity());
+        assertSame(ITEMS, page.items);
+        assertNull(page.next);
+    }
+
+    @Test
+    public void of_kubeTokens() {
+        final JsonObject list = new JsonParser().parse("{\"metadata\":{\"continue\":\"abc\"},\"items\":[]}").getAsJsonObject();
+        final String token = ListPage.fromKubeList(Collections.emptyList(), list).next;
+        assertEquals("abc", ListPage.getKubeListContinue(list));
+
+        final ListPage page = ListPage.of(10, token);
+        assertEquals("abc", page.getKubeContinue());
+        assertEquals(Integer.valueOf(10), page.getLimit());
+        assertFalse(page.hasKeyToken());
+        assertNull(ListPage.ALL.getLimit());
+        assertNull(ListPage.getKubeListContinue(new JsonObject()));
+    }
+
+    @Test
+    public void of_invalid() {
+        for (String token : new String[] { "abc", "k.", "c.!!" }) {
+            try {
+                ListPage.of(0, token);
+                fail("Token " + token + " was accepted");
+            }
+            catch (ValidationException e) {
+                // Expected.
+            }
+        }
+        try {
+            ListPage.of(-1, "");
+            fail("Negative limit was accepted");
+        }
+        catch (ValidationException e) {
+            // Expected.
+        }
+    }
+}
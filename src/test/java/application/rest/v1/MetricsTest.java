@@ -0,0 +1,157 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.junit.Test;
+
+public class MetricsTest {
+
+    @Test
+    public void scrape_prometheusTextFormat() {
+        final Metrics.Counter counter = Metrics.counter("kappnav_test_events_total", "Test events.", "kind", "note");
+        counter.inc("Deployment", "a \"quoted\" \\ value");
+        counter.inc("Deployment", "a \"quoted\" \\ value");
+        final Metrics.Summary summary = Metrics.summary("kappnav_test_seconds", "Test timings.");
+        summary.observeNanos(1500000000L);
+        summary.observeNanos(500000000L);
+        Metrics.gauge("kappnav_test_size", "Test size.", "cache").register(() -> 42, "test");
+
+        final String text = Metrics.scrape();
+        assertTrue(text, text.contains("# HELP kappnav_test_events_total Test events.\n"
+                + "# TYPE kappnav_test_events_total counter\n"
+                + "kappnav_test_events_total{kind=\"Deployment\",note=\"a \\\"quoted\\\" \\\\ value\"} 2\n"));
+        assertTrue(text, text.contains("# TYPE kappnav_test_seconds summary\n"
+                + "kappnav_test_seconds_count 2\n"
+                + "kappnav_test_seconds_sum 2\n"));
+        assertTrue(text, text.contains("kappnav_test_size{cache=\"test\"} 42\n"));
+        // Families are written in name order.
+        assertTrue(text.indexOf("kappnav_test_events_total") < text.indexOf("kappnav_test_seconds"));
+
+        // The same family is returned for the same name.
+        assertSame(counter, Metrics.counter("kappnav_test_events_total", "Test events.", "kind", "note"));
+        try {
+            counter.inc("Deployment");
+            fail("A sample was created with the wrong number of labels");
+        }
+        catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void unregister_removesSamplesOfOwner() {
+        final Metrics.Counter counter = Metrics.counter("kappnav_test_watcher_events_total", "Test events.", "watcher", "type");
+        counter.inc("a", "ADDED");
+        counter.inc("a", "DELETED");
+        counter.inc("b", "ADDED");
+        final Metrics.Gauge gauge = Metrics.gauge("kappnav_test_watcher_stale", "Test stale.", "watcher");
+        final DoubleSupplier first = () -> 1;
+        final DoubleSupplier second = () -> 0;
+        gauge.register(first, "a");
+        gauge.register(second, "a");
+
+        // The sample has been registered again by a new owner so it is kept.
+        assertFalse(gauge.unregister(first, "a"));
+        assertTrue(Metrics.scrape().contains("kappnav_test_watcher_stale{watcher=\"a\"} 0\n"));
+        assertTrue(gauge.unregister(second, "a"));
+        assertFalse(Metrics.scrape().contains("kappnav_test_watcher_stale{"));
+
+        counter.remove("watcher", "a");
+        final String text = Metrics.scrape();
+        assertFalse(text, text.contains("kappnav_test_watcher_events_total{watcher=\"a\""));
+        assertTrue(text, text.contains("kappnav_test_watcher_events_total{watcher=\"b\",type=\"ADDED\"} 1\n"));
+    }
+
+    @Test
+    public void kubeApiMetrics_resourceAndVerb() {
+        assertResource("pods", "list", "GET", "/api/v1/namespaces/ns/pods");
+        assertResource("pods", "get", "GET", "/api/v1/namespaces/ns/pods/p");
+        assertResource("pods", "list", "GET", "/api/v1/pods");
+        assertResource("namespaces", "get", "GET", "/api/v1/namespaces/ns");
+        assertResource("namespaces", "list", "GET", "/api/v1/namespaces");
+        assertResource("deployments.apps", "get", "GET", "/apis/apps/v1/namespaces/ns/deployments/d");
+        assertResource("deployments.apps", "patch", "PATCH", "/apis/apps/v1/namespaces/ns/deployments/d/status");
+        assertResource("applications.app.k8s.io", "create", "POST", "/apis/app.k8s.io/v1beta1/namespaces/ns/applications");
+        assertResource("kindactionmappings.actions.kappnav.io", "deletecollection", "DELETE", "/apis/actions.kappnav.io/v1/kindactionmappings");
+        assertResource("discovery", "list", "GET", "/apis/app.k8s.io/v1beta1");
+        assertResource("discovery", "list", "GET", "/version");
+    }
+
+    @Test
+    public void metricsFilter_timesStreamedResponseUntilWritten() throws Exception {
+        final Metrics.Summary requests = Metrics.summary("kappnav_http_request_seconds",
+                "Time taken to process requests to the API.", "endpoint", "method", "status");
+        final long before = requests.getCount("unmatched", "GET", "200");
+        final Map<String,Object> properties = new HashMap<>();
+        final MetricsFilter filter = new MetricsFilter();
+
+        filter.filter(newContext(ContainerRequestContext.class, properties, null));
+        filter.filter(newContext(ContainerRequestContext.class, properties, null),
+                newContext(ContainerResponseContext.class, properties, null));
+        // Nothing is recorded until the entity has been written.
+        assertEquals(before, requests.getCount("unmatched", "GET", "200"));
+        filter.aroundWriteTo(newContext(WriterInterceptorContext.class, properties,
+                () -> assertEquals(before, requests.getCount("unmatched", "GET", "200"))));
+        assertEquals(before + 1, requests.getCount("unmatched", "GET", "200"));
+    }
+
+    // Returns a request, response or writer interceptor context for a GET request with a 200 response
+    // that has an entity. The properties are shared between the contexts, as they are for a request.
+    private static <T> T newContext(Class<T> type, Map<String,Object> properties, Runnable proceed) {
+        return type.cast(Proxy.newProxyInstance(MetricsTest.class.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getProperty":
+                    return properties.get(args[0]);
+                case "setProperty":
+                    properties.put((String) args[0], args[1]);
+                    return null;
+                case "removeProperty":
+                    properties.remove(args[0]);
+                    return null;
+                case "getMethod":
+                    return "GET";
+                case "getStatus":
+                    return 200;
+                case "hasEntity":
+                    return true;
+                case "proceed":
+                    proceed.run();
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }));
+    }
+
+    private static void assertResource(String resource, String verb, String method, String path) {
+        final java.util.List<String> segments = Arrays.asList(path.substring(1).split("/"));
+        assertEquals(path, resource, KubeApiMetrics.getResource(segments));
+        assertEquals(path, verb, KubeApiMetrics.getVerb(method, segments, false));
+    }
+}
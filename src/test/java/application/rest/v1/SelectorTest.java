@@ -0,0 +1,73 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import application.rest.v1.MatchExpression.Operator;
+
+public class SelectorTest {
+
+    private static JsonObject labels(String json) {
+        return new JsonParser().parse(json).getAsJsonObject();
+    }
+
+    @Test
+    public void parse_roundTripsToString() {
+        final Selector selector = new Selector()
+                .addMatchLabel("app", "stock-trader")
+                .addMatchExpression(new MatchExpression("tier", Operator.IN).addValue("cache").addValue("db"))
+                .addMatchExpression(new MatchExpression("environment", Operator.NOT_IN).addValue("dev"))
+                .addMatchExpression(new MatchExpression("canary", Operator.DOES_NOT_EXIST))
+                .addMatchExpression(new MatchExpression("release", Operator.EXISTS));
+        final Selector parsed = Selector.parse(selector.toString());
+        assertNotNull("Test parse_roundTripsToString FAILED", parsed);
+        assertEquals("Test parse_roundTripsToString FAILED", selector.toString(), parsed.toString());
+    }
+
+    @Test
+    public void parse_matchesLikeOriginal() {
+        final Selector parsed = Selector.parse("app=stock-trader,tier in (cache, db),environment notin (dev),!canary");
+        assertNotNull("Test parse_matchesLikeOriginal FAILED", parsed);
+        assertTrue(parsed.matchesLabels(labels("{\"app\":\"stock-trader\",\"tier\":\"db\",\"environment\":\"prod\"}")));
+        assertFalse(parsed.matchesLabels(labels("{\"app\":\"stock-trader\",\"tier\":\"web\"}")));
+        assertFalse(parsed.matchesLabels(labels("{\"app\":\"stock-trader\",\"tier\":\"db\",\"environment\":\"dev\"}")));
+        assertFalse(parsed.matchesLabels(labels("{\"app\":\"stock-trader\",\"tier\":\"db\",\"canary\":\"true\"}")));
+    }
+
+    @Test
+    public void parse_inequality() {
+        final Selector parsed = Selector.parse("app!=foo");
+        assertNotNull("Test parse_inequality FAILED", parsed);
+        assertTrue(parsed.matchesLabels(labels("{\"app\":\"bar\"}")));
+        assertTrue(parsed.matchesLabels(labels("{}")));
+        assertFalse(parsed.matchesLabels(labels("{\"app\":\"foo\"}")));
+    }
+
+    @Test
+    public void parse_emptyAndMalformed() {
+        assertTrue(Selector.parse(null).isEmpty());
+        assertTrue(Selector.parse("").isEmpty());
+        assertNull(Selector.parse("tier in (cache"));
+        assertNull(Selector.parse("tier between (a, b)"));
+    }
+}
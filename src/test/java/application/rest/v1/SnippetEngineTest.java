@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+import java.util.concurrent.CountDownLatch;
+
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import org.junit.Test;
+
+public class SnippetEngineTest {
+
+    private static final String UPPER = "function getStatus(s) { return s.toUpperCase(); }";
+    private static final String LOWER = "function getStatus(s) { return s.toLowerCase(); }";
+
+    private static void assumeJavaScript() {
+        // The JavaScript engine was removed from the JDK in Java 15.
+        assumeNotNull(new ScriptEngineManager().getEngineByName("JavaScript"));
+    }
+
+    @Test
+    public void invokeFunction_compilesOnce() throws Exception {
+        assumeJavaScript();
+        final long compilations = SnippetEngine.getCompilationCount();
+        for (int i = 0; i < 5; ++i) {
+            assertEquals("NORMAL", SnippetEngine.invokeFunction(UPPER, "getStatus", "Normal"));
+        }
+        assertEquals(compilations + 1, SnippetEngine.getCompilationCount());
+    }
+
+    @Test
+    public void invokeFunction_sameFunctionNameInDifferentSnippets() throws Exception {
+        assumeJavaScript();
+        assertEquals("NORMAL", SnippetEngine.invokeFunction(UPPER, "getStatus", "Normal"));
+        assertEquals("normal", SnippetEngine.invokeFunction(LOWER, "getStatus", "Normal"));
+        assertEquals("NORMAL", SnippetEngine.invokeFunction(UPPER, "getStatus", "Normal"));
+    }
+
+    @Test
+    public void invokeFunction_globalsNotShared() throws Exception {
+        assumeJavaScript();
+        assertEquals("1", SnippetEngine.invokeFunction("var count = (typeof count === 'undefined') ? 1 : count + 1; "
+                + "function getStatus(s) { return '' + count; }", "getStatus", "Normal"));
+        assertEquals("1", SnippetEngine.invokeFunction("var count = (typeof count === 'undefined') ? 1 : count + 1; "
+                + "function getStatus(s) { return '' + count; }", "getStatus", "Normal"));
+        assertEquals("undefined", SnippetEngine.invokeFunction("function getStatus(s) { return typeof count; }", "getStatus", "Normal"));
+    }
+
+    @Test
+    public void run_abandonedAndRejected() throws Exception {
+        SnippetEngine.setExecutorForJunit(1, 1, 200);
+        final CountDownLatch release = new CountDownLatch(1);
+        final int abandoned = SnippetEngine.getAbandonedCount();
+        try {
+            // Ignores interrupts, like a JavaScript loop.
+            try {
+                SnippetEngine.run("spin", () -> {
+                    while (release.getCount() > 0) {
+                        try {
+                            release.await();
+                        }
+                        catch (InterruptedException e) {
+                            // Keep running.
+                        }
+                    }
+                    return "spun";
+                });
+                fail("The invocation did not time out");
+            }
+            catch (ScriptException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("did not complete within 200 ms"));
+            }
+            assertEquals(abandoned + 1, SnippetEngine.getAbandonedCount());
+
+            // The only worker is busy. The next invocation waits in the queue until it times out.
+            try {
+                SnippetEngine.run("queued", () -> "queued");
+                fail("The queued invocation did not time out");
+            }
+            catch (ScriptException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("did not complete"));
+            }
+            assertEquals("An invocation that never started was counted as abandoned", abandoned + 1, SnippetEngine.getAbandonedCount());
+
+            // The queue is full.
+            final long rejections = SnippetEngine.getRejectionCount();
+            try {
+                SnippetEngine.run("rejected", () -> "rejected");
+                fail("The invocation was not rejected");
+            }
+            catch (ScriptException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("rejected"));
+            }
+            assertEquals(rejections + 1, SnippetEngine.getRejectionCount());
+
+            // The abandoned invocation completes and the worker is available again.
+            release.countDown();
+            for (int i = 0; i < 100 && SnippetEngine.getAbandonedCount() > abandoned; ++i) {
+                Thread.sleep(50);
+            }
+            assertEquals(abandoned, SnippetEngine.getAbandonedCount());
+            assertEquals("done", SnippetEngine.run("done", () -> "done"));
+        }
+        finally {
+            release.countDown();
+            SnippetEngine.setExecutorForJunit(Runtime.getRuntime().availableProcessors(), 100, 5000);
+        }
+    }
+}
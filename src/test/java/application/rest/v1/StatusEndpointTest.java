@@ -144,5 +144,21 @@ public class StatusEndpointTest {
             fail("Test computeStatusThrowApiException_error failed with exception " + e.getMessage());
         }
     }
+
+    @Test
+    public void computeStatuses_malformedRequest() throws Exception {
+        final String[] requests = {
+            "",
+            "[]",
+            "{}",
+            "{\"resources\":[\"Deployment\"]}",
+            "{\"resources\":[{\"kind\":\"Deployment\",\"namespace\":\"default\"}]}",
+            "{\"application\":{\"namespace\":\"default\"}}",
+        };
+        for (String request : requests) {
+            response = sep.computeStatuses(request);
+            assertEquals("Test computeStatuses_malformedRequest FAILED for " + request, 400, response.getStatus());
+        }
+    }
 	
 }
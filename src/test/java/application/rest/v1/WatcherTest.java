@@ -0,0 +1,247 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.util.Watch;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+public class WatcherTest {
+
+    private HttpServer server;
+    private volatile boolean stopped;
+
+    // The resource versions that watches were started from, in order.
+    private final List<String> watchVersions = Collections.synchronizedList(new ArrayList<>());
+    // The events passed to the handler, as "type name" or "RESET" or "LIST".
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch lastWatch = new CountDownLatch(1);
+    // The values passed to setStale(), in order.
+    private final List<Boolean> staleChanges = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        final AtomicInteger requests = new AtomicInteger();
+        server.createContext("/watch", exchange -> {
+            final String query = exchange.getRequestURI().getQuery();
+            watchVersions.add(getQueryParameter(query, "resourceVersion"));
+            switch (requests.incrementAndGet()) {
+            case 1:
+                // Two events and a bookmark, then the API server ends the watch.
+                respond(exchange, 200, event("ADDED", "b", "11") + event("MODIFIED", "a", "12")
+                        + "{\"type\":\"BOOKMARK\",\"object\":{\"metadata\":{\"resourceVersion\":\"14\"}}}\n");
+                break;
+            case 2:
+                // The watch fails. It is resumed later from the same resource version.
+                respond(exchange, 500, "{}");
+                break;
+            case 3:
+                // The resource version has expired.
+                respond(exchange, 200, "{\"type\":\"ERROR\",\"object\":{\"kind\":\"Status\",\"apiVersion\":\"v1\","
+                        + "\"status\":\"Failure\",\"reason\":\"Expired\",\"code\":410}}\n");
+                break;
+            default:
+                lastWatch.countDown();
+                respond(exchange, 200, "");
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        stopped = true;
+        server.stop(0);
+    }
+
+    private static String event(String type, String name, String resourceVersion) {
+        return "{\"type\":\"" + type + "\",\"object\":{\"metadata\":{\"name\":\"" + name + "\",\"resourceVersion\":\""
+                + resourceVersion + "\"}}}\n";
+    }
+
+    private static String getQueryParameter(String query, String name) {
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                return parameter.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    public void start_resumesFromLastResourceVersionAndRelistsChangesOnlyWhenGone() throws Exception {
+        final String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/watch";
+        final OkHttpClient http = new OkHttpClient();
+        final AtomicInteger lists = new AtomicInteger();
+        Watcher.start(new Watcher.Handler<Object>() {
+            @Override
+            public String getWatcherThreadName() {
+                return "kAppNav Test Watcher";
+            }
+
+            @Override
+            public List<Object> listResources(ApiClient client, AtomicReference<String> resourceVersion) throws ApiException {
+                events.add("LIST");
+                final List<Object> list = new ArrayList<>();
+                if (lists.incrementAndGet() == 1) {
+                    resourceVersion.set("10");
+                    list.add(object("a", "5"));
+                }
+                else {
+                    // a is unchanged, b has been deleted and c added.
+                    resourceVersion.set("20");
+                    list.add(object("a", "12"));
+                    list.add(object("c", "19"));
+                }
+                return list;
+            }
+
+            @Override
+            public Call createWatchCall(ApiClient client, String resourceVersion) throws ApiException {
+                return http.newCall(new Request.Builder().url(url + "?resourceVersion=" + resourceVersion
+                        + "&allowWatchBookmarks=true").build());
+            }
+
+            @SuppressWarnings("serial")
+            @Override
+            public Type getWatchType() {
+                return new TypeToken<Watch.Response<Object>>() {}.getType();
+            }
+
+            @Override
+            public void processResponse(ApiClient client, String type, Object object) {
+                final JsonObject o = KAppNavEndpoint.getItemAsObject(client, object);
+                events.add(type + " " + KAppNavEndpoint.getComponentName(o));
+            }
+
+            @Override
+            public void reset(ApiClient client) {
+                events.add("RESET");
+            }
+
+            @Override
+            public void setStale(boolean stale) {
+                staleChanges.add(stale);
+            }
+
+            @Override
+            public boolean isStopped() {
+                return stopped;
+            }
+        }, true);
+
+        assertTrue("The watch was not re-established", lastWatch.await(30, TimeUnit.SECONDS));
+        // The failed watch is resumed from the bookmark's resource version without a reset or a list.
+        // The expired one is followed by a new list, of which only the changes are processed.
+        assertEquals(Arrays.asList("10", "14", "14", "20"), watchVersions.subList(0, 4));
+        assertEquals(Arrays.asList("LIST", "ADDED a", "ADDED b", "MODIFIED a", "LIST", "ADDED c", "DELETED b"),
+                events.subList(0, 7));
+        // The state is stale from the failed and the expired watch until the next watch is started.
+        // The watch that the API server ended doesn't make it stale.
+        for (int i = 0; i < 100 && staleChanges.size() < 4; ++i) {
+            Thread.sleep(50);
+        }
+        assertEquals(Arrays.asList(true, false, true, false), staleChanges.subList(0, 4));
+    }
+
+    private static JsonObject object(String name, String resourceVersion) {
+        return new JsonParser().parse("{\"metadata\":{\"name\":\"" + name + "\",\"resourceVersion\":\"" + resourceVersion
+                + "\"}}").getAsJsonObject();
+    }
+
+    @Test
+    public void getRetryDelay_exponentialWithJitter() {
+        assertEquals(500L, Watcher.getRetryDelay(1, 1000L, 60000L, 0.0));
+        assertEquals(1000L, Watcher.getRetryDelay(1, 1000L, 60000L, 1.0));
+        assertEquals(1000L, Watcher.getRetryDelay(2, 1000L, 60000L, 0.0));
+        assertEquals(1500L, Watcher.getRetryDelay(2, 1000L, 60000L, 0.5));
+        assertEquals(16000L, Watcher.getRetryDelay(5, 1000L, 60000L, 1.0));
+        assertEquals(30000L, Watcher.getRetryDelay(7, 1000L, 60000L, 0.0));
+        assertEquals(60000L, Watcher.getRetryDelay(100, 1000L, 60000L, 1.0));
+    }
+
+    @Test
+    public void getResourceVersion() {
+        final V1ConfigMap map = new V1ConfigMap().metadata(new V1ObjectMeta().name("m").resourceVersion("7"));
+        assertEquals("7", Watcher.getResourceVersion(null, map));
+        assertEquals("8", Watcher.getResourceVersion(null,
+                new JsonParser().parse("{\"metadata\":{\"resourceVersion\":\"8\"}}").getAsJsonObject()));
+        assertNull(Watcher.getResourceVersion(null, new V1ConfigMap()));
+    }
+
+    @Test
+    public void allowBookmarks() {
+        final OkHttpClient http = new OkHttpClient();
+        final Call call = http.newCall(new Request.Builder().url("http://127.0.0.1/watch?watch=true").build());
+        assertEquals("true", Watcher.allowBookmarks(new ApiClient(), call).request().url().queryParameter("allowWatchBookmarks"));
+        final Call explicit = http.newCall(new Request.Builder().url("http://127.0.0.1/watch?allowWatchBookmarks=false").build());
+        assertSame(explicit, Watcher.allowBookmarks(new ApiClient(), explicit));
+    }
+
+    @Test
+    public void getKey() {
+        assertEquals("ns/m", Watcher.getKey(null, new V1ConfigMap().metadata(new V1ObjectMeta().namespace("ns").name("m"))));
+        assertEquals("/crd", Watcher.getKey(null, new JsonParser().parse("{\"metadata\":{\"name\":\"crd\"}}").getAsJsonObject()));
+        final Map<String,Object> metadata = new HashMap<>();
+        metadata.put("namespace", "ns");
+        metadata.put("name", "app");
+        assertEquals("ns/app", Watcher.getKey(null, Collections.singletonMap("metadata", metadata)));
+        assertNull(Watcher.getKey(null, new V1ConfigMap()));
+    }
+}
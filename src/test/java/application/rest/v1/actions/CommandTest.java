@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.actions;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommandTest {
+
+    private static final String SH = "/bin/sh";
+
+    @Before
+    public void setUp() {
+        assumeTrue(new File(SH).canExecute());
+    }
+
+    private static Command sh(String script, long timeout) {
+        return new Command(new String[] { SH, "-c", script }, timeout, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void invoke_outputLargerThanPipeBuffer() {
+        // Writes 256K to both stdout and stderr before exiting.
+        final Command.Result result = sh("head -c 262144 /dev/zero | tr '\\\\0' a; head -c 262144 /dev/zero >&2", 30).invoke();
+        assertEquals(Command.Status.COMPLETE, result.status);
+        assertEquals(0, result.exitValue);
+        assertEquals(262144, result.output.length());
+    }
+
+    @Test
+    public void invoke_failureAndTimeout() {
+        Command.Result result = sh("echo failed >&2; exit 3", 30).invoke();
+        assertEquals(Command.Status.COMPLETE, result.status);
+        assertEquals(3, result.exitValue);
+        assertNull(result.output);
+
+        result = sh("sleep 30", 1).invoke();
+        assertEquals(Command.Status.TIMED_OUT, result.status);
+    }
+
+    @Test
+    public void invoke_childHoldsOutputOpen() {
+        // The process exits after 2 seconds but leaves a child holding stdout open. The
+        // timeout covers reading the output as well as running the process.
+        final long start = System.nanoTime();
+        final Command.Result result = sh("sleep 10 & sleep 2; exit 0", 3).invoke();
+        assertEquals(Command.Status.TIMED_OUT, result.status);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(4500));
+    }
+
+    @Test
+    public void asyncInvoke_cancel() throws Exception {
+        final Future<Command.Result> result = sh("sleep 30", 60).asyncInvoke();
+        final long start = System.nanoTime();
+        // Let the process start before cancelling it.
+        Thread.sleep(200);
+        assertTrue(result.cancel(true));
+        assertTrue(result.isCancelled());
+        try {
+            result.get();
+            fail("A cancelled command returned a result");
+        }
+        catch (CancellationException e) {
+            // Expected.
+        }
+        assertEquals("hello\n", sh("echo hello", 30).asyncInvoke().get(30, TimeUnit.SECONDS).output);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.actions;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class KubectlGetFunctionTest {
+
+    private static final JsonObject ROUTES = new JsonParser().parse(
+        "{\"kind\":\"List\",\"items\":["
+        + "{\"metadata\":{\"name\":\"trader\",\"labels\":{\"app\":\"trader\"}},\"spec\":{\"host\":\"trader.example.com\"}},"
+        + "{\"metadata\":{\"name\":\"broker\"},\"spec\":{\"host\":\"broker.example.com\"}}]}").getAsJsonObject();
+
+    private static KubectlGetFunction.Request parse(String... parameters) {
+        return KubectlGetFunction.Request.parse(Arrays.asList(parameters));
+    }
+
+    @Test
+    public void parse_supportedForms() {
+        KubectlGetFunction.Request request = parse("Route", "trader", "-n", "stock", "-o", "json");
+        assertEquals("Route", request.resource);
+        assertEquals("trader", request.name);
+        assertEquals("stock", request.namespace);
+        assertNull(request.template);
+
+        request = parse("-n", "stock", "routes/trader", "--output=jsonpath={.spec.host}");
+        assertEquals("routes", request.resource);
+        assertEquals("trader", request.name);
+        assertEquals("stock", request.namespace);
+        assertEquals(1, request.template.size());
+
+        request = parse("pods", "--namespace=stock", "-lapp=trader", "-ojson");
+        assertNull(request.name);
+        assertEquals("app=trader", request.labelSelector);
+
+        request = parse("deployments", "-A", "--selector", "app=trader", "-o", "json");
+        assertTrue(request.allNamespaces);
+    }
+
+    @Test
+    public void parse_unsupportedForms() {
+        // Table output, unknown flags, several types or names and jsonpath ranges are left to kubectl.
+        assertNull(parse("Route", "trader", "-n", "stock"));
+        assertNull(parse("Route", "trader", "-n", "stock", "-o", "yaml"));
+        assertNull(parse("Route", "trader", "-n", "stock", "-o", "json", "--show-labels"));
+        assertNull(parse("routes,services", "-n", "stock", "-o", "json"));
+        assertNull(parse("Route", "trader", "broker", "-n", "stock", "-o", "json"));
+        assertNull(parse("Route", "trader", "-l", "app=trader", "-n", "stock", "-o", "json"));
+        assertNull(parse("Route", "-n", "stock", "-o", "jsonpath={range .items[*]}{.spec.host}{end}"));
+        assertNull(parse("Route", "trader", "-n"));
+    }
+
+    @Test
+    public void format_jsonpath() {
+        assertEquals("trader.example.com broker.example.com",
+                parse("Route", "-n", "stock", "-o", "jsonpath={.items[*].spec.host}").format(ROUTES));
+        assertEquals("http://trader.example.com/",
+                parse("Route", "-n", "stock", "-o", "jsonpath=http://{$.items[0].spec.host}/").format(ROUTES));
+        assertEquals("{\"app\":\"trader\"}",
+                parse("Route", "-n", "stock", "-o", "jsonpath={.items[0].metadata.labels}").format(ROUTES));
+        assertEquals("", parse("Route", "-n", "stock", "-o", "jsonpath={.items[1].metadata.labels}").format(ROUTES));
+        assertEquals(ROUTES.toString(), parse("Route", "-n", "stock", "-o", "json").format(ROUTES));
+    }
+
+    @Test
+    public void normalizeNumbers_wholeDoubles() {
+        // As converted from a CustomObjectsApi map, where every number is a double.
+        final Map<String,Object> spec = new LinkedHashMap<>();
+        spec.put("replicas", 3.0d);
+        spec.put("ratio", 0.5d);
+        spec.put("limit", 1.0e20d);
+        final Map<String,Object> object = new LinkedHashMap<>();
+        object.put("spec", spec);
+        object.put("ports", Arrays.asList(8080.0d, 9443.0d));
+        final JsonObject uncached = new Gson().toJsonTree(object).getAsJsonObject();
+        assertEquals("{\"spec\":{\"replicas\":3.0,\"ratio\":0.5,\"limit\":1.0E20},\"ports\":[8080.0,9443.0]}", uncached.toString());
+
+        final JsonObject normalized = (JsonObject) KubectlGetFunction.Request.normalizeNumbers(uncached);
+        assertEquals("{\"spec\":{\"replicas\":3,\"ratio\":0.5,\"limit\":100000000000000000000},\"ports\":[8080,9443]}", normalized.toString());
+        assertEquals("3 8080", parse("Deployment", "web", "-n", "stock", "-o", "jsonpath={.spec.replicas} {.ports[0]}").format(normalized));
+
+        // Objects parsed from the watch events print the same.
+        final JsonObject cached = new JsonParser().parse("{\"spec\":{\"replicas\":3,\"ratio\":0.5,\"limit\":100000000000000000000},\"ports\":[8080,9443]}").getAsJsonObject();
+        assertEquals(normalized.toString(), KubectlGetFunction.Request.normalizeNumbers(cached).toString());
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.configmaps;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1ConfigMap;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+
+public class ConfigMapCacheTest {
+
+    // CoreV1Api is too large to be mocked by jmock's ClassImposteriser, so reads are answered by this stub.
+    // Each read of a ConfigMap takes the next result queued for it: a V1ConfigMap or an ApiException.
+    private static final class ReadStub extends CoreV1Api {
+        private final Map<String,Deque<Object>> results = new HashMap<>();
+        void add(String namespace, String name, Object... results) {
+            final Deque<Object> queue = this.results.computeIfAbsent(namespace + "/" + name, k -> new ArrayDeque<>());
+            for (Object result : results) {
+                queue.add(result);
+            }
+        }
+        void assertAllRead() {
+            results.forEach((k, v) -> assertTrue("Unread results for " + k + ": " + v, v.isEmpty()));
+        }
+        @Override
+        public V1ConfigMap readNamespacedConfigMap(String name, String namespace, String pretty, Boolean exact, Boolean export) throws ApiException {
+            final Deque<Object> queue = results.get(namespace + "/" + name);
+            assertTrue("Unexpected read of " + namespace + "/" + name, queue != null && !queue.isEmpty());
+            final Object result = queue.remove();
+            if (result instanceof ApiException) {
+                throw (ApiException) result;
+            }
+            return (V1ConfigMap) result;
+        }
+    }
+
+    private final ReadStub cv1a = new ReadStub();
+    private final ApiClient ac = new ApiClient();
+
+    @Before
+    public void setUp() {
+        ConfigMapCache.setCoreV1ApiForJunit(cv1a);
+        ConfigMapCache.setCachedForJunit(true);
+    }
+
+    @After
+    public void tearDown() {
+        ConfigMapCache.setCoreV1ApiForJunit(null);
+        ConfigMapCache.setCachedForJunit(false);
+        cv1a.assertAllRead();
+    }
+
+    static V1ConfigMap configMap(String namespace, String name, boolean watched, String value) {
+        final V1ObjectMeta meta = new V1ObjectMeta().namespace(namespace).name(name)
+                .labels(watched ? Collections.singletonMap("kappnav.io/map-type", "action") : Collections.emptyMap());
+        return new V1ConfigMap().metadata(meta).data(Collections.singletonMap("key", value));
+    }
+
+    @Test
+    public void getConfigMap_watchEventsUpdateEntryInPlace() throws Exception {
+        final long generation = ConfigMapCache.getGeneration();
+        ConfigMapCache.processEventForJunit("ADDED", configMap("ns", "a", true, "1"));
+        ConfigMapCache.processEventForJunit("ADDED", configMap("ns", "b", true, "1"));
+        assertTrue(ConfigMapCache.getGeneration() > generation);
+        assertEquals("1", ConfigMapCache.getConfigMap(ac, "ns", "a").getData().get("key"));
+
+        ConfigMapCache.processEventForJunit("MODIFIED", configMap("ns", "a", true, "2"));
+        assertEquals("2", ConfigMapCache.getConfigMap(ac, "ns", "a").getData().get("key"));
+        assertEquals("1", ConfigMapCache.getConfigMap(ac, "ns", "b").getData().get("key"));
+
+        // Read from the cluster once it's deleted.
+        ConfigMapCache.processEventForJunit("DELETED", configMap("ns", "a", true, "2"));
+        cv1a.add("ns", "a", new ApiException(404, "Not Found"));
+        assertNull(ConfigMapCache.getConfigMap(ac, "ns", "a"));
+        assertEquals("1", ConfigMapCache.getConfigMap(ac, "ns", "b").getData().get("key"));
+    }
+
+    @Test
+    public void getConfigMap_notFoundCached() throws Exception {
+        cv1a.add("ns", "missing", new ApiException(404, "Not Found"));
+        final long hits = ConfigMapCache.getHitCount();
+        assertNull(ConfigMapCache.getConfigMap(ac, "ns", "missing"));
+        assertNull(ConfigMapCache.getConfigMap(ac, "ns", "missing"));
+        assertEquals(hits + 1, ConfigMapCache.getHitCount());
+
+        // The watcher replaces the negative entry.
+        ConfigMapCache.processEventForJunit("ADDED", configMap("ns", "missing", true, "1"));
+        assertEquals("1", ConfigMapCache.getConfigMap(ac, "ns", "missing").getData().get("key"));
+    }
+
+    @Test
+    public void getConfigMap_otherErrorsNotCached() throws Exception {
+        cv1a.add("ns", "a", new ApiException(403, "Forbidden"), new ApiException(500, "Internal Server Error"),
+                configMap("ns", "a", false, "1"));
+        assertNull(ConfigMapCache.getConfigMap(ac, "ns", "a"));
+        assertNull(ConfigMapCache.getConfigMap(ac, "ns", "a"));
+        assertEquals("1", ConfigMapCache.getConfigMap(ac, "ns", "a").getData().get("key"));
+    }
+
+    @Test
+    public void getConfigMap_clearedEntryReadAgain() throws Exception {
+        // A ConfigMap without the kappnav.io/map-type label is cached in an expiring entry.
+        cv1a.add("ns", "unwatched", configMap("ns", "unwatched", false, "1"), configMap("ns", "unwatched", false, "2"));
+        cv1a.add("ns", "watched", configMap("ns", "watched", true, "1"), configMap("ns", "watched", true, "2"));
+        assertNotNull(ConfigMapCache.getConfigMap(ac, "ns", "unwatched"));
+        assertNotNull(ConfigMapCache.getConfigMap(ac, "ns", "watched"));
+        assertEquals("1", ConfigMapCache.getConfigMap(ac, "ns", "unwatched").getData().get("key"));
+        assertEquals("1", ConfigMapCache.getConfigMap(ac, "ns", "watched").getData().get("key"));
+
+        // The garbage collector clears the entries. They are misses, not negative entries.
+        ConfigMapCache.clearReferencesForJunit();
+        final long generation = ConfigMapCache.getGeneration();
+        final long misses = ConfigMapCache.getMissCount();
+        assertEquals("2", ConfigMapCache.getConfigMap(ac, "ns", "unwatched").getData().get("key"));
+        assertEquals("2", ConfigMapCache.getConfigMap(ac, "ns", "watched").getData().get("key"));
+        assertEquals(misses + 2, ConfigMapCache.getMissCount());
+        assertNotEquals("Merged maps built without the cleared entries were not invalidated", generation, ConfigMapCache.getGeneration());
+    }
+
+    @Test
+    public void getGeneration_notTrackedWithoutCache() throws Exception {
+        ConfigMapCache.setCachedForJunit(false);
+        assertEquals(-1L, ConfigMapCache.getGeneration());
+        cv1a.add("ns", "a", configMap("ns", "a", true, "1"), configMap("ns", "a", true, "1"));
+        assertNotNull(ConfigMapCache.getConfigMap(ac, "ns", "a"));
+        assertNotNull(ConfigMapCache.getConfigMap(ac, "ns", "a"));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.configmaps;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import application.rest.v1.configmaps.ConfigMapProcessor.ConfigMapType;
+
+public class KindActionMappingProcessorTest {
+
+    private static JsonObject kam(String name, String namespace, int precedence, String mappings) {
+        return new JsonParser().parse("{\"metadata\":{\"name\":\"" + name + "\",\"namespace\":\"" + namespace + "\"},"
+                + "\"spec\":{\"precedence\":" + precedence + ",\"mappings\":" + mappings + "}}").getAsJsonObject();
+    }
+
+    private static List<JsonObject> kamList(JsonObject... kams) {
+        final JsonArray items = new JsonArray();
+        Arrays.stream(kams).forEach(items::add);
+        final JsonObject list = new JsonObject();
+        list.add("items", items);
+        final List<JsonObject> kamList = new ArrayList<>();
+        kamList.add(list);
+        return kamList;
+    }
+
+    @Test
+    public void getConfigMapsFromKAMs_hierarchyAndPrecedence() {
+        final List<JsonObject> kamList = kamList(
+            kam("default", "kappnav", 1,
+                "[{\"apiVersion\":\"apps/v1\",\"kind\":\"Deployment\",\"mapname\":\"kappnav.actions.deployment\"},"
+                + "{\"apiVersion\":\"*/*\",\"kind\":\"*\",\"mapname\":\"kappnav.actions.${kind}\"},"
+                + "{\"apiVersion\":\"apps/v1\",\"kind\":\"Deployment\",\"name\":\"*\",\"mapname\":\"kappnav.actions.deployment.${name}\"},"
+                + "{\"apiVersion\":\"v1\",\"kind\":\"Service\",\"mapname\":\"kappnav.actions.service\"}]"),
+            kam("custom", "stock", 2,
+                "[{\"apiVersion\":\"apps/*\",\"kind\":\"Deployment\",\"mapname\":\"custom.actions.deployment\"}]"));
+        final KindActionMappingProcessor processor =
+            new KindActionMappingProcessor("trader", null, "apps/v1", "trader-web", null, "Deployment");
+        final List<QName> maps = processor.getConfigMapsFromKAMs(kamList, ConfigMapType.ACTION, "kappnav.actions.deployment");
+        assertEquals(Arrays.asList(
+            new QName("trader", "kappnav.actions.deployment.trader-web"),
+            new QName("stock", "custom.actions.deployment"),
+            new QName("kappnav", "kappnav.actions.deployment"),
+            new QName("kappnav", "kappnav.actions.deployment")), maps);
+        assertTrue(processor.getConfigMapsFromKAMs(kamList, ConfigMapType.STATUS_MAPPING, "kappnav.status-mapping.deployment").isEmpty());
+    }
+
+    @Test
+    public void getConfigMapsFromKAMs_noLimitPerPrecedence() {
+        final JsonObject[] kams = new JsonObject[25];
+        for (int i = 0; i < kams.length; ++i) {
+            kams[i] = kam("kam" + i, "ns" + i, 3,
+                "[{\"apiVersion\":\"v1\",\"kind\":\"Service\",\"mapname\":\"actions" + i + "\"}]");
+        }
+        final KindActionMappingProcessor processor =
+            new KindActionMappingProcessor("default", null, "v1", "web", null, "Service");
+        final List<QName> maps = processor.getConfigMapsFromKAMs(kamList(kams), ConfigMapType.ACTION, "kappnav.actions.service");
+        assertEquals(kams.length, maps.size());
+        for (int i = 0; i < kams.length; ++i) {
+            assertEquals(new QName("ns" + i, "actions" + i), maps.get(i));
+        }
+    }
+
+    @Test
+    public void getConfigMapsFromKAMs_ownerSubstitution() {
+        final List<JsonObject> kamList = kamList(
+            kam("owners", "kappnav", 1,
+                "[{\"apiVersion\":\"v1\",\"kind\":\"Pod\",\"owner\":{\"kind\":\"ReplicaSet\",\"apiVersion\":\"apps/v1\"},"
+                + "\"mapname\":\"kappnav.actions.${owner.kind}\"},"
+                + "{\"apiVersion\":\"v1\",\"kind\":\"Pod\",\"owner\":{\"kind\":\"Job\"},\"mapname\":\"kappnav.actions.job\"}]"));
+        final OwnerRef[] owners = { new OwnerRef("apps/v1", "ReplicaSet", "1234") };
+        final KindActionMappingProcessor processor =
+            new KindActionMappingProcessor("default", owners, "v1", "web-1234", null, "Pod");
+        assertEquals(Arrays.asList(new QName("kappnav", "kappnav.actions.replicaset")),
+            processor.getConfigMapsFromKAMs(kamList, ConfigMapType.ACTION, "kappnav.actions.pod"));
+    }
+}
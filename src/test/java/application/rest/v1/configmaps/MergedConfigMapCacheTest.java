@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.configmaps;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+
+public class MergedConfigMapCacheTest {
+
+    private final AtomicInteger resolved = new AtomicInteger();
+
+    private final Supplier<JsonObject> resolver = () -> {
+        final JsonObject map = new JsonObject();
+        map.addProperty("resolved", resolved.incrementAndGet());
+        return map;
+    };
+
+    @Before
+    public void setUp() {
+        ConfigMapCache.setCachedForJunit(true);
+        KindActionMappingCache.setWatchingForJunit(true);
+    }
+
+    @After
+    public void tearDown() {
+        MergedConfigMapCache.setMaxSizeForJunit(Long.MAX_VALUE);
+        ConfigMapCache.setCachedForJunit(false);
+        KindActionMappingCache.setWatchingForJunit(false);
+    }
+
+    @Test
+    public void getConfigMap_cachedWithinGeneration() {
+        final JsonObject first = MergedConfigMapCache.getConfigMap("key", resolver);
+        first.addProperty("modified", true);
+        final JsonObject second = MergedConfigMapCache.getConfigMap("key", resolver);
+        assertEquals(1, resolved.get());
+        assertEquals(1, second.get("resolved").getAsInt());
+        assertFalse("The caller's changes were cached", second.has("modified"));
+        MergedConfigMapCache.getConfigMap("other", resolver);
+        assertEquals(2, resolved.get());
+    }
+
+    @Test
+    public void getConfigMap_invalidatedByConfigMapChange() {
+        MergedConfigMapCache.getConfigMap("key", resolver);
+        ConfigMapCache.processEventForJunit("MODIFIED", ConfigMapCacheTest.configMap("ns", "a", true, "2"));
+        assertEquals(2, MergedConfigMapCache.getConfigMap("key", resolver).get("resolved").getAsInt());
+        assertEquals(2, MergedConfigMapCache.getConfigMap("key", resolver).get("resolved").getAsInt());
+    }
+
+    @Test
+    public void getConfigMap_invalidatedByKAMChange() {
+        MergedConfigMapCache.getConfigMap("key", resolver);
+        KindActionMappingCache.updateModCount();
+        assertEquals(2, MergedConfigMapCache.getConfigMap("key", resolver).get("resolved").getAsInt());
+    }
+
+    @Test
+    public void getConfigMap_notCachedIfGenerationChangesWhileResolving() {
+        MergedConfigMapCache.getConfigMap("key", () -> {
+            ConfigMapCache.processEventForJunit("MODIFIED", ConfigMapCacheTest.configMap("ns", "a", true, "2"));
+            return resolver.get();
+        });
+        assertEquals(2, MergedConfigMapCache.getConfigMap("key", resolver).get("resolved").getAsInt());
+    }
+
+    @Test
+    public void getConfigMap_notCachedWhileChangesNotTracked() {
+        KindActionMappingCache.setWatchingForJunit(false);
+        MergedConfigMapCache.getConfigMap("key", resolver);
+        MergedConfigMapCache.getConfigMap("key", resolver);
+        assertEquals(2, resolved.get());
+
+        KindActionMappingCache.setWatchingForJunit(true);
+        ConfigMapCache.setCachedForJunit(false);
+        MergedConfigMapCache.getConfigMap("key", resolver);
+        assertEquals(3, resolved.get());
+    }
+
+    @Test
+    public void getConfigMap_maxSize() {
+        MergedConfigMapCache.setMaxSizeForJunit(1);
+        MergedConfigMapCache.getConfigMap("a", resolver);
+        MergedConfigMapCache.getConfigMap("b", resolver);
+        MergedConfigMapCache.getConfigMap("b", resolver);
+        assertEquals(1, MergedConfigMapCache.getSize());
+        assertEquals(3, resolved.get());
+        MergedConfigMapCache.getConfigMap("a", resolver);
+        assertEquals(3, resolved.get());
+    }
+}
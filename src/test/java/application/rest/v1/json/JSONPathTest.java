@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package application.rest.v1.json;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.JsonElement;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class JSONPathTest {
+
+    private static final JsonObject DEPLOYMENT = new JsonParser().parse(
+        "{\"metadata\":{\"name\":\"trader\",\"labels\":{\"app.kubernetes.io/name\":\"trader\"}},"
+        + "\"spec\":{\"replicas\":2,\"template\":{\"spec\":{\"containers\":[{\"name\":\"web\",\"image\":\"trader:1\"},{\"name\":\"sidecar\",\"image\":\"proxy:2\"}]}}},"
+        + "\"status\":{\"conditions\":["
+        + "{\"type\":\"Progressing\",\"status\":\"True\",\"ready\":false},"
+        + "{\"type\":\"Available\",\"status\":\"False\",\"ready\":true,\"count\":3}]}}").getAsJsonObject();
+
+    private static String resolve(String expression) {
+        final JSONPath path = JSONPathParser.compile(expression);
+        assertNotNull("Expression " + expression + " did not parse", path);
+        return path.resolveLeaf(DEPLOYMENT);
+    }
+
+    @Test
+    public void resolveLeaf_childAxis() {
+        assertEquals("trader", resolve("$.metadata.name"));
+        assertEquals("trader", resolve("$['metadata']['name']"));
+        assertEquals("trader", resolve("$.metadata.labels['app.kubernetes.io/name']"));
+        assertEquals("2", resolve("$.spec.replicas"));
+        assertNull(resolve("$.metadata"));
+        assertNull(resolve("$.metadata.missing"));
+    }
+
+    @Test
+    public void resolveLeaf_indexAndWildcard() {
+        assertEquals("web", resolve("$.spec.template.spec.containers[0].name"));
+        assertEquals("proxy:2", resolve("$.spec.template.spec.containers[-1].image"));
+        assertNull(resolve("$.spec.template.spec.containers[2].name"));
+        assertEquals("trader:1", resolve("$.spec.template.spec.containers[*].image"));
+        assertEquals("trader", resolve("$.metadata.*"));
+    }
+
+    @Test
+    public void resolveLeaf_filter() {
+        assertEquals("False", resolve("$.status.conditions[?(@.type=='Available')].status"));
+        assertEquals("True", resolve("$.status.conditions[?(@.type != \"Available\")].status"));
+        assertEquals("Available", resolve("$.status.conditions[?(@.ready == true)].type"));
+        assertEquals("Available", resolve("$.status.conditions[?(@.count == 3)].type"));
+        assertEquals("Available", resolve("$.status.conditions[?(@.count)].type"));
+        assertNull(resolve("$.status.conditions[?(@.type=='Failed')].status"));
+    }
+
+    @Test
+    public void resolveAll_documentOrder() {
+        final List<JsonElement> images = JSONPathParser.compile("$.spec.template.spec.containers[*].image").resolveAll(DEPLOYMENT);
+        assertEquals(2, images.size());
+        assertEquals("trader:1", images.get(0).getAsString());
+        assertEquals("proxy:2", images.get(1).getAsString());
+        final List<JsonElement> labels = JSONPathParser.compile("$.metadata.labels").resolveAll(DEPLOYMENT);
+        assertEquals(1, labels.size());
+        assertTrue(labels.get(0).isJsonObject());
+        assertTrue(JSONPathParser.compile("$.metadata.missing").resolveAll(DEPLOYMENT).isEmpty());
+    }
+
+    @Test
+    public void parse_invalid() {
+        assertNull(JSONPathParser.compile("metadata.name"));
+        assertNull(JSONPathParser.compile("$."));
+        assertNull(JSONPathParser.compile("$.metadata."));
+        assertNull(JSONPathParser.compile("$['metadata'"));
+        assertNull(JSONPathParser.compile("$.items[x]"));
+        assertNull(JSONPathParser.compile("$.items[?(@.type=='a']"));
+        assertSame(JSONPathParser.compile("$.metadata.name"), JSONPathParser.compile("$.metadata.name"));
+    }
+}
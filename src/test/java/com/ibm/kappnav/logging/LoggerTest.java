@@ -0,0 +1,44 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.kappnav.logging;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class LoggerTest {
+
+    @Test
+    public void format_textAndJson() {
+        final String text = Logger.format(new StringBuilder(), false, 0L, 7L, "a.B", "m", Logger.LogType.DEBUG, "hello").toString();
+        assertTrue(text, text.startsWith("[01/01/70 ") || text.startsWith("[12/31/69 "));
+        assertTrue(text, text.endsWith("] 7 a.B m [DEBUG] hello"));
+
+        final String json = Logger.format(new StringBuilder(), true, 0L, 7L, "a.B", "m", Logger.LogType.DEBUG,
+                "say \"hi\"\n\tand \\ \u0001").toString();
+        final JsonObject o = new JsonParser().parse(json).getAsJsonObject();
+        assertEquals("1970-01-01T00:00:00Z", o.get("timestamp").getAsString());
+        assertEquals(7L, o.get("thread").getAsLong());
+        assertEquals("a.B", o.get("class").getAsString());
+        assertEquals("m", o.get("method").getAsString());
+        assertEquals("DEBUG", o.get("type").getAsString());
+        assertEquals("say \"hi\"\n\tand \\ \u0001", o.get("message").getAsString());
+    }
+}
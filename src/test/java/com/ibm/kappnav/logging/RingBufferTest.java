@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 IBM Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ibm.kappnav.logging;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RingBufferTest {
+
+    @Test
+    public void offerPoll_boundedAndOrdered() {
+        final RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        assertNull(buffer.poll());
+        // Go round the ring a few times.
+        for (int lap = 0; lap < 3; ++lap) {
+            for (int i = 0; i < 4; ++i) {
+                assertTrue(buffer.offer(lap * 10 + i));
+            }
+            assertFalse(buffer.offer(-1));
+            assertEquals(4, buffer.size());
+            for (int i = 0; i < 4; ++i) {
+                assertEquals(Integer.valueOf(lap * 10 + i), buffer.poll());
+            }
+            assertNull(buffer.poll());
+            assertEquals(0, buffer.size());
+        }
+    }
+
+    @Test
+    public void offer_concurrentProducers() throws InterruptedException {
+        final int producers = 4;
+        final int count = 5000;
+        final RingBuffer<int[]> buffer = new RingBuffer<>(256);
+        final List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; ++p) {
+            final int producer = p;
+            final Thread t = new Thread(() -> {
+                for (int i = 0; i < count; ++i) {
+                    while (!buffer.offer(new int[] { producer, i })) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        // Each producer's elements must arrive complete and in order.
+        final int[] next = new int[producers];
+        int received = 0;
+        final long deadline = System.currentTimeMillis() + 60000;
+        while (received < producers * count && System.currentTimeMillis() < deadline) {
+            final int[] e = buffer.poll();
+            if (e != null) {
+                assertEquals(next[e[0]]++, e[1]);
+                ++received;
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(producers * count, received);
+        assertNull(buffer.poll());
+    }
+}